@@ -20,8 +20,10 @@ import org.gradle.internal.CompositeStoppable;
 import org.gradle.internal.Stoppable;
 import org.gradle.internal.UncheckedException;
 
+import java.lang.ref.SoftReference;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A hierarchical {@link ServiceRegistry} implementation.
@@ -43,9 +45,15 @@ import java.util.*;
  * <p>Service instances are created on demand. {@link #getFactory(Class)} looks for a service instance which implements {@code Factory<T>} where {@code T} is the expected type.</p>.
  *
  * <p>Service registries are arranged in a hierarchy. If a service of a given type cannot be located, the registry uses its parent registry, if any, to locate the service.</p>
+ *
+ * <p>The factory and decorator methods of a registry type are located once and shared by all instances of that type. Each registry remembers the service
+ * of its own located for a given type, so that subsequent lookups of that type do not need to search its services again. Services located in the parent
+ * registry or in nested registries are not remembered, as those registries may change the services they provide.</p>
  */
 public class DefaultServiceRegistry implements ServiceRegistry {
+    private static final Map<Class<?>, SoftReference<ProviderMethods>> PROVIDER_METHODS = new WeakHashMap<Class<?>, SoftReference<ProviderMethods>>();
     private final List<Provider> providers = new LinkedList<Provider>();
+    private final Map<Class<?>, Object> services = new ConcurrentHashMap<Class<?>, Object>();
     private final OwnServices ownServices;
     private final List<Provider> registeredProviders;
     private final ServiceRegistry parent;
@@ -73,39 +81,28 @@ public class DefaultServiceRegistry implements ServiceRegistry {
     }
 
     private void findProviderMethods() {
-        Set<String> factoryMethods = new HashSet<String>();
-        Set<String> decoratorMethods = new HashSet<String>();
-        for (Class<?> type = getClass(); type != Object.class; type = type.getSuperclass()) {
-            findFactoryMethods(type, factoryMethods, ownServices);
-            findDecoratorMethods(type, decoratorMethods, ownServices);
+        ProviderMethods methods = getProviderMethods(getClass());
+        if (!methods.decoratorMethods.isEmpty() && parent == null) {
+            throw new IllegalArgumentException("Cannot use decorator methods when no parent registry is provided.");
         }
-    }
-
-    private void findFactoryMethods(Class<?> type, Set<String> factoryMethods, OwnServices ownServices) {
-        for (Method method : type.getDeclaredMethods()) {
-            if (method.getName().startsWith("create")
-                    && method.getParameterTypes().length == 0
-                    && method.getReturnType() != Void.class) {
-                if (factoryMethods.add(method.getName())) {
-                    ownServices.add(new FactoryMethodService(method));
-                }
-            }
+        for (Method method : methods.factoryMethods) {
+            ownServices.add(new FactoryMethodService(method));
+        }
+        for (Method method : methods.decoratorMethods) {
+            ownServices.add(new DecoratorMethodService(method));
         }
     }
 
-    private void findDecoratorMethods(Class<?> type, Set<String> decoratorMethods, OwnServices ownServices) {
-        for (Method method : type.getDeclaredMethods()) {
-            if (method.getName().startsWith("create")
-                    && method.getParameterTypes().length == 1
-                    && method.getReturnType() != Void.class
-                    && method.getParameterTypes()[0].equals(method.getReturnType())) {
-                if (parent == null) {
-                    throw new IllegalArgumentException("Cannot use decorator methods when no parent registry is provided.");
-                }
-                if (decoratorMethods.add(method.getName())) {
-                    ownServices.add(new DecoratorMethodService(method));
-                }
+    private static ProviderMethods getProviderMethods(Class<?> registryType) {
+        synchronized (PROVIDER_METHODS) {
+            // The methods are held softly, as they strongly reference the registry type, which would otherwise never be collected
+            SoftReference<ProviderMethods> reference = PROVIDER_METHODS.get(registryType);
+            ProviderMethods methods = reference == null ? null : reference.get();
+            if (methods == null) {
+                methods = new ProviderMethods(registryType);
+                PROVIDER_METHODS.put(registryType, new SoftReference<ProviderMethods>(methods));
             }
+            return methods;
         }
     }
 
@@ -114,6 +111,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
      */
     public void add(ServiceRegistry nested) {
         registeredProviders.add(new NestedServices(nested));
+        services.clear();
     }
 
     /**
@@ -121,6 +119,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
      */
     public <T> void add(Class<T> serviceType, final T serviceInstance) {
         ownServices.add(new FixedInstanceService<T>(serviceType, serviceInstance));
+        services.clear();
     }
 
     /**
@@ -132,6 +131,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
         } finally {
             closed = true;
             providers.clear();
+            services.clear();
         }
     }
 
@@ -141,9 +141,17 @@ public class DefaultServiceRegistry implements ServiceRegistry {
                     serviceType.getSimpleName(), this));
         }
 
-        for (Provider service : providers) {
-            T t = service.getService(serviceType);
+        Object service = services.get(serviceType);
+        if (service != null) {
+            return serviceType.cast(service);
+        }
+
+        for (Provider provider : providers) {
+            T t = provider.getService(serviceType);
             if (t != null) {
+                if (provider == ownServices) {
+                    services.put(serviceType, t);
+                }
                 return t;
             }
         }
@@ -196,8 +204,41 @@ public class DefaultServiceRegistry implements ServiceRegistry {
         <T> Factory<T> getFactory(Class<T> type);
     }
 
+    /**
+     * The factory and decorator methods declared by a registry type and its super types.
+     */
+    private static class ProviderMethods {
+        private final List<Method> factoryMethods = new ArrayList<Method>();
+        private final List<Method> decoratorMethods = new ArrayList<Method>();
+
+        ProviderMethods(Class<?> registryType) {
+            Set<String> factoryMethodNames = new HashSet<String>();
+            Set<String> decoratorMethodNames = new HashSet<String>();
+            for (Class<?> type = registryType; type != Object.class; type = type.getSuperclass()) {
+                for (Method method : type.getDeclaredMethods()) {
+                    if (!method.getName().startsWith("create") || method.getReturnType() == Void.class) {
+                        continue;
+                    }
+                    Class<?>[] parameterTypes = method.getParameterTypes();
+                    if (parameterTypes.length == 0) {
+                        if (factoryMethodNames.add(method.getName())) {
+                            method.setAccessible(true);
+                            factoryMethods.add(method);
+                        }
+                    } else if (parameterTypes.length == 1 && parameterTypes[0].equals(method.getReturnType())) {
+                        if (decoratorMethodNames.add(method.getName())) {
+                            method.setAccessible(true);
+                            decoratorMethods.add(method);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private class OwnServices implements Provider {
         private final List<Provider> providers = new ArrayList<Provider>();
+        private final Map<Class<?>, List<SingletonService>> servicesByType = new HashMap<Class<?>, List<SingletonService>>();
 
         public <T> Factory<T> getFactory(Class<T> type) {
             Factory<T> match = null;
@@ -214,8 +255,12 @@ public class DefaultServiceRegistry implements ServiceRegistry {
         }
 
         public <T> T getService(Class<T> serviceType) {
+            List<SingletonService> candidates = servicesByType.get(serviceType);
+            if (candidates == null) {
+                return null;
+            }
             T match = null;
-            for (Provider provider : providers) {
+            for (SingletonService provider : candidates) {
                 T service = provider.getService(serviceType);
                 if (service != null) {
                     if (match != null) {
@@ -231,8 +276,29 @@ public class DefaultServiceRegistry implements ServiceRegistry {
             new CompositeStoppable(providers).stop();
         }
 
-        public void add(Provider provider) {
+        public void add(SingletonService provider) {
             this.providers.add(provider);
+            Set<Class<?>> types = new HashSet<Class<?>>();
+            collectTypes(provider.serviceClass, types);
+            types.add(Object.class);
+            for (Class<?> type : types) {
+                List<SingletonService> candidates = servicesByType.get(type);
+                if (candidates == null) {
+                    candidates = new ArrayList<SingletonService>(1);
+                    servicesByType.put(type, candidates);
+                }
+                candidates.add(provider);
+            }
+        }
+
+        private void collectTypes(Class<?> type, Set<Class<?>> types) {
+            if (type == null || !types.add(type)) {
+                return;
+            }
+            collectTypes(type.getSuperclass(), types);
+            for (Class<?> interfaceType : type.getInterfaces()) {
+                collectTypes(interfaceType, types);
+            }
         }
     }
 
@@ -271,7 +337,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
 
     private static abstract class SingletonService extends ManagedObjectProvider<Object> {
         final Type serviceType;
-        final Class serviceClass;
+        final Class<?> serviceClass;
 
         SingletonService(Type serviceType) {
             this.serviceType = serviceType;
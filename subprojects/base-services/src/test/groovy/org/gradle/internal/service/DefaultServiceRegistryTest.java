@@ -59,6 +59,40 @@ public class DefaultServiceRegistryTest {
         assertThat(registry.get(BigDecimal.class), sameInstance(value));
     }
 
+    @Test
+    public void locatesParentServiceEachTimeItIsRequested() {
+        final ServiceRegistry parent = context.mock(ServiceRegistry.class);
+        TestRegistry registry = new TestRegistry(parent);
+
+        context.checking(new Expectations(){{
+            one(parent).get(BigDecimal.class);
+            will(returnValue(BigDecimal.TEN));
+            one(parent).get(BigDecimal.class);
+            will(returnValue(BigDecimal.ONE));
+        }});
+
+        assertThat(registry.get(BigDecimal.class), sameInstance(BigDecimal.TEN));
+        assertThat(registry.get(BigDecimal.class), sameInstance(BigDecimal.ONE));
+    }
+
+    @Test
+    public void locatesNestedServiceEachTimeItIsRequested() {
+        final ServiceRegistry nested = context.mock(ServiceRegistry.class);
+        final Runnable runnable1 = context.mock(Runnable.class, "runnable1");
+        final Runnable runnable2 = context.mock(Runnable.class, "runnable2");
+        registry.add(nested);
+
+        context.checking(new Expectations() {{
+            one(nested).get(Runnable.class);
+            will(returnValue(runnable1));
+            one(nested).get(Runnable.class);
+            will(returnValue(runnable2));
+        }});
+
+        assertThat(registry.get(Runnable.class), sameInstance(runnable1));
+        assertThat(registry.get(Runnable.class), sameInstance(runnable2));
+    }
+
     @Test
     public void throwsExceptionForUnknownParentService() {
         final ServiceRegistry parent = context.mock(ServiceRegistry.class);
@@ -84,6 +118,29 @@ public class DefaultServiceRegistryTest {
         registry.add(BigDecimal.class, value);
         assertThat(registry.get(BigDecimal.class), sameInstance(value));
         assertThat(registry.get(Number.class), sameInstance((Object) value));
+        assertThat(registry.get(Comparable.class), sameInstance((Object) value));
+    }
+
+    @Test
+    public void usesServiceInstanceAddedAfterLookup() {
+        DefaultServiceRegistry registry = new DefaultServiceRegistry();
+        registry.add(BigDecimal.class, BigDecimal.TEN);
+        assertThat(registry.get(Number.class), sameInstance((Object) BigDecimal.TEN));
+
+        registry.add(Long.class, 12L);
+        assertThat(registry.get(Long.class), equalTo(12L));
+        try {
+            registry.get(Number.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("Multiple services of type Number available in DefaultServiceRegistry."));
+        }
+    }
+
+    @Test
+    public void registriesOfTheSameTypeDoNotShareServiceInstances() {
+        TestRegistry other = new TestRegistry();
+        assertThat(registry.get(Factory.class), not(sameInstance(other.get(Factory.class))));
     }
 
     @Test
@@ -215,6 +215,7 @@ public class DefaultDependencyManagementServices extends DefaultServiceRegistry
     protected RepositoryTransportFactory createRepositoryTransportFactory() {
         ExternalArtifactCacheBuilder cacheBuilder = new ExternalArtifactCacheBuilder(get(ArtifactCacheMetaData.class), get(LocalMavenRepositoryLocator.class));
         cacheBuilder.addCurrent(get(ArtifactFileStore.class));
+        cacheBuilder.addMilestone8();
         cacheBuilder.addMilestone7();
         cacheBuilder.addMilestone6();
         cacheBuilder.addMilestone3();
@@ -25,7 +25,8 @@ import org.gradle.cache.internal.FileLockManager;
 import java.io.File;
 
 public class DefaultCacheLockingManager implements CacheLockingManager {
-    public static final int CACHE_LAYOUT_VERSION = 8;
+    // Version 9 holds the cache lock on demand, across cache actions. Older versions do not ask for the lock, so cannot share the cache
+    public static final int CACHE_LAYOUT_VERSION = 9;
     private final PersistentCache cache;
 
     public DefaultCacheLockingManager(CacheRepository cacheRepository) {
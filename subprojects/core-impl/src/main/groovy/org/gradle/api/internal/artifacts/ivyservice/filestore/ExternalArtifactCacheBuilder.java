@@ -34,6 +34,10 @@ public class ExternalArtifactCacheBuilder {
         composite.addExternalArtifactCache(artifactFileStore.asExternalArtifactCache());
     }
 
+    public void addMilestone8() {
+        addExternalCache(new File(rootCachesDirectory, "artifacts-8"), "filestore/" + DefaultArtifactFileStore.EXTERNAL_VIEW_PATTERN);
+    }
+
     public void addMilestone7() {
         addExternalCache(new File(rootCachesDirectory, "artifacts-7"), "artifacts/*/[organisation]/[module](/[branch])/[revision]/[type]/[artifact]-[revision](-[classifier])(.[ext])");
     }
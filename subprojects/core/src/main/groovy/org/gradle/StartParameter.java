@@ -73,6 +73,8 @@ public class StartParameter extends LoggingConfiguration implements Serializable
     private boolean profile;
     private boolean continueOnFailure;
     private boolean offline;
+    private boolean configureOnDemand;
+    private boolean precompileBuildScripts;
     private RefreshOptions refreshOptions = RefreshOptions.NONE;
     private File projectCacheDir;
 
@@ -138,6 +140,8 @@ public class StartParameter extends LoggingConfiguration implements Serializable
         startParameter.projectCacheDir = projectCacheDir;
         startParameter.continueOnFailure = continueOnFailure;
         startParameter.offline = offline;
+        startParameter.configureOnDemand = configureOnDemand;
+        startParameter.precompileBuildScripts = precompileBuildScripts;
         startParameter.refreshOptions = refreshOptions;
         return startParameter;
     }
@@ -580,6 +584,34 @@ public class StartParameter extends LoggingConfiguration implements Serializable
         this.offline = offline;
     }
 
+    /**
+     * Specifies whether only the projects required to execute the requested tasks should be configured. The default is false.
+     */
+    public boolean isConfigureOnDemand() {
+        return configureOnDemand;
+    }
+
+    /**
+     * Specifies whether only the projects required to execute the requested tasks should be configured. The default is false.
+     */
+    public void setConfigureOnDemand(boolean configureOnDemand) {
+        this.configureOnDemand = configureOnDemand;
+    }
+
+    /**
+     * Specifies whether the build scripts of all projects should be compiled concurrently before the projects are configured. The default is false.
+     */
+    public boolean isPrecompileBuildScripts() {
+        return precompileBuildScripts;
+    }
+
+    /**
+     * Specifies whether the build scripts of all projects should be compiled concurrently before the projects are configured. The default is false.
+     */
+    public void setPrecompileBuildScripts(boolean precompileBuildScripts) {
+        this.precompileBuildScripts = precompileBuildScripts;
+    }
+
     /**
      * Supplies the refresh options to use for the build.
      */
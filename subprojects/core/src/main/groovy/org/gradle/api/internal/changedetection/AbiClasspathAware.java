@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.file.FileCollection;
+
+/**
+ * Implemented by a task whose output depends only on the ABI of the classes in some of its input files, such as a compile task and its compile
+ * classpath. These input files are snapshotted using an {@link AbiHasher}, so that the task is not out of date when only the implementation of
+ * these classes has changed.
+ */
+public interface AbiClasspathAware {
+    /**
+     * Returns the input files whose ABI should be snapshotted, rather than their content. Returns null when the content of all input files should
+     * be snapshotted.
+     */
+    FileCollection getAbiClasspath();
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
+import org.gradle.util.hash.HashUtil;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.EmptyVisitor;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Hashes the public ABI of class files, and of the class files in jars, so that a change to the implementation of a class does not change its
+ * hash. The ABI of a class is made up of its declaration and the declarations of its non-private members, including their annotations and the
+ * values of any constants. Method bodies, private members and synthetic members are ignored. Local and anonymous classes are not part of the ABI
+ * of a jar. The content of any other file is hashed using the given hasher.
+ *
+ * <p>A jar which contains an annotation processor is hashed using the given hasher, as the implementation of an annotation processor affects
+ * the output of the compiler.</p>
+ */
+public class AbiHasher implements Hasher {
+    public static final String ANNOTATION_PROCESSOR_SERVICE = "META-INF/services/javax.annotation.processing.Processor";
+    private final Hasher hasher;
+
+    public AbiHasher(Hasher hasher) {
+        this.hasher = hasher;
+    }
+
+    public byte[] hash(File file) {
+        if (file.getName().endsWith(".class")) {
+            try {
+                return hashClass(new FileInputStream(file), file);
+            } catch (FileNotFoundException e) {
+                throw new GradleException(String.format("Could not read class file '%s'.", file), e);
+            }
+        }
+        if (file.getName().endsWith(".jar")) {
+            return hashJar(file);
+        }
+        return hasher.hash(file);
+    }
+
+    public byte[] hash(FileTreeElement fileDetails) {
+        if (fileDetails.getName().endsWith(".class")) {
+            return hashClass(fileDetails.open(), fileDetails);
+        }
+        if (fileDetails.getName().endsWith(".jar") && !(fileDetails instanceof MirroredFileTreeElement)) {
+            return hashJar(fileDetails.getFile());
+        }
+        return hasher.hash(fileDetails);
+    }
+
+    private byte[] hashJar(File jar) {
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(jar);
+        } catch (ZipException e) {
+            // Not a jar after all
+            return hasher.hash(jar);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read jar '%s'.", jar), e);
+        }
+        try {
+            if (zipFile.getEntry(ANNOTATION_PROCESSOR_SERVICE) != null) {
+                return hasher.hash(jar);
+            }
+            List<ZipEntry> entries = Collections.list(zipFile.entries());
+            Collections.sort(entries, new Comparator<ZipEntry>() {
+                public int compare(ZipEntry entry1, ZipEntry entry2) {
+                    return entry1.getName().compareTo(entry2.getName());
+                }
+            });
+            StringBuilder abi = new StringBuilder();
+            for (ZipEntry entry : entries) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                InputStream instr = zipFile.getInputStream(entry);
+                byte[] hash;
+                if (entry.getName().endsWith(".class")) {
+                    AbiCollector collector = readClass(instr, entry.getName());
+                    if (collector.localOrAnonymous) {
+                        continue;
+                    }
+                    hash = HashUtil.createHash(collector.getAbi(), "MD5").asByteArray();
+                } else {
+                    hash = HashUtil.createHash(instr, "MD5").asByteArray();
+                }
+                abi.append(entry.getName()).append(' ').append(Arrays.toString(hash)).append('\n');
+            }
+            return HashUtil.createHash(abi.toString(), "MD5").asByteArray();
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read jar '%s'.", jar), e);
+        } finally {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private byte[] hashClass(InputStream instr, Object displayName) {
+        return HashUtil.createHash(readClass(instr, displayName).getAbi(), "MD5").asByteArray();
+    }
+
+    private AbiCollector readClass(InputStream instr, Object displayName) {
+        try {
+            ClassReader classReader;
+            try {
+                classReader = new ClassReader(instr);
+            } finally {
+                instr.close();
+            }
+            AbiCollector collector = new AbiCollector();
+            classReader.accept(collector, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return collector;
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not read class file '%s'.", displayName), e);
+        }
+    }
+
+    private static boolean isPartOfAbi(int access) {
+        return (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC)) == 0;
+    }
+
+    /**
+     * Collects the declaration of a class or member, along with its annotations.
+     */
+    private static class DeclarationCollector extends EmptyVisitor {
+        final StringBuilder declaration = new StringBuilder();
+
+        DeclarationCollector append(Object... values) {
+            for (Object value : values) {
+                if (value != null && value.getClass().isArray()) {
+                    List<Object> elements = new ArrayList<Object>();
+                    for (int i = 0; i < Array.getLength(value); i++) {
+                        elements.add(Array.get(value, i));
+                    }
+                    value = elements;
+                }
+                declaration.append(value).append(' ');
+            }
+            return this;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            append("@", desc, visible);
+            return this;
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+            append("@", parameter, desc, visible);
+            return this;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotationDefault() {
+            append("default");
+            return this;
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            append(name, "=", value);
+        }
+
+        @Override
+        public void visitEnum(String name, String desc, String value) {
+            append(name, "=", desc, value);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String desc) {
+            append(name, "=@", desc);
+            return this;
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            append(name, "=[]");
+            return this;
+        }
+
+        @Override
+        public void visitEnd() {
+            append(";");
+        }
+    }
+
+    private static class AbiCollector extends DeclarationCollector {
+        private final List<DeclarationCollector> members = new ArrayList<DeclarationCollector>();
+        private String className;
+        private boolean localOrAnonymous;
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            className = name;
+            append("class", version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public void visitOuterClass(String owner, String name, String desc) {
+            append("outer", owner, name, desc);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (outerName == null || innerName == null) {
+                // A local or anonymous class, which is not visible outside of the method that declares it
+                if (name.equals(className)) {
+                    localOrAnonymous = true;
+                }
+                return;
+            }
+            if (isPartOfAbi(access)) {
+                members.add(new DeclarationCollector().append("inner", name, outerName, innerName, access));
+            }
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            if (!isPartOfAbi(access)) {
+                return null;
+            }
+            DeclarationCollector field = new DeclarationCollector().append("field", access, name, desc, signature, value);
+            members.add(field);
+            return field;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            if (!isPartOfAbi(access) || name.equals("<clinit>")) {
+                return null;
+            }
+            DeclarationCollector method = new DeclarationCollector().append("method", access, name, desc, signature, exceptions);
+            members.add(method);
+            return method;
+        }
+
+        String getAbi() {
+            // The order of the members does not affect the ABI
+            List<String> declarations = new ArrayList<String>();
+            for (DeclarationCollector member : members) {
+                declarations.add(member.declaration.toString());
+            }
+            Collections.sort(declarations);
+            StringBuilder abi = new StringBuilder(declaration);
+            for (String member : declarations) {
+                abi.append('\n').append(member);
+            }
+            return abi.toString();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.internal.Factory;
+
+/**
+ * A {@link FileSnapshotter} which can be used from a task action, when the task artifact state cache is not locked. Locks the cache while
+ * snapshotting, so that the cached file hashes can be used.
+ */
+public class CacheLockingFileSnapshotter implements FileSnapshotter {
+    private final FileSnapshotter snapshotter;
+    private final TaskArtifactStateCacheAccess cacheAccess;
+
+    public CacheLockingFileSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess) {
+        this.snapshotter = snapshotter;
+        this.cacheAccess = cacheAccess;
+    }
+
+    public FileCollectionSnapshot emptySnapshot() {
+        return snapshotter.emptySnapshot();
+    }
+
+    public FileCollectionSnapshot snapshot(final FileCollection files) {
+        return cacheAccess.useCache(String.format("snapshot %s", files), new Factory<FileCollectionSnapshot>() {
+            public FileCollectionSnapshot create() {
+                return snapshotter.snapshot(files);
+            }
+        });
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.Serializer;
 
@@ -23,23 +25,40 @@ import java.io.*;
 public class CachingHasher implements Hasher {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
-    private long timestamp;
 
     public CachingHasher(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess) {
+        this(hasher, cacheAccess, "fileHashes");
+    }
+
+    /**
+     * @param cacheName The name of the cache to keep the hashes in. Each kind of hasher needs its own cache.
+     */
+    public CachingHasher(Hasher hasher, TaskArtifactStateCacheAccess cacheAccess, String cacheName) {
         this.hasher = hasher;
-        cache = cacheAccess.createCache("fileHashes", File.class, FileInfo.class, new FileInfoSerializer());
+        cache = cacheAccess.createCache(cacheName, File.class, FileInfo.class, new FileInfoSerializer());
     }
 
     public byte[] hash(File file) {
+        return hash(file, null, file.length(), file.lastModified());
+    }
+
+    public byte[] hash(FileTreeElement fileDetails) {
+        if (fileDetails instanceof MirroredFileTreeElement) {
+            // Cache the hash of an archive entry against its location in the mirror, and hash its content without copying it there
+            File mirrorFile = ((MirroredFileTreeElement) fileDetails).getMirrorFile();
+            return hash(mirrorFile, fileDetails, fileDetails.getSize(), fileDetails.getLastModified());
+        }
+        return hash(fileDetails.getFile(), null, fileDetails.getSize(), fileDetails.getLastModified());
+    }
+
+    private byte[] hash(File file, FileTreeElement mirroredDetails, long length, long timestamp) {
         FileInfo info = cache.get(file);
 
-        long length = file.length();
-        timestamp = file.lastModified();
         if (info != null && length == info.length && timestamp == info.timestamp) {
             return info.hash;
         }
 
-        byte[] hash = hasher.hash(file);
+        byte[] hash = mirroredDetails != null ? hasher.hash(mirroredDetails) : hasher.hash(file);
         cache.put(file, new FileInfo(hash, length, timestamp));
         return hash;
     }
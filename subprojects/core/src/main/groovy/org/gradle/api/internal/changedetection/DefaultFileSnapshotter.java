@@ -16,7 +16,10 @@
 
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
@@ -38,16 +41,28 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
     }
 
     public FileCollectionSnapshot snapshot(FileCollection sourceFiles) {
-        Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
-        for (File file : sourceFiles.getAsFileTree()) {
-            if (file.isFile()) {
-                snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
-            } else if (file.isDirectory()) {
-                snapshots.put(file.getAbsolutePath(), new DirSnapshot());
-            } else {
-                snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+        final Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
+        // Visit the files rather than iterate over them, so that the file attributes read while visiting are reused for hashing
+        sourceFiles.getAsFileTree().visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                if (fileDetails instanceof MirroredFileTreeElement) {
+                    // An archive entry is identified by its location in the mirror of the archive, without being copied there
+                    File mirrorFile = ((MirroredFileTreeElement) fileDetails).getMirrorFile();
+                    snapshots.put(mirrorFile.getAbsolutePath(), new FileHashSnapshot(hasher.hash(fileDetails)));
+                    return;
+                }
+                File file = fileDetails.getFile();
+                if (fileDetails.isDirectory()) {
+                    snapshots.put(file.getAbsolutePath(), new DirSnapshot());
+                } else if (fileDetails.getLastModified() == 0 && !file.exists()) {
+                    // The timestamp of a missing file is 0, so existence only needs to be checked for files with this timestamp
+                    snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+                } else {
+                    snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(fileDetails)));
+                }
             }
-        }
+        });
         return new FileCollectionSnapshotImpl(snapshots);
     }
 
@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
 import org.gradle.util.hash.HashUtil;
 
 import java.io.File;
@@ -23,4 +25,12 @@ public class DefaultHasher implements Hasher {
     public byte[] hash(File file) {
         return HashUtil.createHash(file, "MD5").asByteArray();
     }
+
+    public byte[] hash(FileTreeElement fileDetails) {
+        if (fileDetails instanceof MirroredFileTreeElement) {
+            // Hash the content directly, rather than copying it to the mirror first
+            return HashUtil.createHash(fileDetails.open(), "MD5").asByteArray();
+        }
+        return hash(fileDetails.getFile());
+    }
 }
\ No newline at end of file
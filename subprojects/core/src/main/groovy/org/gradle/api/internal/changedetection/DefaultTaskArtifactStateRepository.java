@@ -36,12 +36,20 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
     private final UpToDateRule upToDateRule;
 
     public DefaultTaskArtifactStateRepository(TaskHistoryRepository taskHistoryRepository, FileSnapshotter inputFilesSnapshotter, FileSnapshotter outputFilesSnapshotter) {
+        this(taskHistoryRepository, inputFilesSnapshotter, outputFilesSnapshotter, inputFilesSnapshotter);
+    }
+
+    /**
+     * @param abiSnapshotter The snapshotter to use for the input files of an {@link AbiClasspathAware} task whose ABI should be snapshotted.
+     */
+    public DefaultTaskArtifactStateRepository(TaskHistoryRepository taskHistoryRepository, FileSnapshotter inputFilesSnapshotter, FileSnapshotter outputFilesSnapshotter,
+                                              FileSnapshotter abiSnapshotter) {
         this.taskHistoryRepository = taskHistoryRepository;
         upToDateRule = new CompositeUpToDateRule(
                 new TaskTypeChangedUpToDateRule(),
                 new InputPropertiesChangedUpToDateRule(),
                 new OutputFilesChangedUpToDateRule(outputFilesSnapshotter),
-                new InputFilesChangedUpToDateRule(inputFilesSnapshotter));
+                new InputFilesChangedUpToDateRule(inputFilesSnapshotter, abiSnapshotter));
     }
 
     public TaskArtifactState getStateFor(final TaskInternal task) {
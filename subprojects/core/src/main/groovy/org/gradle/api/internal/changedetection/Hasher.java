@@ -15,8 +15,15 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.file.FileTreeElement;
+
 import java.io.File;
 
 public interface Hasher {
     byte[] hash(File file);
+
+    /**
+     * Hashes the given file, using the attributes already known for it rather than reading them again.
+     */
+    byte[] hash(FileTreeElement fileDetails);
 }
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.util.ChangeListener;
 
@@ -26,13 +27,19 @@ import java.util.Collection;
  */
 public class InputFilesChangedUpToDateRule implements UpToDateRule {
     private final FileSnapshotter inputFilesSnapshotter;
+    private final FileSnapshotter abiSnapshotter;
 
     public InputFilesChangedUpToDateRule(FileSnapshotter inputFilesSnapshotter) {
+        this(inputFilesSnapshotter, inputFilesSnapshotter);
+    }
+
+    public InputFilesChangedUpToDateRule(FileSnapshotter inputFilesSnapshotter, FileSnapshotter abiSnapshotter) {
         this.inputFilesSnapshotter = inputFilesSnapshotter;
+        this.abiSnapshotter = abiSnapshotter;
     }
 
     public TaskUpToDateState create(final TaskInternal task, final TaskExecution previousExecution, final TaskExecution currentExecution) {
-        final FileCollectionSnapshot inputFilesSnapshot = inputFilesSnapshotter.snapshot(task.getInputs().getFiles());
+        final FileCollectionSnapshot inputFilesSnapshot = snapshotInputFiles(task);
 
         return new TaskUpToDateState() {
             public void checkUpToDate(final Collection<String> messages) {
@@ -60,4 +67,15 @@ public class InputFilesChangedUpToDateRule implements UpToDateRule {
             }
         };
     }
+
+    private FileCollectionSnapshot snapshotInputFiles(TaskInternal task) {
+        FileCollection inputFiles = task.getInputs().getFiles();
+        FileCollection abiFiles = task instanceof AbiClasspathAware ? ((AbiClasspathAware) task).getAbiClasspath() : null;
+        if (abiFiles == null || abiSnapshotter == inputFilesSnapshotter) {
+            return inputFilesSnapshotter.snapshot(inputFiles);
+        }
+        FileCollectionSnapshot otherFilesSnapshot = inputFilesSnapshotter.snapshot(inputFiles.minus(abiFiles));
+        FileCollectionSnapshot abiFilesSnapshot = abiSnapshotter.snapshot(abiFiles);
+        return abiFilesSnapshot.changesSince(abiSnapshotter.emptySnapshot()).applyTo(otherFilesSnapshot);
+    }
 }
@@ -20,9 +20,8 @@ import org.gradle.api.file.RelativePath;
 import org.gradle.internal.nativeplatform.FileSystems;
 import org.gradle.util.GFileUtils;
 
-import java.io.File;
-import java.io.InputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.FileChannel;
 
 public class DefaultFileTreeElement extends AbstractFileTreeElement {
     private final File file;
@@ -57,6 +56,33 @@ public class DefaultFileTreeElement extends AbstractFileTreeElement {
         return GFileUtils.openInputStream(file);
     }
 
+    @Override
+    protected void copyFile(File target) throws IOException {
+        // Transfer the content between the files without copying it through the heap
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            FileOutputStream outputStream = new FileOutputStream(target);
+            try {
+                FileChannel source = inputStream.getChannel();
+                FileChannel destination = outputStream.getChannel();
+                long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    long count = source.transferTo(position, size - position, destination);
+                    if (count == 0) {
+                        // The file has been truncated since its size was read
+                        break;
+                    }
+                    position += count;
+                }
+            } finally {
+                outputStream.close();
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
     public RelativePath getRelativePath() {
         return relativePath;
     }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+/**
+ * The header of a ZIP entry whose content has already been compressed, as read by {@link RawZipFile} and written by {@link RawZipOutputStream}.
+ */
+class RawZipEntry {
+    static final long LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50L;
+    static final long CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50L;
+    static final long END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50L;
+    static final int ENCRYPTED_FLAG = 1;
+    static final int UTF8_NAMES_FLAG = 1 << 11;
+
+    private final String name;
+    private final long time;
+    private final int unixMode;
+    private final int method;
+    private final long crc;
+    private final long size;
+    private final long compressedSize;
+    private long offset;
+
+    RawZipEntry(String name, long time, int unixMode, int method, long crc, long size, long compressedSize) {
+        this.name = name;
+        this.time = time;
+        this.unixMode = unixMode;
+        this.method = method;
+        this.crc = crc;
+        this.size = size;
+        this.compressedSize = compressedSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getUnixMode() {
+        return unixMode;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Returns the offset of the local file header of this entry in its archive.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+/**
+ * Reads the central directory of a ZIP file, so that the compressed content of its entries can be copied to another ZIP file without
+ * decompressing it. Encrypted entries, entries which use some other compression method and entries which use the ZIP64 extensions are ignored.
+ */
+class RawZipFile implements Closeable {
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    private static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+    private final File zipFile;
+    private final RandomAccessFile file;
+    private final Map<String, RawZipEntry> entries = new HashMap<String, RawZipEntry>();
+
+    public RawZipFile(File zipFile) throws IOException {
+        this.zipFile = zipFile;
+        file = new RandomAccessFile(zipFile, "r");
+        try {
+            readCentralDirectory();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the entry with the given name, or null when there is no such entry which can be copied.
+     */
+    public RawZipEntry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Copies the compressed content of the given entry to the given stream.
+     */
+    public void copyTo(RawZipEntry entry, OutputStream outstr) throws IOException {
+        byte[] header = new byte[LOCAL_FILE_HEADER_LENGTH];
+        file.seek(entry.getOffset());
+        file.readFully(header);
+        if (getInt(header, 0) != RawZipEntry.LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new IOException(String.format("Could not find the local header of entry '%s' in ZIP '%s'.", entry, zipFile));
+        }
+        file.seek(entry.getOffset() + LOCAL_FILE_HEADER_LENGTH + getShort(header, 26) + getShort(header, 28));
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = entry.getCompressedSize();
+        while (remaining > 0) {
+            int count = (int) Math.min(buffer.length, remaining);
+            file.readFully(buffer, 0, count);
+            outstr.write(buffer, 0, count);
+            remaining -= count;
+        }
+    }
+
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void readCentralDirectory() throws IOException {
+        long length = file.length();
+        int tailLength = (int) Math.min(length, END_OF_CENTRAL_DIRECTORY_LENGTH + 0xFFFF);
+        byte[] tail = new byte[tailLength];
+        file.seek(length - tailLength);
+        file.readFully(tail);
+
+        // The end of central directory record is followed by a comment of at most 64k
+        int end = tailLength - END_OF_CENTRAL_DIRECTORY_LENGTH;
+        while (end >= 0 && getInt(tail, end) != RawZipEntry.END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+            end--;
+        }
+        if (end < 0) {
+            throw new IOException(String.format("Could not find the central directory of ZIP '%s'.", zipFile));
+        }
+        int count = getShort(tail, end + 10);
+        long centralDirectorySize = getInt(tail, end + 12);
+        long centralDirectoryOffset = getInt(tail, end + 16);
+        if (centralDirectoryOffset + centralDirectorySize > length - tailLength + end) {
+            throw new IOException(String.format("Could not read the central directory of ZIP '%s'.", zipFile));
+        }
+
+        byte[] centralDirectory = new byte[(int) centralDirectorySize];
+        file.seek(centralDirectoryOffset);
+        file.readFully(centralDirectory);
+        String defaultEncoding = Charset.defaultCharset().name();
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos + CENTRAL_FILE_HEADER_LENGTH > centralDirectory.length || getInt(centralDirectory, pos) != RawZipEntry.CENTRAL_FILE_HEADER_SIGNATURE) {
+                throw new IOException(String.format("Could not read the central directory of ZIP '%s'.", zipFile));
+            }
+            int flags = getShort(centralDirectory, pos + 8);
+            int method = getShort(centralDirectory, pos + 10);
+            long crc = getInt(centralDirectory, pos + 16);
+            long compressedSize = getInt(centralDirectory, pos + 20);
+            long size = getInt(centralDirectory, pos + 24);
+            int nameLength = getShort(centralDirectory, pos + 28);
+            int extraLength = getShort(centralDirectory, pos + 30);
+            int commentLength = getShort(centralDirectory, pos + 32);
+            long offset = getInt(centralDirectory, pos + 42);
+            if (pos + CENTRAL_FILE_HEADER_LENGTH + nameLength > centralDirectory.length) {
+                throw new IOException(String.format("Could not read the central directory of ZIP '%s'.", zipFile));
+            }
+            String name = new String(centralDirectory, pos + CENTRAL_FILE_HEADER_LENGTH, nameLength, (flags & RawZipEntry.UTF8_NAMES_FLAG) != 0 ? "UTF-8" : defaultEncoding);
+            pos += CENTRAL_FILE_HEADER_LENGTH + nameLength + extraLength + commentLength;
+
+            if ((flags & RawZipEntry.ENCRYPTED_FLAG) != 0 || (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
+                    || size == UNKNOWN_SIZE || compressedSize == UNKNOWN_SIZE || offset == UNKNOWN_SIZE) {
+                continue;
+            }
+            RawZipEntry entry = new RawZipEntry(name, 0, 0, method, crc, size, compressedSize);
+            entry.setOffset(offset);
+            entries.put(name, entry);
+        }
+    }
+
+    private static int getShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | ((bytes[offset + 1] & 0xff) << 8);
+    }
+
+    private static long getInt(byte[] bytes, int offset) {
+        return (getShort(bytes, offset) | ((long) getShort(bytes, offset + 2) << 16)) & 0xFFFFFFFFL;
+    }
+}
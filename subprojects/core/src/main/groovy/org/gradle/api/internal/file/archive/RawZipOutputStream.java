@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a ZIP file from entries whose content has already been compressed, so that the content of each entry can be compressed up front, on some
+ * other thread, or copied unchanged from another archive. The size and CRC of each entry must be known before it is written. Entry names are
+ * encoded as UTF-8, and the ZIP64 extensions are not supported.
+ */
+class RawZipOutputStream extends OutputStream {
+    private static final int UNIX_PLATFORM = 3;
+    private static final int MIN_VERSION = 10;
+    private static final int DEFLATE_MIN_VERSION = 20;
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private final OutputStream outstr;
+    private final List<RawZipEntry> entries = new ArrayList<RawZipEntry>();
+    private final byte[] buffer = new byte[4];
+    private RawZipEntry current;
+    private long currentWritten;
+    private long written;
+    private boolean closed;
+
+    public RawZipOutputStream(File zipFile) throws IOException {
+        outstr = new BufferedOutputStream(new FileOutputStream(zipFile), 64 * 1024);
+    }
+
+    /**
+     * Starts a new entry. The compressed content of the entry should then be written to this stream.
+     */
+    public void putNextEntry(RawZipEntry entry) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        if (entries.size() == MAX_ENTRIES || written > MAX_VALUE || entry.getSize() > MAX_VALUE || entry.getCompressedSize() > MAX_VALUE) {
+            throw new IOException(String.format("Cannot add entry '%s' as the ZIP file would require the ZIP64 extensions.", entry));
+        }
+        byte[] name = entry.getName().getBytes("UTF-8");
+        entry.setOffset(written);
+        writeInt(RawZipEntry.LOCAL_FILE_HEADER_SIGNATURE);
+        writeShort(versionNeeded(entry));
+        writeShort(RawZipEntry.UTF8_NAMES_FLAG);
+        writeShort(entry.getMethod());
+        writeInt(toDosTime(entry.getTime()));
+        writeInt(entry.getCrc());
+        writeInt(entry.getCompressedSize());
+        writeInt(entry.getSize());
+        writeShort(name.length);
+        writeShort(0);
+        writeBytes(name, 0, name.length);
+        entries.add(entry);
+        current = entry;
+        currentWritten = 0;
+    }
+
+    public void closeEntry() throws IOException {
+        if (currentWritten != current.getCompressedSize()) {
+            throw new IOException(String.format("Wrote %s bytes for entry '%s', expected %s bytes.", currentWritten, current, current.getCompressedSize()));
+        }
+        current = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[0] = (byte) b;
+        write(buffer, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (current == null) {
+            throw new IllegalStateException("No current entry.");
+        }
+        writeBytes(b, off, len);
+        currentWritten += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (current != null) {
+                closeEntry();
+            }
+            long centralDirectoryOffset = written;
+            for (RawZipEntry entry : entries) {
+                writeCentralDirectoryEntry(entry);
+            }
+            long centralDirectorySize = written - centralDirectoryOffset;
+            if (written > MAX_VALUE) {
+                throw new IOException("Cannot finish the ZIP file as it would require the ZIP64 extensions.");
+            }
+            writeInt(RawZipEntry.END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            writeShort(0);
+            writeShort(0);
+            writeShort(entries.size());
+            writeShort(entries.size());
+            writeInt(centralDirectorySize);
+            writeInt(centralDirectoryOffset);
+            writeShort(0);
+        } finally {
+            outstr.close();
+        }
+    }
+
+    private void writeCentralDirectoryEntry(RawZipEntry entry) throws IOException {
+        byte[] name = entry.getName().getBytes("UTF-8");
+        int mode = entry.getUnixMode();
+        long externalAttributes = ((long) mode << 16) | ((mode & 0200) == 0 ? 1 : 0) | (entry.isDirectory() ? 0x10 : 0);
+        writeInt(RawZipEntry.CENTRAL_FILE_HEADER_SIGNATURE);
+        writeShort((UNIX_PLATFORM << 8) | DEFLATE_MIN_VERSION);
+        writeShort(versionNeeded(entry));
+        writeShort(RawZipEntry.UTF8_NAMES_FLAG);
+        writeShort(entry.getMethod());
+        writeInt(toDosTime(entry.getTime()));
+        writeInt(entry.getCrc());
+        writeInt(entry.getCompressedSize());
+        writeInt(entry.getSize());
+        writeShort(name.length);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(externalAttributes);
+        writeInt(entry.getOffset());
+        writeBytes(name, 0, name.length);
+    }
+
+    private static int versionNeeded(RawZipEntry entry) {
+        return entry.getMethod() == ZipEntry.DEFLATED ? DEFLATE_MIN_VERSION : MIN_VERSION;
+    }
+
+    private static long toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            // 1 January 1980, the earliest time which can be represented
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (year - 1980) << 25)
+                | ((calendar.get(Calendar.MONTH) + 1) << 21)
+                | (calendar.get(Calendar.DAY_OF_MONTH) << 16)
+                | (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+                | (calendar.get(Calendar.MINUTE) << 5)
+                | (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    private void writeShort(int value) throws IOException {
+        buffer[0] = (byte) value;
+        buffer[1] = (byte) (value >> 8);
+        writeBytes(buffer, 0, 2);
+    }
+
+    private void writeInt(long value) throws IOException {
+        buffer[0] = (byte) value;
+        buffer[1] = (byte) (value >> 8);
+        buffer[2] = (byte) (value >> 16);
+        buffer[3] = (byte) (value >> 24);
+        writeBytes(buffer, 0, 4);
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        outstr.write(bytes, offset, length);
+        written += length;
+    }
+}
@@ -25,6 +25,7 @@ import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.FileSystemMirroringFileTree;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
 import org.gradle.api.internal.file.collections.MinimalFileTree;
 import org.gradle.api.resources.MissingResourceException;
 import org.gradle.api.resources.ReadableResource;
@@ -95,7 +96,7 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         }
     }
 
-    private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
+    private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails, MirroredFileTreeElement {
         private final TarEntry entry;
         private final NoCloseTarInputStream tar;
         private final AtomicBoolean stopFlag;
@@ -118,12 +119,16 @@ public class TarFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         public File getFile() {
             if (file == null) {
-                file = new File(tmpDir, entry.getName());
+                file = getMirrorFile();
                 copyTo(file);
             }
             return file;
         }
 
+        public File getMirrorFile() {
+            return new File(tmpDir, entry.getName());
+        }
+
         public long getLastModified() {
             return entry.getModTime().getTime();
         }
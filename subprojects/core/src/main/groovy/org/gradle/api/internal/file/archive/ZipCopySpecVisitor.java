@@ -15,47 +15,219 @@
  */
 package org.gradle.api.internal.file.archive;
 
-import org.apache.tools.zip.*;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.tools.zip.UnixStat;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
-import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.file.copy.ArchiveCopyAction;
+import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.EmptyCopySpecVisitor;
+import org.gradle.api.internal.file.copy.FileBackedCopyDetails;
+import org.gradle.internal.UncheckedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
+/**
+ * Writes each file to a ZIP file.
+ *
+ * <p>When {@value #ZIP_THREADS_SYS_PROPERTY} is set to more than one thread, the files whose content is copied unchanged from the file system are
+ * compressed concurrently. When {@value #INCREMENTAL_SYS_PROPERTY} is set, the compressed content of an entry of the existing ZIP file is copied to
+ * the new ZIP file when the content of its file has the same size and CRC, rather than compressing the content again. In both cases, the entries are
+ * still written in the order they are visited, and a failure is reported for the first file to fail in visit order.</p>
+ *
+ * <p>The compressed content of an entry is held in memory until the entry can be written, as the size and CRC of the entry are written before its
+ * content. The content of a large entry is written to a temporary file next to the ZIP file instead, and the visiting thread waits for the pending
+ * entries to be written once the content held in memory reaches a limit.</p>
+ *
+ * <p>When {@value #FIXED_TIMESTAMPS_SYS_PROPERTY} is set, every entry has the same timestamp, so that the ZIP file does not change when only the
+ * timestamps of its files change.</p>
+ */
 public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZipCopySpecVisitor.class);
+    public static final String ZIP_THREADS_SYS_PROPERTY = "org.gradle.zip.threads";
+    public static final String INCREMENTAL_SYS_PROPERTY = "org.gradle.zip.incremental";
+    public static final String FIXED_TIMESTAMPS_SYS_PROPERTY = "org.gradle.zip.fixedTimestamps";
+    static final long FIXED_TIMESTAMP = new GregorianCalendar(1980, Calendar.FEBRUARY, 1).getTimeInMillis();
+    private static final int MAX_BUFFERED_ENTRY_SIZE = 1024 * 1024;
+    private static final long MAX_BUFFERED_BYTES = 16 * 1024 * 1024;
+    private final int zipThreads;
+    private final boolean incremental;
+    private final boolean fixedTimestamps;
+    private final int maxBufferedEntrySize;
+    private final long maxBufferedBytes;
+    private final AtomicLong bufferedBytes = new AtomicLong();
     private ZipOutputStream zipOutStr;
+    private RawZipOutputStream rawZipOutStr;
     private File zipFile;
+    private File previousZipFile;
+    private RawZipFile previousZip;
+    private ExecutorService executor;
+    private final LinkedList<PendingEntry> pendingEntries = new LinkedList<PendingEntry>();
+
+    public ZipCopySpecVisitor() {
+        this(Integer.getInteger(ZIP_THREADS_SYS_PROPERTY, 1), Boolean.getBoolean(INCREMENTAL_SYS_PROPERTY), Boolean.getBoolean(FIXED_TIMESTAMPS_SYS_PROPERTY));
+    }
+
+    public ZipCopySpecVisitor(int zipThreads, boolean incremental, boolean fixedTimestamps) {
+        this(zipThreads, incremental, fixedTimestamps, MAX_BUFFERED_ENTRY_SIZE, MAX_BUFFERED_BYTES);
+    }
+
+    ZipCopySpecVisitor(int zipThreads, boolean incremental, boolean fixedTimestamps, int maxBufferedEntrySize, long maxBufferedBytes) {
+        this.zipThreads = zipThreads;
+        this.incremental = incremental;
+        this.fixedTimestamps = fixedTimestamps;
+        this.maxBufferedEntrySize = maxBufferedEntrySize;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
 
     public void startVisit(CopyAction action) {
         ArchiveCopyAction archiveAction = (ArchiveCopyAction) action;
         zipFile = archiveAction.getArchivePath();
+        if (zipThreads <= 1 && !incremental) {
+            try {
+                zipOutStr = new ZipOutputStream(zipFile);
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+            }
+            return;
+        }
+
+        if (incremental) {
+            previousZip = openPreviousZip();
+        }
         try {
-            zipOutStr = new ZipOutputStream(zipFile);
+            rawZipOutStr = new RawZipOutputStream(zipFile);
         } catch (Exception e) {
+            closePreviousZip();
             throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
         }
+        if (zipThreads > 1) {
+            // Threads are discarded once idle. An entry is compressed on the visiting thread when all threads are busy
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(0, zipThreads, 5, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactoryImpl());
+            executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            this.executor = executor;
+        }
     }
 
     public void endVisit() {
+        if (rawZipOutStr == null) {
+            try {
+                zipOutStr.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                zipOutStr = null;
+            }
+            return;
+        }
+
         try {
-            zipOutStr.close();
+            while (!pendingEntries.isEmpty()) {
+                write(pendingEntries.removeFirst());
+            }
+            rawZipOutStr.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } finally {
-            zipOutStr = null;
+            stop();
+        }
+    }
+
+    public void abortVisit() {
+        if (rawZipOutStr == null) {
+            if (zipOutStr != null) {
+                try {
+                    zipOutStr.close();
+                } catch (IOException e) {
+                    // Ignore, a failure has already been reported
+                }
+                zipOutStr = null;
+            }
+            return;
+        }
+
+        try {
+            stop();
+        } catch (UncheckedIOException e) {
+            // Ignore, a failure has already been reported
+        }
+    }
+
+    private void stop() {
+        try {
+            discardPendingEntries();
+        } finally {
+            try {
+                rawZipOutStr.close();
+            } catch (IOException e) {
+                // Ignore, a failure has already been reported
+            }
+            rawZipOutStr = null;
+            closePreviousZip();
         }
     }
 
+    private void discardPendingEntries() {
+        if (executor != null) {
+            // Wait for the running compressions, so that the content of every pending entry can be discarded
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw UncheckedException.asUncheckedException(e);
+            } finally {
+                executor = null;
+            }
+        }
+        for (PendingEntry entry : pendingEntries) {
+            try {
+                entry.get().discard();
+            } catch (Exception e) {
+                // Ignore, the content of an entry that failed has already been discarded
+            }
+        }
+        pendingEntries.clear();
+    }
+
     public void visitFile(FileVisitDetails fileDetails) {
+        String name = fileDetails.getRelativePath().getPathString();
+        long time = getTime(fileDetails);
+        int unixMode = UnixStat.FILE_FLAG | fileDetails.getMode();
+        if (rawZipOutStr != null) {
+            PendingEntry entry = new PendingEntry(fileDetails, new CompressFile(fileDetails, name, time, unixMode));
+            pendingEntries.add(entry);
+            if (executor != null && fileDetails instanceof FileBackedCopyDetails && ((FileBackedCopyDetails) fileDetails).isCopiedFromFile()) {
+                executor.execute(entry);
+            } else {
+                // The content of other files, such as archive entries or filtered files, can only be read on this thread while it is visiting them
+                entry.run();
+            }
+            writeCompleted();
+            return;
+        }
+
         try {
-            ZipEntry archiveEntry = new ZipEntry(fileDetails.getRelativePath().getPathString());
+            ZipEntry archiveEntry = new ZipEntry(name);
             archiveEntry.setMethod(ZipEntry.DEFLATED);
-            archiveEntry.setTime(fileDetails.getLastModified());
-            archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getMode());
+            archiveEntry.setTime(time);
+            archiveEntry.setUnixMode(unixMode);
             zipOutStr.putNextEntry(archiveEntry);
             fileDetails.copyTo(zipOutStr);
             zipOutStr.closeEntry();
@@ -65,11 +237,22 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
     }
 
     public void visitDir(FileVisitDetails dirDetails) {
+        // Trailing slash in name indicates that entry is a directory
+        String name = dirDetails.getRelativePath().getPathString() + '/';
+        long time = getTime(dirDetails);
+        int unixMode = UnixStat.DIR_FLAG | dirDetails.getMode();
+        if (rawZipOutStr != null) {
+            RawZipEntry dirEntry = new RawZipEntry(name, time, unixMode, ZipEntry.STORED, 0, 0, 0);
+            PendingEntry entry = new PendingEntry(dirDetails, new CompressedEntry(dirEntry, null, null));
+            pendingEntries.add(entry);
+            writeCompleted();
+            return;
+        }
+
         try {
-            // Trailing slash in name indicates that entry is a directory
-            ZipEntry archiveEntry = new ZipEntry(dirDetails.getRelativePath().getPathString() + '/');
-            archiveEntry.setTime(dirDetails.getLastModified());
-            archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirDetails.getMode());
+            ZipEntry archiveEntry = new ZipEntry(name);
+            archiveEntry.setTime(time);
+            archiveEntry.setUnixMode(unixMode);
             zipOutStr.putNextEntry(archiveEntry);
             zipOutStr.closeEntry();
         } catch (Exception e) {
@@ -80,4 +263,238 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
     public boolean getDidWork() {
         return true;
     }
+
+    private long getTime(FileVisitDetails details) {
+        return fixedTimestamps ? FIXED_TIMESTAMP : details.getLastModified();
+    }
+
+    private RawZipFile openPreviousZip() {
+        if (!zipFile.isFile()) {
+            return null;
+        }
+        // Move the existing ZIP file out of the way, so that its entries can be read while the new ZIP file is written
+        previousZipFile = new File(zipFile.getParentFile(), zipFile.getName() + ".previous");
+        previousZipFile.delete();
+        if (!zipFile.renameTo(previousZipFile)) {
+            LOGGER.info("Compressing all entries of ZIP '{}', as the existing ZIP could not be moved.", zipFile);
+            return null;
+        }
+        try {
+            return new RawZipFile(previousZipFile);
+        } catch (IOException e) {
+            LOGGER.info(String.format("Compressing all entries of ZIP '%s', as the existing ZIP could not be read.", zipFile), e);
+            return null;
+        }
+    }
+
+    private void closePreviousZip() {
+        try {
+            if (previousZip != null) {
+                previousZip.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            previousZip = null;
+            if (previousZipFile != null) {
+                previousZipFile.delete();
+                previousZipFile = null;
+            }
+        }
+    }
+
+    private void writeCompleted() {
+        // Bound the number of pending entries and the amount of compressed content held in memory
+        while (!pendingEntries.isEmpty() && (pendingEntries.getFirst().isDone() || pendingEntries.size() > 4 * zipThreads || bufferedBytes.get() > maxBufferedBytes)) {
+            write(pendingEntries.removeFirst());
+        }
+    }
+
+    private void write(PendingEntry entry) {
+        CompressedEntry compressedEntry = null;
+        try {
+            compressedEntry = entry.get();
+            rawZipOutStr.putNextEntry(compressedEntry.entry);
+            if (compressedEntry.content != null) {
+                compressedEntry.content.writeTo(rawZipOutStr);
+            } else if (compressedEntry.previousEntry != null) {
+                previousZip.copyTo(compressedEntry.previousEntry, rawZipOutStr);
+            }
+            rawZipOutStr.closeEntry();
+        } catch (ExecutionException e) {
+            throw new GradleException(String.format("Could not add %s to ZIP '%s'.", entry.details, zipFile), e.getCause());
+        } catch (InterruptedException e) {
+            throw UncheckedException.asUncheckedException(e);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not add %s to ZIP '%s'.", entry.details, zipFile), e);
+        } finally {
+            if (compressedEntry != null) {
+                compressedEntry.discard();
+            }
+        }
+    }
+
+    private class CompressFile implements Callable<CompressedEntry> {
+        private final FileVisitDetails details;
+        private final String name;
+        private final long time;
+        private final int unixMode;
+
+        private CompressFile(FileVisitDetails details, String name, long time, int unixMode) {
+            this.details = details;
+            this.name = name;
+            this.time = time;
+            this.unixMode = unixMode;
+        }
+
+        public CompressedEntry call() throws IOException {
+            RawZipEntry previousEntry = previousZip == null ? null : previousZip.getEntry(name);
+            if (previousEntry != null) {
+                CRC32 crc = new CRC32();
+                CountingOutputStream outstr = new CountingOutputStream(new CheckedOutputStream(new NullOutputStream(), crc));
+                details.copyTo(outstr);
+                if (outstr.getByteCount() == previousEntry.getSize() && crc.getValue() == previousEntry.getCrc()) {
+                    RawZipEntry entry = new RawZipEntry(name, time, unixMode, previousEntry.getMethod(), previousEntry.getCrc(), previousEntry.getSize(), previousEntry.getCompressedSize());
+                    return new CompressedEntry(entry, null, previousEntry);
+                }
+            }
+
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            EntryContent content = new EntryContent();
+            boolean compressed = false;
+            try {
+                DeflaterOutputStream deflaterStream = new DeflaterOutputStream(content, deflater, 8192);
+                CRC32 crc = new CRC32();
+                details.copyTo(new CheckedOutputStream(deflaterStream, crc));
+                deflaterStream.finish();
+                content.close();
+                RawZipEntry entry = new RawZipEntry(name, time, unixMode, ZipEntry.DEFLATED, crc.getValue(), deflater.getBytesRead(), content.size());
+                compressed = true;
+                return new CompressedEntry(entry, content, null);
+            } finally {
+                deflater.end();
+                if (!compressed) {
+                    content.discard();
+                }
+            }
+        }
+    }
+
+    /**
+     * The compressed content of an entry. Held in memory, unless it grows larger than {@link #maxBufferedEntrySize}.
+     */
+    private class EntryContent extends OutputStream {
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private long bufferedSize;
+        private File file;
+        private OutputStream fileStream;
+        private long size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (file == null && buffer.size() + len > maxBufferedEntrySize) {
+                file = File.createTempFile(zipFile.getName() + ".entry", null, zipFile.getParentFile());
+                fileStream = new BufferedOutputStream(new FileOutputStream(file));
+                buffer.writeTo(fileStream);
+                buffer = null;
+            }
+            if (file != null) {
+                fileStream.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
+            size += len;
+        }
+
+        /**
+         * Finishes writing the content. The content is then counted against {@link #maxBufferedBytes} until it is discarded.
+         */
+        @Override
+        public void close() throws IOException {
+            if (fileStream != null) {
+                fileStream.close();
+            } else {
+                bufferedSize = buffer.size();
+                bufferedBytes.addAndGet(bufferedSize);
+            }
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public void writeTo(OutputStream outstr) throws IOException {
+            if (file == null) {
+                buffer.writeTo(outstr);
+                return;
+            }
+            InputStream instr = new FileInputStream(file);
+            try {
+                IOUtils.copyLarge(instr, outstr);
+            } finally {
+                instr.close();
+            }
+        }
+
+        public void discard() {
+            bufferedBytes.addAndGet(-bufferedSize);
+            bufferedSize = 0;
+            buffer = null;
+            if (file != null) {
+                IOUtils.closeQuietly(fileStream);
+                file.delete();
+            }
+        }
+    }
+
+    private static class CompressedEntry {
+        private final RawZipEntry entry;
+        private final EntryContent content;
+        private final RawZipEntry previousEntry;
+
+        private CompressedEntry(RawZipEntry entry, EntryContent content, RawZipEntry previousEntry) {
+            this.entry = entry;
+            this.content = content;
+            this.previousEntry = previousEntry;
+        }
+
+        public void discard() {
+            if (content != null) {
+                content.discard();
+            }
+        }
+    }
+
+    private static class PendingEntry extends FutureTask<CompressedEntry> {
+        private final FileVisitDetails details;
+
+        private PendingEntry(FileVisitDetails details, Callable<CompressedEntry> compressFile) {
+            super(compressFile);
+            this.details = details;
+        }
+
+        private PendingEntry(FileVisitDetails details, CompressedEntry compressedEntry) {
+            super(new Runnable() {
+                public void run() {
+                }
+            }, compressedEntry);
+            this.details = details;
+            run();
+        }
+    }
+
+    private static class ThreadFactoryImpl implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, String.format("ZIP compressor Thread %s", counter.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
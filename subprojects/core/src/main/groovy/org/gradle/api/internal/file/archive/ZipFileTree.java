@@ -26,6 +26,7 @@ import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.FileSystemMirroringFileTree;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
 import org.gradle.api.internal.file.collections.MinimalFileTree;
 import org.gradle.util.hash.HashUtil;
 
@@ -94,7 +95,7 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         }
     }
 
-    private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
+    private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails, MirroredFileTreeElement {
         private final ZipEntry entry;
         private final ZipFile zip;
         private final AtomicBoolean stopFlag;
@@ -116,12 +117,16 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         public File getFile() {
             if (file == null) {
-                file = new File(tmpDir, entry.getName());
+                file = getMirrorFile();
                 copyTo(file);
             }
             return file;
         }
 
+        public File getMirrorFile() {
+            return new File(tmpDir, entry.getName());
+        }
+
         public long getLastModified() {
             return entry.getTime();
         }
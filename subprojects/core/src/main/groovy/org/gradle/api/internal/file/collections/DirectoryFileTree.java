@@ -125,7 +125,7 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
 
     private void processSingleFile(File file, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag) {
         RelativePath path = new RelativePath(true, file.getName());
-        FileVisitDetailsImpl details = new FileVisitDetailsImpl(file, path, stopFlag);
+        FileVisitDetailsImpl details = new FileVisitDetailsImpl(file, path, false, stopFlag);
         if (isAllowed(details, spec)) {
             visitor.visitFile(details);
         }
@@ -145,7 +145,7 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
             File child = children[i];
             boolean isFile = child.isFile();
             RelativePath childPath = path.append(isFile, child.getName());
-            FileVisitDetailsImpl details = new FileVisitDetailsImpl(child, childPath, stopFlag);
+            FileVisitDetailsImpl details = new FileVisitDetailsImpl(child, childPath, !isFile, stopFlag);
             if (isAllowed(details, spec)) {
                 if (isFile) {
                     visitor.visitFile(details);
@@ -177,14 +177,47 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
         return this;
     }
 
+    /**
+     * Carries the attributes of the file which have been read during the visit, so that the file system is queried for each attribute at most
+     * once, however many times the attribute is used by the visitor and by the specs.
+     */
     private static class FileVisitDetailsImpl extends DefaultFileTreeElement implements FileVisitDetails {
         private final AtomicBoolean stop;
+        private final boolean isDirectory;
+        private long lastModified;
+        private boolean lastModifiedRead;
+        private long size;
+        private boolean sizeRead;
 
-        private FileVisitDetailsImpl(File file, RelativePath relativePath, AtomicBoolean stop) {
+        private FileVisitDetailsImpl(File file, RelativePath relativePath, boolean isDirectory, AtomicBoolean stop) {
             super(file, relativePath);
+            this.isDirectory = isDirectory;
             this.stop = stop;
         }
 
+        @Override
+        public boolean isDirectory() {
+            return isDirectory;
+        }
+
+        @Override
+        public long getLastModified() {
+            if (!lastModifiedRead) {
+                lastModified = super.getLastModified();
+                lastModifiedRead = true;
+            }
+            return lastModified;
+        }
+
+        @Override
+        public long getSize() {
+            if (!sizeRead) {
+                size = super.getSize();
+                sizeRead = true;
+            }
+            return size;
+        }
+
         public void stopVisiting() {
             stop.set(true);
         }
@@ -58,9 +58,17 @@ public class CopyActionImpl implements CopyAction, CopySpecSource {
 
     public void execute() {
         visitor.startVisit(this);
-        for (ReadableCopySpec spec : root.getAllSpecs()) {
-            visitor.visitSpec(spec);
-            spec.getSource().visit(visitor);
+        try {
+            for (ReadableCopySpec spec : root.getAllSpecs()) {
+                visitor.visitSpec(spec);
+                spec.getSource().visit(visitor);
+            }
+        } catch (RuntimeException e) {
+            visitor.abortVisit();
+            throw e;
+        } catch (Error e) {
+            visitor.abortVisit();
+            throw e;
         }
         visitor.endVisit();
     }
@@ -29,6 +29,11 @@ public interface CopySpecVisitor extends FileVisitor, WorkResult {
      */
     void endVisit();
 
+    /**
+     * Called instead of {@link #endVisit()} when the visit fails, so that any resources held for the visit can be released.
+     */
+    void abortVisit();
+
     /**
      * Visits a spec. Called before any of the files or directories of the spec are visited.
      */
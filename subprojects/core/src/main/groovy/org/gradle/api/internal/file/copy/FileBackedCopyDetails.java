@@ -0,0 +1,28 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.copy;
+
+/**
+ * The details of a file whose content may be copied from the file system.
+ */
+public interface FileBackedCopyDetails {
+    /**
+     * Returns true when the content of this file is copied unchanged from a file in the file system. Such a file can still be copied once the
+     * visit of its tree has finished, and on some other thread.
+     */
+    boolean isCopiedFromFile();
+}
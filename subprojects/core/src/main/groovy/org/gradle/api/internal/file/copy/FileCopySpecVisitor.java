@@ -16,23 +16,59 @@
 package org.gradle.api.internal.file.copy;
 
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.nativeplatform.FileSystems;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Copies each file to the destination directory.
+ *
+ * <p>When {@value #COPY_THREADS_SYS_PROPERTY} is set to more than one thread, the files which are copied unchanged from the file system are
+ * copied concurrently, and a file is not rewritten when the destination file already has the size, timestamp and mode of the source file.
+ * Files are still copied to a given destination in the order they are visited, so that the last one wins, and a failure is reported for the
+ * first file to fail in visit order.</p>
+ *
  * @author Steve Appling
  */
 public class FileCopySpecVisitor extends EmptyCopySpecVisitor {
+    public static final String COPY_THREADS_SYS_PROPERTY = "org.gradle.copy.threads";
+    private final int copyThreads;
     private File baseDestDir;
     private boolean didWork;
+    private ExecutorService executor;
+    private final LinkedList<CopyFile> pendingCopies = new LinkedList<CopyFile>();
+    private final Map<File, CopyFile> pendingCopiesByTarget = new HashMap<File, CopyFile>();
+
+    public FileCopySpecVisitor() {
+        this(Integer.getInteger(COPY_THREADS_SYS_PROPERTY, 1));
+    }
+
+    public FileCopySpecVisitor(int copyThreads) {
+        this.copyThreads = copyThreads;
+    }
 
     public void startVisit(CopyAction action) {
         baseDestDir = ((FileCopyAction) action).getDestinationDir();
         if (baseDestDir == null) {
             throw new InvalidUserDataException("No copy destination directory has been specified, use 'into' to specify a target directory.");
         }
+        if (copyThreads > 1) {
+            // Threads are discarded once idle, so none are left behind when the visit fails. A copy runs on the visiting thread when all
+            // threads are busy, which bounds the number of copies in flight
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(0, copyThreads, 5, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactoryImpl());
+            executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            this.executor = executor;
+        }
     }
 
     public void visitFile(FileVisitDetails source) {
@@ -43,6 +79,34 @@ public class FileCopySpecVisitor extends EmptyCopySpecVisitor {
         visitFileOrDir(source);
     }
 
+    @Override
+    public void endVisit() {
+        if (executor == null) {
+            return;
+        }
+        try {
+            while (!pendingCopies.isEmpty()) {
+                complete(pendingCopies.getFirst());
+            }
+        } finally {
+            executor.shutdown();
+            executor = null;
+            pendingCopies.clear();
+            pendingCopiesByTarget.clear();
+        }
+    }
+
+    @Override
+    public void abortVisit() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        executor = null;
+        pendingCopies.clear();
+        pendingCopiesByTarget.clear();
+    }
+
     public boolean getDidWork() {
         return didWork;
     }
@@ -53,9 +117,98 @@ public class FileCopySpecVisitor extends EmptyCopySpecVisitor {
     }
 
     private void copyFile(FileTreeElement srcFile, File destFile) {
-        boolean copied = srcFile.copyTo(destFile);
-        if (copied) {
-            didWork = true;
+        if (executor == null) {
+            boolean copied = srcFile.copyTo(destFile);
+            if (copied) {
+                didWork = true;
+            }
+            return;
+        }
+
+        CopyFile previous = pendingCopiesByTarget.get(destFile);
+        if (previous != null) {
+            completeUpTo(previous);
+        }
+        CopyFile copy = new CopyFile(srcFile, destFile);
+        if (!srcFile.isDirectory() && srcFile instanceof FileBackedCopyDetails && ((FileBackedCopyDetails) srcFile).isCopiedFromFile()) {
+            pendingCopies.add(copy);
+            pendingCopiesByTarget.put(destFile, copy);
+            executor.execute(copy);
+        } else {
+            // Directories are created in visit order. The content of other files, such as archive entries or filtered files, can only be read
+            // on this thread while it is visiting them
+            copy.run();
+            try {
+                complete(copy);
+            } catch (RuntimeException e) {
+                // Report the failure of an earlier file first
+                while (!pendingCopies.isEmpty()) {
+                    complete(pendingCopies.getFirst());
+                }
+                throw e;
+            }
+        }
+        while (!pendingCopies.isEmpty() && pendingCopies.getFirst().isDone()) {
+            complete(pendingCopies.getFirst());
+        }
+    }
+
+    private void completeUpTo(CopyFile copy) {
+        while (pendingCopies.contains(copy)) {
+            complete(pendingCopies.getFirst());
+        }
+    }
+
+    private void complete(CopyFile copy) {
+        pendingCopies.remove(copy);
+        if (pendingCopiesByTarget.get(copy.target) == copy) {
+            pendingCopiesByTarget.remove(copy.target);
+        }
+        try {
+            if (copy.get()) {
+                didWork = true;
+            }
+        } catch (ExecutionException e) {
+            throw UncheckedException.asUncheckedException(e.getCause());
+        } catch (InterruptedException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+
+    private static class CopyFile extends FutureTask<Boolean> {
+        private final File target;
+
+        private CopyFile(final FileTreeElement source, final File target) {
+            super(new Callable<Boolean>() {
+                public Boolean call() {
+                    if (!source.isDirectory() && isUpToDate(source, target)) {
+                        return false;
+                    }
+                    return source.copyTo(target);
+                }
+            });
+            this.target = target;
+        }
+    }
+
+    private static boolean isUpToDate(FileTreeElement source, File target) {
+        if (!target.isFile() || target.length() != source.getSize() || target.lastModified() != source.getLastModified()) {
+            return false;
+        }
+        try {
+            return FileSystems.getDefault().getUnixMode(target) == source.getMode();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class ThreadFactoryImpl implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, String.format("File copier Thread %s", counter.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
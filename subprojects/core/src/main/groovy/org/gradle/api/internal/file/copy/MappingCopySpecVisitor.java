@@ -19,6 +19,7 @@ import groovy.lang.Closure;
 import org.gradle.api.Action;
 import org.gradle.api.file.*;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
 
 import java.io.*;
 import java.util.Map;
@@ -50,7 +51,7 @@ public class MappingCopySpecVisitor extends DelegatingCopySpecVisitor {
         getVisitor().visitFile(details);
     }
 
-    private static class FileVisitDetailsImpl extends AbstractFileTreeElement implements FileVisitDetails, FileCopyDetails {
+    private static class FileVisitDetailsImpl extends AbstractFileTreeElement implements FileVisitDetails, FileCopyDetails, FileBackedCopyDetails {
         private final FileVisitDetails fileDetails;
         private final ReadableCopySpec spec;
         private final FilterChain filterChain = new FilterChain();
@@ -83,6 +84,10 @@ public class MappingCopySpecVisitor extends DelegatingCopySpecVisitor {
             return fileDetails.isDirectory();
         }
 
+        public boolean isCopiedFromFile() {
+            return !filterChain.hasFilters() && fileDetails instanceof DefaultFileTreeElement;
+        }
+
         public long getLastModified() {
             return fileDetails.getLastModified();
         }
@@ -15,19 +15,28 @@
  */
 package org.gradle.api.internal.file.copy;
 
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
-import org.gradle.api.internal.file.collections.DirectoryFileTree;
-import org.gradle.api.internal.file.collections.MinimalFileTree;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Deletes the files in the destination directory which were not visited, once the visit has finished.
+ *
+ * <p>The visited paths are kept as a tree of names, in which the name of each directory is held once. A destination directory which contains
+ * nothing that was visited is deleted without walking its contents. As when walking a {@link org.gradle.api.internal.file.collections.DirectoryFileTree},
+ * the files matched by the global excludes are left alone.</p>
+ */
 public class SyncCopySpecVisitor extends DelegatingCopySpecVisitor {
-    private final Set<RelativePath> visited = new HashSet<RelativePath>();
+    private VisitedPath visited = new VisitedPath();
     private File baseDestDir;
     private boolean didWork;
 
@@ -54,37 +63,72 @@ public class SyncCopySpecVisitor extends DelegatingCopySpecVisitor {
 
     @Override
     public void endVisit() {
-        FileVisitor visitor = new FileVisitor() {
-            public void visitDir(FileVisitDetails dirDetails) {
-                maybeDelete(dirDetails, true);
-            }
+        if (baseDestDir.isDirectory()) {
+            deleteUnvisited(baseDestDir, new RelativePath(false), visited, new PatternSet().getAsSpec());
+        }
+        visited = new VisitedPath();
 
-            public void visitFile(FileVisitDetails fileDetails) {
-                maybeDelete(fileDetails, false);
-            }
+        getVisitor().endVisit();
+    }
 
-            private void maybeDelete(FileVisitDetails fileDetails, boolean isDir) {
-                RelativePath path = fileDetails.getRelativePath();
-                if (!visited.contains(path)) {
-                    if (isDir) {
-                        GFileUtils.deleteDirectory(fileDetails.getFile());
-                    } else {
-                        GFileUtils.deleteQuietly(fileDetails.getFile());
-                    }
+    private void deleteUnvisited(File dir, RelativePath path, VisitedPath visitedDir, Spec<FileTreeElement> spec) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new GradleException(String.format("Could not list contents of directory '%s'.", dir));
+        }
+        for (File child : children) {
+            boolean isDirectory = child.isDirectory();
+            RelativePath childPath = path.append(!isDirectory, child.getName());
+            if (!spec.isSatisfiedBy(new DefaultFileTreeElement(child, childPath))) {
+                continue;
+            }
+            VisitedPath visitedChild = visitedDir.get(child.getName());
+            if (!isDirectory) {
+                if (visitedChild == null || !visitedChild.file) {
+                    GFileUtils.deleteQuietly(child);
                     didWork = true;
                 }
+            } else if (visitedChild == null || (!visitedChild.dir && visitedChild.children == null)) {
+                GFileUtils.deleteDirectory(child);
+                didWork = true;
+            } else {
+                deleteUnvisited(child, childPath, visitedChild, spec);
             }
-        };
-
-        MinimalFileTree walker = new DirectoryFileTree(baseDestDir).depthFirst();
-        walker.visit(visitor);
-        visited.clear();
-
-        getVisitor().endVisit();
+        }
     }
 
     @Override
     public boolean getDidWork() {
         return didWork || getVisitor().getDidWork();
     }
+
+    private static class VisitedPath {
+        private Map<String, VisitedPath> children;
+        private boolean file;
+        private boolean dir;
+
+        void add(RelativePath path) {
+            VisitedPath current = this;
+            for (String segment : path.getSegments()) {
+                if (current.children == null) {
+                    current.children = new HashMap<String, VisitedPath>();
+                }
+                VisitedPath child = current.children.get(segment);
+                if (child == null) {
+                    child = new VisitedPath();
+                    current.children.put(segment, child);
+                }
+                current = child;
+            }
+            if (path.isFile()) {
+                current.file = true;
+            } else {
+                current.dir = true;
+            }
+        }
+
+        VisitedPath get(String name) {
+            return children == null ? null : children.get(name);
+        }
+    }
 }
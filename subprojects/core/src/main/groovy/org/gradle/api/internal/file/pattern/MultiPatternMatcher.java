@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.pattern;
+
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.specs.Spec;
+
+import java.util.*;
+
+/**
+ * Matches a path against any of a number of patterns, as a single spec.
+ *
+ * <p>The literal '**&#47;name&#47;**' and '**&#47;name' patterns, which make up most of the default excludes, are matched by looking up the
+ * segments of the path in a set, so that the cost of matching does not grow with the number of these patterns. The remaining patterns are
+ * matched one at a time.</p>
+ */
+public class MultiPatternMatcher implements Spec<RelativePath> {
+    private final boolean partialMatchDirs;
+    private final Set<String> anySegmentNames = new HashSet<String>();
+    private final Set<String> fileNames = new HashSet<String>();
+    private final List<Spec<RelativePath>> matchers = new ArrayList<Spec<RelativePath>>();
+
+    public MultiPatternMatcher(boolean partialMatchDirs, boolean caseSensitive, Iterable<String> patterns) {
+        this.partialMatchDirs = partialMatchDirs;
+        for (String pattern : patterns) {
+            String normalised = pattern.replace('\\', '/');
+            if (normalised.endsWith("/")) {
+                normalised = normalised + "**";
+            }
+            // Only case sensitive literals can be looked up, as the regular expressions compare case insensitive names differently to String
+            if (caseSensitive && normalised.startsWith("**/") && normalised.endsWith("/**") && isLiteral(normalised, 3, normalised.length() - 3)) {
+                anySegmentNames.add(normalised.substring(3, normalised.length() - 3));
+            } else if (caseSensitive && normalised.startsWith("**/") && isLiteral(normalised, 3, normalised.length())) {
+                fileNames.add(normalised.substring(3));
+            } else {
+                matchers.add(PatternMatcherFactory.getPatternMatcher(partialMatchDirs, caseSensitive, pattern));
+            }
+        }
+    }
+
+    private static boolean isLiteral(String pattern, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char ch = pattern.charAt(i);
+            if (ch == '*' || ch == '?' || ch == '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isSatisfiedBy(RelativePath path) {
+        if (!fileNames.isEmpty() || !anySegmentNames.isEmpty()) {
+            if (!path.isFile() && partialMatchDirs) {
+                return true;
+            }
+            String[] segments = path.getSegments();
+            if (path.isFile() && segments.length > 0 && fileNames.contains(segments[segments.length - 1])) {
+                return true;
+            }
+            if (!anySegmentNames.isEmpty()) {
+                for (String segment : segments) {
+                    if (anySegmentNames.contains(segment)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        for (Spec<RelativePath> matcher : matchers) {
+            if (matcher.isSatisfiedBy(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
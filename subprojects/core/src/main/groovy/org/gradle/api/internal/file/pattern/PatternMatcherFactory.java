@@ -46,4 +46,11 @@ public class PatternMatcherFactory {
             return new DefaultPatternMatcher(partialMatchDirs, caseSensitive, parts);
         }
     }
+
+    /**
+     * Returns a matcher which matches a path when any of the given patterns matches it.
+     */
+    public static Spec<RelativePath> getPatternsMatcher(boolean partialMatchDirs, boolean caseSensitive, Iterable<String> patterns) {
+        return new MultiPatternMatcher(partialMatchDirs, caseSensitive, patterns);
+    }
 }
@@ -18,27 +18,31 @@ package org.gradle.api.internal.project
 import org.gradle.api.internal.ClassPathRegistry
 import org.gradle.api.internal.project.ant.AntLoggingAdapter
 import org.gradle.api.internal.project.ant.BasicAntBuilder
+import org.gradle.internal.Factory
 import org.gradle.util.*
 
 class DefaultIsolatedAntBuilder implements IsolatedAntBuilder {
-    private final Map<List<File>, ClassLoader> baseClassloaders = [:]
-    private final Map<List<File>, Map<String, Object>> classloaders = [:]
+    private final IsolatedClassLoaderCache classLoaderCache
     private final ClassPathRegistry classPathRegistry
     private final ClassLoaderFactory classLoaderFactory
     private final Iterable<File> groovyClasspath
     private final Iterable<File> libClasspath = []
 
     def DefaultIsolatedAntBuilder(ClassPathRegistry classPathRegistry, ClassLoaderFactory classLoaderFactory) {
+        this(classPathRegistry, classLoaderFactory, new IsolatedClassLoaderCache())
+    }
+
+    def DefaultIsolatedAntBuilder(ClassPathRegistry classPathRegistry, ClassLoaderFactory classLoaderFactory, IsolatedClassLoaderCache classLoaderCache) {
         this.classPathRegistry = classPathRegistry
         this.classLoaderFactory = classLoaderFactory
+        this.classLoaderCache = classLoaderCache
         groovyClasspath = classPathRegistry.getClassPathFiles("GROOVY")
     }
 
     private DefaultIsolatedAntBuilder(DefaultIsolatedAntBuilder copy, Iterable<File> groovyClasspath, Iterable<File> libClasspath) {
         this.classPathRegistry = copy.classPathRegistry
         this.classLoaderFactory = copy.classLoaderFactory
-        this.classloaders = copy.classloaders
-        this.baseClassloaders = copy.baseClassloaders
+        this.classLoaderCache = copy.classLoaderCache
         this.groovyClasspath = groovyClasspath
         this.libClasspath = libClasspath
     }
@@ -52,68 +56,114 @@ class DefaultIsolatedAntBuilder implements IsolatedAntBuilder {
     }
 
     void execute(Closure antClosure) {
-        Closure converter = {File file -> file.toURI().toURL() }
-
         List<File> baseClasspath = []
         baseClasspath.addAll(classPathRegistry.getClassPathFiles("ANT"))
         baseClasspath.addAll(groovyClasspath as List)
 
-        ClassLoader baseLoader = baseClassloaders[baseClasspath]
-        if (baseLoader == null) {
+        List<File> normalisedClasspath = []
+        normalisedClasspath.addAll(libClasspath as List)
+
+        AntClassLoaders loaders = classLoaderCache.acquire([baseClasspath, normalisedClasspath], { createClassLoaders(baseClasspath, normalisedClasspath) } as Factory)
+        ClassLoader originalLoader = Thread.currentThread().contextClassLoader
+        Thread.currentThread().contextClassLoader = loaders.antLoader
+        try {
+            Object antBuilder = loaders.antBuilderClass.newInstance()
+
+            Object antLogger = loaders.antLoggerClass.newInstance()
+            antBuilder.project.removeBuildListener(antBuilder.project.getBuildListeners()[0])
+            antBuilder.project.addBuildListener(antLogger)
+
+            // Ideally, we'd delegate directly to the AntBuilder, but it's Closure class is different to our caller's
+            // Closure class, so the AntBuilder's methodMissing() doesn't work. It just converts our Closures to String
+            // because they are not an instanceof it's Closure class
+            Object delegate = new AntBuilderDelegate(antBuilder, loaders.antLoader)
+            ConfigureUtil.configure(antClosure, delegate)
+        } finally {
+            Thread.currentThread().contextClassLoader = originalLoader
+            classLoaderCache.release(loaders)
+        }
+    }
+
+    private AntClassLoaders createClassLoaders(List<File> baseClasspath, List<File> normalisedClasspath) {
+        Closure converter = {File file -> file.toURI().toURL() }
+
+        // The Ant and Groovy classes are shared by all library classpaths
+        BaseLoaderHolder baseLoader = classLoaderCache.acquire([baseClasspath], {
             // Need tools.jar for compile tasks
             List<File> fullClasspath = baseClasspath
             File toolsJar = Jvm.current().toolsJar
             if (toolsJar) {
                 fullClasspath += toolsJar
             }
-            List<URL> classpathUrls = fullClasspath.collect(converter)
-            baseLoader = classLoaderFactory.createIsolatedClassLoader(classpathUrls)
-            baseClassloaders[baseClasspath] = baseLoader
-        }
-
-        List<File> normalisedClasspath = []
-        normalisedClasspath.addAll(libClasspath as List)
+            new BaseLoaderHolder(classLoaderFactory.createIsolatedClassLoader(fullClasspath.collect(converter)))
+        } as Factory)
 
-        Map<String, Object> classloadersForPath = classloaders[normalisedClasspath]
-        ClassLoader antLoader
-        ClassLoader gradleLoader
-        if (classloadersForPath) {
-            antLoader = classloadersForPath.antLoader
-            gradleLoader = classloadersForPath.gradleLoader
-        } else {
-            // Need gradle core to pick up ant logging adapter, AntBuilder and such
-            URL[] gradleCoreUrls = classPathRegistry.getClassPathUrls("GRADLE_CORE")
+        // Need gradle core to pick up ant logging adapter, AntBuilder and such
+        URL[] gradleCoreUrls = classPathRegistry.getClassPathUrls("GRADLE_CORE")
 
+        try {
             FilteringClassLoader loggingLoader = new FilteringClassLoader(getClass().classLoader)
             loggingLoader.allowPackage('org.slf4j')
             loggingLoader.allowPackage('org.apache.commons.logging')
             loggingLoader.allowPackage('org.apache.log4j')
-            ClassLoader parent = new MultiParentClassLoader(baseLoader, loggingLoader)
-
-            List<URL> classpathUrls = normalisedClasspath.collect(converter)
-            antLoader = new URLClassLoader(classpathUrls as URL[], parent)
-            gradleLoader = new URLClassLoader(gradleCoreUrls, parent)
-
-            classloaders[normalisedClasspath] = [antLoader: antLoader, gradleLoader: gradleLoader]
+            ClassLoader parent = new MultiParentClassLoader(baseLoader.loader, loggingLoader)
+
+            ClassLoader antLoader = new URLClassLoader(normalisedClasspath.collect(converter) as URL[], parent)
+            ClassLoader gradleLoader = new URLClassLoader(gradleCoreUrls, parent)
+            return new AntClassLoaders(classLoaderCache, baseLoader, antLoader, gradleLoader)
+        } catch (Throwable t) {
+            // The AntClassLoaders would have released the base loader once closed
+            classLoaderCache.release(baseLoader)
+            throw t
         }
+    }
+}
 
-        ClassLoader originalLoader = Thread.currentThread().contextClassLoader
-        Thread.currentThread().contextClassLoader = antLoader
-        try {
-            Object antBuilder = gradleLoader.loadClass(BasicAntBuilder.class.name).newInstance()
+/**
+ * The isolated class loader for a given Ant and Groovy classpath.
+ */
+class BaseLoaderHolder implements Closeable {
+    final ClassLoader loader
 
-            Object antLogger = gradleLoader.loadClass(AntLoggingAdapter.class.name).newInstance()
-            antBuilder.project.removeBuildListener(antBuilder.project.getBuildListeners()[0])
-            antBuilder.project.addBuildListener(antLogger)
+    def BaseLoaderHolder(ClassLoader loader) {
+        this.loader = loader
+    }
 
-            // Ideally, we'd delegate directly to the AntBuilder, but it's Closure class is different to our caller's
-            // Closure class, so the AntBuilder's methodMissing() doesn't work. It just converts our Closures to String
-            // because they are not an instanceof it's Closure class
-            Object delegate = new AntBuilderDelegate(antBuilder, antLoader)
-            ConfigureUtil.configure(antClosure, delegate)
-        } finally {
-            Thread.currentThread().contextClassLoader = originalLoader
+    void close() {
+        // URLClassLoader can only be closed from Java 7 on, which releases the jars it holds open
+        if (loader instanceof Closeable) {
+            loader.close()
+        }
+    }
+}
+
+/**
+ * The class loaders for a given Ant and Groovy classpath and library classpath, along with the classes instantiated for each execution.
+ */
+class AntClassLoaders implements Closeable {
+    final IsolatedClassLoaderCache cache
+    final BaseLoaderHolder baseLoader
+    final ClassLoader antLoader
+    final ClassLoader gradleLoader
+    final Class<?> antBuilderClass
+    final Class<?> antLoggerClass
+
+    def AntClassLoaders(IsolatedClassLoaderCache cache, BaseLoaderHolder baseLoader, ClassLoader antLoader, ClassLoader gradleLoader) {
+        this.cache = cache
+        this.baseLoader = baseLoader
+        this.antLoader = antLoader
+        this.gradleLoader = gradleLoader
+        antBuilderClass = gradleLoader.loadClass(BasicAntBuilder.class.name)
+        antLoggerClass = gradleLoader.loadClass(AntLoggingAdapter.class.name)
+    }
+
+    void close() {
+        [gradleLoader, antLoader].each { loader ->
+            if (loader instanceof Closeable) {
+                loader.close()
+            }
         }
+        cache.release(baseLoader)
     }
 }
 
@@ -24,6 +24,7 @@ import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.classpath.PluginModuleRegistry;
 import org.gradle.cache.internal.*;
 import org.gradle.cli.CommandLineConverter;
+import org.gradle.groovy.scripts.internal.ScriptSourceHasher;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
 import org.gradle.initialization.DefaultCommandLineConverter;
@@ -85,6 +86,10 @@ public class GlobalServicesRegistry extends DefaultServiceRegistry {
         return new DefaultClassLoaderFactory();
     }
 
+    protected IsolatedClassLoaderCache createIsolatedClassLoaderCache() {
+        return new IsolatedClassLoaderCache();
+    }
+
     protected MessagingServices createMessagingServices() {
         return new MessagingServices(get(ClassLoaderRegistry.class).getPluginsClassLoader());
     }
@@ -101,6 +106,10 @@ public class GlobalServicesRegistry extends DefaultServiceRegistry {
         return new ClassGeneratorBackedInstantiator(get(ClassGenerator.class), new DirectInstantiator());
     }
 
+    protected ScriptSourceHasher createScriptSourceHasher() {
+        return new ScriptSourceHasher();
+    }
+
     protected FileLockManager createFileLockManager() {
         return new DefaultFileLockManager(new DefaultProcessMetaDataProvider(get(ProcessEnvironment.class)));
     }
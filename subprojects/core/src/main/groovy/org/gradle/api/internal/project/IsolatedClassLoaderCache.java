@@ -0,0 +1,252 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.project;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.Factory;
+import org.gradle.util.hash.HashUtil;
+import org.gradle.util.hash.HashValue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of isolated class loaders, which is shared by all builds in a given process, so that the classes of a tool such as a compiler or a code
+ * quality checker are loaded and JIT compiled once, rather than once per build.
+ *
+ * <p>The class loaders are keyed by their classpath, including a hash of the content of each entry of the classpath, so that the class loaders for
+ * a classpath are replaced when a jar on the classpath changes. The content hash of each file is cached, and is recalculated only when the size or
+ * modification time of the file changes.</p>
+ *
+ * <p>The cache holds at most a given number of entries, and evicts the least recently used entry once full. The value of an evicted entry is closed
+ * once it is no longer in use. A value is in use from the call to {@link #acquire} which returned it, until the matching call to {@link
+ * #release}.</p>
+ *
+ * <p>The key is calculated and a missing value is created without holding the lock of the cache, so that a slow lookup does not hold up the threads
+ * which use other entries. Threads which ask for the same missing entry wait for the first of them to create it.</p>
+ */
+public class IsolatedClassLoaderCache {
+    public static final String MAX_SIZE_SYS_PROPERTY = "org.gradle.classloadercache.maxsize";
+    static final int DEFAULT_MAX_SIZE = 10;
+    private static final Logger LOGGER = Logging.getLogger(IsolatedClassLoaderCache.class);
+
+    private final int maxSize;
+    private final Map<HashValue, Entry> entries = new LinkedHashMap<HashValue, Entry>(16, 0.75f, true);
+    private final Map<Closeable, Entry> inUse = new IdentityHashMap<Closeable, Entry>();
+    private final Map<File, FileHash> fileHashes = new ConcurrentHashMap<File, FileHash>();
+    private boolean closed;
+
+    public IsolatedClassLoaderCache() {
+        this(Integer.getInteger(MAX_SIZE_SYS_PROPERTY, DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * @param maxSize The maximum number of entries to keep.
+     */
+    public IsolatedClassLoaderCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the value for the given classpaths, using the given factory to create it when it is not cached. The value must be handed back using
+     * {@link #release} once the caller has finished with it.
+     *
+     * @param classpaths The classpaths which make up the key of the value, for example the classpath of each class loader in a hierarchy.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Closeable> T acquire(List<? extends Collection<File>> classpaths, Factory<T> factory) {
+        HashValue key = hash(classpaths);
+        Entry entry;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Cannot use a class loader cache which has been closed.");
+            }
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                evict();
+            }
+            entry.users++;
+        }
+
+        Closeable value = null;
+        try {
+            synchronized (entry) {
+                if (entry.value == null) {
+                    entry.value = factory.create();
+                }
+                value = entry.value;
+            }
+        } finally {
+            synchronized (this) {
+                if (value != null) {
+                    inUse.put(value, entry);
+                } else {
+                    abandon(key, entry);
+                }
+            }
+        }
+        return (T) value;
+    }
+
+    /**
+     * Hands back a value returned by {@link #acquire}.
+     */
+    public synchronized void release(Closeable value) {
+        Entry entry = inUse.get(value);
+        if (entry == null) {
+            throw new IllegalStateException("Cannot release a value which is not in use.");
+        }
+        entry.users--;
+        if (entry.users == 0) {
+            inUse.remove(value);
+            if (entry.evicted) {
+                close(entry);
+            }
+        }
+    }
+
+    /**
+     * Closes all entries which are not in use, and prevents further use of this cache. The entries in use are closed once released.
+     */
+    public synchronized void close() {
+        closed = true;
+        for (Entry entry : entries.values()) {
+            entry.evicted = true;
+            if (entry.users == 0) {
+                close(entry);
+            }
+        }
+        entries.clear();
+        fileHashes.clear();
+    }
+
+    /**
+     * Gives up a use of an entry whose value could not be created. Another user of the entry, if any, tries to create the value again.
+     */
+    private void abandon(HashValue key, Entry entry) {
+        entry.users--;
+        if (entry.users == 0 && entries.get(key) == entry) {
+            entries.remove(key);
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            entry.evicted = true;
+            if (entry.users == 0) {
+                close(entry);
+            }
+        }
+    }
+
+    private void close(Entry entry) {
+        if (entry.value == null) {
+            return;
+        }
+        try {
+            entry.value.close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close cached class loaders.", e);
+        }
+    }
+
+    private HashValue hash(List<? extends Collection<File>> classpaths) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        for (Collection<File> classpath : classpaths) {
+            digest.update((byte) 1);
+            for (File file : classpath) {
+                digest.update(file.getAbsolutePath().getBytes());
+                digest.update((byte) 0);
+                if (file.isDirectory()) {
+                    hashDir(file, digest);
+                } else if (file.isFile()) {
+                    digest.update(hashFile(file));
+                }
+            }
+        }
+        return new HashValue(digest.digest());
+    }
+
+    private void hashDir(File dir, MessageDigest digest) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            digest.update(file.getName().getBytes());
+            digest.update((byte) 0);
+            if (file.isDirectory()) {
+                hashDir(file, digest);
+            } else {
+                digest.update(hashFile(file));
+            }
+        }
+    }
+
+    private byte[] hashFile(File file) {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        FileHash hash = fileHashes.get(file);
+        if (hash == null || hash.length != length || hash.lastModified != lastModified) {
+            try {
+                hash = new FileHash(length, lastModified, HashUtil.createHash(file, "MD5").asByteArray());
+            } catch (UncheckedIOException e) {
+                // Leave it to the class loader to complain about a missing or unreadable file
+                return new byte[0];
+            }
+            fileHashes.put(file, hash);
+        }
+        return hash.hash;
+    }
+
+    private static class Entry {
+        // Guarded by the entry's lock until it is created, and read only once created
+        Closeable value;
+        int users;
+        boolean evicted;
+    }
+
+    private static class FileHash {
+        final long length;
+        final long lastModified;
+        final byte[] hash;
+
+        private FileHash(long length, long lastModified, byte[] hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
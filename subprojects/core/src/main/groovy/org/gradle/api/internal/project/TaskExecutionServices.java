@@ -29,6 +29,7 @@ import org.gradle.util.RandomLongIdGenerator;
 
 public class TaskExecutionServices extends DefaultServiceRegistry {
     private final Gradle gradle;
+    private FileSnapshotter cachingFileSnapshotter;
 
     public TaskExecutionServices(ServiceRegistry parent, Gradle gradle) {
         super(parent);
@@ -57,10 +58,13 @@ public class TaskExecutionServices extends DefaultServiceRegistry {
     protected TaskArtifactStateRepository createTaskArtifactStateRepository() {
         TaskArtifactStateCacheAccess cacheAccess = get(TaskArtifactStateCacheAccess.class);
 
-        FileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(
+        FileSnapshotter fileSnapshotter = getCachingFileSnapshotter(cacheAccess);
+
+        FileSnapshotter abiSnapshotter = new DefaultFileSnapshotter(
                 new CachingHasher(
-                        new DefaultHasher(),
-                        cacheAccess));
+                        new AbiHasher(new DefaultHasher()),
+                        cacheAccess,
+                        "abiHashes"));
 
         FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(fileSnapshotter, new RandomLongIdGenerator(), cacheAccess);
 
@@ -72,7 +76,27 @@ public class TaskExecutionServices extends DefaultServiceRegistry {
                         new DefaultTaskArtifactStateRepository(
                                 taskHistoryRepository,
                                 fileSnapshotter,
-                                outputFilesSnapshotter)),
+                                outputFilesSnapshotter,
+                                abiSnapshotter)),
                 new DefaultFileCacheListener());
     }
+
+    /**
+     * Provides a snapshotter for use by task actions, which uses the cached file hashes.
+     */
+    protected FileSnapshotter createFileSnapshotter() {
+        TaskArtifactStateCacheAccess cacheAccess = get(TaskArtifactStateCacheAccess.class);
+        return new CacheLockingFileSnapshotter(getCachingFileSnapshotter(cacheAccess), cacheAccess);
+    }
+
+    // Both the task artifact state repository and the task actions use the same hash cache
+    private synchronized FileSnapshotter getCachingFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
+        if (cachingFileSnapshotter == null) {
+            cachingFileSnapshotter = new DefaultFileSnapshotter(
+                    new CachingHasher(
+                            new DefaultHasher(),
+                            cacheAccess));
+        }
+        return cachingFileSnapshotter;
+    }
 }
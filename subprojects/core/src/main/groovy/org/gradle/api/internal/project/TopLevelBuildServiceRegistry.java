@@ -37,6 +37,7 @@ import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheFactory;
 import org.gradle.cache.internal.DefaultCacheRepository;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.configuration.*;
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory;
 import org.gradle.groovy.scripts.ScriptCompilerFactory;
@@ -100,7 +101,7 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
     }
 
     protected IsolatedAntBuilder createIsolatedAntBuilder() {
-        return new DefaultIsolatedAntBuilder(get(ClassPathRegistry.class), get(ClassLoaderFactory.class));
+        return new DefaultIsolatedAntBuilder(get(ClassPathRegistry.class), get(ClassLoaderFactory.class), get(IsolatedClassLoaderCache.class));
     }
 
     protected ActorFactory createActorFactory() {
@@ -142,18 +143,27 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
 
     protected ScriptCompilerFactory createScriptCompileFactory() {
         ScriptExecutionListener scriptExecutionListener = get(ListenerManager.class).getBroadcaster(ScriptExecutionListener.class);
-        EmptyScriptGenerator emptyScriptGenerator = new AsmBackedEmptyScriptGenerator();
         return new DefaultScriptCompilerFactory(
                 new CachingScriptClassCompiler(
                         new ShortCircuitEmptyScriptCompiler(
-                                new FileCacheBackedScriptClassCompiler(
-                                        get(CacheRepository.class),
-                                        new DefaultScriptCompilationHandler(
-                                                emptyScriptGenerator)),
-                                emptyScriptGenerator)),
+                                get(FileCacheBackedScriptClassCompiler.class),
+                                get(EmptyScriptGenerator.class))),
                 new DefaultScriptRunnerFactory(scriptExecutionListener));
     }
 
+    protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCompiler() {
+        return new FileCacheBackedScriptClassCompiler(
+                get(CacheRepository.class),
+                new DefaultScriptCompilationHandler(
+                        get(EmptyScriptGenerator.class)),
+                get(ScriptSourceHasher.class),
+                get(FileLockManager.class));
+    }
+
+    protected EmptyScriptGenerator createEmptyScriptGenerator() {
+        return new AsmBackedEmptyScriptGenerator();
+    }
+
     protected ScriptPluginFactory createScriptObjectConfigurerFactory() {
         return new DefaultScriptPluginFactory(
                 get(ScriptCompilerFactory.class),
@@ -211,10 +221,17 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
     }
 
     protected BuildConfigurer createBuildConfigurer() {
-        return new DefaultBuildConfigurer(
+        DefaultBuildConfigurer projectConfigurer = new DefaultBuildConfigurer(
                 new ProjectEvaluationConfigurer(),
                 new ProjectDependencies2TaskResolver(),
                 new ImplicitTasksConfigurer());
+        return new ConfigureOnDemandBuildConfigurer(
+                new PrecompilingBuildConfigurer(
+                        projectConfigurer,
+                        get(FileCacheBackedScriptClassCompiler.class),
+                        get(ImportsReader.class),
+                        get(ExecutorFactory.class)),
+                projectConfigurer);
     }
 
     protected DependencyManagementServices createDependencyManagementServices() {
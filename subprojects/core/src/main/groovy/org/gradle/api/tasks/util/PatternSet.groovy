@@ -49,6 +49,7 @@ class PatternSet implements AntBuilderAware, PatternFilterable {
     private Set includeSpecs = [] as LinkedHashSet
     private Set excludeSpecs = [] as LinkedHashSet
     def boolean caseSensitive = true
+    private volatile CompiledPatternSpec compiledSpec
 
     static {
         resetGlobalExcludes()
@@ -92,14 +93,27 @@ class PatternSet implements AntBuilderAware, PatternFilterable {
         return new IntersectionPatternSet(this)
     }
 
+    /**
+     * Returns a spec for this pattern set. The spec is compiled when first requested and reused until the patterns, specs or global excludes
+     * change.
+     */
     public Spec<FileTreeElement> getAsSpec() {
+        CompiledPatternSpec compiled = compiledSpec
+        if (compiled == null || !compiled.isUpToDate(includes, excludes, includeSpecs, excludeSpecs, caseSensitive, GLOBAL_EXCLUDES)) {
+            compiled = new CompiledPatternSpec(includes, excludes, includeSpecs, excludeSpecs, caseSensitive, GLOBAL_EXCLUDES, compileSpec())
+            compiledSpec = compiled
+        }
+        return compiled.spec
+    }
+
+    private Spec<FileTreeElement> compileSpec() {
         Spec<FileTreeElement> includeSpec = Specs.satisfyAll()
 
         boolean hasIncludes = includes || includeSpecs
         if (hasIncludes) {
             List<Spec<FileTreeElement>> matchers = []
-            for (String include: includes) {
-                matchers.add(new RelativePathSpec(PatternMatcherFactory.getPatternMatcher(true, caseSensitive, include)))
+            if (includes) {
+                matchers.add(new RelativePathSpec(PatternMatcherFactory.getPatternsMatcher(true, caseSensitive, includes)))
             }
             matchers.addAll(includeSpecs)
             includeSpec = new OrSpec<FileTreeElement>(matchers as Spec[])
@@ -112,8 +126,8 @@ class PatternSet implements AntBuilderAware, PatternFilterable {
         }
 
         List<Spec<FileTreeElement>> matchers = []
-        for (String exclude: allExcludes) {
-            matchers.add(new RelativePathSpec(PatternMatcherFactory.getPatternMatcher(false, caseSensitive, exclude)))
+        if (allExcludes) {
+            matchers.add(new RelativePathSpec(PatternMatcherFactory.getPatternsMatcher(false, caseSensitive, allExcludes)))
         }
         matchers.addAll(excludeSpecs)
         Spec<FileTreeElement> excludeSpec = new NotSpec<FileTreeElement>(new OrSpec<FileTreeElement>(matchers as Spec[]))
@@ -246,3 +260,31 @@ class IntersectionPatternSet extends PatternSet {
         }
     }
 }
+
+/**
+ * A spec compiled from a pattern set, along with a copy of the state it was compiled from.
+ */
+class CompiledPatternSpec {
+    private final Set includes
+    private final Set excludes
+    private final Set includeSpecs
+    private final Set excludeSpecs
+    private final boolean caseSensitive
+    private final Set globalExcludes
+    final Spec<FileTreeElement> spec
+
+    CompiledPatternSpec(Set includes, Set excludes, Set includeSpecs, Set excludeSpecs, boolean caseSensitive, Set globalExcludes, Spec<FileTreeElement> spec) {
+        this.includes = new HashSet(includes)
+        this.excludes = new HashSet(excludes)
+        this.includeSpecs = new HashSet(includeSpecs)
+        this.excludeSpecs = new HashSet(excludeSpecs)
+        this.caseSensitive = caseSensitive
+        this.globalExcludes = new HashSet(globalExcludes)
+        this.spec = spec
+    }
+
+    boolean isUpToDate(Set includes, Set excludes, Set includeSpecs, Set excludeSpecs, boolean caseSensitive, Set globalExcludes) {
+        return this.caseSensitive == caseSensitive && this.includes.equals(includes) && this.excludes.equals(excludes) &&
+                this.includeSpecs.equals(includeSpecs) && this.excludeSpecs.equals(excludeSpecs) && this.globalExcludes.equals(globalExcludes)
+    }
+}
@@ -35,6 +35,12 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import static org.gradle.cache.internal.FileLockManager.LockMode.Exclusive;
 
+/**
+ * Coordinates access to a cache. When the cache is opened with {@link FileLockManager.LockMode#None}, the cache's file lock is acquired on demand,
+ * when one of the cache's files is first accessed. The lock is then held, across cache actions and long running operations, until another process
+ * requests it. The lock is released on request at the next point where no cache action is in progress, that is, immediately or at the end of the
+ * current cache action. When other processes cannot make such requests, the lock is released at the end of each cache action instead.
+ */
 @ThreadSafe
 public class DefaultCacheAccess implements CacheAccess {
     private final String cacheDiplayName;
@@ -47,8 +53,28 @@ public class DefaultCacheAccess implements CacheAccess {
     private Thread owner;
     private FileLockManager.LockMode lockMode;
     private FileLock fileLock;
+    private boolean retainFileLock;
+    private boolean contended;
     private boolean started;
     private final List<String> operationStack = new ArrayList<String>();
+    private final Runnable whenContended = new Runnable() {
+        public void run() {
+            lock.lock();
+            try {
+                if (!retainFileLock) {
+                    return;
+                }
+                if (started) {
+                    // Release at the end of the current cache action
+                    contended = true;
+                    return;
+                }
+                releaseFileLock();
+            } finally {
+                lock.unlock();
+            }
+        }
+    };
 
     public DefaultCacheAccess(String cacheDisplayName, File lockFile, FileLockManager lockManager) {
         this.cacheDiplayName = cacheDisplayName;
@@ -89,18 +115,24 @@ public class DefaultCacheAccess implements CacheAccess {
             started = false;
             lockMode = null;
             owner = null;
-            if (fileLock != null) {
-                try {
-                    fileLock.close();
-                } finally {
-                    fileLock = null;
-                }
-            }
+            releaseFileLock();
         } finally {
             lock.unlock();
         }
     }
 
+    private void releaseFileLock() {
+        if (fileLock != null) {
+            try {
+                fileLock.close();
+            } finally {
+                fileLock = null;
+                retainFileLock = false;
+                contended = false;
+            }
+        }
+    }
+
     public FileLock getFileLock() {
         return fileLock;
     }
@@ -231,49 +263,81 @@ public class DefaultCacheAccess implements CacheAccess {
     }
 
     private boolean onStartWork() {
-        if (started) {
-            return false;
-        }
+        lock.lock();
+        try {
+            if (started) {
+                return false;
+            }
 
-        started = true;
-        for (MultiProcessSafePersistentIndexedCache<?, ?> cache : caches) {
-            cache.onStartWork(operationStack.get(0));
+            started = true;
+            for (MultiProcessSafePersistentIndexedCache<?, ?> cache : caches) {
+                cache.onStartWork(operationStack.get(0));
+            }
+            return true;
+        } finally {
+            lock.unlock();
         }
-        return true;
     }
 
     private boolean onEndWork() {
-        if (!started) {
-            return false;
-        }
-
+        lock.lock();
         try {
-            for (MultiProcessSafePersistentIndexedCache<?, ?> cache : caches) {
-                cache.onEndWork();
+            if (!started) {
+                return false;
             }
-            if (fileLock != null) {
-                fileLock.close();
+
+            try {
+                for (MultiProcessSafePersistentIndexedCache<?, ?> cache : caches) {
+                    cache.onEndWork();
+                }
+                if (!retainFileLock || contended) {
+                    releaseFileLock();
+                }
+            } finally {
+                started = false;
             }
+            return true;
         } finally {
-            started = false;
-            fileLock = null;
+            lock.unlock();
         }
-        return true;
     }
 
     private FileLock getLock() {
+        String operationDisplayName;
         lock.lock();
         try {
             if (Thread.currentThread() != owner || !started) {
                 throw new IllegalStateException(String.format("The %s has not been locked.", cacheDiplayName));
             }
+            if (fileLock != null) {
+                return fileLock;
+            }
+            // The lock may be contended before lock() returns
+            retainFileLock = true;
+            contended = false;
+            operationDisplayName = operationStack.get(0);
         } finally {
             lock.unlock();
         }
-        if (fileLock == null) {
-            fileLock = lockManager.lock(lockFile, Exclusive, cacheDiplayName, operationStack.get(0));
+
+        // Don't hold the lock while waiting for the file lock, as requests to release the file lock are handled
+        // using this lock, by a thread which is shared with other caches
+        FileLock acquired = null;
+        try {
+            acquired = lockManager.lock(lockFile, Exclusive, cacheDiplayName, operationDisplayName, whenContended);
+        } finally {
+            lock.lock();
+            try {
+                if (acquired != null) {
+                    fileLock = acquired;
+                } else {
+                    retainFileLock = false;
+                }
+            } finally {
+                lock.unlock();
+            }
         }
-        return fileLock;
+        return acquired;
     }
 
     private class UnitOfWorkFileAccess extends AbstractFileAccess {
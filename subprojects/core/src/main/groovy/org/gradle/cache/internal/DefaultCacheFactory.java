@@ -30,6 +30,8 @@ import static org.gradle.cache.internal.FileLockManager.LockMode;
 public class DefaultCacheFactory implements Factory<CacheFactory> {
     private final Map<File, DirCacheReference> dirCaches = new HashMap<File, DirCacheReference>();
     private final FileLockManager lockManager;
+    // The cache factories may be used concurrently by builds running in the same process
+    private final Object lock = new Object();
 
     public DefaultCacheFactory(FileLockManager fileLockManager) {
         this.lockManager = fileLockManager;
@@ -46,8 +48,10 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
     }
 
     public void close() {
-        for (DirCacheReference dirCacheReference : dirCaches.values()) {
-            dirCacheReference.close();
+        synchronized (lock) {
+            for (DirCacheReference dirCacheReference : new ArrayList<DirCacheReference>(dirCaches.values())) {
+                dirCacheReference.close();
+            }
         }
     }
 
@@ -84,47 +88,57 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
             if (initializer != null) {
                 throw new UnsupportedOperationException("Initializer actions are not currently supported by the directory store implementation.");
             }
-            File canonicalDir = GFileUtils.canonicalise(storeDir);
-            DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
-            if (dirCacheReference == null) {
-                DefaultPersistentDirectoryStore cache = new DefaultPersistentDirectoryStore(canonicalDir, displayName, lockMode, lockManager);
-                cache.open();
-                dirCacheReference = new DirCacheReference(cache, Collections.<String, Object>emptyMap(), lockMode);
-                dirCaches.put(canonicalDir, dirCacheReference);
+            synchronized (lock) {
+                File canonicalDir = GFileUtils.canonicalise(storeDir);
+                DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
+                if (dirCacheReference == null) {
+                    DefaultPersistentDirectoryStore cache = new DefaultPersistentDirectoryStore(canonicalDir, displayName, lockMode, lockManager);
+                    cache.open();
+                    dirCacheReference = new DirCacheReference(cache, Collections.<String, Object>emptyMap(), lockMode);
+                    dirCaches.put(canonicalDir, dirCacheReference);
+                }
+                dirCacheReference.addReference(this);
+                return dirCacheReference.getCache();
             }
-            dirCacheReference.addReference(this);
-            return dirCacheReference.getCache();
         }
 
         public PersistentCache open(File cacheDir, String displayName, CacheUsage usage, Map<String, ?> properties, LockMode lockMode, Action<? super PersistentCache> initializer) {
-            DirCacheReference dirCacheReference = doOpenDir(cacheDir, displayName, usage, properties, lockMode, initializer);
-            return dirCacheReference.getCache();
+            synchronized (lock) {
+                DirCacheReference dirCacheReference = doOpenDir(cacheDir, displayName, usage, properties, lockMode, initializer);
+                return dirCacheReference.getCache();
+            }
         }
 
         public <E> PersistentStateCache<E> openStateCache(File cacheDir, CacheUsage usage, Map<String, ?> properties, LockMode lockMode, Serializer<E> serializer) {
-            StateCacheReference<E> cacheReference = doOpenDir(cacheDir, null, usage, properties, lockMode, null).getStateCache(serializer);
-            cacheReference.addReference(this);
-            return cacheReference.getCache();
+            synchronized (lock) {
+                StateCacheReference<E> cacheReference = doOpenDir(cacheDir, null, usage, properties, lockMode, null).getStateCache(serializer);
+                cacheReference.addReference(this);
+                return cacheReference.getCache();
+            }
         }
 
         public <K, V> PersistentIndexedCache<K, V> openIndexedCache(File cacheDir, CacheUsage usage, Map<String, ?> properties, LockMode lockMode, Serializer<V> serializer) {
             if (lockMode != LockMode.Exclusive) {
                 throw new UnsupportedOperationException(String.format("No %s mode indexed cache implementation is available.", lockMode));
             }
-            IndexedCacheReference<K, V> cacheReference = doOpenDir(cacheDir, null, usage, properties, LockMode.Exclusive, null).getIndexedCache(serializer);
-            cacheReference.addReference(this);
-            return cacheReference.getCache();
+            synchronized (lock) {
+                IndexedCacheReference<K, V> cacheReference = doOpenDir(cacheDir, null, usage, properties, LockMode.Exclusive, null).getIndexedCache(serializer);
+                cacheReference.addReference(this);
+                return cacheReference.getCache();
+            }
         }
 
         public void close() {
-            try {
-                List<BasicCacheReference<?>> caches = new ArrayList<BasicCacheReference<?>>(this.caches);
-                Collections.reverse(caches);
-                for (BasicCacheReference cache : caches) {
-                    cache.release(this);
+            synchronized (lock) {
+                try {
+                    List<BasicCacheReference<?>> caches = new ArrayList<BasicCacheReference<?>>(this.caches);
+                    Collections.reverse(caches);
+                    for (BasicCacheReference cache : caches) {
+                        cache.release(this);
+                    }
+                } finally {
+                    caches.clear();
                 }
-            } finally {
-                caches.clear();
             }
         }
     }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allows a process which holds a file lock to be told when another process wants the lock. The holder listens on a UDP socket bound to the
+ * loopback interface, and publishes the port of this socket in the lock file. A process which is waiting for the lock sends the path of the lock file
+ * to this port. Requests are best effort: a request which is lost only means that the waiting process waits until the holder releases the lock
+ * of its own accord.
+ */
+public class DefaultFileLockContentionHandler implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileLockContentionHandler.class);
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, Runnable> contendedActions = new HashMap<String, Runnable>();
+    private DatagramSocket socket;
+    private boolean stopped;
+
+    /**
+     * Starts listening for requests for the given lock file. The given action is run, on some arbitrary thread, when a request is received.
+     *
+     * @return The port that other processes should send requests to.
+     */
+    public int start(File lockFile, Runnable whenContended) {
+        lock.lock();
+        try {
+            if (stopped) {
+                throw new IllegalStateException("Cannot listen for lock requests, as this handler has been stopped.");
+            }
+            if (socket == null) {
+                socket = new DatagramSocket(0, InetAddress.getByName(null));
+                Thread listener = new Thread(new Runnable() {
+                    public void run() {
+                        listen();
+                    }
+                }, "File lock request listener");
+                listener.setDaemon(true);
+                listener.start();
+            }
+            contendedActions.put(lockFile.getPath(), whenContended);
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops listening for requests for the given lock file.
+     */
+    public void stop(File lockFile) {
+        lock.lock();
+        try {
+            contendedActions.remove(lockFile.getPath());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Asks the process listening on the given port to release its lock on the given lock file.
+     */
+    public void pingOwner(int port, File lockFile) {
+        try {
+            byte[] bytes = lockFile.getPath().getBytes("utf-8");
+            DatagramSocket pingSocket = new DatagramSocket();
+            try {
+                pingSocket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getByName(null), port));
+            } finally {
+                pingSocket.close();
+            }
+        } catch (IOException e) {
+            LOGGER.debug(String.format("Could not request the lock on %s from the process on port %s. Ignoring.", lockFile, port), e);
+        }
+    }
+
+    private void listen() {
+        byte[] buffer = new byte[4096];
+        while (true) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            Runnable action;
+            try {
+                socket.receive(packet);
+                String path = new String(packet.getData(), 0, packet.getLength(), "utf-8");
+                lock.lock();
+                try {
+                    action = contendedActions.get(path);
+                } finally {
+                    lock.unlock();
+                }
+                LOGGER.debug("Received request for lock on {}.", path);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    if (stopped) {
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                LOGGER.debug("Could not receive lock request. Ignoring.", e);
+                continue;
+            }
+            if (action != null) {
+                try {
+                    action.run();
+                } catch (Throwable t) {
+                    LOGGER.warn("Could not handle request for file lock.", t);
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            contendedActions.clear();
+            if (socket != null) {
+                socket.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
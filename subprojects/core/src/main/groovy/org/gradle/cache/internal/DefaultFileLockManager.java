@@ -15,7 +15,9 @@
  */
 package org.gradle.cache.internal;
 
+import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.Factory;
+import org.gradle.internal.Stoppable;
 import org.gradle.internal.UncheckedException;
 import org.gradle.util.GFileUtils;
 import org.slf4j.Logger;
@@ -25,9 +27,15 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Uses file system locks on a lock file per target file. Each lock file is made up of 2 regions:
@@ -36,20 +44,48 @@ import java.util.concurrent.CopyOnWriteArraySet;
  *     <li>State region: 1 byte version field, 1 byte clean flag.</li>
  *     <li>Owner information region: 1 byte version field, utf-8 encoded owner process id, utf-8 encoded owner operation display name.</li>
  * </ul>
+ *
+ * <p>When a region is locked by another process, retries with an exponentially increasing, randomised delay, starting well below a millisecond. A
+ * blocking {@code FileChannel.lock()} is not used, as the only way to time it out is to close the channel, which would also release the other locks
+ * this process holds on the lock file.</p>
+ *
+ * <p>The holder of an exclusive lock can also publish, in the information region, the port of a {@link DefaultFileLockContentionHandler}. A process
+ * waiting for the lock uses this to ask the holder to release the lock. The port follows the owner operation display name, so that older versions
+ * can still read the information region.</p>
+ *
+ * <p>If this process cannot listen for requests, the lock is treated as contended from the start, so that the holder releases it as soon as it
+ * can, as it would have done before such requests were supported. Note that older versions do not send requests, and would time out waiting
+ * for a lock which is held on demand by this version. So a cache which is locked on demand must not be shared with older versions, for
+ * example by using a new cache directory for the version which starts to lock the cache on demand.</p>
  */
-public class DefaultFileLockManager implements FileLockManager {
+public class DefaultFileLockManager implements FileLockManager, Stoppable {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileLockManager.class);
     private static final int LOCK_TIMEOUT = 60000;
+    private static final long INITIAL_RETRY_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long MAX_RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long PING_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final Random RANDOM = new Random();
     private static final byte STATE_REGION_PROTOCOL = 1;
     private static final int STATE_REGION_SIZE = 2;
     private static final int STATE_REGION_POS = 0;
     private static final byte INFORMATION_REGION_PROTOCOL = 2;
     private static final int INFORMATION_REGION_POS = STATE_REGION_POS + STATE_REGION_SIZE;
     private final Set<File> lockedFiles = new CopyOnWriteArraySet<File>();
+    private final ConcurrentMap<File, LockStatistics> statistics = new ConcurrentHashMap<File, LockStatistics>();
     private final ProcessMetaDataProvider metaDataProvider;
+    private final DefaultFileLockContentionHandler contentionHandler;
 
     public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider) {
+        this(metaDataProvider, new DefaultFileLockContentionHandler());
+    }
+
+    public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, DefaultFileLockContentionHandler contentionHandler) {
         this.metaDataProvider = metaDataProvider;
+        this.contentionHandler = contentionHandler;
+    }
+
+    public void stop() {
+        contentionHandler.stop();
     }
 
     public FileLock lock(File target, LockMode mode, String targetDisplayName) throws LockTimeoutException {
@@ -57,6 +93,10 @@ public class DefaultFileLockManager implements FileLockManager {
     }
 
     public FileLock lock(File target, LockMode mode, String targetDisplayName, String operationDisplayName) {
+        return lock(target, mode, targetDisplayName, operationDisplayName, null);
+    }
+
+    public FileLock lock(File target, LockMode mode, String targetDisplayName, String operationDisplayName, Runnable whenContended) {
         if (mode == LockMode.None) {
             throw new UnsupportedOperationException(String.format("No %s mode lock implementation available.", mode));
         }
@@ -65,27 +105,77 @@ public class DefaultFileLockManager implements FileLockManager {
             throw new IllegalStateException(String.format("Cannot lock %s as it has already been locked by this process.", targetDisplayName));
         }
         try {
-            return new DefaultFileLock(canonicalTarget, mode, targetDisplayName, operationDisplayName);
+            return new DefaultFileLock(canonicalTarget, mode, targetDisplayName, operationDisplayName, whenContended);
         } catch (Throwable t) {
             lockedFiles.remove(canonicalTarget);
             throw UncheckedException.asUncheckedException(t);
         }
     }
 
+    /**
+     * Returns the contention statistics for the given target file, which cover all locks taken on the target by this manager.
+     */
+    public LockStatistics getStatistics(File target) {
+        File canonicalTarget = GFileUtils.canonicalise(target);
+        LockStatistics targetStatistics = statistics.get(canonicalTarget);
+        if (targetStatistics == null) {
+            statistics.putIfAbsent(canonicalTarget, new LockStatistics());
+            targetStatistics = statistics.get(canonicalTarget);
+        }
+        return targetStatistics;
+    }
+
+    public static class LockStatistics {
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong contendedAcquisitions = new AtomicLong();
+        private final AtomicLong waitTimeNanos = new AtomicLong();
+
+        /**
+         * Returns the number of times a lock was acquired.
+         */
+        public long getAcquisitions() {
+            return acquisitions.get();
+        }
+
+        /**
+         * Returns the number of times a lock was acquired only after waiting for another process to release it.
+         */
+        public long getContendedAcquisitions() {
+            return contendedAcquisitions.get();
+        }
+
+        /**
+         * Returns the total time spent waiting for other processes to release their locks, in milliseconds.
+         */
+        public long getWaitTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(waitTimeNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s acquisitions, %s contended, %sms waiting", getAcquisitions(), getContendedAcquisitions(), getWaitTimeMillis());
+        }
+    }
+
     private class DefaultFileLock extends AbstractFileAccess implements FileLock {
         private final File lockFile;
         private final File target;
         private final LockMode mode;
         private final String displayName;
         private final String operationDisplayName;
+        private final LockStatistics lockStatistics;
+        private final Runnable whenContended;
         private java.nio.channels.FileLock lock;
         private RandomAccessFile lockFileAccess;
+        private int port = -1;
 
-        public DefaultFileLock(File target, LockMode mode, String displayName, String operationDisplayName) throws Throwable {
+        public DefaultFileLock(File target, LockMode mode, String displayName, String operationDisplayName, Runnable whenContended) throws Throwable {
             this.target = target;
+            this.whenContended = whenContended;
             this.mode = mode;
             this.displayName = displayName;
             this.operationDisplayName = operationDisplayName;
+            this.lockStatistics = getStatistics(target);
             if (target.isDirectory()) {
                 lockFile = new File(target, target.getName() + ".lock");
             } else {
@@ -99,10 +189,28 @@ public class DefaultFileLockManager implements FileLockManager {
             } catch (Throwable t) {
                 // Also releases any locks
                 lockFileAccess.close();
+                stopListening();
                 throw t;
             }
         }
 
+        private void listenForRequests() {
+            try {
+                port = contentionHandler.start(lockFile, whenContended);
+            } catch (UncheckedIOException e) {
+                // Other processes cannot ask for this lock, so tell the holder to release the lock as soon as it can instead
+                LOGGER.debug(String.format("Could not listen for requests for the lock on %s. Treating lock as contended.", displayName), e);
+                whenContended.run();
+            }
+        }
+
+        private void stopListening() {
+            if (port >= 0) {
+                contentionHandler.stop(lockFile);
+                port = -1;
+            }
+        }
+
         public boolean isLockFile(File file) {
             return file.equals(lockFile);
         }
@@ -180,8 +288,9 @@ public class DefaultFileLockManager implements FileLockManager {
                 return;
             }
             try {
-                LOGGER.debug("Releasing lock on {}.", displayName);
+                LOGGER.debug("Releasing lock on {} ({}).", displayName, lockStatistics);
                 lockedFiles.remove(target);
+                stopListening();
                 // Also releases any locks
                 try {
                     if (lock != null && !lock.isShared()) {
@@ -222,7 +331,7 @@ public class DefaultFileLockManager implements FileLockManager {
                                 throw new IllegalStateException(String.format("Unexpected lock protocol found in lock file '%s' for %s.", lockFile, displayName));
                             }
                             ownerPid = lockFileAccess.readUTF();
-                            ownerOperation= lockFileAccess.readUTF();
+                            ownerOperation = lockFileAccess.readUTF();
                         }
                     } finally {
                         informationRegionLock.release();
@@ -256,10 +365,14 @@ public class DefaultFileLockManager implements FileLockManager {
                         throw new IllegalStateException(String.format("Timeout waiting to lock the information region for lock %s", displayName));
                     }
                     try {
+                        if (whenContended != null && port < 0) {
+                            listenForRequests();
+                        }
                         lockFileAccess.seek(INFORMATION_REGION_POS);
                         lockFileAccess.writeByte(INFORMATION_REGION_PROTOCOL);
                         lockFileAccess.writeUTF(metaDataProvider.getProcessIdentifier());
                         lockFileAccess.writeUTF(operationDisplayName);
+                        lockFileAccess.writeInt(port);
                         lockFileAccess.setLength(lockFileAccess.getFilePointer());
                     } finally {
                         informationRegionLock.release();
@@ -271,26 +384,76 @@ public class DefaultFileLockManager implements FileLockManager {
             }
 
             LOGGER.debug("Lock acquired.");
+            lockStatistics.acquisitions.incrementAndGet();
             return stateRegionLock;
         }
 
         private java.nio.channels.FileLock lockStateRegion(LockMode lockMode, long timeout) throws IOException, InterruptedException {
-            return lockRegion(lockMode, timeout, STATE_REGION_POS, STATE_REGION_SIZE);
+            return lockRegion(lockMode, timeout, STATE_REGION_POS, STATE_REGION_SIZE, true);
         }
 
         private java.nio.channels.FileLock lockInformationRegion(LockMode lockMode, long timeout) throws IOException, InterruptedException {
-            return lockRegion(lockMode, timeout, INFORMATION_REGION_POS, Long.MAX_VALUE - INFORMATION_REGION_POS);
+            return lockRegion(lockMode, timeout, INFORMATION_REGION_POS, Long.MAX_VALUE - INFORMATION_REGION_POS, false);
+        }
+
+        /**
+         * Asks the owner of the lock to release it, if the owner has published a port to send such requests to.
+         */
+        private void pingOwner() throws IOException {
+            java.nio.channels.FileLock informationRegionLock = lockFileAccess.getChannel().tryLock(INFORMATION_REGION_POS, Long.MAX_VALUE - INFORMATION_REGION_POS, true);
+            if (informationRegionLock == null) {
+                return;
+            }
+            int ownerPort = -1;
+            try {
+                lockFileAccess.seek(INFORMATION_REGION_POS);
+                if (lockFileAccess.length() > INFORMATION_REGION_POS && lockFileAccess.readByte() == INFORMATION_REGION_PROTOCOL) {
+                    lockFileAccess.readUTF();
+                    lockFileAccess.readUTF();
+                    ownerPort = lockFileAccess.readInt();
+                }
+            } catch (EOFException e) {
+                // Lock file was written by a process which does not accept requests
+            } finally {
+                informationRegionLock.release();
+            }
+            if (ownerPort >= 0) {
+                LOGGER.debug("Requesting lock on {} from the process listening on port {}.", displayName, ownerPort);
+                contentionHandler.pingOwner(ownerPort, lockFile);
+            }
         }
 
-        private java.nio.channels.FileLock lockRegion(FileLockManager.LockMode lockMode, long timeout, long start, long size) throws IOException, InterruptedException {
-            do {
-                java.nio.channels.FileLock fileLock = lockFileAccess.getChannel().tryLock(start, size, lockMode == LockMode.Shared);
-                if (fileLock != null) {
-                    return fileLock;
+        private java.nio.channels.FileLock lockRegion(FileLockManager.LockMode lockMode, long timeout, long start, long size, boolean requestFromOwner) throws IOException, InterruptedException {
+            java.nio.channels.FileLock fileLock = lockFileAccess.getChannel().tryLock(start, size, lockMode == LockMode.Shared);
+            if (fileLock != null) {
+                return fileLock;
+            }
+
+            long startWait = System.nanoTime();
+            try {
+                ExponentialBackoff backoff = new ExponentialBackoff(INITIAL_RETRY_DELAY_NANOS, MAX_RETRY_DELAY_NANOS, RANDOM);
+                long lastPing = 0;
+                while (System.currentTimeMillis() < timeout) {
+                    if (requestFromOwner && (lastPing == 0 || System.nanoTime() - lastPing >= PING_INTERVAL_NANOS)) {
+                        pingOwner();
+                        lastPing = System.nanoTime();
+                    }
+                    LockSupport.parkNanos(backoff.nextDelayNanos());
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    fileLock = lockFileAccess.getChannel().tryLock(start, size, lockMode == LockMode.Shared);
+                    if (fileLock != null) {
+                        lockStatistics.contendedAcquisitions.incrementAndGet();
+                        return fileLock;
+                    }
                 }
-                Thread.sleep(200L);
-            } while (System.currentTimeMillis() < timeout);
-            return null;
+                return null;
+            } finally {
+                long waitTime = System.nanoTime() - startWait;
+                lockStatistics.waitTimeNanos.addAndGet(waitTime);
+                LOGGER.debug("Waited {}ms to lock region of {}.", TimeUnit.NANOSECONDS.toMillis(waitTime), displayName);
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import java.util.Random;
+
+/**
+ * Calculates the delays between successive attempts at some operation, such as acquiring a lock. The delays start small and grow exponentially
+ * up to some maximum. Each delay is randomised, so that processes which start waiting at the same time do not retry in lock step.
+ */
+class ExponentialBackoff {
+    private final Random random;
+    private final long maxDelayNanos;
+    private long delayNanos;
+
+    /**
+     * @param initialDelayNanos The nominal delay before the first retry.
+     * @param maxDelayNanos The maximum nominal delay.
+     */
+    ExponentialBackoff(long initialDelayNanos, long maxDelayNanos, Random random) {
+        this.delayNanos = initialDelayNanos;
+        this.maxDelayNanos = maxDelayNanos;
+        this.random = random;
+    }
+
+    /**
+     * Returns the delay before the next retry, in nanoseconds. This is somewhere between half and all of the current nominal delay.
+     */
+    long nextDelayNanos() {
+        long delay = delayNanos / 2 + (long) (random.nextDouble() * (delayNanos / 2));
+        delayNanos = Math.min(delayNanos * 2, maxDelayNanos);
+        return delay;
+    }
+}
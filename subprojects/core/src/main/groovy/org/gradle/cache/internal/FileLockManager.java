@@ -19,7 +19,7 @@ import java.io.File;
 
 public interface FileLockManager {
     /**
-     * Creates a locks for the given file with the given mode. Acquires a lock with the given mode, which is held until the lock is
+     * Creates a lock for the given file with the given mode. Acquires a lock with the given mode, which is held until the lock is
      * released by calling {@link org.gradle.cache.internal.FileLock#close()}. This method blocks until the lock can be acquired.
      *
      * @param target The file to be locked.
@@ -29,7 +29,7 @@ public interface FileLockManager {
     FileLock lock(File target, LockMode mode, String targetDisplayName) throws LockTimeoutException;
 
     /**
-     * Creates a locks for the given file with the given mode. Acquires a lock with the given mode, which is held until the lock is
+     * Creates a lock for the given file with the given mode. Acquires a lock with the given mode, which is held until the lock is
      * released by calling {@link org.gradle.cache.internal.FileLock#close()}. This method blocks until the lock can be acquired.
      *
      * @param target The file to be locked.
@@ -39,6 +39,22 @@ public interface FileLockManager {
      */
     FileLock lock(File target, LockMode mode, String targetDisplayName, String operationDisplayName) throws LockTimeoutException;
 
+    /**
+     * Creates a lock for the given file with the given mode. Acquires a lock with the given mode, which is held until the lock is
+     * released by calling {@link org.gradle.cache.internal.FileLock#close()}. This method blocks until the lock can be acquired.
+     *
+     * <p>While an exclusive lock is held, other processes which want the lock can ask for it to be released. The given action is called, on some
+     * arbitrary thread, when this happens. The holder should release the lock as soon as it is safe to do so. Such requests are best effort.
+     * When requests cannot be received, the action is called straight away, possibly before this method returns.</p>
+     *
+     * @param target The file to be locked.
+     * @param mode The lock mode.
+     * @param targetDisplayName A display name for the target file. This is used in log and error messages.
+     * @param operationDisplayName A display name for the operation being performed on the target file. This is used in log and error messages.
+     * @param whenContended The action to run when another process requests the lock.
+     */
+    FileLock lock(File target, LockMode mode, String targetDisplayName, String operationDisplayName, Runnable whenContended) throws LockTimeoutException;
+
     enum LockMode {
         /**
          * No synchronisation is done.
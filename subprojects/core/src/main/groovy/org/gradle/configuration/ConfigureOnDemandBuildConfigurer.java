@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.resource.Resource;
+import org.gradle.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link BuildConfigurer} which, when {@link StartParameter#isConfigureOnDemand()} is set, configures only those projects which are required to
+ * execute the requested tasks. These are the projects which contain the requested tasks, the projects they depend on, either through a project
+ * dependency or using {@link Project#dependsOn(String)} or {@link Project#evaluationDependsOn(String)}, and the ancestors of all of these projects.
+ *
+ * <p>Falls back to configuring all projects when the required projects cannot be determined before configuration, for example when no tasks are
+ * requested or tasks are excluded. It also falls back when the build script of a project appears to configure some other project or the build as a
+ * whole, as such a script might affect the required projects without being one of them. This check is conservative.</p>
+ */
+public class ConfigureOnDemandBuildConfigurer implements BuildConfigurer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigureOnDemandBuildConfigurer.class);
+    private static final Pattern PROJECT_REFERENCE = Pattern.compile("\\bproject\\s*\\([^)]*\\)");
+    private static final Pattern CONFIGURES_OTHER_PROJECT = Pattern.compile("\\b(project|findProject)\\s*\\([^)]*\\)\\s*[.{]");
+    private static final Pattern TASK_PATH = Pattern.compile("['\"]:[^'\"\\s:]+(:[^'\"\\s:]+)+['\"]");
+    private static final Pattern CONFIGURES_BUILD = Pattern.compile("(?<![.\\w])(rootProject|parent|gradle|configure)\\b|\\bapply\\s*\\(?\\s*from\\b");
+    private final BuildConfigurer configurer;
+    private final DefaultBuildConfigurer projectConfigurer;
+
+    /**
+     * @param configurer The configurer to use to configure all projects.
+     * @param projectConfigurer The configurer to use to configure a single project.
+     */
+    public ConfigureOnDemandBuildConfigurer(BuildConfigurer configurer, DefaultBuildConfigurer projectConfigurer) {
+        this.configurer = configurer;
+        this.projectConfigurer = projectConfigurer;
+    }
+
+    public void configure(GradleInternal gradle) {
+        Set<ProjectInternal> targets = gradle.getStartParameter().isConfigureOnDemand() ? findTargetProjects(gradle) : null;
+        if (targets == null) {
+            configurer.configure(gradle);
+            return;
+        }
+
+        Clock clock = new Clock();
+        Set<ProjectInternal> configured = new HashSet<ProjectInternal>();
+        LinkedList<ProjectInternal> queue = new LinkedList<ProjectInternal>(targets);
+        while (!queue.isEmpty()) {
+            while (!queue.isEmpty()) {
+                configure(queue.removeFirst(), configured, queue);
+            }
+            // Pick up any projects which were evaluated by another project, using evaluationDependsOn() for example
+            for (Project project : gradle.getRootProject().getAllprojects()) {
+                if (project.getState().getExecuted() && !configured.contains(project)) {
+                    queue.add((ProjectInternal) project);
+                }
+            }
+        }
+        LOGGER.info("Configured {} of {} projects on demand.", configured.size(), gradle.getRootProject().getAllprojects().size());
+        LOGGER.debug("Timing: Configuring projects on demand took {}", clock.getTime());
+    }
+
+    private void configure(ProjectInternal project, Set<ProjectInternal> configured, Queue<ProjectInternal> queue) {
+        if (configured.contains(project)) {
+            return;
+        }
+        if (project.getParent() != null) {
+            configure((ProjectInternal) project.getParent(), configured, queue);
+        }
+        configured.add(project);
+        projectConfigurer.configure(project);
+
+        for (Project dependsOnProject : project.getDependsOnProjects()) {
+            queue.add((ProjectInternal) dependsOnProject);
+        }
+        for (Configuration configuration : project.getConfigurations()) {
+            for (ProjectDependency dependency : configuration.getDependencies().withType(ProjectDependency.class)) {
+                queue.add((ProjectInternal) dependency.getDependencyProject());
+            }
+        }
+    }
+
+    /**
+     * Returns the projects which contain the requested tasks, or null when all projects should be configured.
+     */
+    private Set<ProjectInternal> findTargetProjects(GradleInternal gradle) {
+        StartParameter startParameter = gradle.getStartParameter();
+        if (startParameter.getTaskNames().isEmpty()) {
+            LOGGER.info("Configuring all projects, as no tasks were requested.");
+            return null;
+        }
+        if (!startParameter.getExcludedTaskNames().isEmpty()) {
+            LOGGER.info("Configuring all projects, as some tasks were excluded.");
+            return null;
+        }
+
+        Set<ProjectInternal> targets = new LinkedHashSet<ProjectInternal>();
+        ProjectInternal defaultProject = gradle.getDefaultProject();
+        for (String path : startParameter.getTaskNames()) {
+            if (path.startsWith("-")) {
+                // A command-line option for the preceding task
+                continue;
+            }
+            if (!path.contains(Project.PATH_SEPARATOR)) {
+                for (Project project : defaultProject.getAllprojects()) {
+                    targets.add((ProjectInternal) project);
+                }
+                continue;
+            }
+            String projectPath = path.substring(0, path.lastIndexOf(Project.PATH_SEPARATOR));
+            ProjectInternal project = defaultProject.findProject(projectPath.length() == 0 ? Project.PATH_SEPARATOR : projectPath);
+            if (project == null) {
+                LOGGER.info("Configuring all projects, as the project for task '{}' could not be located.", path);
+                return null;
+            }
+            targets.add(project);
+        }
+
+        Set<Project> ancestors = new HashSet<Project>();
+        for (ProjectInternal target : targets) {
+            for (Project project = target.getParent(); project != null; project = project.getParent()) {
+                ancestors.add(project);
+            }
+        }
+        for (Project project : gradle.getRootProject().getAllprojects()) {
+            String reason = findCrossProjectConfiguration((ProjectInternal) project, ancestors.contains(project), targets.contains(project));
+            if (reason != null) {
+                LOGGER.info("Configuring all projects, as the build script of {} {}.", project, reason);
+                return null;
+            }
+        }
+        return targets;
+    }
+
+    private String findCrossProjectConfiguration(ProjectInternal project, boolean ancestor, boolean target) {
+        Resource resource = project.getBuildScriptSource().getResource();
+        if (!resource.getExists()) {
+            return null;
+        }
+        String text = resource.getText();
+        // The ancestors of the target projects are configured before their descendants, as they would be when configuring all projects
+        if (!ancestor && CONFIGURES_OTHER_PROJECT.matcher(text).find()) {
+            return "refers to the model of another project";
+        }
+        if (TASK_PATH.matcher(PROJECT_REFERENCE.matcher(text).replaceAll("")).find()) {
+            return "may refer to a task of another project";
+        }
+        if (!ancestor && !target && CONFIGURES_BUILD.matcher(text).find()) {
+            return "may configure another project or the build";
+        }
+        return null;
+    }
+}
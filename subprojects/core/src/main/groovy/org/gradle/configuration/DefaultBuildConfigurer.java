@@ -34,10 +34,17 @@ public class DefaultBuildConfigurer implements BuildConfigurer {
     public void configure(GradleInternal gradle) {
         gradle.getRootProject().allprojects(new Action<Project>() {
             public void execute(Project project) {
-                for (Action<? super ProjectInternal> action : actions) {
-                    action.execute((ProjectInternal) project);
-                }
+                configure((ProjectInternal) project);
             }
         });
     }
+
+    /**
+     * Configures a single project. Should be called at most once for each project.
+     */
+    public void configure(ProjectInternal project) {
+        for (Action<? super ProjectInternal> action : actions) {
+            action.execute(project);
+        }
+    }
 }
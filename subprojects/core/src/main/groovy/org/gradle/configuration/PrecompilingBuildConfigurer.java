@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Project;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.artifacts.dsl.BuildScriptClasspathScriptTransformer;
+import org.gradle.api.internal.artifacts.dsl.BuildScriptTransformer;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ProjectScript;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.groovy.scripts.Transformer;
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.gradle.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A {@link BuildConfigurer} which, when {@link StartParameter#isPrecompileBuildScripts()} is set, compiles the build scripts of all projects
+ * concurrently into the script class cache, before the projects are configured.
+ *
+ * <p>Scripts are compiled using the root script class loader, as the class loader for each project is not known until the project's {@code
+ * buildscript { }} section has been executed. For this reason, the script of a project is not precompiled when it or the script of any of the
+ * project's ancestors has a {@code buildscript { }} section, as the compiled classes may depend on which classes are visible. The {@code
+ * buildscript { }} sections are compiled first, one level of the project hierarchy at a time, and a project has such a section when its compiled
+ * section is not empty. Any failure to compile a script is ignored here, and the script is compiled again when the project is evaluated, at which
+ * point the failure is reported.</p>
+ */
+public class PrecompilingBuildConfigurer implements BuildConfigurer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrecompilingBuildConfigurer.class);
+    private final BuildConfigurer configurer;
+    private final FileCacheBackedScriptClassCompiler compiler;
+    private final ImportsReader importsReader;
+    private final ExecutorFactory executorFactory;
+
+    public PrecompilingBuildConfigurer(BuildConfigurer configurer, FileCacheBackedScriptClassCompiler compiler, ImportsReader importsReader, ExecutorFactory executorFactory) {
+        this.configurer = configurer;
+        this.compiler = compiler;
+        this.importsReader = importsReader;
+        this.executorFactory = executorFactory;
+    }
+
+    public void configure(GradleInternal gradle) {
+        if (gradle.getStartParameter().isPrecompileBuildScripts()) {
+            precompile(gradle);
+        }
+        configurer.configure(gradle);
+    }
+
+    private void precompile(GradleInternal gradle) {
+        Clock clock = new Clock();
+        ClassLoader classLoader = gradle.getScriptClassLoader();
+        BuildScriptClasspathScriptTransformer classpathTransformer = new BuildScriptClasspathScriptTransformer("buildscript");
+        List<ProjectInternal> withoutBuildscript = new ArrayList<ProjectInternal>();
+        Collection<ProjectInternal> level = Collections.singleton(gradle.getRootProject());
+        while (!level.isEmpty()) {
+            Collection<ProjectInternal> levelWithoutBuildscript = compile(level, classLoader, classpathTransformer);
+            withoutBuildscript.addAll(levelWithoutBuildscript);
+            level = new ArrayList<ProjectInternal>();
+            for (ProjectInternal project : levelWithoutBuildscript) {
+                for (Project child : project.getChildProjects().values()) {
+                    level.add((ProjectInternal) child);
+                }
+            }
+        }
+        compile(withoutBuildscript, classLoader, new BuildScriptTransformer(classpathTransformer));
+        LOGGER.debug("Timing: Precompiling build scripts took {}", clock.getTime());
+    }
+
+    /**
+     * Compiles the build scripts of the given projects concurrently, and returns the projects whose compiled script is empty.
+     */
+    private Collection<ProjectInternal> compile(Collection<ProjectInternal> projects, ClassLoader classLoader, Transformer transformer) {
+        Queue<ProjectInternal> queue = new ConcurrentLinkedQueue<ProjectInternal>(projects);
+        Queue<ProjectInternal> emptyScripts = new ConcurrentLinkedQueue<ProjectInternal>();
+        int workers = Math.min(projects.size(), Runtime.getRuntime().availableProcessors());
+        StoppableExecutor executor = executorFactory.create("build script compiler");
+        try {
+            for (int i = 0; i < workers; i++) {
+                executor.execute(new CompileAction(queue, emptyScripts, classLoader, transformer));
+            }
+        } finally {
+            executor.stop();
+        }
+        return emptyScripts;
+    }
+
+    private class CompileAction implements Runnable {
+        private final Queue<ProjectInternal> projects;
+        private final Queue<ProjectInternal> emptyScripts;
+        private final ClassLoader classLoader;
+        private final Transformer transformer;
+
+        public CompileAction(Queue<ProjectInternal> projects, Queue<ProjectInternal> emptyScripts, ClassLoader classLoader, Transformer transformer) {
+            this.projects = projects;
+            this.emptyScripts = emptyScripts;
+            this.classLoader = classLoader;
+            this.transformer = transformer;
+        }
+
+        public void run() {
+            for (ProjectInternal project = projects.poll(); project != null; project = projects.poll()) {
+                ScriptSource script = project.getBuildScriptSource();
+                try {
+                    if (!script.getResource().getExists() || compiler.precompile(importsReader.withImports(script), classLoader, transformer, ProjectScript.class)) {
+                        emptyScripts.add(project);
+                    }
+                } catch (Throwable e) {
+                    LOGGER.debug(String.format("Could not precompile %s. Will compile it when the project is evaluated.", script.getDisplayName()), e);
+                }
+            }
+        }
+    }
+}
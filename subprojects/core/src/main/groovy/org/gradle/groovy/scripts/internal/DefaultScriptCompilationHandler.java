@@ -163,7 +163,7 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
 
     public <T extends Script> Class<? extends T> loadFromDir(ScriptSource source, ClassLoader classLoader, File scriptCacheDir,
                                               Class<T> scriptBaseClass) {
-        if (new File(scriptCacheDir, EMPTY_SCRIPT_MARKER_FILE_NAME).isFile()) {
+        if (isEmptyScript(scriptCacheDir)) {
             return emptyScriptGenerator.generate(scriptBaseClass);
         }
         
@@ -185,6 +185,10 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
         }
     }
 
+    public boolean isEmptyScript(File scriptCacheDir) {
+        return new File(scriptCacheDir, EMPTY_SCRIPT_MARKER_FILE_NAME).isFile();
+    }
+
     private static class EmptyScriptDetector extends CompilationUnit.SourceUnitOperation {
         private boolean emptyScript;
 
@@ -16,64 +16,145 @@
 package org.gradle.groovy.scripts.internal;
 
 import groovy.lang.Script;
-import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.FileLock;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.groovy.scripts.Transformer;
-import org.gradle.util.hash.HashUtil;
+import org.gradle.util.GFileUtils;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.FileFilter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
 
 /**
  * A {@link ScriptClassCompiler} which compiles scripts to a cache directory, and loads them from there.
+ *
+ * <p>All scripts share a single cache, which is opened once on first use. The compiled classes for each script are stored in a directory keyed by
+ * the hash of the script source, so an existing directory is always up-to-date. A script is compiled to a temporary directory which is then moved
+ * into place, so that there is no need to lock the cache while compiling.</p>
+ *
+ * <p>Each time a script is used, its directory is touched. When a new version of a script is compiled, only the {@value #MAX_VERSIONS_PER_SCRIPT}
+ * most recently used versions of that script are kept, and older versions are removed. The versions of a script are removed while holding an
+ * exclusive lock on its directory, so that processes sharing the cache do not remove them concurrently.</p>
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler {
+    static final int MAX_VERSIONS_PER_SCRIPT = 4;
     private final ScriptCompilationHandler scriptCompilationHandler;
     private final CacheRepository cacheRepository;
+    private final ScriptSourceHasher sourceHasher;
+    private final FileLockManager lockManager;
+    private final Random random = new Random();
+    private PersistentCache cache;
 
-    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, ScriptCompilationHandler scriptCompilationHandler) {
+    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, ScriptCompilationHandler scriptCompilationHandler, ScriptSourceHasher sourceHasher,
+                                              FileLockManager lockManager) {
         this.cacheRepository = cacheRepository;
         this.scriptCompilationHandler = scriptCompilationHandler;
+        this.sourceHasher = sourceHasher;
+        this.lockManager = lockManager;
     }
 
     public <T extends Script> Class<? extends T> compile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<T> scriptBaseClass) {
-        Map<String, Object> properties = new HashMap<String, Object>();
-        properties.put("source.filename", source.getFileName());
-        properties.put("source.hash", HashUtil.createCompactMD5(source.getResource().getText()));
+        File classesDir = getClassesDir(source, transformer, scriptBaseClass);
+        if (!classesDir.isDirectory()) {
+            compileToCache(source, classLoader, classesDir, transformer, scriptBaseClass);
+        } else {
+            classesDir.setLastModified(System.currentTimeMillis());
+        }
+        return scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, scriptBaseClass);
+    }
 
-        String cacheName = String.format("scripts/%s/%s/%s", source.getClassName(), scriptBaseClass.getSimpleName(), transformer.getId());
-        PersistentCache cache = cacheRepository.cache(cacheName)
-                .withProperties(properties)
-                .withDisplayName(String.format("%s class cache for %s", transformer.getId(), source.getDisplayName()))
-                .withInitializer(new CacheInitializer(source, classLoader, transformer, scriptBaseClass)).open();
+    /**
+     * Compiles the given script into the cache, if it has not already been compiled. Does not load the compiled classes. This method may be called
+     * concurrently from multiple threads. A script which contains only whitespace is not added to the cache, as it is never compiled when it is
+     * used either.
+     *
+     * @return true if the script contains no statements or methods once transformed.
+     */
+    public boolean precompile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<? extends Script> scriptBaseClass) {
+        File classesDir = getClassesDir(source, transformer, scriptBaseClass);
+        if (classesDir.isDirectory()) {
+            classesDir.setLastModified(System.currentTimeMillis());
+        } else if (source.getResource().getText().matches("\\s*")) {
+            return true;
+        } else {
+            compileToCache(source, classLoader, classesDir, transformer, scriptBaseClass);
+        }
+        return scriptCompilationHandler.isEmptyScript(classesDir);
+    }
 
-        File classesDir = classesDir(cache);
-        return scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, scriptBaseClass);
+    private File getClassesDir(ScriptSource source, Transformer transformer, Class<? extends Script> scriptBaseClass) {
+        String cacheKey = String.format("%s/%s/%s/%s", source.getClassName(), scriptBaseClass.getSimpleName(), transformer.getId(), sourceHasher.getSourceHash(source));
+        return new File(getCache().getBaseDir(), cacheKey);
     }
 
-    private File classesDir(PersistentCache cache) {
-        return new File(cache.getBaseDir(), "classes");
+    private void compileToCache(ScriptSource source, ClassLoader classLoader, File classesDir, Transformer transformer, Class<? extends Script> scriptBaseClass) {
+        File tmpDir = new File(classesDir.getParentFile(), String.format("%s-%s.tmp", classesDir.getName(), Long.toHexString(random.nextLong())));
+        try {
+            scriptCompilationHandler.compileToDir(source, classLoader, tmpDir, transformer, scriptBaseClass);
+            // Another process or thread may have compiled the same script in the meantime, in which case its result is used
+            if (!tmpDir.renameTo(classesDir) && !classesDir.isDirectory()) {
+                throw new GradleException(String.format("Could not move compiled classes for %s into %s.", source.getDisplayName(), classesDir));
+            }
+        } finally {
+            GFileUtils.deleteDirectory(tmpDir);
+        }
+        removeStaleVersions(source, classesDir);
+    }
+
+    /**
+     * Removes all but the most recently used versions of the script whose classes are in the given directory. Directories which are still being
+     * compiled to are left alone.
+     */
+    private void removeStaleVersions(ScriptSource source, File classesDir) {
+        File scriptDir = classesDir.getParentFile();
+        if (listVersions(scriptDir).length <= MAX_VERSIONS_PER_SCRIPT) {
+            return;
+        }
+        FileLock lock = lockManager.lock(scriptDir, FileLockManager.LockMode.Exclusive, String.format("compiled classes for %s", source.getDisplayName()), "remove stale versions");
+        try {
+            removeStaleVersions(listVersions(scriptDir), classesDir);
+        } finally {
+            lock.close();
+        }
     }
 
-    private class CacheInitializer implements Action<PersistentCache> {
-        private final Class<? extends Script> scriptBaseClass;
-        private final ClassLoader classLoader;
-        private final Transformer transformer;
-        private final ScriptSource source;
+    private File[] listVersions(File scriptDir) {
+        File[] versions = scriptDir.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isDirectory() && !file.getName().endsWith(".tmp");
+            }
+        });
+        return versions == null ? new File[0] : versions;
+    }
 
-        private CacheInitializer(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<? extends Script> scriptBaseClass) {
-            this.source = source;
-            this.classLoader = classLoader;
-            this.transformer = transformer;
-            this.scriptBaseClass = scriptBaseClass;
+    private void removeStaleVersions(File[] versions, File classesDir) {
+        if (versions.length <= MAX_VERSIONS_PER_SCRIPT) {
+            return;
         }
+        Arrays.sort(versions, new Comparator<File>() {
+            public int compare(File file1, File file2) {
+                long lastModified1 = file1.lastModified();
+                long lastModified2 = file2.lastModified();
+                return lastModified1 > lastModified2 ? -1 : lastModified1 == lastModified2 ? 0 : 1;
+            }
+        });
+        for (int i = MAX_VERSIONS_PER_SCRIPT; i < versions.length; i++) {
+            if (!versions[i].equals(classesDir)) {
+                GFileUtils.deleteDirectory(versions[i]);
+            }
+        }
+    }
 
-        public void execute(PersistentCache cache) {
-            File classesDir = classesDir(cache);
-            scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass);
+    private synchronized PersistentCache getCache() {
+        if (cache == null) {
+            cache = cacheRepository.cache("scripts").withDisplayName("compiled script class cache").open();
         }
+        return cache;
     }
 }
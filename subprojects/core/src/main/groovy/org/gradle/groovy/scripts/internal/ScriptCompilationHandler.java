@@ -30,4 +30,6 @@ public interface ScriptCompilationHandler {
 
     <T extends Script> Class<? extends T> loadFromDir(ScriptSource source, ClassLoader classLoader, File scriptCacheDir,
                                        Class<T> scriptBaseClass);
+
+    boolean isEmptyScript(File scriptCacheDir);
 }
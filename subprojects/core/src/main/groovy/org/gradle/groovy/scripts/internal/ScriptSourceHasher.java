@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.groovy.scripts.internal;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.util.hash.HashUtil;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Calculates and caches the hashes of script sources. The compiled classes for a script are cached by the hash of its source, and
+ * this hasher is shared by all builds in a process so that a long running process does not need to rehash the text of
+ * unchanged scripts to locate their compiled classes.
+ */
+@ThreadSafe
+public class ScriptSourceHasher {
+    // Allows for file systems which record modification times to the nearest 2 seconds
+    static final long TIMESTAMP_GRANULARITY = 2000;
+    private final ConcurrentMap<File, SourceHash> sourceHashes = new ConcurrentHashMap<File, SourceHash>();
+
+    /**
+     * Returns a hash of the text of the given script. For a script backed by a file, the hash is reused for as long as
+     * the size and modification time of the file do not change. The hash is only reused when the file had not been modified
+     * for longer than the granularity of its modification time when it was hashed, as the file may otherwise change again
+     * without its modification time changing.
+     */
+    public String getSourceHash(ScriptSource source) {
+        File file = source.getResource().getFile();
+        if (file == null) {
+            return HashUtil.createCompactMD5(source.getResource().getText());
+        }
+
+        long length = file.length();
+        long lastModified = file.lastModified();
+        SourceHash hash = sourceHashes.get(file);
+        if (hash != null && hash.length == length && hash.lastModified == lastModified) {
+            return hash.hash;
+        }
+
+        long hashedAt = System.currentTimeMillis();
+        String sourceHash = HashUtil.createCompactMD5(source.getResource().getText());
+        if (hashedAt - lastModified > TIMESTAMP_GRANULARITY) {
+            sourceHashes.put(file, new SourceHash(length, lastModified, sourceHash));
+        } else {
+            sourceHashes.remove(file);
+        }
+        return sourceHash;
+    }
+
+    private static class SourceHash {
+        private final long length;
+        private final long lastModified;
+        private final String hash;
+
+        private SourceHash(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
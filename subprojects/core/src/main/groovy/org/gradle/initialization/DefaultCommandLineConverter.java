@@ -53,6 +53,8 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
     private static final String PROFILE = "profile";
     private static final String CONTINUE = "continue";
     private static final String OFFLINE = "offline";
+    private static final String CONFIGURE_ON_DEMAND = "configure-on-demand";
+    private static final String PRECOMPILE_BUILD_SCRIPTS = "precompile-build-scripts";
     private static final String REFRESH = "refresh";
     private static final String PROJECT_CACHE_DIR = "project-cache-dir";
 
@@ -84,6 +86,8 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
         parser.option(PROFILE).hasDescription("Profiles build execution time and generates a report in the <build_dir>/reports/profile directory.");
         parser.option(CONTINUE).hasDescription("Continues task execution after a task failure.").experimental();
         parser.option(OFFLINE).hasDescription("The build should operate without accessing network resources.");
+        parser.option(CONFIGURE_ON_DEMAND).hasDescription("Only configures the projects required to execute the requested tasks.").experimental();
+        parser.option(PRECOMPILE_BUILD_SCRIPTS).hasDescription("Compiles the build scripts of all projects concurrently before configuring the projects.").experimental();
         parser.option(REFRESH).hasArguments().hasDescription("Refresh the state of resources of the type(s) specified. Currently only 'dependencies' is supported.");
     }
 
@@ -186,6 +190,14 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
         if (options.hasOption(OFFLINE)) {
             startParameter.setOffline(true);
         }
+
+        if (options.hasOption(CONFIGURE_ON_DEMAND)) {
+            startParameter.setConfigureOnDemand(true);
+        }
+
+        if (options.hasOption(PRECOMPILE_BUILD_SCRIPTS)) {
+            startParameter.setPrecompileBuildScripts(true);
+        }
         
         if (options.hasOption(REFRESH)) {
             RefreshOptions refreshOptions = RefreshOptions.fromCommandLineOptions(options.option(REFRESH).getValues());
@@ -55,7 +55,7 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
         this(new GlobalServicesRegistry());
     }
 
-    private DefaultGradleLauncherFactory(GlobalServicesRegistry globalServices) {
+    public DefaultGradleLauncherFactory(GlobalServicesRegistry globalServices) {
         sharedServices = globalServices;
         tracker = new NestedBuildTracker();
 
@@ -20,23 +20,37 @@ import org.gradle.BuildResult;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.invocation.Gradle;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Tracks the builds which are running on the current thread, so that a nested build can locate the build which started it. Builds which run
+ * concurrently on different threads are tracked separately.
+ */
 public class NestedBuildTracker extends BuildAdapter {
-    private final List<GradleInternal> buildStack = new CopyOnWriteArrayList<GradleInternal>();
+    private final ThreadLocal<List<GradleInternal>> buildStack = new ThreadLocal<List<GradleInternal>>() {
+        @Override
+        protected List<GradleInternal> initialValue() {
+            return new ArrayList<GradleInternal>();
+        }
+    };
 
     @Override
     public void buildStarted(Gradle gradle) {
-        buildStack.add(0, (GradleInternal) gradle);
+        buildStack.get().add(0, (GradleInternal) gradle);
     }
 
     @Override
     public void buildFinished(BuildResult result) {
-        buildStack.remove(result.getGradle());
+        List<GradleInternal> builds = buildStack.get();
+        builds.remove(result.getGradle());
+        if (builds.isEmpty()) {
+            buildStack.remove();
+        }
     }
 
     public GradleInternal getCurrentBuild() {
-        return buildStack.isEmpty() ? null : buildStack.get(0);
+        List<GradleInternal> builds = buildStack.get();
+        return builds.isEmpty() ? null : builds.get(0);
     }
 }
@@ -34,6 +34,14 @@ import java.io.FileDescriptor;
  * A {@link org.gradle.internal.service.ServiceRegistry} implementation which provides the logging services.
  */
 public class LoggingServiceRegistry extends DefaultServiceRegistry {
+    /**
+     * When set to false, output is rendered synchronously in a command-line process.
+     */
+    public static final String ASYNC_RENDERING_SYS_PROPERTY = "org.gradle.logging.async";
+    /**
+     * When set to true, debug output is dropped rather than throttled when it is generated faster than it can be rendered.
+     */
+    public static final String DROP_DEBUG_ON_OVERFLOW_SYS_PROPERTY = "org.gradle.logging.dropdebugonoverflow";
     private TextStreamOutputEventListener stdoutListener;
     private final boolean detectConsole;
     private final boolean isEmbedded;
@@ -130,6 +138,9 @@ public class LoggingServiceRegistry extends DefaultServiceRegistry {
         } else {
             terminalDetector = Specs.satisfyNone();
         }
-        return new OutputEventRenderer(terminalDetector).addStandardOutputAndError();
+        // Only a command-line process renders to a terminal, which can be slow enough to hold up the build
+        boolean asynchronous = detectConsole && !"false".equals(System.getProperty(ASYNC_RENDERING_SYS_PROPERTY));
+        boolean dropDebugOnOverflow = Boolean.getBoolean(DROP_DEBUG_ON_OVERFLOW_SYS_PROPERTY);
+        return new OutputEventRenderer(terminalDetector, asynchronous, dropDebugOnOverflow).addStandardOutputAndError();
     }
 }
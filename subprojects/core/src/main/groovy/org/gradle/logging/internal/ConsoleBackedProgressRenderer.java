@@ -19,34 +19,58 @@ import org.gradle.util.GUtil;
 
 import java.util.LinkedList;
 
+/**
+ * Renders the status of the operations in progress to the status bar of a console.
+ *
+ * <p>When batching, the status bar is redrawn once per batch of events, on receiving an {@link OutputBatchCompleteEvent}, rather than on
+ * every progress event.</p>
+ */
 public class ConsoleBackedProgressRenderer implements OutputEventListener {
     private final OutputEventListener listener;
     private final Console console;
+    private final boolean batching;
     private final LinkedList<Operation> operations = new LinkedList<Operation>();
     private Label statusBar;
+    private boolean statusChanged;
 
     public ConsoleBackedProgressRenderer(OutputEventListener listener, Console console) {
+        this(listener, console, false);
+    }
+
+    public ConsoleBackedProgressRenderer(OutputEventListener listener, Console console, boolean batching) {
         this.listener = listener;
         this.console = console;
+        this.batching = batching;
     }
 
     public void onOutput(OutputEvent event) {
         if (event instanceof ProgressStartEvent) {
             ProgressStartEvent startEvent = (ProgressStartEvent) event;
             operations.addLast(new Operation(startEvent.getShortDescription(), startEvent.getStatus()));
-            updateText();
+            statusChanged();
         } else if (event instanceof ProgressCompleteEvent) {
             operations.removeLast();
-            updateText();
+            statusChanged();
         } else if (event instanceof ProgressEvent) {
             ProgressEvent progressEvent = (ProgressEvent) event;
             operations.getLast().status = progressEvent.getStatus();
+            statusChanged();
+        } else if (event instanceof OutputBatchCompleteEvent && statusChanged) {
             updateText();
         }
         listener.onOutput(event);
     }
 
+    private void statusChanged() {
+        if (batching) {
+            statusChanged = true;
+        } else {
+            updateText();
+        }
+    }
+
     private void updateText() {
+        statusChanged = false;
         StringBuilder builder = new StringBuilder();
         for (Operation operation : operations) {
             String message = operation.getMessage();
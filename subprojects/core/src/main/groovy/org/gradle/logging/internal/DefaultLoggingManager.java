@@ -66,6 +66,7 @@ public class DefaultLoggingManager implements LoggingManagerInternal {
 
     public DefaultLoggingManager stop() {
         try {
+            loggingOutput.flush();
             new CompositeStoppable(loggingSystem, stdOutLoggingSystem, stdErrLoggingSystem).stop();
             for (StandardOutputListener stdoutListener : stdoutListeners) {
                 loggingOutput.removeStandardOutputListener(stdoutListener);
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.logging.internal;
+
+import org.gradle.api.logging.LogLevel;
+
+/**
+ * Signals that a batch of output events has been forwarded to a listener, so that the listener can update any state that it has deferred
+ * while rendering the batch.
+ */
+public class OutputBatchCompleteEvent extends OutputEvent {
+    @Override
+    public String toString() {
+        return OutputBatchCompleteEvent.class.getSimpleName();
+    }
+
+    @Override
+    public LogLevel getLogLevel() {
+        return null;
+    }
+}
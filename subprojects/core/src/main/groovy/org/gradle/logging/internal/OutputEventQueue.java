@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.logging.internal;
+
+import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.process.internal.shutdown.ShutdownHookActionRegister;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Forwards output events to a listener from a single rendering thread, so that the threads which generate output do not wait for the
+ * listener to render it, for example on a slow terminal.
+ *
+ * <p>Events are held in a bounded queue. When the queue is full, producers wait for space, which throttles them to the speed of the listener.
+ * Alternatively, debug events can be dropped when the queue is full, in which case a count of the dropped events is rendered once space is
+ * available again.</p>
+ *
+ * <p>Events are forwarded in batches of those events queued while the previous batch was rendered, each batch followed by an
+ * {@link OutputBatchCompleteEvent}. The listener is notified while holding the given render lock.</p>
+ *
+ * <p>The owner is expected to {@link #flush()} the queue at the end of each logging session. Events queued after that are rendered by a
+ * shutdown hook, which waits a limited time for them.</p>
+ */
+public class OutputEventQueue implements Stoppable {
+    static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MILLIS = 2000;
+    private static final OutputEvent END = new OutputBatchCompleteEvent();
+    private static final OutputEvent BATCH_COMPLETE = new OutputBatchCompleteEvent();
+
+    private final BlockingQueue<OutputEvent> queue;
+    private final OutputEventListener listener;
+    private final Object renderLock;
+    private final boolean dropDebugOnOverflow;
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final Object progressLock = new Object();
+    private final Thread thread;
+    private final Runnable shutdownAction;
+    private long queued;
+    private long rendered;
+    private volatile Throwable failure;
+
+    /**
+     * @param renderLock The lock to hold while notifying the listener.
+     * @param dropDebugOnOverflow Whether to drop debug events when the queue is full, rather than wait for space.
+     */
+    public OutputEventQueue(OutputEventListener listener, Object renderLock, int capacity, boolean dropDebugOnOverflow) {
+        this.queue = new ArrayBlockingQueue<OutputEvent>(capacity);
+        this.listener = listener;
+        this.renderLock = renderLock;
+        this.dropDebugOnOverflow = dropDebugOnOverflow;
+        thread = new Thread(new Renderer(), "Output event renderer");
+        thread.setDaemon(true);
+        thread.start();
+        shutdownAction = new Runnable() {
+            public void run() {
+                flush(SHUTDOWN_FLUSH_TIMEOUT_MILLIS);
+            }
+        };
+        ShutdownHookActionRegister.addAction(shutdownAction);
+    }
+
+    /**
+     * Returns true when called from the rendering thread, for example when the listener generates output itself.
+     */
+    public boolean isRenderingThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Queues the given event. Blocks while the queue is full, unless the event is dropped.
+     */
+    public void add(OutputEvent event) {
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            throw UncheckedException.asUncheckedException(failure);
+        }
+        if (dropDebugOnOverflow && event.getLogLevel() == LogLevel.DEBUG) {
+            if (queue.offer(event)) {
+                onQueued();
+            } else {
+                dropped.incrementAndGet();
+            }
+            return;
+        }
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+        onQueued();
+    }
+
+    private void onQueued() {
+        synchronized (progressLock) {
+            queued++;
+        }
+    }
+
+    /**
+     * Blocks until all events queued so far have been rendered.
+     */
+    public void flush() {
+        flush(0);
+    }
+
+    private void flush(long timeoutMillis) {
+        if (isRenderingThread()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progressLock) {
+            long target = queued;
+            while (rendered < target && thread.isAlive()) {
+                long wait = timeoutMillis == 0 ? 0 : deadline - System.currentTimeMillis();
+                if (timeoutMillis != 0 && wait <= 0) {
+                    return;
+                }
+                try {
+                    progressLock.wait(wait);
+                } catch (InterruptedException e) {
+                    throw UncheckedException.asUncheckedException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders any queued events, then stops the rendering thread.
+     */
+    public void stop() {
+        ShutdownHookActionRegister.removeAction(shutdownAction);
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+
+    private class Renderer implements Runnable {
+        public void run() {
+            List<OutputEvent> batch = new ArrayList<OutputEvent>();
+            while (true) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                boolean end = batch.remove(END);
+                try {
+                    render(batch);
+                } catch (Throwable t) {
+                    // Report the failure to the next producer, as would happen when rendering synchronously
+                    failure = t;
+                }
+                synchronized (progressLock) {
+                    rendered += batch.size();
+                    progressLock.notifyAll();
+                }
+                batch.clear();
+                if (end) {
+                    return;
+                }
+            }
+        }
+
+        private void render(List<OutputEvent> batch) {
+            synchronized (renderLock) {
+                int droppedCount = dropped.getAndSet(0);
+                if (droppedCount > 0) {
+                    listener.onOutput(new LogEvent(System.currentTimeMillis(), OutputEventQueue.class.getName(), LogLevel.DEBUG,
+                            String.format("Dropped %s debug messages, as they were generated faster than they could be rendered.", droppedCount), null));
+                }
+                for (OutputEvent event : batch) {
+                    listener.onOutput(event);
+                }
+                listener.onOutput(BATCH_COMPLETE);
+            }
+        }
+    }
+}
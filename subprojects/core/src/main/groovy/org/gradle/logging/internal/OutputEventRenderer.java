@@ -22,30 +22,56 @@ import org.gradle.listener.ListenerBroadcast;
 
 import java.io.FileDescriptor;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A {@link org.gradle.logging.internal.OutputEventListener} implementation which renders output events to various
  * destinations. This implementation is thread-safe.
+ *
+ * <p>When asynchronous, the events are rendered to the console and to the standard output and error listeners by a single rendering thread,
+ * so that threads which generate output do not wait for the output to be rendered. See {@link OutputEventQueue}. Listeners added using
+ * {@link #addOutputEventListener(OutputEventListener)} are always notified synchronously, by the thread which generated the event.</p>
+ *
+ * <p>Only the check and update of the log level is done while holding a lock shared by all threads. The listeners are notified, and the event
+ * queued or rendered, after the lock is released, so that a slow listener or a full queue does not hold up the other threads. Events generated
+ * concurrently by several threads may therefore reach the listeners in a different order to the one in which their log level was checked.</p>
  */
 public class OutputEventRenderer implements OutputEventListener, LoggingConfigurer, LoggingOutputInternal {
     private final ListenerBroadcast<OutputEventListener> formatters = new ListenerBroadcast<OutputEventListener>(OutputEventListener.class);
+    private final List<OutputEventListener> outputEventListenerList = new ArrayList<OutputEventListener>();
     private final ListenerBroadcast<StandardOutputListener> stdoutListeners = new ListenerBroadcast<StandardOutputListener>(StandardOutputListener.class);
     private final ListenerBroadcast<StandardOutputListener> stderrListeners = new ListenerBroadcast<StandardOutputListener>(StandardOutputListener.class);
     private final Spec<FileDescriptor> terminalDetector;
+    // Guards the log level and changes to the output event listeners
     private final Object lock = new Object();
+    // Guards the formatters and everything they render to
+    private final Object renderLock = new Object();
     private final DefaultColorMap colourMap = new DefaultColorMap();
-    private LogLevel logLevel = LogLevel.LIFECYCLE;
+    private final OutputEventQueue queue;
+    private volatile LogLevel logLevel = LogLevel.LIFECYCLE;
+    // Replaced rather than modified when a listener is added or removed, so that it can be notified without holding the lock
+    private volatile OutputEventListener outputEventListeners = new ListenerBroadcast<OutputEventListener>(OutputEventListener.class).getSource();
 
     public OutputEventRenderer(Spec<FileDescriptor> terminalDetector) {
+        this(terminalDetector, false, false);
+    }
+
+    /**
+     * @param asynchronous Whether to render the events using a separate thread.
+     * @param dropDebugOnOverflow Whether to drop debug events when the rendering thread falls behind, rather than wait for it.
+     */
+    public OutputEventRenderer(Spec<FileDescriptor> terminalDetector, boolean asynchronous, boolean dropDebugOnOverflow) {
         OutputEventListener stdOutChain = onNonError(new ProgressLogEventGenerator(new StyledTextOutputBackedRenderer(new StreamingStyledTextOutput(stdoutListeners.getSource())), false));
         formatters.add(stdOutChain);
         OutputEventListener stdErrChain = onError(new ProgressLogEventGenerator(new StyledTextOutputBackedRenderer(new StreamingStyledTextOutput(stderrListeners.getSource())), false));
         formatters.add(stdErrChain);
         this.terminalDetector = terminalDetector;
+        this.queue = asynchronous ? new OutputEventQueue(formatters.getSource(), renderLock, OutputEventQueue.DEFAULT_CAPACITY, dropDebugOnOverflow) : null;
     }
 
     public void colorStdOutAndStdErr(boolean colorOutput) {
-        synchronized (lock) {
+        synchronized (renderLock) {
             colourMap.setUseColor(colorOutput);
         }
     }
@@ -83,16 +109,28 @@ public class OutputEventRenderer implements OutputEventListener, LoggingConfigur
     }
 
     public void addOutputEventListener(OutputEventListener listener) {
-        formatters.add(listener);
+        synchronized (lock) {
+            outputEventListenerList.add(listener);
+            updateOutputEventListeners();
+        }
     }
 
     public void removeOutputEventListener(OutputEventListener listener) {
-        formatters.remove(listener);
+        synchronized (lock) {
+            outputEventListenerList.remove(listener);
+            updateOutputEventListeners();
+        }
+    }
+
+    private void updateOutputEventListeners() {
+        ListenerBroadcast<OutputEventListener> broadcast = new ListenerBroadcast<OutputEventListener>(OutputEventListener.class);
+        broadcast.addAll(outputEventListenerList);
+        outputEventListeners = broadcast.getSource();
     }
 
     public OutputEventRenderer addConsole(final Console console, boolean stdout, boolean stderr) {
-        final OutputEventListener consoleChain = new ConsoleBackedProgressRenderer(new ProgressLogEventGenerator(new StyledTextOutputBackedRenderer(console.getMainArea()), true), console);
-        synchronized (lock) {
+        final OutputEventListener consoleChain = new ConsoleBackedProgressRenderer(new ProgressLogEventGenerator(new StyledTextOutputBackedRenderer(console.getMainArea()), true), console, queue != null);
+        synchronized (renderLock) {
             if (stdout && stderr) {
                 formatters.add(consoleChain);
             } else if (stdout) {
@@ -125,36 +163,59 @@ public class OutputEventRenderer implements OutputEventListener, LoggingConfigur
     }
 
     public void addStandardErrorListener(StandardOutputListener listener) {
-        synchronized (lock) {
+        synchronized (renderLock) {
             stderrListeners.add(listener);
         }
     }
 
     public void addStandardOutputListener(StandardOutputListener listener) {
-        synchronized (lock) {
+        synchronized (renderLock) {
             stdoutListeners.add(listener);
         }
     }
 
     public void removeStandardOutputListener(StandardOutputListener listener) {
-        synchronized (lock) {
+        // Deliver the output generated so far to the listener before it is removed
+        flush();
+        synchronized (renderLock) {
             stdoutListeners.remove(listener);
         }
     }
 
     public void removeStandardErrorListener(StandardOutputListener listener) {
-        synchronized (lock) {
+        flush();
+        synchronized (renderLock) {
             stderrListeners.remove(listener);
         }
     }
 
     public void configure(LogLevel logLevel) {
         onOutput(new LogLevelChangeEvent(logLevel));
+        // The log level is changed at the start and end of each build, so wait for the output of the build to be rendered
+        flush();
+    }
+
+    /**
+     * Blocks until all events received so far have been rendered. Does nothing when not asynchronous.
+     */
+    public void flush() {
+        if (queue != null) {
+            queue.flush();
+        }
     }
 
     public void onOutput(OutputEvent event) {
+        if (queue != null && queue.isRenderingThread()) {
+            // Output generated while rendering, for example by a listener which logs. The rendering thread cannot wait for itself to render
+            // the event, so render it straight away. The render lock is already held
+            if (isEnabled(event)) {
+                formatters.getSource().onOutput(event);
+            }
+            return;
+        }
+        OutputEventListener listeners;
         synchronized (lock) {
-            if (event.getLogLevel() != null && event.getLogLevel().compareTo(logLevel) < 0) {
+            if (!isEnabled(event)) {
                 return;
             }
             if (event instanceof LogLevelChangeEvent) {
@@ -165,7 +226,20 @@ public class OutputEventRenderer implements OutputEventListener, LoggingConfigur
                 }
                 this.logLevel = newLogLevel;
             }
-            formatters.getSource().onOutput(event);
+            listeners = outputEventListeners;
+        }
+        if (queue != null) {
+            listeners.onOutput(event);
+            queue.add(event);
+        } else {
+            synchronized (renderLock) {
+                formatters.getSource().onOutput(event);
+            }
+            listeners.onOutput(event);
         }
     }
+
+    private boolean isEnabled(OutputEvent event) {
+        return event.getLogLevel() == null || event.getLogLevel().compareTo(logLevel) >= 0;
+    }
 }
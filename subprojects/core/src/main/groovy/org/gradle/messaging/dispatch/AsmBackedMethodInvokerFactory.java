@@ -0,0 +1,247 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.messaging.dispatch;
+
+import com.google.common.collect.MapMaker;
+import org.gradle.util.ReflectionUtil;
+import org.gradle.util.hash.HashUtil;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates {@link MethodInvoker} implementations which call the target method directly, rather than using reflection. Each invoker class is
+ * generated once, in the {@code ClassLoader} and package of the type which declares the method. Falls back to a reflective invoker for those
+ * methods which cannot be called from a generated class.
+ *
+ * <p>The name of an invoker class is derived from the method, so that an invoker class which has already been defined is found in the declaring
+ * {@code ClassLoader} and is never generated again. The invokers are also cached, softly, so that the cache does not keep the declaring {@code
+ * ClassLoader} from being collected. The cache can be used concurrently without locking.</p>
+ */
+class AsmBackedMethodInvokerFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsmBackedMethodInvokerFactory.class);
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Method, MethodInvoker>> INVOKERS = new MapMaker().weakKeys().softValues().makeMap();
+
+    public static MethodInvoker getInvoker(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        ConcurrentMap<Method, MethodInvoker> invokers = INVOKERS.get(declaringClass);
+        if (invokers == null) {
+            invokers = new ConcurrentHashMap<Method, MethodInvoker>();
+            ConcurrentMap<Method, MethodInvoker> existing = INVOKERS.putIfAbsent(declaringClass, invokers);
+            if (existing != null) {
+                invokers = existing;
+            }
+        }
+        MethodInvoker invoker = invokers.get(method);
+        if (invoker == null) {
+            invoker = createInvoker(method);
+            MethodInvoker existing = invokers.putIfAbsent(method, invoker);
+            if (existing != null) {
+                invoker = existing;
+            }
+        }
+        return invoker;
+    }
+
+    private static MethodInvoker createInvoker(Method method) {
+        if (canGenerate(method)) {
+            try {
+                return generate(method);
+            } catch (Throwable e) {
+                LOGGER.debug(String.format("Could not generate invoker for %s. Using reflection instead.", method), e);
+            }
+        }
+        return new ReflectionMethodInvoker(method);
+    }
+
+    private static boolean canGenerate(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        ClassLoader classLoader = declaringClass.getClassLoader();
+        if (classLoader == null || declaringClass.getName().startsWith("java.")) {
+            return false;
+        }
+        int modifiers = method.getModifiers();
+        if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) {
+            return false;
+        }
+        if (!isAccessible(declaringClass, declaringClass)) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isAccessible(parameterType, declaringClass)) {
+                return false;
+            }
+        }
+        try {
+            // The generated class must be able to see the invoker interface
+            return Class.forName(MethodInvoker.class.getName(), false, classLoader) == MethodInvoker.class;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static boolean isAccessible(Class<?> type, Class<?> declaringClass) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || Modifier.isPublic(type.getModifiers()) && (type.getDeclaringClass() == null || isAccessible(type.getDeclaringClass(), declaringClass))) {
+            return true;
+        }
+        return !Modifier.isPrivate(type.getModifiers())
+                && type.getClassLoader() == declaringClass.getClassLoader()
+                && getPackageName(type).equals(getPackageName(declaringClass));
+    }
+
+    private static String getPackageName(Class<?> type) {
+        String name = type.getName();
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(0, index);
+    }
+
+    private static MethodInvoker generate(Method method) throws Exception {
+        Class<?> declaringClass = method.getDeclaringClass();
+        ClassLoader classLoader = declaringClass.getClassLoader();
+        String typeName = String.format("%s_Invoker_%s_%s", declaringClass.getName(), method.getName(), HashUtil.createCompactMD5(Type.getMethodDescriptor(method)));
+        Class<?> invokerClass = (Class<?>) ReflectionUtil.invoke(classLoader, "findLoadedClass", typeName);
+        if (invokerClass == null) {
+            invokerClass = defineInvokerClass(method, typeName);
+        }
+        return (MethodInvoker) invokerClass.newInstance();
+    }
+
+    private static Class<?> defineInvokerClass(Method method, String typeName) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        String internalName = typeName.replace('.', '/');
+        Type declaringType = Type.getType(declaringClass);
+
+        ClassWriter visitor = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        visitor.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, internalName, null,
+                Type.getInternalName(Object.class), new String[]{Type.getInternalName(MethodInvoker.class)});
+
+        MethodVisitor methodVisitor = visitor.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, new String[0]);
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(Object.class), "<init>", "()V");
+        methodVisitor.visitInsn(Opcodes.RETURN);
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+
+        // void invoke(Object target, Object[] arguments) { ((DeclaringType) target).method((P0) arguments[0], ...); }
+        String invokeDescriptor = Type.getMethodDescriptor(Type.VOID_TYPE, new Type[]{Type.getType(Object.class), Type.getType(Object[].class)});
+        methodVisitor = visitor.visitMethod(Opcodes.ACC_PUBLIC, "invoke", invokeDescriptor, null, new String[]{Type.getInternalName(Throwable.class)});
+        methodVisitor.visitCode();
+        methodVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+        methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, declaringType.getInternalName());
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+            methodVisitor.visitLdcInsn(i);
+            methodVisitor.visitInsn(Opcodes.AALOAD);
+            unbox(methodVisitor, Type.getType(parameterTypes[i]));
+        }
+        int opcode = declaringClass.isInterface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL;
+        methodVisitor.visitMethodInsn(opcode, declaringType.getInternalName(), method.getName(), Type.getMethodDescriptor(method));
+        Type returnType = Type.getReturnType(method);
+        if (returnType.getSize() == 2) {
+            methodVisitor.visitInsn(Opcodes.POP2);
+        } else if (returnType.getSize() == 1) {
+            methodVisitor.visitInsn(Opcodes.POP);
+        }
+        methodVisitor.visitInsn(Opcodes.RETURN);
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+
+        visitor.visitEnd();
+
+        byte[] bytecode = visitor.toByteArray();
+        try {
+            return (Class<?>) ReflectionUtil.invoke(declaringClass.getClassLoader(), "defineClass", new Object[]{
+                    typeName, bytecode, 0, bytecode.length
+            });
+        } catch (LinkageError e) {
+            // Another thread has defined the class meanwhile
+            Class<?> invokerClass = (Class<?>) ReflectionUtil.invoke(declaringClass.getClassLoader(), "findLoadedClass", typeName);
+            if (invokerClass == null) {
+                throw e;
+            }
+            return invokerClass;
+        }
+    }
+
+    private static void unbox(MethodVisitor methodVisitor, Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                unbox(methodVisitor, Boolean.class, "booleanValue", type);
+                break;
+            case Type.CHAR:
+                unbox(methodVisitor, Character.class, "charValue", type);
+                break;
+            case Type.BYTE:
+                unbox(methodVisitor, Byte.class, "byteValue", type);
+                break;
+            case Type.SHORT:
+                unbox(methodVisitor, Short.class, "shortValue", type);
+                break;
+            case Type.INT:
+                unbox(methodVisitor, Integer.class, "intValue", type);
+                break;
+            case Type.LONG:
+                unbox(methodVisitor, Long.class, "longValue", type);
+                break;
+            case Type.FLOAT:
+                unbox(methodVisitor, Float.class, "floatValue", type);
+                break;
+            case Type.DOUBLE:
+                unbox(methodVisitor, Double.class, "doubleValue", type);
+                break;
+            default:
+                methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+        }
+    }
+
+    private static void unbox(MethodVisitor methodVisitor, Class<?> boxedType, String method, Type primitiveType) {
+        String boxedTypeName = Type.getInternalName(boxedType);
+        methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, boxedTypeName);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, boxedTypeName, method, Type.getMethodDescriptor(primitiveType, new Type[0]));
+    }
+
+    private static class ReflectionMethodInvoker implements MethodInvoker {
+        private final Method method;
+
+        private ReflectionMethodInvoker(Method method) {
+            this.method = method;
+            method.setAccessible(true);
+        }
+
+        public void invoke(Object target, Object[] arguments) throws Throwable {
+            try {
+                method.invoke(target, arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
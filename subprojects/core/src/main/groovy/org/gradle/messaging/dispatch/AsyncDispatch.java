@@ -29,6 +29,9 @@ import java.util.concurrent.locks.ReentrantLock;
  * <p>A {@link org.gradle.messaging.dispatch.Dispatch} implementation which delivers messages asynchronously. Calls to
  * {@link #dispatch} queue the message. Worker threads delivers the messages in the order they have been received to one
  * of a pool of delegate {@link org.gradle.messaging.dispatch.Dispatch} instances.</p>
+ *
+ * <p>Calls to {@link #dispatch} block while the queue is full, so that a slow delegate applies back-pressure to the producers. When the delegate
+ * is a {@link BatchingDispatch}, messages are delivered using {@link BatchingDispatch#dispatchBatched} while further messages are queued.</p>
  */
 public class AsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
     private enum State {
@@ -105,8 +108,10 @@ public class AsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
     }
 
     private void dispatchMessages(Dispatch<? super T> dispatch) {
+        BatchingDispatch<? super T> batchingDispatch = dispatch instanceof BatchingDispatch ? (BatchingDispatch<? super T>) dispatch : null;
         while (true) {
             T message = null;
+            boolean more = false;
             lock.lock();
             try {
                 while (state != State.Stopped && queue.isEmpty()) {
@@ -118,6 +123,7 @@ public class AsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
                 }
                 if (!queue.isEmpty()) {
                     message = queue.remove();
+                    more = !queue.isEmpty();
                     condition.signalAll();
                 }
             } finally {
@@ -129,7 +135,12 @@ public class AsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
                 return;
             }
 
-            dispatch.dispatch(message);
+            if (more && batchingDispatch != null) {
+                // Let the delegate coalesce this message with those that follow it
+                batchingDispatch.dispatchBatched(message);
+            } else {
+                dispatch.dispatch(message);
+            }
         }
     }
 
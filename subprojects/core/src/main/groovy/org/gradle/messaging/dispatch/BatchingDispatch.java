@@ -0,0 +1,30 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.messaging.dispatch;
+
+/**
+ * A {@link Dispatch} which can defer the delivery of messages, so that several messages can be delivered together.
+ */
+public interface BatchingDispatch<T> extends Dispatch<T> {
+    /**
+     * Dispatches the next message, where the caller has more messages to dispatch immediately after this one. The implementation may defer
+     * delivery of this message until a following call to {@link #dispatch(Object)}, though it should not defer delivery indefinitely.
+     *
+     * @param message The message.
+     */
+    void dispatchBatched(T message);
+}
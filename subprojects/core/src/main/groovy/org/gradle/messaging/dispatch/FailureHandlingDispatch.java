@@ -15,7 +15,7 @@
  */
 package org.gradle.messaging.dispatch;
 
-public class FailureHandlingDispatch<T> implements Dispatch<T> {
+public class FailureHandlingDispatch<T> implements BatchingDispatch<T> {
     private final Dispatch<? super T> dispatch;
     private final DispatchFailureHandler<? super T> handler;
 
@@ -31,4 +31,16 @@ public class FailureHandlingDispatch<T> implements Dispatch<T> {
             handler.dispatchFailed(message, throwable);
         }
     }
+
+    public void dispatchBatched(T message) {
+        try {
+            if (dispatch instanceof BatchingDispatch) {
+                ((BatchingDispatch<? super T>) dispatch).dispatchBatched(message);
+            } else {
+                dispatch.dispatch(message);
+            }
+        } catch (Throwable throwable) {
+            handler.dispatchFailed(message, throwable);
+        }
+    }
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.messaging.dispatch;
+
+/**
+ * Invokes a particular method on a target object. This interface is public so that it can be implemented by generated classes.
+ */
+public interface MethodInvoker {
+    /**
+     * Invokes the method on the given target. Any exception thrown by the method is rethrown unchanged.
+     */
+    void invoke(Object target, Object[] arguments) throws Throwable;
+}
@@ -18,11 +18,14 @@ package org.gradle.messaging.dispatch;
 
 import org.gradle.internal.UncheckedException;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
+/**
+ * Invokes the method of each {@link MethodInvocation} on a target object. Uses generated invokers rather than reflection, where possible.
+ */
 public class ReflectionDispatch implements Dispatch<MethodInvocation> {
     private final Object target;
+    private volatile CachedInvoker lastInvoker;
 
     public ReflectionDispatch(Object target) {
         this.target = target;
@@ -30,13 +33,30 @@ public class ReflectionDispatch implements Dispatch<MethodInvocation> {
 
     public void dispatch(MethodInvocation message) {
         try {
-            Method method = message.getMethod();
-            method.setAccessible(true);
-            method.invoke(target, message.getArguments());
-        } catch (InvocationTargetException e) {
-            throw UncheckedException.asUncheckedException(e.getCause());
+            getInvoker(message.getMethod()).invoke(target, message.getArguments());
         } catch (Throwable throwable) {
             throw UncheckedException.asUncheckedException(throwable);
         }
     }
+
+    private MethodInvoker getInvoker(Method method) {
+        // Most targets receive a run of calls to the same method, so avoid the shared lookup in this case
+        CachedInvoker cached = lastInvoker;
+        if (cached != null && cached.method.equals(method)) {
+            return cached.invoker;
+        }
+        MethodInvoker invoker = AsmBackedMethodInvokerFactory.getInvoker(method);
+        lastInvoker = new CachedInvoker(method, invoker);
+        return invoker;
+    }
+
+    private static class CachedInvoker {
+        final Method method;
+        final MethodInvoker invoker;
+
+        private CachedInvoker(Method method, MethodInvoker invoker) {
+            this.method = method;
+            this.invoker = invoker;
+        }
+    }
 }
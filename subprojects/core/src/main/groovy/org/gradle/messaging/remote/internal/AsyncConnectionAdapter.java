@@ -26,8 +26,12 @@ import java.util.Set;
 
 /**
  * Adapts a {@link Connection} into an {@link AsyncConnection}.
+ *
+ * <p>At most {@link #MAX_OUTGOING_QUEUE_SIZE} outgoing messages are queued. Once the queue is full, {@link #dispatch} blocks until the
+ * connection has written some of the queued messages, so that a slow peer applies back-pressure to the producers.</p>
  */
 public class AsyncConnectionAdapter<T> implements AsyncConnection<T>, Stoppable {
+    static final int MAX_OUTGOING_QUEUE_SIZE = 200;
     private final Connection<T> connection;
     private final AsyncReceive<T> incoming;
     private final ProtocolStack<T> stack;
@@ -39,8 +43,7 @@ public class AsyncConnectionAdapter<T> implements AsyncConnection<T>, Stoppable
 
         StoppableExecutor outgoingExecutor = executor.create(String.format("%s send", connection));
         executors.add(outgoingExecutor);
-        outgoing = new AsyncDispatch<T>(outgoingExecutor);
-        outgoing.dispatchTo(new FailureHandlingDispatch<T>(connection, dispatchFailureHandler));
+        outgoing = new AsyncDispatch<T>(outgoingExecutor, new FailureHandlingDispatch<T>(connection, dispatchFailureHandler), MAX_OUTGOING_QUEUE_SIZE);
 
         StoppableExecutor dispatchExecutor = executor.create(String.format("%s dispatch", connection));
         executors.add(dispatchExecutor);
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+import org.gradle.messaging.remote.Address;
+import org.gradle.messaging.remote.internal.protocol.MessageCredits;
+import org.gradle.messaging.remote.internal.protocol.RemoteMethodInvocation;
+import org.gradle.messaging.remote.internal.protocol.Request;
+import org.gradle.util.CompositeIdGenerator;
+import org.gradle.util.ServiceLocator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.*;
+
+/**
+ * A {@link StatefulMessageSerializer} which uses a compact binary format for the messages of the remote messaging protocol and the values they
+ * commonly carry, and falls back to Java serialization for objects of any other type. See {@link Encoder} for details of the format.
+ *
+ * <p>Each type is identified on the wire by its name, which is written the first time a value of the type is written to a stream. So the ends of a
+ * connection need not register their codecs in the same order. A value of a type which the reading end has no codec for cannot be read, and
+ * fails with a {@link StreamCorruptedException}.</p>
+ *
+ * <p>Codecs for types which are not visible to this class can be contributed by a {@link CodecProvider}, which is located using the given
+ * ClassLoader.</p>
+ */
+public class BinaryMessageSerializer<T> implements StatefulMessageSerializer<T> {
+    private final ClassLoader classLoader;
+    private final Map<Class<?>, Codec<Object>> codecs = new HashMap<Class<?>, Codec<Object>>();
+    private final Map<String, Codec<Object>> codecsByName = new HashMap<String, Codec<Object>>();
+
+    public BinaryMessageSerializer(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        register(String.class, new StringCodec());
+        register(Integer.class, new IntegerCodec());
+        register(Long.class, new LongCodec());
+        register(Boolean.class, new BooleanCodec());
+        register(UUID.class, new UUIDCodec());
+        register(Object[].class, new ObjectArrayCodec());
+        register(Request.class, new RequestCodec());
+        register(RemoteMethodInvocation.class, new RemoteMethodInvocationCodec());
+        register(MessageCredits.class, new MessageCreditsCodec());
+        register(CompositeIdGenerator.CompositeId.class, new CompositeIdCodec());
+        ServiceLocator.ServiceFactory<CodecProvider> codecProvider = new ServiceLocator(classLoader).findFactory(CodecProvider.class);
+        if (codecProvider != null) {
+            codecProvider.create().registerCodecs(this);
+        }
+    }
+
+    /**
+     * Registers a codec to use for objects of the given type. The codec is used only for objects whose class is exactly the given type, and not
+     * for subtypes. Codecs must be registered before any messages are written or read.
+     */
+    public <S> void register(Class<S> type, Codec<S> codec) {
+        if (codecs.containsKey(type)) {
+            throw new IllegalArgumentException(String.format("A codec for type %s has already been registered.", type.getName()));
+        }
+        codecs.put(type, (Codec) codec);
+        codecsByName.put(type.getName(), (Codec) codec);
+    }
+
+    /**
+     * Returns the codec for the given type, or null when no codec has been registered for the type.
+     */
+    Codec<Object> getCodec(Class<?> type) {
+        return codecs.get(type);
+    }
+
+    Codec<Object> getCodec(String typeName) throws StreamCorruptedException {
+        Codec<Object> codec = codecsByName.get(typeName);
+        if (codec == null) {
+            throw new StreamCorruptedException(String.format("No codec registered for type %s received.", typeName));
+        }
+        return codec;
+    }
+
+    public Reader<T> newReader(DataInputStream inputStream, Address localAddress, Address remoteAddress) {
+        final Decoder decoder = new Decoder(inputStream, this, classLoader);
+        return new Reader<T>() {
+            public T read() throws Exception {
+                return (T) decoder.readObject();
+            }
+        };
+    }
+
+    public Writer<T> newWriter(DataOutputStream outputStream) {
+        final Encoder encoder = new Encoder(outputStream, this);
+        return new Writer<T>() {
+            public void write(T message) throws Exception {
+                encoder.writeObject(message);
+            }
+        };
+    }
+
+    public T read(DataInputStream inputStream, Address localAddress, Address remoteAddress) throws Exception {
+        return newReader(inputStream, localAddress, remoteAddress).read();
+    }
+
+    public void write(T message, DataOutputStream outputStream) throws Exception {
+        newWriter(outputStream).write(message);
+    }
+
+    private static class StringCodec implements Codec<String> {
+        public void write(Encoder encoder, String value) throws Exception {
+            encoder.writeString(value);
+        }
+
+        public String read(Decoder decoder) throws Exception {
+            return decoder.readString();
+        }
+    }
+
+    private static class IntegerCodec implements Codec<Integer> {
+        public void write(Encoder encoder, Integer value) throws Exception {
+            encoder.writeInt(value);
+        }
+
+        public Integer read(Decoder decoder) throws Exception {
+            return decoder.readInt();
+        }
+    }
+
+    private static class LongCodec implements Codec<Long> {
+        public void write(Encoder encoder, Long value) throws Exception {
+            encoder.writeLong(value);
+        }
+
+        public Long read(Decoder decoder) throws Exception {
+            return decoder.readLong();
+        }
+    }
+
+    private static class BooleanCodec implements Codec<Boolean> {
+        public void write(Encoder encoder, Boolean value) throws Exception {
+            encoder.writeBoolean(value);
+        }
+
+        public Boolean read(Decoder decoder) throws Exception {
+            return decoder.readBoolean();
+        }
+    }
+
+    private static class UUIDCodec implements Codec<UUID> {
+        public void write(Encoder encoder, UUID value) throws Exception {
+            encoder.writeLong(value.getMostSignificantBits());
+            encoder.writeLong(value.getLeastSignificantBits());
+        }
+
+        public UUID read(Decoder decoder) throws Exception {
+            return new UUID(decoder.readLong(), decoder.readLong());
+        }
+    }
+
+    private static class ObjectArrayCodec implements Codec<Object[]> {
+        public void write(Encoder encoder, Object[] value) throws Exception {
+            encoder.writeSmallInt(value.length);
+            for (Object element : value) {
+                encoder.writeObject(element);
+            }
+        }
+
+        public Object[] read(Decoder decoder) throws Exception {
+            Object[] value = new Object[decoder.readSmallInt()];
+            for (int i = 0; i < value.length; i++) {
+                value[i] = decoder.readObject();
+            }
+            return value;
+        }
+    }
+
+    private static class RequestCodec implements Codec<Request> {
+        public void write(Encoder encoder, Request value) throws Exception {
+            encoder.writeObject(value.getDestination());
+            encoder.writeObject(value.getPayload());
+        }
+
+        public Request read(Decoder decoder) throws Exception {
+            Object consumerId = decoder.readObject();
+            Object payload = decoder.readObject();
+            return new Request(consumerId, payload);
+        }
+    }
+
+    private static class RemoteMethodInvocationCodec implements Codec<RemoteMethodInvocation> {
+        public void write(Encoder encoder, RemoteMethodInvocation value) throws Exception {
+            encoder.writeObject(value.getKey());
+            encoder.writeObject(value.getArguments());
+        }
+
+        public RemoteMethodInvocation read(Decoder decoder) throws Exception {
+            Object key = decoder.readObject();
+            Object[] arguments = (Object[]) decoder.readObject();
+            return new RemoteMethodInvocation(key, arguments);
+        }
+    }
+
+    private static class MessageCreditsCodec implements Codec<MessageCredits> {
+        public void write(Encoder encoder, MessageCredits value) throws Exception {
+            encoder.writeInt(value.getCredits());
+        }
+
+        public MessageCredits read(Decoder decoder) throws Exception {
+            return new MessageCredits(decoder.readInt());
+        }
+    }
+
+    private static class CompositeIdCodec implements Codec<CompositeIdGenerator.CompositeId> {
+        public void write(Encoder encoder, CompositeIdGenerator.CompositeId value) throws Exception {
+            encoder.writeObject(value.getScope());
+            encoder.writeObject(value.getId());
+        }
+
+        public CompositeIdGenerator.CompositeId read(Decoder decoder) throws Exception {
+            Object scope = decoder.readObject();
+            Object id = decoder.readObject();
+            return new CompositeIdGenerator.CompositeId(scope, id);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+/**
+ * Contributes codecs to a {@link BinaryMessageSerializer}. An implementation is located using the {@code META-INF/services} resource for this
+ * type, so that codecs can be provided for types which are not visible to the messaging infrastructure.
+ */
+public interface CodecProvider {
+    /**
+     * Registers codecs with the given serializer. Values of a type can only be read by a serializer which has a codec registered for the type, so
+     * both ends of a connection should register the same codecs.
+     */
+    void registerCodecs(BinaryMessageSerializer<?> serializer);
+}
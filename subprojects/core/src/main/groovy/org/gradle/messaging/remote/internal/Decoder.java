@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the values written by an {@link Encoder}.
+ */
+public class Decoder {
+    private final DataInputStream inputStream;
+    private final BinaryMessageSerializer<?> serializer;
+    private final ClassLoader classLoader;
+    private final List<String> strings = new ArrayList<String>();
+    private final List<Codec<Object>> types = new ArrayList<Codec<Object>>();
+
+    Decoder(DataInputStream inputStream, BinaryMessageSerializer<?> serializer, ClassLoader classLoader) {
+        this.inputStream = inputStream;
+        this.serializer = serializer;
+        this.classLoader = classLoader;
+    }
+
+    public int readSmallInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = inputStream.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable length int value.");
+    }
+
+    public int readInt() throws IOException {
+        return (int) readLong();
+    }
+
+    public long readLong() throws IOException {
+        long encoded = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = inputStream.readUnsignedByte();
+            encoded |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (encoded >>> 1) ^ -(encoded & 1);
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable length long value.");
+    }
+
+    public boolean readBoolean() throws IOException {
+        return inputStream.readUnsignedByte() != 0;
+    }
+
+    public String readString() throws IOException {
+        int tag = readSmallInt();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag > 1) {
+            if (tag - 2 >= strings.size()) {
+                throw new StreamCorruptedException(String.format("Unknown string reference %s received.", tag - 2));
+            }
+            return strings.get(tag - 2);
+        }
+        byte[] bytes = new byte[readSmallInt()];
+        inputStream.readFully(bytes);
+        String value = new String(bytes, "UTF-8");
+        if (Encoder.isInterned(value, strings.size())) {
+            strings.add(value);
+        }
+        return value;
+    }
+
+    public Object readObject() throws Exception {
+        int tag = readSmallInt();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag == 1) {
+            byte[] bytes = new byte[readSmallInt()];
+            inputStream.readFully(bytes);
+            return Message.receive(new ByteArrayInputStream(bytes), classLoader);
+        }
+        Codec<Object> codec;
+        if (tag == 2) {
+            codec = serializer.getCodec(readString());
+            types.add(codec);
+        } else if (tag - 3 < types.size()) {
+            codec = types.get(tag - 3);
+        } else {
+            throw new StreamCorruptedException(String.format("Unknown type reference %s received.", tag - 3));
+        }
+        return codec.read(this);
+    }
+}
@@ -15,7 +15,9 @@
  */
 package org.gradle.messaging.remote.internal;
 
-public class DelegatingConnection<T> implements Connection<T> {
+import org.gradle.messaging.dispatch.BatchingDispatch;
+
+public class DelegatingConnection<T> implements Connection<T>, BatchingDispatch<T> {
     private final Connection<T> delegate;
 
     public DelegatingConnection(Connection<T> delegate) {
@@ -35,6 +37,14 @@ public class DelegatingConnection<T> implements Connection<T> {
         delegate.dispatch(message);
     }
 
+    public void dispatchBatched(T message) {
+        if (delegate instanceof BatchingDispatch) {
+            ((BatchingDispatch<T>) delegate).dispatchBatched(message);
+        } else {
+            delegate.dispatch(message);
+        }
+    }
+
     public void requestStop() {
         delegate.requestStop();
     }
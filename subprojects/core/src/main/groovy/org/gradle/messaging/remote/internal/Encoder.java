@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes values to a stream using a compact binary encoding. Integers are written as variable length values, and each string is written only
+ * once, subsequent occurrences of the string being written as a reference to the first. The name of each type which has a registered {@link
+ * Codec} is also written only once, subsequent values of the type being written with a reference to the name. Objects whose type has no
+ * registered codec are written using Java serialization.
+ *
+ * <p>An encoder holds state for the stream it writes to, so must be used to write all values to the stream, and must be read using a single
+ * {@link Decoder}.</p>
+ */
+public class Encoder {
+    static final int MAX_INTERNED_STRINGS = 4096;
+    static final int MAX_INTERNED_STRING_LENGTH = 256;
+    private final DataOutputStream outputStream;
+    private final BinaryMessageSerializer<?> serializer;
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+    private final Map<Class<?>, Integer> types = new HashMap<Class<?>, Integer>();
+
+    Encoder(DataOutputStream outputStream, BinaryMessageSerializer<?> serializer) {
+        this.outputStream = outputStream;
+        this.serializer = serializer;
+    }
+
+    /**
+     * Determines whether a string should be added to the set of strings which have been seen. Strings which are long, or which are seen after
+     * the set is full, are always written in full, so that the size of the set is bounded.
+     */
+    static boolean isInterned(String value, int internedCount) {
+        return value.length() <= MAX_INTERNED_STRING_LENGTH && internedCount < MAX_INTERNED_STRINGS;
+    }
+
+    /**
+     * Writes a non-negative int value, using fewer bytes for smaller values.
+     */
+    public void writeSmallInt(int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException(String.format("Cannot write negative value %s.", value));
+        }
+        while ((value & ~0x7F) != 0) {
+            outputStream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        outputStream.write(value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        long encoded = (value << 1) ^ (value >> 63);
+        while ((encoded & ~0x7FL) != 0) {
+            outputStream.write((int) ((encoded & 0x7F) | 0x80));
+            encoded >>>= 7;
+        }
+        outputStream.write((int) encoded);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        outputStream.write(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a string, which may be null.
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeSmallInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeSmallInt(index + 2);
+            return;
+        }
+        writeSmallInt(1);
+        byte[] bytes = value.getBytes("UTF-8");
+        writeSmallInt(bytes.length);
+        outputStream.write(bytes);
+        if (isInterned(value, strings.size())) {
+            strings.put(value, strings.size());
+        }
+    }
+
+    /**
+     * Writes an object, which may be null.
+     */
+    public void writeObject(Object value) throws Exception {
+        if (value == null) {
+            writeSmallInt(0);
+            return;
+        }
+        Codec<Object> codec = serializer.getCodec(value.getClass());
+        if (codec == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Message.send(value, bytes);
+            writeSmallInt(1);
+            writeSmallInt(bytes.size());
+            bytes.writeTo(outputStream);
+            return;
+        }
+        Integer index = types.get(value.getClass());
+        if (index != null) {
+            writeSmallInt(index + 3);
+        } else {
+            writeSmallInt(2);
+            writeString(value.getClass().getName());
+            types.put(value.getClass(), types.size());
+        }
+        codec.write(this, value);
+    }
+}
@@ -125,14 +125,14 @@ public class MessagingServices extends DefaultServiceRegistry implements Stoppab
 
     protected OutgoingConnector<Message> createOutgoingConnector() {
         return new TcpOutgoingConnector<Message>(
-                new DefaultMessageSerializer<Message>(
+                new BinaryMessageSerializer<Message>(
                         messageClassLoader));
     }
 
     protected IncomingConnector<Message> createIncomingConnector() {
         incomingConnector = new TcpIncomingConnector<Message>(
                 get(ExecutorFactory.class),
-                new DefaultMessageSerializer<Message>(
+                new BinaryMessageSerializer<Message>(
                         messageClassLoader),
                 new InetAddressFactory(),
                 idGenerator);
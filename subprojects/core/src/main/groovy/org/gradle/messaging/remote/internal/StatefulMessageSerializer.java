@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+import org.gradle.messaging.remote.Address;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * A {@link MessageSerializer} which can keep some state for each connection, such as the strings which have already been sent over the
+ * connection.
+ */
+public interface StatefulMessageSerializer<T> extends MessageSerializer<T> {
+    /**
+     * Creates a reader for the messages received over a single connection. The reader is only used by a single thread at a time.
+     */
+    Reader<T> newReader(DataInputStream inputStream, Address localAddress, Address remoteAddress);
+
+    /**
+     * Creates a writer for the messages sent over a single connection. The writer is only used by a single thread at a time.
+     */
+    Writer<T> newWriter(DataOutputStream outputStream);
+
+    interface Reader<T> {
+        T read() throws Exception;
+    }
+
+    interface Writer<T> {
+        void write(T message) throws Exception;
+    }
+}
@@ -19,10 +19,14 @@ package org.gradle.messaging.remote.internal.inet;
 import com.google.common.base.Objects;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.CompositeStoppable;
+import org.gradle.messaging.dispatch.BatchingDispatch;
 import org.gradle.messaging.remote.Address;
 import org.gradle.messaging.remote.internal.Connection;
 import org.gradle.messaging.remote.internal.MessageIOException;
 import org.gradle.messaging.remote.internal.MessageSerializer;
+import org.gradle.messaging.remote.internal.StatefulMessageSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.InetSocketAddress;
@@ -32,23 +36,50 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 
-public class SocketConnection<T> implements Connection<T> {
+/**
+ * A {@link Connection} over a TCP socket.
+ *
+ * <p>Each call to {@link #dispatch} writes the message to the socket before returning. Calls to {@link #dispatchBatched} instead write the message
+ * to an outgoing buffer, which is written to the socket when it fills up, when {@link #dispatch} is next called, or when the oldest buffered message
+ * has been waiting for longer than {@link #MAX_FLUSH_DELAY_MILLIS}. Writing blocks while the peer is not accepting data, which in turn applies
+ * back-pressure to the producer.</p>
+ *
+ * <p>When debug logging is enabled, the message and byte rates in each direction are logged every {@link #STATS_INTERVAL_MILLIS}, and the totals
+ * are logged when the connection is stopped.</p>
+ */
+public class SocketConnection<T> implements Connection<T>, BatchingDispatch<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SocketConnection.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final long MAX_FLUSH_DELAY_MILLIS = 10;
+    private static final long MAX_FLUSH_DELAY_NANOS = MAX_FLUSH_DELAY_MILLIS * 1000 * 1000;
+    static final long STATS_INTERVAL_MILLIS = 10000;
+    private static final long STATS_INTERVAL_NANOS = STATS_INTERVAL_MILLIS * 1000 * 1000;
+    private final long startTime = System.nanoTime();
     private final SocketChannel socket;
     private final Address localAddress;
     private final Address remoteAddress;
-    private final MessageSerializer<T> serializer;
     private final DataInputStream instr;
     private final DataOutputStream outstr;
+    private final SocketInputStream inputStream;
+    private final SocketOutputStream outputStream;
+    private final StatefulMessageSerializer.Reader<T> reader;
+    private final StatefulMessageSerializer.Writer<T> writer;
+    private long firstBufferedAt = -1;
+    private long messagesSent;
+    private long messagesReceived;
+    private final Stats sendStats = new Stats("Sent");
+    private final Stats receiveStats = new Stats("Received");
 
-    public SocketConnection(SocketChannel socket, MessageSerializer<T> serializer) {
+    public SocketConnection(SocketChannel socket, final MessageSerializer<T> serializer) {
         this.socket = socket;
-        this.serializer = serializer;
         try {
             // NOTE: we use non-blocking IO as there is no reliable way when using blocking IO to shutdown reads while
             // keeping writes active. For example, Socket.shutdownInput() does not work on Windows.
             socket.configureBlocking(false);
-            outstr = new DataOutputStream(new SocketOutputStream(socket));
-            instr = new DataInputStream(new SocketInputStream(socket));
+            outputStream = new SocketOutputStream(socket);
+            inputStream = new SocketInputStream(socket);
+            outstr = new DataOutputStream(outputStream);
+            instr = new DataInputStream(inputStream);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -56,6 +87,23 @@ public class SocketConnection<T> implements Connection<T> {
         localAddress = new SocketInetAddress(localSocketAddress.getAddress(), localSocketAddress.getPort());
         InetSocketAddress remoteSocketAddress = (InetSocketAddress) socket.socket().getRemoteSocketAddress();
         remoteAddress = new SocketInetAddress(remoteSocketAddress.getAddress(), remoteSocketAddress.getPort());
+
+        if (serializer instanceof StatefulMessageSerializer) {
+            StatefulMessageSerializer<T> statefulSerializer = (StatefulMessageSerializer<T>) serializer;
+            reader = statefulSerializer.newReader(instr, localAddress, remoteAddress);
+            writer = statefulSerializer.newWriter(outstr);
+        } else {
+            reader = new StatefulMessageSerializer.Reader<T>() {
+                public T read() throws Exception {
+                    return serializer.read(instr, localAddress, remoteAddress);
+                }
+            };
+            writer = new StatefulMessageSerializer.Writer<T>() {
+                public void write(T message) throws Exception {
+                    serializer.write(message, outstr);
+                }
+            };
+        }
     }
 
     @Override
@@ -73,7 +121,10 @@ public class SocketConnection<T> implements Connection<T> {
 
     public T receive() {
         try {
-            return serializer.read(instr, localAddress, remoteAddress);
+            T message = reader.read();
+            messagesReceived++;
+            receiveStats.update(messagesReceived, inputStream.bytesRead);
+            return message;
         } catch (Exception e) {
             if (isEndOfStream(e)) {
                 return null;
@@ -102,8 +153,28 @@ public class SocketConnection<T> implements Connection<T> {
 
     public void dispatch(T message) {
         try {
-            serializer.write(message, outstr);
+            writer.write(message);
+            messagesSent++;
             outstr.flush();
+            firstBufferedAt = -1;
+            sendStats.update(messagesSent, outputStream.bytesWritten);
+        } catch (Exception e) {
+            throw new MessageIOException(String.format("Could not write message %s to '%s'.", message, remoteAddress), e);
+        }
+    }
+
+    public void dispatchBatched(T message) {
+        try {
+            writer.write(message);
+            messagesSent++;
+            long now = System.nanoTime();
+            if (firstBufferedAt < 0) {
+                firstBufferedAt = now;
+            } else if (now - firstBufferedAt >= MAX_FLUSH_DELAY_NANOS) {
+                outstr.flush();
+                firstBufferedAt = -1;
+                sendStats.update(messagesSent, outputStream.bytesWritten);
+            }
         } catch (Exception e) {
             throw new MessageIOException(String.format("Could not write message %s to '%s'.", message, remoteAddress), e);
         }
@@ -115,6 +186,45 @@ public class SocketConnection<T> implements Connection<T> {
 
     public void stop() {
         new CompositeStoppable(instr, outstr, socket).stop();
+        if (LOGGER.isDebugEnabled()) {
+            double seconds = Math.max(System.nanoTime() - startTime, 1) / 1000000000.0;
+            LOGGER.debug("Stopped {}. Sent {} messages ({} bytes in {} writes, {} messages/s, {} bytes/s). Received {} messages ({} bytes, {} messages/s, {} bytes/s).",
+                    new Object[]{this, messagesSent, outputStream.bytesWritten, outputStream.writes, (long) (messagesSent / seconds), (long) (outputStream.bytesWritten / seconds),
+                            messagesReceived, inputStream.bytesRead, (long) (messagesReceived / seconds), (long) (inputStream.bytesRead / seconds)});
+        }
+    }
+
+    /**
+     * Logs the rates in one direction at most once every {@link #STATS_INTERVAL_MILLIS}. Each instance is only used by the thread sending or
+     * receiving messages.
+     */
+    private class Stats {
+        private final String direction;
+        private long lastReportAt = startTime;
+        private long lastMessages;
+        private long lastBytes;
+
+        private Stats(String direction) {
+            this.direction = direction;
+        }
+
+        void update(long messages, long bytes) {
+            if (!LOGGER.isDebugEnabled()) {
+                return;
+            }
+            long now = System.nanoTime();
+            long elapsed = now - lastReportAt;
+            if (elapsed < STATS_INTERVAL_NANOS) {
+                return;
+            }
+            double seconds = elapsed / 1000000000.0;
+            LOGGER.debug("{} {} messages ({} bytes) on {} in the last {}s ({} messages/s, {} bytes/s).",
+                    new Object[]{direction, messages - lastMessages, bytes - lastBytes, SocketConnection.this, (long) seconds,
+                            (long) ((messages - lastMessages) / seconds), (long) ((bytes - lastBytes) / seconds)});
+            lastReportAt = now;
+            lastMessages = messages;
+            lastBytes = bytes;
+        }
     }
 
     private static class SocketInputStream extends InputStream {
@@ -122,12 +232,13 @@ public class SocketConnection<T> implements Connection<T> {
         private final ByteBuffer buffer;
         private final SocketChannel socket;
         private final byte[] readBuffer = new byte[1];
+        private long bytesRead;
 
         public SocketInputStream(SocketChannel socket) throws IOException {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_READ);
-            buffer = ByteBuffer.allocateDirect(4096);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
             buffer.limit(0);
         }
 
@@ -137,7 +248,7 @@ public class SocketConnection<T> implements Connection<T> {
             if (nread <= 0) {
                 return nread;
             }
-            return readBuffer[0];
+            return readBuffer[0] & 0xff;
         }
 
         @Override
@@ -147,22 +258,30 @@ public class SocketConnection<T> implements Connection<T> {
             }
 
             if (buffer.remaining() == 0) {
-                try {
-                    selector.select();
-                } catch (ClosedSelectorException e) {
-                    return -1;
-                }
                 if (!selector.isOpen()) {
                     return -1;
                 }
 
+                // Only wait for the socket to become readable when no data is available, to avoid a select per read
                 buffer.clear();
                 int nread = socket.read(buffer);
+                while (nread == 0) {
+                    try {
+                        selector.select();
+                    } catch (ClosedSelectorException e) {
+                        return -1;
+                    }
+                    if (!selector.isOpen()) {
+                        return -1;
+                    }
+                    nread = socket.read(buffer);
+                }
                 buffer.flip();
 
                 if (nread < 0) {
                     return -1;
                 }
+                bytesRead += nread;
             }
 
             int count = Math.min(buffer.remaining(), max);
@@ -181,12 +300,14 @@ public class SocketConnection<T> implements Connection<T> {
         private final SocketChannel socket;
         private final ByteBuffer buffer;
         private final byte[] writeBuffer = new byte[1];
+        private long bytesWritten;
+        private long writes;
 
         public SocketOutputStream(SocketChannel socket) throws IOException {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_WRITE);
-            buffer = ByteBuffer.allocateDirect(4096);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
         }
 
         @Override
@@ -215,12 +336,18 @@ public class SocketConnection<T> implements Connection<T> {
         @Override
         public void flush() throws IOException {
             buffer.flip();
+            if (buffer.remaining() > 0) {
+                writes++;
+                bytesWritten += buffer.remaining();
+            }
             while (buffer.remaining() > 0) {
-                selector.select();
                 if (!selector.isOpen()) {
                     throw new EOFException();
                 }
-                socket.write(buffer);
+                // Only wait for the socket to become writable when the peer is not keeping up
+                if (socket.write(buffer) == 0) {
+                    selector.select();
+                }
             }
             buffer.clear();
         }
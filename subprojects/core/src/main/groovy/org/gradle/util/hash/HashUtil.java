@@ -20,6 +20,7 @@ import org.gradle.internal.UncheckedException;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
@@ -33,10 +34,20 @@ public class HashUtil {
     }
 
     public static HashValue createHash(File file, String algorithm) {
+        try {
+            return createHash(new FileInputStream(file), algorithm);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hashes the content of the given stream, and closes the stream.
+     */
+    public static HashValue createHash(InputStream instr, String algorithm) {
         MessageDigest messageDigest = createMessageDigest(algorithm);
         try {
             byte[] buffer = new byte[4096];
-            InputStream instr = new FileInputStream(file);
             try {
                 while (true) {
                     int nread = instr.read(buffer);
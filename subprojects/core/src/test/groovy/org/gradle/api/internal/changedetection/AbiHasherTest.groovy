@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection
+
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class AbiHasherTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final AbiHasher hasher = new AbiHasher(new DefaultHasher())
+
+    def "hash of class file does not change when method body changes"() {
+        expect:
+        hash(classFile(returnValue: 1)) == hash(classFile(returnValue: 2))
+    }
+
+    def "hash of class file does not change when private member is added"() {
+        expect:
+        hash(classFile()) == hash(classFile(privateMethod: true))
+    }
+
+    def "hash of class file changes when public method signature changes"() {
+        expect:
+        hash(classFile()) != hash(classFile(methodName: 'other'))
+    }
+
+    def "hash of class file changes when constant value changes"() {
+        expect:
+        hash(classFile(constant: 1)) != hash(classFile(constant: 2))
+    }
+
+    def "hash of jar does not change when method body changes"() {
+        expect:
+        hash(jar(classFile(returnValue: 1))) == hash(jar(classFile(returnValue: 2)))
+    }
+
+    def "hash of jar changes when resource changes"() {
+        expect:
+        hash(jar(classFile(), 'resource': 'a')) != hash(jar(classFile(), 'resource': 'b'))
+    }
+
+    def "hash of jar containing an annotation processor changes when method body changes"() {
+        def processor = [(AbiHasher.ANNOTATION_PROCESSOR_SERVICE): 'Processor']
+
+        expect:
+        hash(jar(classFile(returnValue: 1), processor)) != hash(jar(classFile(returnValue: 2), processor))
+    }
+
+    def "uses delegate hasher for other files"() {
+        TestFile file = tmpDir.createFile('file.txt')
+        file.text = 'content'
+
+        expect:
+        hasher.hash(file) == new DefaultHasher().hash(file)
+    }
+
+    def hash(File file) {
+        return hasher.hash(file) as List
+    }
+
+    def classFile(Map options = [:]) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+        writer.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, 'Thing', null, 'java/lang/Object', null)
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, 'CONSTANT', 'I', null, options.constant ?: 0).visitEnd()
+        method(writer, Opcodes.ACC_PUBLIC, options.methodName ?: 'value', options.returnValue ?: 0)
+        if (options.privateMethod) {
+            method(writer, Opcodes.ACC_PRIVATE, 'internal', 0)
+        }
+        writer.visitEnd()
+
+        TestFile file = tmpDir.file("classes${tmpDir.dir.list().length}/Thing.class")
+        file.parentFile.mkdirs()
+        file.bytes = writer.toByteArray()
+        return file
+    }
+
+    def method(ClassWriter writer, int access, String name, int returnValue) {
+        MethodVisitor visitor = writer.visitMethod(access, name, '()I', null, null)
+        visitor.visitCode()
+        visitor.visitLdcInsn(returnValue)
+        visitor.visitInsn(Opcodes.IRETURN)
+        visitor.visitMaxs(0, 0)
+        visitor.visitEnd()
+    }
+
+    def jar(File classFile, Map<String, String> resources = [:]) {
+        TestFile jar = tmpDir.file("lib${tmpDir.dir.list().length}.jar")
+        ZipOutputStream outstr = new ZipOutputStream(new FileOutputStream(jar))
+        try {
+            outstr.putNextEntry(new ZipEntry('org/Thing.class'))
+            outstr.write(classFile.bytes)
+            resources.each { name, content ->
+                outstr.putNextEntry(new ZipEntry(name))
+                outstr.write(content.bytes)
+            }
+        } finally {
+            outstr.close()
+        }
+        return jar
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.Serializer;
 import org.gradle.util.TemporaryFolder;
@@ -105,4 +107,41 @@ public class CachingHasherTest {
 
         assertThat(hasher.hash(file), sameInstance(hash));
     }
+
+    @Test
+    public void usesAttributesOfFileDetailsWhenCheckingCachedHash() {
+        final FileTreeElement fileDetails = context.mock(FileTreeElement.class);
+        context.checking(new Expectations() {{
+            allowing(fileDetails).getFile();
+            will(returnValue(file));
+            one(fileDetails).getSize();
+            will(returnValue(1078L));
+            one(fileDetails).getLastModified();
+            will(returnValue(12L));
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, 1078, 12)));
+        }});
+
+        assertThat(hasher.hash(fileDetails), sameInstance(hash));
+    }
+
+    @Test
+    public void hashesContentOfMirroredFileWithoutCopyingItToTheMirror() {
+        final MirroredFileTreeElement fileDetails = context.mock(MirroredFileTreeElement.class);
+        context.checking(new Expectations() {{
+            allowing(fileDetails).getMirrorFile();
+            will(returnValue(file));
+            allowing(fileDetails).getSize();
+            will(returnValue(1078L));
+            allowing(fileDetails).getLastModified();
+            will(returnValue(12L));
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(fileDetails);
+            will(returnValue(hash));
+            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, 1078, 12))));
+        }});
+
+        assertThat(hasher.hash(fileDetails), sameInstance(hash));
+    }
 }
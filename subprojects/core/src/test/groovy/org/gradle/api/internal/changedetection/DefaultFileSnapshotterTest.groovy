@@ -29,6 +29,10 @@ import org.gradle.util.TestFile
 import org.gradle.api.file.FileCollection
 import org.gradle.util.ChangeListener
 import org.gradle.api.file.FileTree
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileVisitor
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.file.DefaultFileTreeElement
 
 @RunWith(JMock.class)
 public class DefaultFileSnapshotterTest {
@@ -321,10 +325,21 @@ public class DefaultFileSnapshotterTest {
         context.checking {
             allowing(collection).getAsFileTree()
             will(returnValue(collection))
-            allowing(collection).iterator()
-            will(returnIterator(files as List))
+            allowing(collection).visit(withParam(notNullValue()))
+            will { FileVisitor visitor ->
+                (files as List).each { visitor.visitFile(new TestFileVisitDetails(it)) }
+            }
         }
         return collection
     }
-    
+}
+
+class TestFileVisitDetails extends DefaultFileTreeElement implements FileVisitDetails {
+    TestFileVisitDetails(File file) {
+        super(file, new RelativePath(true, file.name))
+    }
+
+    void stopVisiting() {
+        throw new UnsupportedOperationException()
+    }
 }
@@ -38,4 +38,20 @@ class DefaultFileTreeElementTest extends Specification {
         then:
         e.mode == 0644
     }
+
+    def "copies content of file"() {
+        def f = tmpDir.createFile("f")
+        f.text = "content"
+        f.lastModified = 1000
+        def target = tmpDir.file("dir/target")
+        FileTreeElement e = new DefaultFileTreeElement(f, null)
+
+        when:
+        def copied = e.copyTo(target)
+
+        then:
+        copied
+        target.text == "content"
+        target.lastModified() == 1000
+    }
 }
@@ -18,10 +18,13 @@ package org.gradle.api.internal.file.archive;
 import java.util.Map;
 import java.util.HashMap;
 import org.apache.commons.io.IOUtils;
+import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
 import org.gradle.api.internal.file.copy.ArchiveCopyAction;
+import org.gradle.api.internal.file.copy.FileBackedCopyDetails;
 import org.gradle.api.internal.file.copy.ReadableCopySpec;
 import org.gradle.util.TestFile;
 import org.gradle.util.TemporaryFolder;
@@ -36,11 +39,19 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.File;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.gradle.api.file.FileVisitorUtil.assertVisitsPermissions;
+import static org.gradle.util.Matchers.isEmpty;
+import static org.gradle.util.WrapUtil.toList;
 
 @RunWith(JMock.class)
 public class ZipCopySpecVisitorTest {
@@ -82,6 +93,98 @@ public class ZipCopySpecVisitorTest {
         assertVisitsPermissions(new ZipFileTree(zipFile, null), expected);
     }
 
+    @Test
+    public void createsZipFileWhenCompressingEntriesConcurrently() throws Exception {
+        zip(new ZipCopySpecVisitor(4, false, false), dir("dir"), fileBacked("dir/file1"), file("dir/file2"), fileBacked("file3"), fileBacked("file4"));
+
+        assertThat(entryNames(), equalTo(toList("dir/", "dir/file1", "dir/file2", "file3", "file4")));
+        TestFile expandDir = tmpDir.getDir().file("expanded");
+        zipFile.unzipTo(expandDir);
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"));
+        expandDir.file("dir/file2").assertContents(equalTo("contents of dir/file2"));
+        expandDir.file("file3").assertContents(equalTo("contents of file3"));
+        expandDir.file("file4").assertContents(equalTo("contents of file4"));
+    }
+
+    @Test
+    public void zipFileContainsExpectedPermissionsWhenCompressingEntriesConcurrently() {
+        zip(new ZipCopySpecVisitor(4, false, false), dir("dir"), file("file"));
+
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        expected.put("dir", 2);
+        expected.put("file", 1);
+
+        assertVisitsPermissions(new ZipFileTree(zipFile, null), expected);
+    }
+
+    @Test
+    public void copiesCompressedContentOfUnchangedEntriesFromExistingZipFile() throws Exception {
+        ZipOutputStream outstr = new ZipOutputStream(zipFile);
+        outstr.setLevel(0);
+        for (String path : toList("file1", "file2")) {
+            outstr.putNextEntry(new org.apache.tools.zip.ZipEntry(path));
+            IOUtils.write(path.equals("file1") ? "contents of file1" : "old contents", outstr);
+            outstr.closeEntry();
+        }
+        outstr.close();
+        long compressedSize = compressedSize("file1");
+
+        zip(new ZipCopySpecVisitor(1, true, false), file("file1"), file("file2"), file("file3"));
+
+        assertThat(entryNames(), equalTo(toList("file1", "file2", "file3")));
+        assertThat(compressedSize("file1"), equalTo(compressedSize));
+        TestFile expandDir = tmpDir.getDir().file("expanded");
+        zipFile.unzipTo(expandDir);
+        expandDir.file("file1").assertContents(equalTo("contents of file1"));
+        expandDir.file("file2").assertContents(equalTo("contents of file2"));
+        expandDir.file("file3").assertContents(equalTo("contents of file3"));
+        tmpDir.getDir().file("test.zip.previous").assertDoesNotExist();
+    }
+
+    @Test
+    public void writesContentOfLargeEntriesToTemporaryFiles() throws Exception {
+        zip(new ZipCopySpecVisitor(4, false, false, 8, 16), dir("dir"), fileBacked("dir/file1"), file("dir/file2"), fileBacked("file3"), fileBacked("file4"));
+
+        assertThat(entryNames(), equalTo(toList("dir/", "dir/file1", "dir/file2", "file3", "file4")));
+        TestFile expandDir = tmpDir.getDir().file("expanded");
+        zipFile.unzipTo(expandDir);
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"));
+        expandDir.file("dir/file2").assertContents(equalTo("contents of dir/file2"));
+        expandDir.file("file3").assertContents(equalTo("contents of file3"));
+        expandDir.file("file4").assertContents(equalTo("contents of file4"));
+        assertThat(entryFiles(), isEmpty());
+    }
+
+    @Test
+    public void cleansUpWhenVisitIsAborted() throws Exception {
+        zip(file("file1"));
+
+        ZipCopySpecVisitor visitor = new ZipCopySpecVisitor(4, true, false, 8, 16);
+        visitor.startVisit(copyAction);
+        visitor.visitSpec(copySpec);
+        visitor.visitFile(fileBacked("file1"));
+        visitor.visitFile(fileBacked("file2"));
+        tmpDir.getDir().file("test.zip.previous").assertIsFile();
+
+        visitor.abortVisit();
+
+        tmpDir.getDir().file("test.zip.previous").assertDoesNotExist();
+        assertThat(entryFiles(), isEmpty());
+    }
+
+    @Test
+    public void usesFixedTimestampsWhenRequested() throws Exception {
+        zip(new ZipCopySpecVisitor(1, false, true), dir("dir"), file("dir/file1"));
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            assertThat(zip.getEntry("dir/").getTime(), equalTo(ZipCopySpecVisitor.FIXED_TIMESTAMP));
+            assertThat(zip.getEntry("dir/file1").getTime(), equalTo(ZipCopySpecVisitor.FIXED_TIMESTAMP));
+        } finally {
+            zip.close();
+        }
+    }
+
     @Test
     public void wrapsFailureToOpenOutputFile() {
         final TestFile invalidZipFile = tmpDir.createDir("test.zip");
@@ -99,6 +202,23 @@ public class ZipCopySpecVisitorTest {
         }
     }
 
+    @Test
+    public void wrapsFailureToAddElementWhenCompressingEntriesConcurrently() {
+        ZipCopySpecVisitor visitor = new ZipCopySpecVisitor(4, false, false);
+        visitor.startVisit(copyAction);
+        visitor.visitSpec(copySpec);
+
+        Throwable failure = new RuntimeException("broken");
+        try {
+            visitor.visitFile(brokenFile("dir/file1", failure));
+            visitor.endVisit();
+            fail();
+        } catch (GradleException e) {
+            assertThat(e.getMessage(), equalTo(String.format("Could not add [dir/file1] to ZIP '%s'.", zipFile)));
+            assertThat(e.getCause(), sameInstance(failure));
+        }
+    }
+
     @Test
     public void wrapsFailureToAddElement() {
         visitor.startVisit(copyAction);
@@ -115,6 +235,10 @@ public class ZipCopySpecVisitorTest {
     }
 
     private void zip(FileVisitDetails... files) {
+        zip(visitor, files);
+    }
+
+    private void zip(ZipCopySpecVisitor visitor, FileVisitDetails... files) {
         visitor.startVisit(copyAction);
         visitor.visitSpec(copySpec);
 
@@ -161,6 +285,44 @@ public class ZipCopySpecVisitorTest {
         return details;
     }
 
+    private FileVisitDetails fileBacked(String path) {
+        TestFile file = tmpDir.getDir().file("files", path);
+        file.write(String.format("contents of %s", path));
+        return new FileBackedDetails(file, RelativePath.parse(true, path));
+    }
+
+    private List<String> entryNames() throws Exception {
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            List<String> names = new ArrayList<String>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+            return names;
+        } finally {
+            zip.close();
+        }
+    }
+
+    private List<File> entryFiles() {
+        List<File> files = new ArrayList<File>();
+        for (File file : tmpDir.getDir().listFiles()) {
+            if (file.getName().startsWith("test.zip.entry")) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private long compressedSize(String path) throws Exception {
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            return zip.getEntry(path).getCompressedSize();
+        } finally {
+            zip.close();
+        }
+    }
+
     private FileVisitDetails dir(final String path) {
         final FileVisitDetails details = context.mock(FileVisitDetails.class, path);
 
@@ -212,4 +374,18 @@ public class ZipCopySpecVisitorTest {
 
         return details;
     }
+
+    private static class FileBackedDetails extends DefaultFileTreeElement implements FileVisitDetails, FileBackedCopyDetails {
+        private FileBackedDetails(File file, RelativePath relativePath) {
+            super(file, relativePath);
+        }
+
+        public void stopVisiting() {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean isCopiedFromFile() {
+            return true;
+        }
+    }
 }
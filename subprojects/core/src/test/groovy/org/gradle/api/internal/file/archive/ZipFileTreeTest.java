@@ -15,6 +15,11 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -23,6 +28,10 @@ import org.gradle.util.TemporaryFolder;
 import org.gradle.util.TestFile;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.GradleException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.file.collections.MirroredFileTreeElement;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import org.junit.Rule;
 
@@ -105,4 +114,35 @@ public class ZipFileTreeTest {
 
         assertVisitsPermissions(tree, expected);
     }
+
+    @Test
+    public void readsContentOfEntriesWithoutExtractingThem() {
+        rootDir.file("subdir/file1.txt").write("content");
+        rootDir.zipTo(zipFile);
+
+        final List<String> contents = new ArrayList<String>();
+        tree.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                File mirrorFile = ((MirroredFileTreeElement) fileDetails).getMirrorFile();
+                assertThat(mirrorFile.getName(), equalTo("file1.txt"));
+                try {
+                    InputStream inputStream = fileDetails.open();
+                    try {
+                        contents.add(IOUtils.toString(inputStream));
+                    } finally {
+                        inputStream.close();
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                assertFalse(mirrorFile.exists());
+
+                assertThat(fileDetails.getFile(), equalTo(mirrorFile));
+                assertTrue(mirrorFile.isFile());
+            }
+        });
+
+        assertThat(contents, equalTo(toList("content")));
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.file.collections;
 
+import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.copy.CopySpecVisitor;
@@ -43,6 +44,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.gradle.util.WrapUtil.toList;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.*;
 
@@ -251,6 +253,34 @@ public class DirectoryFileTreeTest {
         assertFalse(fileTree.contains(doesNotExist));
     }
 
+    @Test
+    public void readsEachFileAttributeOnceDuringVisit() {
+        TestFile rootDir = tmpDir.createDir("root");
+        rootDir.file("a.txt").write("content");
+        rootDir.createDir("subdir");
+        final List<String> attributes = new ArrayList<String>();
+
+        new DirectoryFileTree(rootDir).visit(new EmptyFileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+                attributes.add(dirDetails.getName() + " " + dirDetails.isDirectory());
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                long size = fileDetails.getSize();
+                long lastModified = fileDetails.getLastModified();
+                TestFile file = new TestFile(fileDetails.getFile()).write("changed content");
+                file.setLastModified(lastModified - 10000);
+                assertThat(fileDetails.getSize(), equalTo(size));
+                assertThat(fileDetails.getLastModified(), equalTo(lastModified));
+                attributes.add(fileDetails.getName() + " " + fileDetails.isDirectory() + " " + size);
+            }
+        });
+
+        assertThat(attributes, equalTo(toList("a.txt false 7", "subdir true")));
+    }
+
     @Test
     public void hasUsefulDisplayName() {
         DirectoryFileTree treeWithNoIncludesOrExcludes = new DirectoryFileTree(tmpDir.getDir());
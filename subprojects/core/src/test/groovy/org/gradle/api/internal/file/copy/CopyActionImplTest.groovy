@@ -68,6 +68,27 @@ public class CopyActionImplTest extends Specification {
         0 * visitor._
     }
    
+    def abortsVisitWhenSourceCannotBeVisited() {
+        FileTree source = Mock()
+        _ * source.matching(_) >> source
+        def failure = new RuntimeException("broken")
+
+        copyAction.from('source1')
+
+        when:
+        copyAction.execute()
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+        1 * visitor.startVisit(copyAction)
+        _ * visitor.visitSpec(_)
+        _ * resolver.resolveFilesAsTree(_) >> source
+        1 * source.visit(visitor) >> { throw failure }
+        1 * visitor.abortVisit()
+        0 * visitor.endVisit()
+    }
+
     def allSourceIncludesSourceFromAllSpecs() {
         FileTree mainSource = Mock()
         _ * mainSource.matching(_) >> mainSource
@@ -19,7 +19,9 @@ package org.gradle.api.internal.file.copy;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
 import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -39,6 +41,7 @@ public class FileCopySpecVisitorTest {
     private File destDir;
     private final JUnit4Mockery context = new JUnit4Mockery();
     private final FileCopySpecVisitor visitor = new FileCopySpecVisitor();
+    private int sourceDirs;
     @Rule
     public TemporaryFolder tmpDir = new TemporaryFolder();
 
@@ -70,6 +73,55 @@ public class FileCopySpecVisitorTest {
         }
     }
 
+    @Test
+    public void copiesFilesConcurrentlyWhenUsingMultipleThreads() {
+        FileCopySpecVisitor visitor = new FileCopySpecVisitor(4);
+        visitor.startVisit(action(destDir));
+        for (int i = 0; i < 20; i++) {
+            visitor.visitFile(sourceFile("file" + i + ".txt", "content " + i));
+        }
+        visitor.endVisit();
+
+        assertTrue(visitor.getDidWork());
+        for (int i = 0; i < 20; i++) {
+            assertThat(tmpDir.getDir().file("dest/file" + i + ".txt").getText(), equalTo("content " + i));
+        }
+    }
+
+    @Test
+    public void copiesFilesToSameDestinationInVisitOrderWhenUsingMultipleThreads() {
+        FileCopySpecVisitor visitor = new FileCopySpecVisitor(4);
+        visitor.startVisit(action(destDir));
+        for (int i = 0; i < 20; i++) {
+            visitor.visitFile(sourceFile("file.txt", "content " + i));
+        }
+        visitor.endVisit();
+
+        assertThat(tmpDir.getDir().file("dest/file.txt").getText(), equalTo("content 19"));
+    }
+
+    @Test
+    public void doesNotRewriteUpToDateFilesWhenUsingMultipleThreads() {
+        FileVisitDetails source = sourceFile("file.txt", "content");
+        FileCopySpecVisitor visitor = new FileCopySpecVisitor(4);
+        visitor.startVisit(action(destDir));
+        visitor.visitFile(source);
+        visitor.endVisit();
+        assertTrue(visitor.getDidWork());
+
+        visitor = new FileCopySpecVisitor(4);
+        visitor.startVisit(action(destDir));
+        visitor.visitFile(source);
+        visitor.endVisit();
+        assertFalse(visitor.getDidWork());
+    }
+
+    private FileVisitDetails sourceFile(String name, String content) {
+        TestFile file = tmpDir.getDir().createDir("src" + sourceDirs++).file(name);
+        file.write(content);
+        return new FileBackedDetails(file, new RelativePath(true, name));
+    }
+
     private FileCopyAction action(final File destDir) {
         final FileCopyAction action = context.mock(FileCopyAction.class);
         context.checking(new Expectations(){{
@@ -88,4 +140,18 @@ public class FileCopySpecVisitorTest {
         }});
         return details;
     }
+
+    private static class FileBackedDetails extends DefaultFileTreeElement implements FileVisitDetails, FileBackedCopyDetails {
+        private FileBackedDetails(File file, RelativePath relativePath) {
+            super(file, relativePath);
+        }
+
+        public void stopVisiting() {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean isCopiedFromFile() {
+            return true;
+        }
+    }
 }
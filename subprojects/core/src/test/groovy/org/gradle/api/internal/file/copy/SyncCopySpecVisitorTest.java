@@ -16,9 +16,7 @@
 package org.gradle.api.internal.file.copy;
 
 import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
-import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.util.TemporaryFolder;
 import org.gradle.util.TestFile;
 import org.jmock.Expectations;
@@ -30,9 +28,6 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
-import java.lang.reflect.Field;
-import java.util.HashSet;
-import java.util.Set;
 
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertTrue;
@@ -73,7 +68,7 @@ public class SyncCopySpecVisitorTest {
     }
 
     @Test
-    public void deletesExtraDirectoriesFromDestinationDirectoryAtTheEndOfVisit() throws Exception {
+    public void deletesExtraDirectoriesFromDestinationDirectoryAtTheEndOfVisit() {
         TestFile destDir = tmpDir.createDir("dest");
         destDir.createFile("included.txt");
         destDir.createFile("extra/extra.txt");
@@ -81,29 +76,54 @@ public class SyncCopySpecVisitorTest {
         visitor.startVisit(action(destDir));
         visitor.visitFile(file("included.txt"));
 
-        // TODO - delete these
-        Field field = SyncCopySpecVisitor.class.getDeclaredField("visited");
-        field.setAccessible(true);
-        Set visited = (Set) field.get(visitor);
-        assert visited.contains(new RelativePath(true, "included.txt"));
-        assert !visited.contains(new RelativePath(true, "extra", "extra.txt"));
-        final Set<RelativePath> actual = new HashSet<RelativePath>();
-        new DirectoryFileTree(destDir).depthFirst().visit(new FileVisitor() {
-            public void visitDir(FileVisitDetails dirDetails) {
-            }
-
-            public void visitFile(FileVisitDetails fileDetails) {
-                actual.add(fileDetails.getRelativePath());
-            }
-        });
-        assert actual.contains(new RelativePath(true, "included.txt"));
-        assert actual.contains(new RelativePath(true, "extra", "extra.txt"));
-
         visitor.endVisit();
 
         destDir.assertHasDescendants("included.txt");
     }
 
+    @Test
+    public void deletesExtraDirectoriesWithinVisitedDirectories() {
+        TestFile destDir = tmpDir.createDir("dest");
+        destDir.createFile("a/b/included.txt");
+        destDir.createFile("a/b/c/extra.txt");
+        destDir.createFile("a/extra/extra.txt");
+
+        visitor.startVisit(action(destDir));
+        visitor.visitDir(dir("a"));
+        visitor.visitDir(dir("a/b"));
+        visitor.visitFile(file("a/b/included.txt"));
+        visitor.endVisit();
+
+        destDir.assertHasDescendants("a/b/included.txt");
+    }
+
+    @Test
+    public void deletesFileWhereDirectoryWasVisitedAndDirectoryWhereFileWasVisited() {
+        TestFile destDir = tmpDir.createDir("dest");
+        destDir.createFile("a");
+        destDir.createFile("b/extra.txt");
+
+        visitor.startVisit(action(destDir));
+        visitor.visitDir(dir("a"));
+        visitor.visitFile(file("b"));
+        visitor.endVisit();
+
+        destDir.assertHasDescendants();
+    }
+
+    @Test
+    public void doesNotDeleteGloballyExcludedFiles() {
+        TestFile destDir = tmpDir.createDir("dest");
+        destDir.createFile("included.txt");
+        destDir.createFile(".svn/entries");
+
+        visitor.startVisit(action(destDir));
+        visitor.visitFile(file("included.txt"));
+        visitor.endVisit();
+
+        destDir.assertHasDescendants("included.txt", ".svn/entries");
+    }
+
     @Test
     public void doesNotDeleteDestDirectoryWhenNothingCopied() {
         TestFile destDir = tmpDir.createDir("dest");
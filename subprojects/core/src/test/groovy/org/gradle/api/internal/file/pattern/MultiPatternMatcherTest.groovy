@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.pattern
+
+import org.apache.tools.ant.DirectoryScanner
+import org.gradle.api.file.RelativePath
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class MultiPatternMatcherTest extends Specification {
+    static final List<String> PATTERNS = (DirectoryScanner.DEFAULTEXCLUDES as List) + ['**/build/', '**\\out\\**', '**/*.class', 'src/**/Test?.java', '**/']
+    static final List<RelativePath> PATHS = [
+            new RelativePath(false),
+            new RelativePath(false, 'a'),
+            new RelativePath(true, 'a'),
+            new RelativePath(false, '.git'),
+            new RelativePath(true, '.git'),
+            new RelativePath(true, 'a', '.git', 'config'),
+            new RelativePath(false, 'a', 'b', '.svn'),
+            new RelativePath(true, 'a', 'b', '.DS_Store'),
+            new RelativePath(false, 'a', 'b', '.DS_Store'),
+            new RelativePath(true, '.DS_STORE'),
+            new RelativePath(true, 'a', 'Thing.java~'),
+            new RelativePath(false, 'build'),
+            new RelativePath(true, 'a', 'build', 'Thing.java'),
+            new RelativePath(true, 'out'),
+            new RelativePath(true, 'src', 'a', 'Test1.java'),
+            new RelativePath(true, 'src', 'a', 'Test12.java'),
+            new RelativePath(true, 'a', 'Thing.class')
+    ]
+
+    @Unroll
+    def "matches the same paths as the individual patterns when partialMatchDirs is #partialMatchDirs and caseSensitive is #caseSensitive"() {
+        def matcher = PatternMatcherFactory.getPatternsMatcher(partialMatchDirs, caseSensitive, PATTERNS)
+        def individualMatchers = PATTERNS.collect { PatternMatcherFactory.getPatternMatcher(partialMatchDirs, caseSensitive, it) }
+
+        expect:
+        PATHS.each { path ->
+            assert matcher.isSatisfiedBy(path) == individualMatchers.any { it.isSatisfiedBy(path) }
+        }
+
+        where:
+        partialMatchDirs | caseSensitive
+        false            | true
+        true             | true
+        false            | false
+        true             | false
+    }
+
+    def "matches literal name patterns by looking up the segments of the path"() {
+        def matcher = PatternMatcherFactory.getPatternsMatcher(false, true, ['**/.git/**', '**/.DS_Store', '**/*.class'])
+
+        expect:
+        matcher.isSatisfiedBy(new RelativePath(false, 'a', '.git'))
+        matcher.isSatisfiedBy(new RelativePath(true, 'a', '.git', 'b'))
+        matcher.isSatisfiedBy(new RelativePath(true, 'a', '.DS_Store'))
+        matcher.isSatisfiedBy(new RelativePath(true, 'a', 'Thing.class'))
+        !matcher.isSatisfiedBy(new RelativePath(false, 'a', '.DS_Store'))
+        !matcher.isSatisfiedBy(new RelativePath(true, 'a', '.gitignore'))
+        !matcher.isSatisfiedBy(new RelativePath(true, 'a', 'Thing.java'))
+    }
+
+    def "matches nothing when there are no patterns"() {
+        def matcher = PatternMatcherFactory.getPatternsMatcher(true, true, [])
+
+        expect:
+        !matcher.isSatisfiedBy(new RelativePath(false, 'a'))
+        !matcher.isSatisfiedBy(new RelativePath(true, 'a'))
+    }
+}
@@ -173,6 +173,22 @@ class DefaultIsolatedAntBuilderTest {
         assertThat(antClassLoader, sameInstance(antClassLoader2))
     }
 
+    @Test
+    public void sharesClassloadersWithOtherBuildersWhichUseTheSameCache() {
+        IsolatedClassLoaderCache cache = new IsolatedClassLoaderCache()
+        Object antBuilder1 = null
+        new DefaultIsolatedAntBuilder(registry, new DefaultClassLoaderFactory(), cache).execute {
+            antBuilder1 = delegate.builder
+        }
+        Object antBuilder2 = null
+        new DefaultIsolatedAntBuilder(registry, new DefaultClassLoaderFactory(), cache).execute {
+            antBuilder2 = delegate.builder
+        }
+
+        assertThat(antBuilder1, not(sameInstance(antBuilder2)))
+        assertThat(antBuilder1.class, sameInstance(antBuilder2.class))
+    }
+
     @Test
     public void setsContextClassLoader() {
         ClassLoader originalLoader = Thread.currentThread().contextClassLoader
@@ -202,6 +218,35 @@ class DefaultIsolatedAntBuilderTest {
             // expected
         }
     }
+
+    @Test
+    public void releasesSharedClassLoaderWhenClassLoadersCannotBeCreated() {
+        RecordingClassLoaderCache cache = new RecordingClassLoaderCache()
+        ClassPathRegistry brokenRegistry = [
+                getClassPathFiles: { String name -> registry.getClassPathFiles(name) },
+                getClassPathUrls: { String name -> name == "GRADLE_CORE" ? [] as URL[] : registry.getClassPathUrls(name) }
+        ] as ClassPathRegistry
+
+        try {
+            new DefaultIsolatedAntBuilder(brokenRegistry, new DefaultClassLoaderFactory(), cache).execute {}
+            fail()
+        } catch (Exception e) {
+            // expected - the Gradle classes cannot be found
+        }
+
+        assertThat(cache.released.size(), equalTo(1))
+        assertThat(cache.released[0], instanceOf(BaseLoaderHolder))
+    }
+}
+
+class RecordingClassLoaderCache extends IsolatedClassLoaderCache {
+    final List<Closeable> released = []
+
+    @Override
+    synchronized void release(Closeable value) {
+        released << value
+        super.release(value)
+    }
 }
 
 class TestAntTask extends Task {
@@ -25,6 +25,7 @@ import org.gradle.cache.internal.CacheFactory;
 import org.gradle.cache.internal.DefaultCacheFactory;
 import org.gradle.cache.internal.DefaultFileLockManager;
 import org.gradle.cache.internal.FileLockManager;
+import org.gradle.groovy.scripts.internal.ScriptSourceHasher;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.cli.CommandLineConverter;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
@@ -43,6 +44,7 @@ import org.junit.Test;
 
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 public class GlobalServicesRegistryTest {
@@ -74,6 +76,12 @@ public class GlobalServicesRegistryTest {
         assertThat(registry.get(ClassPathRegistry.class), instanceOf(DefaultClassPathRegistry.class));
     }
 
+    @Test
+    public void providesAnIsolatedClassLoaderCache() {
+        assertThat(registry.get(IsolatedClassLoaderCache.class), instanceOf(IsolatedClassLoaderCache.class));
+        assertThat(registry.get(IsolatedClassLoaderCache.class), sameInstance(registry.get(IsolatedClassLoaderCache.class)));
+    }
+
     @Test
     public void providesAClassLoaderRegistry() {
         assertThat(registry.get(ClassLoaderRegistry.class), instanceOf(DefaultClassLoaderRegistry.class));
@@ -124,6 +132,11 @@ public class GlobalServicesRegistryTest {
         assertThat(registry.get(FileLockManager.class), instanceOf(DefaultFileLockManager.class));
     }
 
+    @Test
+    public void providesAScriptSourceHasher() {
+        assertThat(registry.get(ScriptSourceHasher.class), instanceOf(ScriptSourceHasher.class));
+    }
+
     @Test
     public void providesAProcessEnvironment() {
         assertThat(registry.get(ProcessEnvironment.class), notNullValue());
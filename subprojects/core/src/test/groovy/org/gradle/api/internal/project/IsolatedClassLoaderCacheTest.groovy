@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.project
+
+import org.gradle.internal.Factory
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class IsolatedClassLoaderCacheTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final IsolatedClassLoaderCache cache = new IsolatedClassLoaderCache(2)
+    final Factory<TestValue> factory = { new TestValue() } as Factory
+
+    def "reuses value for same classpath"() {
+        def classpath = [[jar('a.jar', 'a')]]
+
+        when:
+        def value1 = cache.acquire(classpath, factory)
+        cache.release(value1)
+        def value2 = cache.acquire(classpath, factory)
+
+        then:
+        value2.is(value1)
+        !value1.closed
+    }
+
+    def "creates new value when content of classpath changes"() {
+        def jar = jar('a.jar', 'a')
+        def classpath = [[jar]]
+
+        when:
+        def value1 = cache.acquire(classpath, factory)
+        cache.release(value1)
+        jar.text = 'changed'
+        def value2 = cache.acquire(classpath, factory)
+
+        then:
+        !value2.is(value1)
+    }
+
+    def "distinguishes classpaths with same files in different groups"() {
+        def a = jar('a.jar', 'a')
+        def b = jar('b.jar', 'b')
+
+        expect:
+        !cache.acquire([[a], [b]], factory).is(cache.acquire([[a, b]], factory))
+    }
+
+    def "closes least recently used value when full"() {
+        def a = [[jar('a.jar', 'a')]]
+        def b = [[jar('b.jar', 'b')]]
+        def c = [[jar('c.jar', 'c')]]
+
+        when:
+        def valueA = cache.acquire(a, factory)
+        cache.release(valueA)
+        def valueB = cache.acquire(b, factory)
+        cache.release(valueB)
+        cache.release(cache.acquire(a, factory))
+        cache.release(cache.acquire(c, factory))
+
+        then:
+        !valueA.closed
+        valueB.closed
+    }
+
+    def "closes evicted value once it is released"() {
+        def a = [[jar('a.jar', 'a')]]
+
+        when:
+        def value = cache.acquire(a, factory)
+        cache.release(cache.acquire([[jar('b.jar', 'b')]], factory))
+        cache.release(cache.acquire([[jar('c.jar', 'c')]], factory))
+
+        then:
+        !value.closed
+
+        when:
+        cache.release(value)
+
+        then:
+        value.closed
+    }
+
+    def "closes all values on close"() {
+        def value = cache.acquire([[jar('a.jar', 'a')]], factory)
+        cache.release(value)
+
+        when:
+        cache.close()
+
+        then:
+        value.closed
+    }
+
+    def "creates value again when factory fails"() {
+        def classpath = [[jar('a.jar', 'a')]]
+        def failure = new RuntimeException("broken")
+
+        when:
+        cache.acquire(classpath, { throw failure } as Factory)
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure)
+
+        when:
+        def value = cache.acquire(classpath, factory)
+        cache.release(value)
+
+        then:
+        !value.closed
+    }
+
+    def "does not hold lock of cache while creating value"() {
+        def creating = new CountDownLatch(1)
+        def finish = new CountDownLatch(1)
+        def slowFactory = {
+            creating.countDown()
+            finish.await()
+            new TestValue()
+        } as Factory
+        def a = [[jar('a.jar', 'a')]]
+        def b = [[jar('b.jar', 'b')]]
+        TestValue slowValue = null
+        def thread = new Thread({ slowValue = cache.acquire(a, slowFactory) } as Runnable)
+
+        when:
+        thread.start()
+        assert creating.await(20, TimeUnit.SECONDS)
+        def value = cache.acquire(b, factory)
+        cache.release(value)
+        finish.countDown()
+        thread.join(20000)
+
+        then:
+        slowValue != null
+        cache.acquire(a, factory).is(slowValue)
+    }
+
+    def "cannot release value which is not in use"() {
+        def value = cache.acquire([[jar('a.jar', 'a')]], factory)
+        cache.release(value)
+
+        when:
+        cache.release(value)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def jar(String name, String content) {
+        TestFile file = tmpDir.file(name)
+        file.text = content
+        return file
+    }
+
+    static class TestValue implements Closeable {
+        boolean closed
+
+        void close() {
+            closed = true
+        }
+    }
+}
@@ -25,6 +25,8 @@ import org.gradle.api.invocation.Gradle
 import org.gradle.cache.DirectoryCacheBuilder
 import org.gradle.cache.PersistentCache
 import org.gradle.internal.service.ServiceRegistry
+import org.gradle.api.internal.changedetection.CacheLockingFileSnapshotter
+import org.gradle.api.internal.changedetection.FileSnapshotter
 
 class TaskExecutionServicesTest extends Specification {
     final ServiceRegistry parent = Mock()
@@ -51,4 +53,14 @@ class TaskExecutionServicesTest extends Specification {
         services.get(TaskExecuter) instanceof ExecuteAtMostOnceTaskExecuter
         services.get(TaskExecuter).is(services.get(TaskExecuter))
     }
+
+    def "makes a FileSnapshotter available for task actions"() {
+        given:
+        CacheRepository cacheRepository = Mock()
+        _ * parent.get(CacheRepository) >> cacheRepository
+
+        expect:
+        services.get(FileSnapshotter) instanceof CacheLockingFileSnapshotter
+        services.get(FileSnapshotter).is(services.get(FileSnapshotter))
+    }
 }
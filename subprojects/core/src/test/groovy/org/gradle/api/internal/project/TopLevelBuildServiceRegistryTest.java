@@ -24,12 +24,14 @@ import org.gradle.api.internal.classpath.PluginModuleRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheFactory;
 import org.gradle.cache.internal.DefaultCacheRepository;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.configuration.BuildConfigurer;
-import org.gradle.configuration.DefaultBuildConfigurer;
 import org.gradle.configuration.DefaultScriptPluginFactory;
+import org.gradle.configuration.ConfigureOnDemandBuildConfigurer;
 import org.gradle.configuration.ScriptPluginFactory;
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory;
 import org.gradle.groovy.scripts.ScriptCompilerFactory;
+import org.gradle.groovy.scripts.internal.ScriptSourceHasher;
 import org.gradle.initialization.*;
 import org.gradle.internal.Factory;
 import org.gradle.internal.service.ServiceRegistry;
@@ -85,6 +87,10 @@ public class TopLevelBuildServiceRegistryTest {
             will(returnValue(new DefaultModuleRegistry()));
             allowing(parent).get(PluginModuleRegistry.class);
             will(returnValue(context.mock(PluginModuleRegistry.class)));
+            allowing(parent).get(ScriptSourceHasher.class);
+            will(returnValue(new ScriptSourceHasher()));
+            allowing(parent).get(FileLockManager.class);
+            will(returnValue(context.mock(FileLockManager.class)));
         }});
     }
     
@@ -190,6 +196,7 @@ public class TopLevelBuildServiceRegistryTest {
     @Test
     public void providesAnIsolatedAntBuilder() {
         expectParentServiceLocated(ClassLoaderFactory.class);
+        expectParentServiceLocated(IsolatedClassLoaderCache.class);
         allowGetCoreImplClassLoader();
 
         assertThat(registry.get(IsolatedAntBuilder.class), instanceOf(DefaultIsolatedAntBuilder.class));
@@ -213,7 +220,7 @@ public class TopLevelBuildServiceRegistryTest {
 
     @Test
     public void providesABuildConfigurer() {
-        assertThat(registry.get(BuildConfigurer.class), instanceOf(DefaultBuildConfigurer.class));
+        assertThat(registry.get(BuildConfigurer.class), instanceOf(ConfigureOnDemandBuildConfigurer.class));
         assertThat(registry.get(BuildConfigurer.class), sameInstance(registry.get(BuildConfigurer.class)));
     }
 
@@ -236,4 +236,26 @@ class PatternSetTest extends AbstractTestForPatternSet {
         assertTrue(spec.isSatisfiedBy(element(false, '.svn')))
         assertFalse(spec.isSatisfiedBy(element(true, 'abc')))
     }
+
+    @Test public void reusesSpecUntilPatternSetChanges() {
+        patternSet.include '*a*'
+        Spec<FileTreeElement> spec = patternSet.asSpec
+
+        assertThat(patternSet.asSpec, sameInstance(spec))
+
+        patternSet.exclude '*b*'
+        Spec<FileTreeElement> changed = patternSet.asSpec
+
+        assertThat(changed, not(sameInstance(spec)))
+        assertFalse(changed.isSatisfiedBy(element(true, 'ab')))
+        assertThat(patternSet.asSpec, sameInstance(changed))
+
+        patternSet.caseSensitive = false
+
+        assertTrue(patternSet.asSpec.isSatisfiedBy(element(true, 'A')))
+
+        patternSet.includes.clear()
+
+        assertTrue(patternSet.asSpec.isSatisfiedBy(element(true, 'c')))
+    }
 }
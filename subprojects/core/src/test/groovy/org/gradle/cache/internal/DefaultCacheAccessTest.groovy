@@ -124,7 +124,7 @@ class DefaultCacheAccessTest extends Specification {
         0 * _._
     }
 
-    def "acquires lock when a cache is used and releases lock at the end of the cache action when initial lock mode is none"() {
+    def "acquires lock when a cache is used and retains lock at the end of the cache action when initial lock mode is none"() {
         Factory<String> action = Mock()
 
         given:
@@ -138,12 +138,11 @@ class DefaultCacheAccessTest extends Specification {
         1 * action.create() >> {
             cache.get("key")
         }
-        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> lock
         _ * lock.readFromFile(_)
 
         and:
         _ * lock.writeToFile(_)
-        1 * lock.close()
         0 * _._
     }
 
@@ -169,7 +168,7 @@ class DefaultCacheAccessTest extends Specification {
         0 * _._
     }
 
-    def "releases lock before long running operation and reacquires after"() {
+    def "retains lock across long running operation"() {
         Factory<String> action = Mock()
         Factory<String> longRunningAction = Mock()
 
@@ -187,10 +186,155 @@ class DefaultCacheAccessTest extends Specification {
             cache.get("key")
         }
         1 * longRunningAction.create()
-        2 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> lock
+        _ * lock.readFromFile(_)
+        _ * lock.writeToFile(_)
+        0 * _._
+    }
+
+    def "releases lock at the end of the cache action when requested by another process during the cache action"() {
+        Factory<String> action = Mock()
+        Runnable whenContended
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> {
+            cache.get("key")
+            whenContended.run()
+        }
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> { args -> whenContended = args[4]; return lock }
+        _ * lock.readFromFile(_)
+
+        and:
+        _ * lock.writeToFile(_)
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "releases lock at the end of the cache action when lock manager cannot receive requests from other processes"() {
+        Factory<String> action = Mock()
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> { cache.get("key") }
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> { args -> args[4].run(); return lock }
+        _ * lock.readFromFile(_)
+
+        and:
+        _ * lock.writeToFile(_)
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "does not hold lock of cache while waiting for the file lock"() {
+        Factory<String> action = Mock()
+        Runnable whenContended
+        boolean handled
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> { cache.get("key") }
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> { args ->
+            whenContended = args[4]
+            def thread = Thread.start { whenContended.run(); handled = true }
+            thread.join(10000)
+            return lock
+        }
         _ * lock.readFromFile(_)
+
+        and:
+        handled
         _ * lock.writeToFile(_)
-        2 * lock.close()
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "releases lock immediately when requested by another process between cache actions"() {
+        Runnable whenContended
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+        _ * lock.readFromFile(_)
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> { args -> whenContended = args[4]; return lock }
+        manager.useCache("some operation", { cache.get("key") } as Factory)
+
+        when:
+        whenContended.run()
+
+        then:
+        1 * lock.close()
+        0 * _._
+
+        when:
+        manager.useCache("other operation", { cache.get("key") } as Factory)
+
+        then:
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "other operation", _) >> lock
+        _ * lock.readFromFile(_)
+        _ * lock.writeToFile(_)
+        0 * _._
+    }
+
+    def "releases lock before long running operation when requested by another process"() {
+        Factory<String> action = Mock()
+        Factory<String> longRunningAction = Mock()
+        Runnable whenContended
+
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+
+        when:
+        manager.useCache("some operation", action)
+
+        then:
+        1 * action.create() >> {
+            cache.get("key")
+            manager.longRunningOperation("nested", longRunningAction)
+            cache.get("key")
+        }
+        1 * longRunningAction.create() >> {
+            whenContended.run()
+        }
+        2 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> { args -> whenContended = args[4]; return lock }
+        _ * lock.readFromFile(_)
+        _ * lock.writeToFile(_)
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "releases retained lock on close"() {
+        given:
+        manager.open(None)
+        def cache = manager.newCache(targetFile, String, Integer)
+        _ * lock.readFromFile(_)
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> lock
+        manager.useCache("some operation", { cache.get("key") } as Factory)
+
+        when:
+        manager.close()
+
+        then:
+        1 * lock.close()
         0 * _._
     }
 
@@ -254,11 +398,9 @@ class DefaultCacheAccessTest extends Specification {
         1 * nestedAction.create() >> {
             cache.get("key")
         }
-        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
-        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "nested 2") >> lock
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> lock
         _ * lock.readFromFile(_)
         _ * lock.writeToFile(_)
-        2 * lock.close()
         0 * _._
     }
 
@@ -283,10 +425,9 @@ class DefaultCacheAccessTest extends Specification {
             manager.longRunningOperation("nested 2", nestedAction)
         }
         1 * nestedAction.create()
-        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> lock
         _ * lock.readFromFile(_)
         _ * lock.writeToFile(_)
-        1 * lock.close()
         0 * _._
     }
 
@@ -309,10 +450,9 @@ class DefaultCacheAccessTest extends Specification {
         1 * nestedAction.create() >> {
             cache.get("key")
         }
-        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> lock
         _ * lock.readFromFile(_)
         _ * lock.writeToFile(_)
-        1 * lock.close()
         0 * _._
     }
 
@@ -330,13 +470,12 @@ class DefaultCacheAccessTest extends Specification {
         1 * action.create() >> {
             cache.get("key")
         }
-        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation") >> lock
+        1 * lockManager.lock(lockFile, Exclusive, "<display-name>", "some operation", _) >> lock
         _ * lock.readFromFile(_)
 
         and:
         _ * lock.writeToFile(_) >> {Runnable runnable -> runnable.run()}
         1 * backingCache.close()
-        1 * lock.close()
         0 * _._
     }
 
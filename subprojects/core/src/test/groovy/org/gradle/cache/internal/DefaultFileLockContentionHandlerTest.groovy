@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class DefaultFileLockContentionHandlerTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final DefaultFileLockContentionHandler handler = new DefaultFileLockContentionHandler()
+
+    def cleanup() {
+        handler.stop()
+    }
+
+    def "runs action when lock is requested"() {
+        def lockFile = tmpDir.file("some.lock")
+        def requested = new CountDownLatch(1)
+
+        when:
+        def port = handler.start(lockFile, { requested.countDown() } as Runnable)
+        handler.pingOwner(port, lockFile)
+
+        then:
+        requested.await(20, TimeUnit.SECONDS)
+    }
+
+    def "ignores request for lock which is not held"() {
+        def lockFile = tmpDir.file("some.lock")
+        def otherFile = tmpDir.file("other.lock")
+        def requested = new CountDownLatch(1)
+
+        when:
+        def port = handler.start(lockFile, { requested.countDown() } as Runnable)
+        handler.start(otherFile, {} as Runnable)
+        handler.stop(lockFile)
+        handler.pingOwner(port, lockFile)
+        handler.pingOwner(port, otherFile)
+
+        then:
+        !requested.await(500, TimeUnit.MILLISECONDS)
+    }
+
+    def "uses the same port for all locks"() {
+        expect:
+        handler.start(tmpDir.file("a.lock"), {} as Runnable) == handler.start(tmpDir.file("b.lock"), {} as Runnable)
+    }
+
+    def "cannot start listening once stopped"() {
+        given:
+        handler.stop()
+
+        when:
+        handler.start(tmpDir.file("a.lock"), {} as Runnable)
+
+        then:
+        thrown(IllegalStateException)
+    }
+}
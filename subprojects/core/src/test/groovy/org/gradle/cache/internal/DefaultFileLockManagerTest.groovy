@@ -16,6 +16,7 @@
 
 package org.gradle.cache.internal
 
+import org.gradle.api.UncheckedIOException
 import org.gradle.internal.Factory
 import org.gradle.cache.internal.FileLockManager.LockMode
 import org.gradle.util.TemporaryFolder
@@ -61,6 +62,19 @@ class DefaultFileLockManagerTest extends Specification {
         lock?.close()
     }
 
+    def "records lock acquisitions for each target"() {
+        def file = tmpDir.createFile("file.txt")
+
+        when:
+        manager.lock(file, LockMode.Exclusive, "lock").close()
+        manager.lock(file, LockMode.Shared, "lock").close()
+
+        then:
+        manager.getStatistics(file).acquisitions == 2
+        manager.getStatistics(file).contendedAcquisitions == 0
+        manager.getStatistics(tmpDir.file("other.txt")).acquisitions == 0
+    }
+
     def "can lock a file once it has been closed"() {
         given:
         def fileLock = lock(FileLockManager.LockMode.Exclusive);
@@ -265,6 +279,43 @@ class DefaultFileLockManagerTest extends Specification {
         lock?.close()
     }
 
+    @Requires(TestPrecondition.NO_FILE_LOCK_ON_OPEN)
+    def "writes port to lock file while exclusive lock which accepts requests is open"() {
+        def file = tmpDir.file("state.bin")
+        def lockFile = tmpDir.file("state.bin.lock")
+
+        when:
+        def lock = manager.lock(file, LockMode.Exclusive, "foo", "operation", {} as Runnable)
+
+        then:
+        isVersion2LockFile(lockFile, true)
+
+        cleanup:
+        lock?.close()
+        manager.stop()
+    }
+
+    def "treats lock as contended when cannot listen for requests"() {
+        DefaultFileLockContentionHandler contentionHandler = Mock()
+        Runnable whenContended = Mock()
+        def manager = new DefaultFileLockManager(metaDataProvider, contentionHandler)
+        def file = tmpDir.file("state.bin")
+        def lockFile = tmpDir.file("state.bin.lock")
+
+        when:
+        def lock = manager.lock(file, LockMode.Exclusive, "foo", "operation", whenContended)
+
+        then:
+        1 * contentionHandler.start(lockFile, whenContended) >> { throw new UncheckedIOException("broken") }
+        1 * whenContended.run()
+
+        and:
+        lock.isLockFile(lockFile)
+
+        cleanup:
+        lock?.close()
+    }
+
     def "can acquire lock on partially written lock file"() {
         def file = tmpDir.file("state.bin")
         def lockFile = tmpDir.file("state.bin.lock")
@@ -327,7 +378,7 @@ class DefaultFileLockManagerTest extends Specification {
         }
     }
 
-    private void isVersion2LockFile(TestFile lockFile) {
+    private void isVersion2LockFile(TestFile lockFile, boolean acceptsRequests = false) {
         assert lockFile.isFile()
         assert lockFile.length() > 3
         lockFile.withDataInputStream { str ->
@@ -336,6 +387,8 @@ class DefaultFileLockManagerTest extends Specification {
             assert str.readByte() == 2
             assert str.readUTF() == '123'
             assert str.readUTF() == 'operation'
+            def port = str.readInt()
+            assert acceptsRequests ? port > 0 : port == -1
             assert str.read() < 0
         }
     }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import spock.lang.Specification
+
+class ExponentialBackoffTest extends Specification {
+    final Random random = Mock()
+
+    def "delay doubles until it reaches the maximum"() {
+        def backoff = new ExponentialBackoff(100, 1000, random)
+        _ * random.nextDouble() >> 1.0d
+
+        expect:
+        backoff.nextDelayNanos() == 100
+        backoff.nextDelayNanos() == 200
+        backoff.nextDelayNanos() == 400
+        backoff.nextDelayNanos() == 800
+        backoff.nextDelayNanos() == 1000
+        backoff.nextDelayNanos() == 1000
+    }
+
+    def "delay is randomised between half and all of the nominal delay"() {
+        def backoff = new ExponentialBackoff(100, 1000, random)
+        _ * random.nextDouble() >>> [0.0d, 0.5d]
+
+        expect:
+        backoff.nextDelayNanos() == 50
+        backoff.nextDelayNanos() == 150
+    }
+}
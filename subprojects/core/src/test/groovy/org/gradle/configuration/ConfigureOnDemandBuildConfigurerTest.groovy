@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration
+
+import org.gradle.StartParameter
+import org.gradle.api.DomainObjectSet
+import org.gradle.api.ProjectState
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.ConfigurationContainer
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.artifacts.ProjectDependency
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.resource.Resource
+import org.gradle.groovy.scripts.ScriptSource
+import spock.lang.Specification
+
+class ConfigureOnDemandBuildConfigurerTest extends Specification {
+    final BuildConfigurer target = Mock()
+    final DefaultBuildConfigurer projectConfigurer = Mock()
+    final GradleInternal gradle = Mock()
+    final StartParameter startParameter = new StartParameter()
+    final ConfigureOnDemandBuildConfigurer configurer = new ConfigureOnDemandBuildConfigurer(target, projectConfigurer)
+    ProjectInternal root
+    ProjectInternal a
+    ProjectInternal b
+    ProjectInternal c
+    final Map<String, String> scripts = [:]
+    final Map<String, List<Configuration>> configurations = [:]
+
+    def setup() {
+        root = project(null, ':')
+        a = project(root, ':a')
+        b = project(root, ':b')
+        c = project(root, ':c')
+        _ * gradle.startParameter >> startParameter
+        _ * gradle.rootProject >> root
+        _ * gradle.defaultProject >> root
+        _ * root.allprojects >> ([root, a, b, c] as LinkedHashSet)
+        startParameter.configureOnDemand = true
+    }
+
+    def "configures all projects when not configuring on demand"() {
+        startParameter.configureOnDemand = false
+        startParameter.taskNames = [':a:build']
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * target.configure(gradle)
+        0 * projectConfigurer._
+    }
+
+    def "configures project containing requested task and its ancestors"() {
+        startParameter.taskNames = [':a:build']
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * projectConfigurer.configure(root)
+
+        then:
+        1 * projectConfigurer.configure(a)
+        0 * projectConfigurer._
+        0 * target._
+    }
+
+    def "configures projects which the target project depends on"() {
+        startParameter.taskNames = [':a:build']
+        dependsOn(a, b)
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * projectConfigurer.configure(root)
+        1 * projectConfigurer.configure(a)
+        1 * projectConfigurer.configure(b)
+        0 * projectConfigurer._
+        0 * target._
+    }
+
+    def "configures all projects when no tasks are requested"() {
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * target.configure(gradle)
+        0 * projectConfigurer._
+    }
+
+    def "configures all projects when an unrequired project may configure other projects"() {
+        startParameter.taskNames = [':a:build']
+        scripts[':c'] = 'rootProject.version = 2'
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * target.configure(gradle)
+        0 * projectConfigurer._
+    }
+
+    def "configures all projects when a project refers to a task of another project"() {
+        startParameter.taskNames = [':a:build']
+        scripts[':a'] = "build.dependsOn ':c:build'\ndependencies { compile project(':b:d') }"
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * target.configure(gradle)
+        0 * projectConfigurer._
+    }
+
+    def project(ProjectInternal parent, String path) {
+        ProjectInternal project = Mock()
+        ScriptSource source = Mock()
+        Resource resource = Mock()
+        ProjectState state = Mock()
+        ConfigurationContainer configurationContainer = Mock()
+        _ * project.parent >> parent
+        _ * project.path >> path
+        _ * project.state >> state
+        _ * project.dependsOnProjects >> ([] as Set)
+        _ * project.configurations >> configurationContainer
+        _ * configurationContainer.iterator() >> { (configurations[path] ?: []).iterator() }
+        _ * project.buildScriptSource >> source
+        _ * project.findProject(_) >> { args -> root.allprojects.find { it.path == args[0] } }
+        _ * source.resource >> resource
+        _ * resource.exists >> true
+        _ * resource.text >> { scripts[path] ?: 'build script' }
+        return project
+    }
+
+    def dependsOn(ProjectInternal project, ProjectInternal dependencyProject) {
+        Configuration configuration = Mock()
+        DependencySet dependencies = Mock()
+        DomainObjectSet<ProjectDependency> projectDependencies = Mock()
+        ProjectDependency dependency = Mock()
+        configurations[project.path] = [configuration]
+        _ * configuration.dependencies >> dependencies
+        _ * dependencies.withType(ProjectDependency) >> projectDependencies
+        _ * projectDependencies.iterator() >> { [dependency].iterator() }
+        _ * dependency.dependencyProject >> dependencyProject
+    }
+}
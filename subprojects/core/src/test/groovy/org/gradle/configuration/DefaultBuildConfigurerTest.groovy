@@ -37,4 +37,13 @@ class DefaultBuildConfigurerTest extends Specification {
         }
         1 * action.execute(rootProject)
     }
+
+    def executesActionsForSingleProject() {
+        when:
+        configurer.configure(rootProject)
+
+        then:
+        1 * action.execute(rootProject)
+        0 * gradle._
+    }
 }
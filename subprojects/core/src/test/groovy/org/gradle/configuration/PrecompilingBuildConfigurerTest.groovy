@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration
+
+import org.gradle.StartParameter
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.artifacts.dsl.BuildScriptClasspathScriptTransformer
+import org.gradle.api.internal.artifacts.dsl.BuildScriptTransformer
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectScript
+import org.gradle.api.internal.resource.Resource
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import org.gradle.util.MultiParentClassLoader
+import spock.lang.Specification
+
+class PrecompilingBuildConfigurerTest extends Specification {
+    final BuildConfigurer target = Mock()
+    final FileCacheBackedScriptClassCompiler compiler = Mock()
+    final ImportsReader importsReader = Mock()
+    final GradleInternal gradle = Mock()
+    final StartParameter startParameter = new StartParameter()
+    final MultiParentClassLoader classLoader = new MultiParentClassLoader()
+    final PrecompilingBuildConfigurer configurer = new PrecompilingBuildConfigurer(target, compiler, importsReader, new DefaultExecutorFactory())
+
+    def setup() {
+        startParameter.precompileBuildScripts = true
+        _ * gradle.startParameter >> startParameter
+        _ * gradle.scriptClassLoader >> classLoader
+        _ * importsReader.withImports(_) >> { args -> args[0] }
+    }
+
+    def "precompiles build scripts before configuring projects"() {
+        def root = project(null)
+        def child1 = project(root)
+        def child2 = project(root)
+        _ * gradle.rootProject >> root
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * compiler.precompile(root.buildScriptSource, classLoader, { it instanceof BuildScriptClasspathScriptTransformer }, ProjectScript) >> true
+        1 * compiler.precompile(root.buildScriptSource, classLoader, { it instanceof BuildScriptTransformer }, ProjectScript)
+        1 * compiler.precompile(child1.buildScriptSource, classLoader, { it instanceof BuildScriptClasspathScriptTransformer }, ProjectScript) >> true
+        1 * compiler.precompile(child1.buildScriptSource, classLoader, { it instanceof BuildScriptTransformer }, ProjectScript)
+        1 * compiler.precompile(child2.buildScriptSource, classLoader, { it instanceof BuildScriptClasspathScriptTransformer }, ProjectScript) >> true
+        1 * compiler.precompile(child2.buildScriptSource, classLoader, { it instanceof BuildScriptTransformer }, ProjectScript)
+
+        then:
+        1 * target.configure(gradle)
+    }
+
+    def "does not precompile when not requested"() {
+        startParameter.precompileBuildScripts = false
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        0 * compiler._
+        1 * target.configure(gradle)
+    }
+
+    def "does not precompile scripts of projects which use or inherit a buildscript classpath"() {
+        def root = project(null)
+        def child1 = project(root)
+        def grandChild = project(child1)
+        def child2 = project(root)
+        _ * gradle.rootProject >> root
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * compiler.precompile(root.buildScriptSource, _, { it instanceof BuildScriptClasspathScriptTransformer }, _) >> true
+        1 * compiler.precompile(root.buildScriptSource, _, { it instanceof BuildScriptTransformer }, _)
+        1 * compiler.precompile(child1.buildScriptSource, _, { it instanceof BuildScriptClasspathScriptTransformer }, _) >> false
+        1 * compiler.precompile(child2.buildScriptSource, _, { it instanceof BuildScriptClasspathScriptTransformer }, _) >> true
+        1 * compiler.precompile(child2.buildScriptSource, _, { it instanceof BuildScriptTransformer }, _)
+        0 * compiler._
+        1 * target.configure(gradle)
+    }
+
+    def "does not compile scripts which do not exist but does precompile the scripts of their children"() {
+        def root = project(null, false)
+        def child = project(root)
+        _ * gradle.rootProject >> root
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * compiler.precompile(child.buildScriptSource, _, { it instanceof BuildScriptClasspathScriptTransformer }, _) >> true
+        1 * compiler.precompile(child.buildScriptSource, _, { it instanceof BuildScriptTransformer }, _)
+        0 * compiler._
+        1 * target.configure(gradle)
+    }
+
+    def "ignores compilation failures"() {
+        def root = project(null)
+        def child = project(root)
+        _ * gradle.rootProject >> root
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        _ * compiler.precompile(_, _, _, _) >> { throw new RuntimeException("broken") }
+        1 * target.configure(gradle)
+    }
+
+    def project(ProjectInternal parent, boolean exists = true) {
+        ProjectInternal project = Mock()
+        ScriptSource source = Mock()
+        Resource resource = Mock()
+        Map<String, ProjectInternal> children = [:]
+        _ * project.parent >> parent
+        _ * project.childProjects >> children
+        _ * project.buildScriptSource >> source
+        _ * source.resource >> resource
+        _ * resource.exists >> exists
+        if (parent != null) {
+            parent.childProjects.put("child${parent.childProjects.size()}".toString(), project)
+        }
+        return project
+    }
+}
@@ -15,71 +15,177 @@
  */
 package org.gradle.groovy.scripts.internal
 
-import spock.lang.Specification
-import org.gradle.cache.CacheRepository
 import org.gradle.api.internal.resource.Resource
+import org.gradle.cache.CacheRepository
 import org.gradle.cache.DirectoryCacheBuilder
 import org.gradle.cache.PersistentCache
+import org.gradle.cache.internal.FileLock
+import org.gradle.cache.internal.FileLockManager
+import org.gradle.groovy.scripts.Script
 import org.gradle.groovy.scripts.ScriptSource
 import org.gradle.groovy.scripts.Transformer
-import org.gradle.groovy.scripts.Script
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
 
 class FileCacheBackedScriptClassCompilerTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
     final ScriptCompilationHandler scriptCompilationHandler = Mock()
     final CacheRepository cacheRepository = Mock()
     final DirectoryCacheBuilder cacheBuilder = Mock()
     final PersistentCache cache = Mock()
     final ScriptSource source = Mock()
+    final Resource resource = Mock()
     final ClassLoader classLoader = Mock()
     final Transformer transformer = Mock()
-    final File cacheDir = new File("base-dir")
-    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, scriptCompilationHandler)
+    final ScriptSourceHasher sourceHasher = Mock()
+    final FileLockManager lockManager = Mock()
+    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, scriptCompilationHandler, sourceHasher, lockManager)
+    File cacheDir
+    File classesDir
 
     def setup() {
-        Resource resource = Mock()
+        cacheDir = tmpDir.createDir("base-dir")
+        classesDir = new File(cacheDir, "ScriptClassName/Script/TransformerId/hash")
         _ * source.resource >> resource
         _ * resource.text >> 'this is the script'
         _ * source.className >> 'ScriptClassName'
         _ * source.fileName >> 'ScriptFileName'
         _ * transformer.id >> 'TransformerId'
+        _ * sourceHasher.getSourceHash(source) >> 'hash'
         _ * cache.baseDir >> cacheDir
     }
 
     def "loads classes from cache directory"() {
+        classesDir.mkdirs()
+
         when:
         def result = compiler.compile(source, classLoader, transformer, Script)
 
         then:
         result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> { args ->
-            assert args[0].get('source.filename') == 'ScriptFileName'
-            assert args[0].containsKey('source.hash')
-            return cacheBuilder
-        }
-        1 * cacheBuilder.withInitializer(!null) >> cacheBuilder
+        1 * cacheRepository.cache("scripts") >> cacheBuilder
         1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
         1 * cacheBuilder.open() >> cache
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+        1 * scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, Script) >> Script
         0 * scriptCompilationHandler._
     }
 
-    def "compiles classes to cache directory when cache is invalid"() {
-        def initializer
-
+    def "compiles classes to cache directory when not already compiled"() {
         when:
         def result = compiler.compile(source, classLoader, transformer, Script)
 
         then:
         result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> cacheBuilder
+        1 * cacheRepository.cache("scripts") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        1 * cacheBuilder.open() >> cache
+        1 * scriptCompilationHandler.compileToDir(source, classLoader, { it.parentFile == classesDir.parentFile }, transformer, Script) >> { args -> args[2].mkdirs() }
+        1 * scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, Script) >> Script
+        0 * scriptCompilationHandler._
+        0 * lockManager._
+
+        and:
+        classesDir.directory
+        classesDir.parentFile.list() as List == ['hash']
+    }
+
+    def "precompiles classes to cache directory when not already compiled"() {
+        when:
+        def empty = compiler.precompile(source, classLoader, transformer, Script)
+
+        then:
+        !empty
+        1 * cacheRepository.cache("scripts") >> cacheBuilder
         1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
-        1 * cacheBuilder.withInitializer(!null) >> {args -> initializer = args[0]; return cacheBuilder}
-        1 * cacheBuilder.open() >> {initializer.execute(cache); return cache}
-        1 * scriptCompilationHandler.compileToDir(source, classLoader, new File(cacheDir, "classes"), transformer, Script)
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+        1 * cacheBuilder.open() >> cache
+        1 * scriptCompilationHandler.compileToDir(source, classLoader, { it.parentFile == classesDir.parentFile }, transformer, Script) >> { args -> args[2].mkdirs() }
+        1 * scriptCompilationHandler.isEmptyScript(classesDir) >> false
         0 * scriptCompilationHandler._
+
+        and:
+        classesDir.directory
     }
 
+    def "precompile does not read or compile a script which is already compiled"() {
+        classesDir.mkdirs()
+
+        when:
+        def empty = compiler.precompile(source, classLoader, transformer, Script)
+
+        then:
+        empty
+        1 * cacheRepository.cache("scripts") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        1 * cacheBuilder.open() >> cache
+        1 * scriptCompilationHandler.isEmptyScript(classesDir) >> true
+        0 * scriptCompilationHandler._
+        0 * resource.text
+    }
+
+    def "precompile does not compile a script which contains only whitespace"() {
+        when:
+        def empty = compiler.precompile(source, classLoader, transformer, Script)
+
+        then:
+        empty
+        1 * cacheRepository.cache("scripts") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        1 * cacheBuilder.open() >> cache
+        _ * resource.text >> '  '
+        0 * scriptCompilationHandler._
+
+        and:
+        !classesDir.exists()
+    }
+
+    def "opens the cache once only"() {
+        classesDir.mkdirs()
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script)
+        compiler.compile(source, classLoader, transformer, Script)
+
+        then:
+        1 * cacheRepository.cache("scripts") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        1 * cacheBuilder.open() >> cache
+        2 * scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, Script) >> Script
+    }
+
+    def "removes least recently used versions of a script while holding the lock for the script when a new version is compiled"() {
+        FileLock lock = Mock()
+        def scriptDir = classesDir.parentFile
+        def oldVersions = (1..FileCacheBackedScriptClassCompiler.MAX_VERSIONS_PER_SCRIPT).collect { index ->
+            def dir = new File(scriptDir, "old-hash-$index")
+            dir.mkdirs()
+            dir.setLastModified(System.currentTimeMillis() - 100000 * index)
+            dir
+        }
+        def inProgress = new File(scriptDir, "hash-1234.tmp")
+        inProgress.mkdirs()
+        inProgress.setLastModified(0)
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script)
+
+        then:
+        1 * cacheRepository.cache("scripts") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        1 * cacheBuilder.open() >> cache
+        1 * scriptCompilationHandler.compileToDir(source, classLoader, !null, transformer, Script) >> { args -> args[2].mkdirs() }
+        1 * lockManager.lock(scriptDir, FileLockManager.LockMode.Exclusive, !null, !null) >> lock
+
+        then:
+        1 * lock.close()
+
+        then:
+        1 * scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, Script) >> Script
+
+        and:
+        classesDir.directory
+        inProgress.directory
+        oldVersions[0..-2].every { it.directory }
+        !oldVersions[-1].exists()
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.groovy.scripts.internal
+
+import org.gradle.api.internal.resource.Resource
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.gradle.util.hash.HashUtil
+import org.junit.Rule
+import spock.lang.Specification
+
+class ScriptSourceHasherTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final ScriptSource source = Mock()
+    final Resource resource = Mock()
+    final ScriptSourceHasher hasher = new ScriptSourceHasher()
+
+    def setup() {
+        _ * source.resource >> resource
+    }
+
+    def "hashes text of script without a file"() {
+        _ * resource.text >> 'script'
+
+        expect:
+        hasher.getSourceHash(source) == HashUtil.createCompactMD5('script')
+    }
+
+    def "reuses hash of script file while file is unchanged"() {
+        TestFile file = tmpDir.createFile('build.gradle')
+        file.text = 'script'
+        file.setLastModified(System.currentTimeMillis() - 10000)
+        _ * resource.file >> file
+
+        when:
+        def hash = hasher.getSourceHash(source)
+        def hash2 = hasher.getSourceHash(source)
+
+        then:
+        hash == HashUtil.createCompactMD5('script')
+        hash2 == hash
+        1 * resource.text >> 'script'
+    }
+
+    def "rehashes script file which was modified too recently to detect a further change"() {
+        TestFile file = tmpDir.createFile('build.gradle')
+        file.text = 'script'
+        _ * resource.file >> file
+
+        when:
+        def hash = hasher.getSourceHash(source)
+        def hash2 = hasher.getSourceHash(source)
+
+        then:
+        hash == HashUtil.createCompactMD5('script')
+        hash2 == hash
+        2 * resource.text >> 'script'
+    }
+
+    def "rehashes script file when file changes"() {
+        TestFile file = tmpDir.createFile('build.gradle')
+        file.text = 'script'
+        file.setLastModified(System.currentTimeMillis() - 10000)
+        _ * resource.file >> file
+        hasher.getSourceHash(source)
+
+        when:
+        file.text = 'changed script'
+        def hash = hasher.getSourceHash(source)
+
+        then:
+        hash == HashUtil.createCompactMD5('changed script')
+        1 * resource.text >> 'changed script'
+    }
+}
@@ -75,6 +75,8 @@ public class DefaultCommandLineConverterTest {
     private final DefaultCommandLineConverter commandLineConverter = new DefaultCommandLineConverter();
     private boolean expectedContinue;
     private boolean expectedOffline;
+    private boolean expectedConfigureOnDemand;
+    private boolean expectedPrecompileBuildScripts;
     private RefreshOptions expectedRefreshOptions = RefreshOptions.NONE;
     
     @Test
@@ -105,6 +107,8 @@ public class DefaultCommandLineConverterTest {
         assertEquals(expectedProfile, startParameter.isProfile());
         assertEquals(expectedContinue, startParameter.isContinueOnFailure());
         assertEquals(expectedOffline, startParameter.isOffline());
+        assertEquals(expectedConfigureOnDemand, startParameter.isConfigureOnDemand());
+        assertEquals(expectedPrecompileBuildScripts, startParameter.isPrecompileBuildScripts());
         assertEquals(expectedRefreshOptions, startParameter.getRefreshOptions());
         assertEquals(expectedProjectCacheDir, startParameter.getProjectCacheDir());
     }
@@ -393,6 +397,18 @@ public class DefaultCommandLineConverterTest {
         checkConversion("--offline");
     }
 
+    @Test
+    public void withConfigureOnDemand() {
+        expectedConfigureOnDemand = true;
+        checkConversion("--configure-on-demand");
+    }
+
+    @Test
+    public void withPrecompileBuildScripts() {
+        expectedPrecompileBuildScripts = true;
+        checkConversion("--precompile-build-scripts");
+    }
+
     @Test
     public void withRefreshDependenciesSet() {
         expectedRefreshOptions = new RefreshOptions(asList(RefreshOptions.Option.DEPENDENCIES));
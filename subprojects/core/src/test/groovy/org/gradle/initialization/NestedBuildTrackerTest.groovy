@@ -69,6 +69,27 @@ class NestedBuildTrackerTest {
         tracker.buildFinished(new BuildResult(build, null))
         assertThat(tracker.currentBuild, nullValue())
     }
-}
 
+    @Test
+    public void tracksBuildsRunningOnDifferentThreadsSeparately() {
+        def build = context.mock(GradleInternal.class, 'build1')
+        def build2 = context.mock(GradleInternal.class, 'build2')
+        def otherThreadBuild = null
+
+        tracker.buildStarted(build)
+
+        def thread = new Thread({
+            tracker.buildStarted(build2)
+            otherThreadBuild = tracker.currentBuild
+            tracker.buildFinished(new BuildResult(build2, null))
+        } as Runnable)
+        thread.start()
+        thread.join()
 
+        assertThat(otherThreadBuild, sameInstance(build2))
+        assertThat(tracker.currentBuild, sameInstance(build))
+
+        tracker.buildFinished(new BuildResult(build, null))
+        assertThat(tracker.currentBuild, nullValue())
+    }
+}
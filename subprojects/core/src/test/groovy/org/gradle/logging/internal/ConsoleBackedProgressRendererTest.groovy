@@ -203,4 +203,29 @@ class ConsoleBackedProgressRendererTest extends OutputSpecification {
         1 * statusBar.setText('')
         0 * statusBar._
     }
+
+    def batchingRendererUpdatesStatusBarOncePerBatch() {
+        def renderer = new ConsoleBackedProgressRenderer(listener, console, true)
+
+        when:
+        renderer.onOutput(start(status: 'status'))
+        renderer.onOutput(progress('progress'))
+        renderer.onOutput(progress('progress2'))
+
+        then:
+        0 * statusBar._
+
+        when:
+        renderer.onOutput(new OutputBatchCompleteEvent())
+
+        then:
+        1 * statusBar.setText('> progress2')
+        0 * statusBar._
+
+        when:
+        renderer.onOutput(new OutputBatchCompleteEvent())
+
+        then:
+        0 * statusBar._
+    }
 }
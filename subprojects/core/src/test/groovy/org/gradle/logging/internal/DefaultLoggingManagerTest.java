@@ -21,6 +21,7 @@ import org.gradle.util.JUnit4GroovyMockery;
 import org.gradle.util.RedirectStdOutAndErr;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -41,6 +42,13 @@ public class DefaultLoggingManagerTest {
     private final LoggingOutputInternal loggingOutput = context.mock(LoggingOutputInternal.class);
     private final DefaultLoggingManager loggingManager = new DefaultLoggingManager(loggingSystem, stdOutLoggingSystem, stdErrLoggingSystem, loggingOutput);
 
+    @Before
+    public void setUp() {
+        context.checking(new Expectations() {{
+            allowing(loggingOutput).flush();
+        }});
+    }
+
     @Test
     public void defaultValues() {
         assertTrue(loggingManager.isStandardOutputCaptureEnabled());
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.logging.internal
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import org.gradle.api.logging.LogLevel
+
+class OutputEventQueueTest extends OutputSpecification {
+    final List<OutputEvent> received = new CopyOnWriteArrayList<OutputEvent>()
+    final CountDownLatch rendering = new CountDownLatch(1)
+    final CountDownLatch release = new CountDownLatch(1)
+    final OutputEventListener listener = { OutputEvent event ->
+        received << event
+        if (event.logLevel == LogLevel.WARN) {
+            rendering.countDown()
+            release.await()
+        }
+    } as OutputEventListener
+    OutputEventQueue queue
+
+    def cleanup() {
+        release.countDown()
+        queue?.stop()
+    }
+
+    def forwardsEventsInOrderFollowedByBatchCompleteEvent() {
+        queue = new OutputEventQueue(listener, new Object(), 10, false)
+        def event1 = event('1')
+        def event2 = event('2')
+
+        when:
+        queue.add(event1)
+        queue.add(event2)
+        queue.flush()
+
+        then:
+        received.findAll { !(it instanceof OutputBatchCompleteEvent) } == [event1, event2]
+        received.last() instanceof OutputBatchCompleteEvent
+    }
+
+    def dropsDebugEventsWhenFullAndConfiguredToDoSo() {
+        queue = new OutputEventQueue(listener, new Object(), 1, true)
+        def blocking = event('blocking', LogLevel.WARN)
+        def queued = event('queued', LogLevel.DEBUG)
+        def dropped = event('dropped', LogLevel.DEBUG)
+
+        when:
+        queue.add(blocking)
+        rendering.await()
+        queue.add(queued)
+        queue.add(dropped)
+        release.countDown()
+        queue.flush()
+
+        then:
+        def logEvents = received.findAll { it instanceof LogEvent }
+        logEvents.size() == 3
+        logEvents[0] == blocking
+        logEvents[1].message == 'Dropped 1 debug messages, as they were generated faster than they could be rendered.'
+        logEvents[2] == queued
+    }
+
+    def rendersQueuedEventsWhenStopped() {
+        queue = new OutputEventQueue(listener, new Object(), 10, false)
+        def event = event('1')
+
+        when:
+        queue.add(event)
+        queue.stop()
+
+        then:
+        received.contains(event)
+
+        cleanup:
+        queue = null
+    }
+
+    def reportsRenderingFailureToNextProducer() {
+        def failure = new RuntimeException('broken')
+        queue = new OutputEventQueue({ OutputEvent event -> if (event instanceof LogEvent) { throw failure } } as OutputEventListener, new Object(), 10, false)
+
+        when:
+        queue.add(event('1'))
+        queue.flush()
+        queue.add(event('2'))
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+    }
+}
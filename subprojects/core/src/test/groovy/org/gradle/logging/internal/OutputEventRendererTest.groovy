@@ -21,6 +21,8 @@ import org.gradle.util.RedirectStdOutAndErr
 import org.junit.Rule
 import org.gradle.api.specs.Spec
 
+import java.util.concurrent.CountDownLatch
+
 class OutputEventRendererTest extends OutputSpecification {
     @Rule public final RedirectStdOutAndErr outputs = new RedirectStdOutAndErr()
     private final ConsoleStub console = new ConsoleStub()
@@ -224,6 +226,78 @@ class OutputEventRendererTest extends OutputSpecification {
         then:
         console.value.readLines() == ['{error}error', '{normal}']
     }
+
+    def rendersLogEventsAsynchronously() {
+        def renderer = new OutputEventRenderer(Mock(Spec), true, false)
+        renderer.addStandardOutput(outputs.stdOutPrintStream)
+        renderer.addStandardError(outputs.stdErrPrintStream)
+        renderer.addConsole(console, true, true)
+
+        when:
+        renderer.onOutput(start(loggingHeader: 'description'))
+        renderer.onOutput(event('info', LogLevel.INFO))
+        renderer.onOutput(event('error', LogLevel.ERROR))
+        renderer.onOutput(complete('status'))
+        renderer.flush()
+
+        then:
+        outputs.stdOut.readLines() == ['description', 'info', 'description status']
+        outputs.stdErr.readLines() == ['error']
+        console.value.readLines() == ['description', 'info', '{error}error', '{normal}description {progressstatus}status{normal}']
+    }
+
+    def forwardsOutputEventsToListenerOnGeneratingThreadWhenAsynchronous() {
+        def renderer = new OutputEventRenderer(Mock(Spec), true, false)
+        OutputEventListener listener = Mock()
+        LogEvent event = event('message', LogLevel.INFO)
+        def thread = null
+
+        when:
+        renderer.addOutputEventListener(listener)
+        renderer.onOutput(event)
+
+        then:
+        1 * listener.onOutput(event) >> { thread = Thread.currentThread() }
+        thread == Thread.currentThread()
+    }
+
+    def doesNotHoldLockWhileNotifyingListeners() {
+        def blocked = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def listener = new TestListener()
+        renderer.addStandardOutputListener(listener)
+        renderer.addOutputEventListener({ event ->
+            if (event.message == 'slow') {
+                blocked.countDown()
+                release.await()
+            }
+        } as OutputEventListener)
+
+        when:
+        def thread = Thread.start { renderer.onOutput(event('slow', LogLevel.INFO)) }
+        blocked.await()
+        renderer.onOutput(event('other', LogLevel.INFO))
+        release.countDown()
+        thread.join()
+
+        then:
+        listener.value.readLines() == ['slow', 'other']
+    }
+
+    def rendersRemainingOutputBeforeRemovingStdOutListenerWhenAsynchronous() {
+        def renderer = new OutputEventRenderer(Mock(Spec), true, false)
+        def listener = new TestListener()
+
+        when:
+        renderer.addStandardOutputListener(listener)
+        renderer.onOutput(event('info', LogLevel.INFO))
+        renderer.removeStandardOutputListener(listener)
+        renderer.onOutput(event('ignored', LogLevel.INFO))
+        renderer.flush()
+
+        then:
+        listener.value.readLines() == ['info']
+    }
 }
 
 class TestListener implements StandardOutputListener {
@@ -45,6 +45,34 @@ public class AsyncDispatchTest extends MultithreadedTestCase {
         dispatch.stop()
     }
 
+    @Test
+    public void dispatchesQueuedMessagesToBatchingTargetAsABatch() {
+        BatchingDispatch<String> target = context.mock(BatchingDispatch.class)
+
+        context.checking {
+            one(target).dispatch('message1')
+            will {
+                syncAt(1)
+                syncAt(2)
+            }
+            one(target).dispatchBatched('message2')
+            one(target).dispatchBatched('message3')
+            one(target).dispatch('message4')
+        }
+
+        run {
+            dispatch.dispatchTo(target)
+            dispatch.dispatch('message1')
+            syncAt(1)
+            dispatch.dispatch('message2')
+            dispatch.dispatch('message3')
+            dispatch.dispatch('message4')
+            syncAt(2)
+        }
+
+        dispatch.stop()
+    }
+
     @Test
     public void dispatchDoesNotBlockWhileNoIdleTargetAvailable() {
         context.checking {
@@ -80,6 +108,31 @@ public class AsyncDispatchTest extends MultithreadedTestCase {
         dispatch.stop()
     }
 
+    @Test
+    public void dispatchBlocksWhileQueueIsFull() {
+        AsyncDispatch<String> dispatch = new AsyncDispatch<String>(executor, null, 1)
+
+        context.checking {
+            one(target1).dispatch('message1')
+            will {
+                syncAt(1)
+            }
+            one(target1).dispatch('message2')
+            one(target1).dispatch('message3')
+        }
+
+        run {
+            dispatch.dispatchTo(target1)
+            dispatch.dispatch('message1')
+            dispatch.dispatch('message2')
+            expectBlocksUntil(1) {
+                dispatch.dispatch('message3')
+            }
+        }
+
+        dispatch.stop()
+    }
+
     @Test
     public void canStopFromMultipleThreads() {
         dispatch.dispatchTo(target1)
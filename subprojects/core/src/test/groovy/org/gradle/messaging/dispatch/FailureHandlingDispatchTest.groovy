@@ -54,4 +54,34 @@ class FailureHandlingDispatchTest extends Specification {
         1 * target.dispatch("message") >> { throw failure }
         1 * handler.dispatchFailed("message", failure) >> { throw adaptedFailure }
     }
+
+    def "dispatches batched message to batching target"() {
+        BatchingDispatch<String> target = Mock()
+        def dispatch = new FailureHandlingDispatch<String>(target, handler)
+
+        when:
+        dispatch.dispatchBatched("message")
+
+        then:
+        1 * target.dispatchBatched("message")
+    }
+
+    def "dispatches batched message to non-batching target"() {
+        when:
+        dispatch.dispatchBatched("message")
+
+        then:
+        1 * target.dispatch("message")
+    }
+
+    def "notifies handler on failure to dispatch batched message"() {
+        def failure = new RuntimeException()
+
+        when:
+        dispatch.dispatchBatched("message")
+
+        then:
+        1 * target.dispatch("message") >> { throw failure }
+        1 * handler.dispatchFailed("message", failure)
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.messaging.dispatch
+
+import org.gradle.internal.UncheckedException
+import spock.lang.Specification
+
+class ReflectionDispatchTest extends Specification {
+    final TestListener target = Mock()
+    final ReflectionDispatch dispatch = new ReflectionDispatch(target)
+
+    def "invokes method on target"() {
+        when:
+        dispatch.dispatch(new MethodInvocation(TestListener.getMethod("event", String, int), ["value", 12] as Object[]))
+        dispatch.dispatch(new MethodInvocation(TestListener.getMethod("noArgs"), null))
+        dispatch.dispatch(new MethodInvocation(TestListener.getMethod("primitives", boolean, char, byte, short, long, float, double), [true, 'c' as char, 1 as byte, 2 as short, 3L, 4.0f, 5.0d] as Object[]))
+        dispatch.dispatch(new MethodInvocation(TestListener.getMethod("arrays", String[], int[]), [["a"] as String[], [1] as int[]] as Object[]))
+
+        then:
+        1 * target.event("value", 12)
+        1 * target.noArgs()
+        1 * target.primitives(true, 'c' as char, 1 as byte, 2 as short, 3L, 4.0f, 5.0d)
+        1 * target.arrays({ it == ["a"] as String[] }, { it == [1] as int[] })
+        0 * target._
+    }
+
+    def "generates and caches invoker for a method of a public type"() {
+        def invoker = AsmBackedMethodInvokerFactory.getInvoker(TestListener.getMethod("noArgs"))
+
+        expect:
+        invoker.getClass().name.startsWith(TestListener.name + "_Invoker")
+        AsmBackedMethodInvokerFactory.getInvoker(TestListener.getMethod("noArgs")).is(invoker)
+    }
+
+    def "reuses invoker class which has already been defined when cached invoker has been discarded"() {
+        def method = TestListener.getMethod("arrays", String[], int[])
+        def invoker = AsmBackedMethodInvokerFactory.getInvoker(method)
+
+        when:
+        AsmBackedMethodInvokerFactory.INVOKERS.clear()
+        def other = AsmBackedMethodInvokerFactory.getInvoker(method)
+
+        then:
+        !other.is(invoker)
+        other.getClass() == invoker.getClass()
+    }
+
+    def "concurrent lookups of an invoker return the same invoker"() {
+        def method = TestListener.getMethod("event", String, int)
+        def invokers = Collections.synchronizedList([])
+        def threads = (1..10).collect {
+            Thread.start {
+                invokers << AsmBackedMethodInvokerFactory.getInvoker(method)
+            }
+        }
+
+        when:
+        threads*.join()
+
+        then:
+        invokers.size() == 10
+        invokers.every { it.is(invokers[0]) }
+    }
+
+    def "uses a reflective invoker for a method of a JDK type"() {
+        Runnable runnable = Mock()
+
+        when:
+        new ReflectionDispatch(runnable).dispatch(new MethodInvocation(Runnable.getMethod("run"), null))
+
+        then:
+        1 * runnable.run()
+    }
+
+    def "rethrows exception thrown by method"() {
+        def failure = new RuntimeException()
+
+        when:
+        dispatch.dispatch(new MethodInvocation(TestListener.getMethod("noArgs"), null))
+
+        then:
+        1 * target.noArgs() >> { throw failure }
+        RuntimeException e = thrown()
+        e == failure
+    }
+
+    def "wraps checked exception thrown by method"() {
+        def failure = new IOException()
+
+        when:
+        dispatch.dispatch(new MethodInvocation(TestListener.getMethod("noArgs"), null))
+
+        then:
+        1 * target.noArgs() >> { throw failure }
+        UncheckedException e = thrown()
+        e.cause == failure
+    }
+
+    static interface TestListener {
+        void event(String value, int count)
+
+        void noArgs()
+
+        void primitives(boolean b, char c, byte by, short s, long l, float f, double d)
+
+        long arrays(String[] strings, int[] ints)
+    }
+}
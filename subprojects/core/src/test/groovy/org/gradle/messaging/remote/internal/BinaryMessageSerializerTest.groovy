@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal
+
+import org.gradle.messaging.remote.internal.protocol.MessageCredits
+import org.gradle.messaging.remote.internal.protocol.RemoteMethodInvocation
+import org.gradle.messaging.remote.internal.protocol.Request
+import org.gradle.util.CompositeIdGenerator
+import spock.lang.Specification
+
+class BinaryMessageSerializerTest extends Specification {
+    final BinaryMessageSerializer<Object> serializer = new BinaryMessageSerializer<Object>(getClass().classLoader)
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+    final StatefulMessageSerializer.Writer<Object> writer = serializer.newWriter(new DataOutputStream(bytes))
+
+    def "can write and read values of registered types"() {
+        expect:
+        transport(value) == value
+
+        where:
+        value << [null, "string", "", 0, 12, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 0L, Long.MAX_VALUE, Long.MIN_VALUE, true, false,
+                UUID.randomUUID(), new MessageCredits(12), new Request(UUID.randomUUID(), "payload"), new CompositeIdGenerator.CompositeId(1L, 2L)]
+    }
+
+    def "can write and read remote method invocation"() {
+        def original = new Request(UUID.randomUUID(), new RemoteMethodInvocation(12, ["a", 1, null, ["nested"] as Object[]] as Object[]))
+
+        when:
+        def transported = transport(original)
+
+        then:
+        transported instanceof Request
+        transported.destination == original.destination
+        transported.payload.key == 12
+        transported.payload.arguments[0..2] == ["a", 1, null]
+        transported.payload.arguments[3] == ["nested"] as Object[]
+    }
+
+    def "uses Java serialization for values of unregistered types"() {
+        expect:
+        transport(value) == value
+
+        where:
+        value << [new BigDecimal("12.3"), [1, 2, 3], ["a": "b"], new StatelessValue("value")]
+    }
+
+    def "uses Java serialization for exceptions"() {
+        def original = new RuntimeException("broken", new IOException("cause"))
+
+        when:
+        def transported = transport(new Request("id", original))
+
+        then:
+        transported.payload instanceof RuntimeException
+        transported.payload.message == "broken"
+        transported.payload.cause instanceof IOException
+    }
+
+    def "writes each string only once per connection"() {
+        def value = "a string which is sent many times"
+
+        when:
+        writer.write(value)
+        def first = bytes.size()
+        writer.write(value)
+        def second = bytes.size() - first
+
+        then:
+        first > value.length()
+        second == 2
+
+        and:
+        def reader = reader()
+        reader.read() == value
+        reader.read() == value
+    }
+
+    def "does not intern long strings"() {
+        def value = "x" * (Encoder.MAX_INTERNED_STRING_LENGTH + 1)
+
+        when:
+        writer.write(value)
+        writer.write("short")
+        writer.write(value)
+        writer.write("short")
+
+        then:
+        def reader = reader()
+        reader.read() == value
+        reader.read() == "short"
+        reader.read() == value
+        reader.read() == "short"
+    }
+
+    def "uses a variable length encoding for integers"() {
+        when:
+        writer.write(value)
+        def first = bytes.size()
+        writer.write(value)
+
+        then:
+        bytes.size() - first == size
+        def reader = reader()
+        reader.read() == value
+        reader.read() == value
+
+        where:
+        value                | size
+        1                    | 2
+        63                   | 2
+        64                   | 3
+        Integer.MAX_VALUE    | 6
+        new MessageCredits(1) | 2
+    }
+
+    def "can register codec for additional type"() {
+        def serializer = new BinaryMessageSerializer<Object>(getClass().classLoader)
+        serializer.register(StatelessValue, new StatelessValueCodec())
+        def writer = serializer.newWriter(new DataOutputStream(bytes))
+
+        when:
+        writer.write(new StatelessValue("value"))
+        def first = bytes.size()
+        writer.write(new StatelessValue("value"))
+
+        then:
+        bytes.size() - first == 2
+        def reader = serializer.newReader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), null, null)
+        reader.read() == new StatelessValue("value")
+        reader.read() == new StatelessValue("value")
+    }
+
+    def "can read values when codecs were registered in a different order"() {
+        def writingSerializer = new BinaryMessageSerializer<Object>(getClass().classLoader)
+        writingSerializer.register(StatelessValue, new StatelessValueCodec())
+        writingSerializer.register(BigDecimal, new BigDecimalCodec())
+        def readingSerializer = new BinaryMessageSerializer<Object>(getClass().classLoader)
+        readingSerializer.register(BigDecimal, new BigDecimalCodec())
+        readingSerializer.register(StatelessValue, new StatelessValueCodec())
+        def writer = writingSerializer.newWriter(new DataOutputStream(bytes))
+
+        when:
+        writer.write(new StatelessValue("value"))
+        writer.write(new BigDecimal("12.3"))
+        writer.write(new StatelessValue("other"))
+
+        then:
+        def reader = readingSerializer.newReader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), null, null)
+        reader.read() == new StatelessValue("value")
+        reader.read() == new BigDecimal("12.3")
+        reader.read() == new StatelessValue("other")
+    }
+
+    def "cannot read value of a type which has no codec registered at the reading end"() {
+        def writingSerializer = new BinaryMessageSerializer<Object>(getClass().classLoader)
+        writingSerializer.register(StatelessValue, new StatelessValueCodec())
+        writingSerializer.write(new StatelessValue("value"), new DataOutputStream(bytes))
+
+        when:
+        reader().read()
+
+        then:
+        StreamCorruptedException e = thrown()
+        e.message == "No codec registered for type ${StatelessValue.name} received."
+    }
+
+    def "cannot read reference to a string which has not been received"() {
+        bytes.write(2) // a value of a type which has not been received before
+        bytes.write(5) // the type name, as a reference to a string which has not been received
+
+        when:
+        reader().read()
+
+        then:
+        thrown(StreamCorruptedException)
+    }
+
+    def "cannot register codec for type more than once"() {
+        when:
+        serializer.register(String, Mock(Codec))
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "A codec for type java.lang.String has already been registered."
+    }
+
+    def "throws EOFException at end of stream"() {
+        when:
+        reader().read()
+
+        then:
+        thrown(EOFException)
+    }
+
+    def transport(Object value) {
+        writer.write(value)
+        return reader().read()
+    }
+
+    def reader() {
+        return serializer.newReader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), null, null)
+    }
+
+    static class StatelessValueCodec implements Codec<StatelessValue> {
+        void write(Encoder encoder, StatelessValue value) {
+            encoder.writeString(value.value)
+        }
+
+        StatelessValue read(Decoder decoder) {
+            return new StatelessValue(decoder.readString())
+        }
+    }
+
+    static class BigDecimalCodec implements Codec<BigDecimal> {
+        void write(Encoder encoder, BigDecimal value) {
+            encoder.writeString(value.toString())
+        }
+
+        BigDecimal read(Decoder decoder) {
+            return new BigDecimal(decoder.readString())
+        }
+    }
+
+    static class StatelessValue implements Serializable {
+        final String value
+
+        StatelessValue(String value) {
+            this.value = value
+        }
+
+        @Override
+        boolean equals(Object o) {
+            return o instanceof StatelessValue && o.value == value
+        }
+
+        @Override
+        int hashCode() {
+            return value.hashCode()
+        }
+    }
+}
@@ -73,6 +73,33 @@ class TcpConnectorTest extends ConcurrentSpecification {
         incomingConnector.requestStop()
     }
 
+    def "client can send batched messages to server"() {
+        def messagesReceived = startsAsyncAction()
+        def received = []
+        Action action = Mock()
+
+        when:
+        messagesReceived.started {
+            def address = incomingConnector.accept(action, false)
+            def connection = outgoingConnector.connect(address)
+            1000.times { connection.dispatchBatched("message $it".toString()) }
+            connection.dispatch("done")
+        }
+
+        then:
+        1 * action.execute(!null) >> { args ->
+            def connection = args[0].connection
+            for (def message = connection.receive(); message != "done"; message = connection.receive()) {
+                received << message
+            }
+            messagesReceived.done()
+        }
+        received == (0..<1000).collect { "message $it".toString() }
+
+        cleanup:
+        incomingConnector.requestStop()
+    }
+
     def "client throws exception when cannot connect to server"() {
         def address = new MultiChoiceAddress("address", 12345, [InetAddress.getByName("localhost")])
 
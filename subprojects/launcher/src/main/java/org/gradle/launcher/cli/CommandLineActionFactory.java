@@ -303,7 +303,12 @@ public class CommandLineActionFactory {
             loggingManager.setLevel(loggingConfiguration.getLogLevel());
             loggingManager.colorStdOutAndStdErr(loggingConfiguration.isColorOutput());
             loggingManager.start();
-            action.execute(executionListener);
+            try {
+                action.execute(executionListener);
+            } finally {
+                // Render any queued output before the process exits
+                loggingManager.stop();
+            }
         }
     }
 }
@@ -19,6 +19,7 @@ import com.google.common.io.Files;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.launcher.daemon.configuration.DaemonParameters;
 import org.gradle.launcher.daemon.configuration.DaemonServerConfiguration;
 import org.gradle.launcher.daemon.configuration.DefaultDaemonServerConfiguration;
 import org.gradle.launcher.daemon.context.DaemonContext;
@@ -27,6 +28,7 @@ import org.gradle.launcher.daemon.logging.DaemonMessages;
 import org.gradle.launcher.daemon.server.Daemon;
 import org.gradle.launcher.daemon.server.DaemonServices;
 import org.gradle.launcher.daemon.server.DaemonStoppedException;
+import org.gradle.launcher.daemon.server.DaemonWarmUp;
 import org.gradle.launcher.exec.EntryPoint;
 import org.gradle.launcher.exec.ExecutionListener;
 import org.gradle.logging.LoggingManagerInternal;
@@ -49,6 +51,7 @@ public class DaemonMain extends EntryPoint {
     private static final Logger LOGGER = Logging.getLogger(DaemonMain.class);
 
     private final DaemonServerConfiguration configuration;
+    private PrintStream startupOutput;
 
     public static void main(String[] args) {
         //The first argument is not really used but it is very useful in diagnosing, i.e. running 'jps -m'
@@ -72,8 +75,12 @@ public class DaemonMain extends EntryPoint {
         }
         LOGGER.debug("Assuming the daemon was started with following jvm opts: {}", startupOpts);
 
+        int maxConcurrentBuilds = Integer.getInteger(DaemonParameters.MAX_CONCURRENT_BUILDS_SYS_PROPERTY, 1);
+        boolean warmUpReplay = Boolean.getBoolean(DaemonParameters.WARM_UP_REPLAY_SYS_PROPERTY);
+        boolean warmUp = warmUpReplay || Boolean.getBoolean(DaemonParameters.WARM_UP_SYS_PROPERTY);
+
         DaemonServerConfiguration parameters = new DefaultDaemonServerConfiguration(
-                daemonUid, daemonBaseDir, idleTimeoutMs, startupOpts);
+                daemonUid, daemonBaseDir, idleTimeoutMs, startupOpts, maxConcurrentBuilds, warmUp, warmUpReplay);
         DaemonMain daemonMain = new DaemonMain(parameters);
 
         daemonMain.run();
@@ -105,6 +112,11 @@ public class DaemonMain extends EntryPoint {
         });
 
         Daemon daemon = startDaemon(daemonServices);
+        sendGreeting(daemon);
+        DaemonWarmUp warmUp = daemonServices.get(DaemonWarmUp.class);
+        if (configuration.isWarmUpEnabled()) {
+            warmUp.start();
+        }
         try {
             daemon.awaitIdleTimeout(configuration.getIdleTimeout());
             LOGGER.info("Daemon hit idle timeout (" + configuration.getIdleTimeout() + "ms), stopping...");
@@ -112,6 +124,8 @@ public class DaemonMain extends EntryPoint {
         } catch (DaemonStoppedException e) {
             LOGGER.debug("Daemon stopping due to the stop request");
             listener.onFailure(e);
+        } finally {
+            warmUp.stop();
         }
     }
 
@@ -135,7 +149,8 @@ public class DaemonMain extends EntryPoint {
         });
 
         //close all streams and redirect IO
-        redirectOutputsAndInput(log);
+        //the original stdout is kept open until the daemon has started, so that the daemon can tell the client its address
+        startupOutput = redirectOutputsAndInput(log);
 
         //after redirecting we need to add the new std out/err to the renderer singleton
         //so that logging gets its way to the daemon log:
@@ -154,7 +169,15 @@ public class DaemonMain extends EntryPoint {
         return daemon;
     }
 
-    private static void redirectOutputsAndInput(OutputStream log) {
+    private void sendGreeting(Daemon daemon) {
+        if (startupOutput == null) {
+            return;
+        }
+        new DaemonGreeter().sendGreetingAndClose(startupOutput, new DaemonStartupInfo(daemon.getUid(), daemon.getAddress(), daemon.getPassword()));
+        startupOutput = null;
+    }
+
+    private static PrintStream redirectOutputsAndInput(OutputStream log) {
         PrintStream originalOut = System.out;
         PrintStream originalErr = System.err;
         //InputStream originalIn = System.in;
@@ -165,11 +188,11 @@ public class DaemonMain extends EntryPoint {
         System.setErr(printStream);
         System.setIn(new ByteArrayInputStream(new byte[0]));
 
-        new DaemonGreeter().sendGreetingAndClose(originalOut);
-        originalOut.close();
         originalErr.close();
 
         //TODO - make this work on windows
         //originalIn.close();
+
+        return originalOut;
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.bootstrap;
+
+import org.gradle.messaging.remote.Address;
+
+import java.io.Serializable;
+
+/**
+ * The information a daemon process reports to the client which started it, once it is ready to accept connections. This allows the client
+ * to connect to the new daemon without looking for it in the daemon registry.
+ */
+public class DaemonStartupInfo implements Serializable {
+    private final String uid;
+    private final Address address;
+    private final String password;
+
+    public DaemonStartupInfo(String uid, Address address, String password) {
+        this.uid = uid;
+        this.address = address;
+        this.password = password;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    /**
+     * The address of the daemon, or {@code null} when the daemon did not report its address.
+     */
+    public Address getAddress() {
+        return address;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DaemonStartupInfo{uid=%s, address=%s}", uid, address);
+    }
+}
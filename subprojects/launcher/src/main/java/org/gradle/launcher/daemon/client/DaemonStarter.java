@@ -15,6 +15,13 @@
  */
 package org.gradle.launcher.daemon.client;
 
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupInfo;
+
 public interface DaemonStarter {
-    String startDaemon();
+    /**
+     * Starts a new daemon, returning once it is ready to accept connections or has been asked to start.
+     *
+     * @return Information about the new daemon. The address is {@code null} when the daemon did not report it.
+     */
+    DaemonStartupInfo startDaemon();
 }
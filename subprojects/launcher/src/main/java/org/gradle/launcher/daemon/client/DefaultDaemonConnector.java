@@ -20,6 +20,7 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
 import org.gradle.internal.UncheckedException;
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupInfo;
 import org.gradle.launcher.daemon.context.DaemonContext;
 import org.gradle.launcher.daemon.registry.DaemonInfo;
 import org.gradle.launcher.daemon.registry.DaemonRegistry;
@@ -30,6 +31,9 @@ import java.util.List;
 
 /**
  * Provides the mechanics of connecting to a daemon, starting one via a given runnable if no suitable daemons are already available.
+ * <p>
+ * A newly started daemon is connected to using the address it reports on startup. The daemon registry is only polled for the new daemon
+ * when its address is not known.
  */
 public class DefaultDaemonConnector implements DaemonConnector {
 
@@ -92,23 +96,35 @@ public class DefaultDaemonConnector implements DaemonConnector {
         }
 
         LOGGER.info("Starting Gradle daemon");
-        final String uid = daemonStarter.startDaemon();
-        LOGGER.debug("Started Gradle Daemon with UID = {}", uid);
-        Spec<DaemonContext> sameUidConstraint = exactUidConstraint(uid);
-        long expiry = System.currentTimeMillis() + connectTimeout;
-        do {
+        DaemonStartupInfo startupInfo = daemonStarter.startDaemon();
+        LOGGER.debug("Started Gradle Daemon: {}", startupInfo);
+        if (startupInfo.getAddress() != null) {
+            // The daemon was started with our uid, and is used even when it does not satisfy the constraint, as when it is found in the registry
             try {
-                Thread.sleep(200L);
-            } catch (InterruptedException e) {
-                throw UncheckedException.asUncheckedException(e);
+                return new DaemonConnection(connector.connect(startupInfo.getAddress()), startupInfo.getPassword());
+            } catch (ConnectException e) {
+                LOGGER.debug("We cannot connect to the new daemon at {} due to {}. Looking for it in the registry instead.", startupInfo.getAddress(), e);
             }
+        }
+
+        Spec<DaemonContext> sameUidConstraint = exactUidConstraint(startupInfo.getUid());
+        long expiry = System.currentTimeMillis() + connectTimeout;
+        while (true) {
             // Look for 'our' daemon among the busy daemons - a daemon will start in busy state so that nobody else will grab it.
             // TODO:DAZ We should verify the connection using the original daemon constraint
             connection = findConnection(daemonRegistry.getBusy(), sameUidConstraint);
             if (connection != null) {
                 return connection;
             }
-        } while (System.currentTimeMillis() < expiry);
+            if (System.currentTimeMillis() >= expiry) {
+                break;
+            }
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+        }
 
         throw new GradleException("Timeout waiting to connect to Gradle daemon.");
     }
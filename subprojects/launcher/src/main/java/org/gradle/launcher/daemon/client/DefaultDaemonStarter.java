@@ -21,6 +21,7 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.nativeplatform.jna.WindowsProcessStarter;
 import org.gradle.internal.os.OperatingSystem;
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupInfo;
 import org.gradle.launcher.daemon.bootstrap.GradleDaemon;
 import org.gradle.launcher.daemon.configuration.DaemonParameters;
 import org.gradle.launcher.daemon.logging.DaemonGreeter;
@@ -46,7 +47,7 @@ public class DefaultDaemonStarter implements DaemonStarter {
         this.daemonParameters = daemonParameters;
     }
 
-    public String startDaemon() {
+    public DaemonStartupInfo startDaemon() {
         DefaultModuleRegistry registry = new DefaultModuleRegistry();
         Set<File> bootstrapClasspath = new LinkedHashSet<File>();
         bootstrapClasspath.addAll(registry.getModule("gradle-launcher").getImplementationClasspath());
@@ -79,12 +80,18 @@ public class DefaultDaemonStarter implements DaemonStarter {
         //we need to pass them as *program* arguments to avoid problems with getInputArguments().
         daemonArgs.addAll(daemonOpts);
 
-        startProcess(daemonArgs, daemonDir.getVersionedDir());
-
-        return daemonParameters.getUid();
+        DaemonStartupInfo startupInfo = startProcess(daemonArgs, daemonDir.getVersionedDir());
+        if (startupInfo == null) {
+            return new DaemonStartupInfo(daemonParameters.getUid(), null, null);
+        }
+        if (!daemonParameters.getUid().equals(startupInfo.getUid())) {
+            LOGGER.debug("Started daemon reported uid {} rather than {}. Looking for it in the registry instead.", startupInfo.getUid(), daemonParameters.getUid());
+            return new DaemonStartupInfo(daemonParameters.getUid(), null, null);
+        }
+        return startupInfo;
     }
 
-    private void startProcess(List<String> args, File workingDir) {
+    private DaemonStartupInfo startProcess(List<String> args, File workingDir) {
         LOGGER.info("Starting daemon process: workingDir = {}, daemonArgs: {}", workingDir, args);
         try {
             workingDir.mkdirs();
@@ -98,13 +105,16 @@ public class DefaultDaemonStarter implements DaemonStarter {
                 LOGGER.debug("Windows command line for starting daemon: {}", commandLine);
                 LOGGER.debug("Windows environment variables: {}", System.getenv());
                 new WindowsProcessStarter().start(workingDir, commandLine.toString());
+                // The daemon's output is not available, so the client will need to find the daemon in the registry
+                return null;
             } else {
                 Process process = new ProcessBuilder(args).redirectErrorStream(true).directory(workingDir).start();
-                new DaemonGreeter().verifyGreetingReceived(process);
+                DaemonStartupInfo startupInfo = new DaemonGreeter().verifyGreetingReceived(process);
 
                 process.getOutputStream().close();
                 process.getErrorStream().close();
                 process.getInputStream().close();
+                return startupInfo;
             }
         } catch (GradleException e) {
             throw e;
@@ -16,6 +16,7 @@
 package org.gradle.launcher.daemon.client;
 
 import org.gradle.internal.Factory;
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupInfo;
 import org.gradle.launcher.daemon.registry.EmbeddedDaemonRegistry;
 import org.gradle.launcher.daemon.server.Daemon;
 
@@ -29,9 +30,9 @@ class EmbeddedDaemonStarter implements DaemonStarter {
         this.daemonFactory = daemonFactory;
     }
 
-    public String startDaemon() {
+    public DaemonStartupInfo startDaemon() {
         Daemon daemon = daemonFactory.create();
         daemonRegistry.startDaemon(daemon);
-        return daemon.getUid();
+        return new DaemonStartupInfo(daemon.getUid(), daemon.getAddress(), daemon.getPassword());
     }
 }
\ No newline at end of file
@@ -42,6 +42,12 @@ public class DaemonParameters {
     public static final String JVM_ARGS_SYS_PROPERTY = "org.gradle.jvmargs";
     public static final String JAVA_HOME_SYS_PROPERTY = "org.gradle.java.home";
     public static final String DAEMON_SYS_PROPERTY = "org.gradle.daemon";
+    public static final String MAX_CONCURRENT_BUILDS_SYS_PROPERTY = "org.gradle.daemon.maxconcurrentbuilds";
+    public static final String WARM_UP_SYS_PROPERTY = "org.gradle.daemon.warmup";
+    public static final String WARM_UP_REPLAY_SYS_PROPERTY = "org.gradle.daemon.warmup.replay";
+    public static final String MAX_GC_TIME_RATIO_SYS_PROPERTY = "org.gradle.daemon.health.maxgctimeratio";
+    public static final String MAX_OLD_GEN_USAGE_SYS_PROPERTY = "org.gradle.daemon.health.maxoldgenusage";
+    public static final String MAX_LOADED_CLASSES_SYS_PROPERTY = "org.gradle.daemon.health.maxloadedclasses";
     static final int DEFAULT_IDLE_TIMEOUT = 3 * 60 * 60 * 1000;
     private final String uid;
     private File baseDir = new File(StartParameter.DEFAULT_GRADLE_USER_HOME, "daemon");
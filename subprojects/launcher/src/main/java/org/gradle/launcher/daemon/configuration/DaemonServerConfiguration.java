@@ -31,4 +31,19 @@ public interface DaemonServerConfiguration {
     String getUid();
 
     List<String> getJvmOptions();
+
+    /**
+     * The maximum number of builds the daemon will run at the same time.
+     */
+    int getMaxConcurrentBuilds();
+
+    /**
+     * Whether the daemon should warm itself up while it is idle after starting.
+     */
+    boolean isWarmUpEnabled();
+
+    /**
+     * Whether the warm-up should configure the most recent build.
+     */
+    boolean isWarmUpReplayEnabled();
 }
@@ -28,12 +28,27 @@ public class DefaultDaemonServerConfiguration implements DaemonServerConfigurati
     private final File daemonBaseDir;
     private final int idleTimeoutMs;
     private final List<String> jvmOptions;
+    private final int maxConcurrentBuilds;
+    private final boolean warmUpEnabled;
+    private final boolean warmUpReplayEnabled;
 
     public DefaultDaemonServerConfiguration(String daemonUid, File daemonBaseDir, int idleTimeoutMs, List<String> jvmOptions) {
+        this(daemonUid, daemonBaseDir, idleTimeoutMs, jvmOptions, 1);
+    }
+
+    public DefaultDaemonServerConfiguration(String daemonUid, File daemonBaseDir, int idleTimeoutMs, List<String> jvmOptions, int maxConcurrentBuilds) {
+        this(daemonUid, daemonBaseDir, idleTimeoutMs, jvmOptions, maxConcurrentBuilds, false, false);
+    }
+
+    public DefaultDaemonServerConfiguration(String daemonUid, File daemonBaseDir, int idleTimeoutMs, List<String> jvmOptions, int maxConcurrentBuilds,
+                                            boolean warmUpEnabled, boolean warmUpReplayEnabled) {
         this.daemonUid = daemonUid;
         this.daemonBaseDir = daemonBaseDir;
         this.idleTimeoutMs = idleTimeoutMs;
         this.jvmOptions = jvmOptions;
+        this.maxConcurrentBuilds = maxConcurrentBuilds;
+        this.warmUpEnabled = warmUpEnabled;
+        this.warmUpReplayEnabled = warmUpReplayEnabled;
     }
 
     public File getBaseDir() {
@@ -51,4 +66,16 @@ public class DefaultDaemonServerConfiguration implements DaemonServerConfigurati
     public List<String> getJvmOptions() {
         return jvmOptions;
     }
+
+    public int getMaxConcurrentBuilds() {
+        return maxConcurrentBuilds;
+    }
+
+    public boolean isWarmUpEnabled() {
+        return warmUpEnabled;
+    }
+
+    public boolean isWarmUpReplayEnabled() {
+        return warmUpReplayEnabled;
+    }
 }
\ No newline at end of file
@@ -18,7 +18,11 @@ package org.gradle.launcher.daemon.logging;
 
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.GradleException;
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupInfo;
+import org.gradle.util.GUtil;
 
+import java.io.ByteArrayInputStream;
 import java.io.PrintStream;
 import java.util.List;
 
@@ -26,15 +30,31 @@ import java.util.List;
  * by Szczepan Faber, created at: 1/19/12
  */
 public class DaemonGreeter {
-    
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     public void sendGreetingAndClose(PrintStream output) {
+        sendGreetingAndClose(output, null);
+    }
+
+    /**
+     * Sends the greeting, along with the given startup info when not null. The startup info is written on the line before the greeting.
+     */
+    public void sendGreetingAndClose(PrintStream output, DaemonStartupInfo startupInfo) {
         synchronized (output) {
+            if (startupInfo != null) {
+                output.println(DaemonMessages.STARTUP_INFO + encode(GUtil.serialize(startupInfo)));
+            }
             output.println(DaemonMessages.PROCESS_STARTED);
             output.close();
         }
     }
 
-    public void verifyGreetingReceived(Process process) {
+    /**
+     * Verifies that the greeting was received from the given daemon process.
+     *
+     * @return The startup info sent by the daemon, or null when the daemon did not send any.
+     */
+    public DaemonStartupInfo verifyGreetingReceived(Process process) {
         List<String> lines;
         try {
             lines = IOUtils.readLines(process.getInputStream());
@@ -58,6 +78,34 @@ public class DaemonGreeter {
             throw new GradleException(DaemonMessages.UNABLE_TO_START_DAEMON + " The exit value was: " + exitValue + "."
                     + "\n" + processOutput(lines));
         }
+
+        String startupInfo = lines.size() > 1 ? lines.get(lines.size() - 2) : "";
+        if (!startupInfo.startsWith(DaemonMessages.STARTUP_INFO)) {
+            return null;
+        }
+        try {
+            byte[] bytes = decode(startupInfo.substring(DaemonMessages.STARTUP_INFO.length()));
+            return (DaemonStartupInfo) new DefaultSerializer<Object>(getClass().getClassLoader()).read(new ByteArrayInputStream(bytes));
+        } catch (Exception e) {
+            throw new GradleException("Unable to read the startup information sent by the daemon process.", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static byte[] decode(String chars) {
+        byte[] bytes = new byte[chars.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(chars.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
     }
 
     private String processOutput(List<String> lines) {
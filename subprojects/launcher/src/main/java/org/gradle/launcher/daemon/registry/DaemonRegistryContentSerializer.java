@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.registry;
+
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.cache.Serializer;
+import org.gradle.launcher.daemon.context.DaemonContext;
+import org.gradle.launcher.daemon.context.DefaultDaemonContext;
+import org.gradle.messaging.remote.Address;
+import org.gradle.messaging.remote.internal.inet.MultiChoiceAddress;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serializes the daemon registry using a compact binary format, which is cheaper to read than Java serialization. The registry is read by
+ * every client looking for a daemon.
+ *
+ * <p>The addresses and contexts of the daemons are written field by field when they are of the types used by the daemon. Any other address or
+ * context is written using Java serialization. Content in an unrecognized format is treated as an empty registry.</p>
+ */
+public class DaemonRegistryContentSerializer implements Serializer<DaemonRegistryContent> {
+    private static final int MAGIC = 0x47524452;
+    private static final byte VERSION = 1;
+    private static final byte JAVA_SERIALIZED = 0;
+    private static final byte MULTI_CHOICE_ADDRESS = 1;
+    private static final byte DEFAULT_CONTEXT = 2;
+
+    private final DefaultSerializer<Object> javaSerializer = new DefaultSerializer<Object>(getClass().getClassLoader());
+
+    public DaemonRegistryContent read(InputStream instr) throws Exception {
+        DataInputStream input = new DataInputStream(instr);
+        try {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                return null;
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+        DaemonRegistryContent content = new DaemonRegistryContent();
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            Address address = readAddress(input);
+            DaemonContext context = readContext(input);
+            String password = readNullableString(input);
+            boolean idle = input.readBoolean();
+            content.setStatus(address, new DaemonInfo(address, context, password).setIdle(idle));
+        }
+        return content;
+    }
+
+    public void write(OutputStream outstr, DaemonRegistryContent value) throws Exception {
+        DataOutputStream output = new DataOutputStream(outstr);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        List<DaemonInfo> infos = value.getInfos();
+        output.writeInt(infos.size());
+        for (DaemonInfo info : infos) {
+            writeAddress(output, info.getAddress());
+            writeContext(output, info.getContext());
+            writeNullableString(output, info.getPassword());
+            output.writeBoolean(info.isIdle());
+        }
+        output.flush();
+    }
+
+    private void writeAddress(DataOutputStream output, Address address) throws Exception {
+        if (address instanceof MultiChoiceAddress && ((MultiChoiceAddress) address).getCanonicalAddress() instanceof UUID) {
+            MultiChoiceAddress multiChoiceAddress = (MultiChoiceAddress) address;
+            UUID canonicalAddress = (UUID) multiChoiceAddress.getCanonicalAddress();
+            output.writeByte(MULTI_CHOICE_ADDRESS);
+            output.writeLong(canonicalAddress.getMostSignificantBits());
+            output.writeLong(canonicalAddress.getLeastSignificantBits());
+            output.writeInt(multiChoiceAddress.getPort());
+            output.writeInt(multiChoiceAddress.getCandidates().size());
+            for (InetAddress candidate : multiChoiceAddress.getCandidates()) {
+                byte[] bytes = candidate.getAddress();
+                output.writeByte(bytes.length);
+                output.write(bytes);
+            }
+        } else {
+            writeJavaSerialized(output, address);
+        }
+    }
+
+    private Address readAddress(DataInputStream input) throws Exception {
+        byte tag = input.readByte();
+        if (tag != MULTI_CHOICE_ADDRESS) {
+            return (Address) readJavaSerialized(input, tag);
+        }
+        UUID canonicalAddress = new UUID(input.readLong(), input.readLong());
+        int port = input.readInt();
+        int count = input.readInt();
+        List<InetAddress> candidates = new ArrayList<InetAddress>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[input.readByte()];
+            input.readFully(bytes);
+            candidates.add(InetAddress.getByAddress(bytes));
+        }
+        return new MultiChoiceAddress(canonicalAddress, port, candidates);
+    }
+
+    private void writeContext(DataOutputStream output, DaemonContext context) throws Exception {
+        if (context.getClass() != DefaultDaemonContext.class) {
+            writeJavaSerialized(output, context);
+            return;
+        }
+        output.writeByte(DEFAULT_CONTEXT);
+        output.writeUTF(context.getUid());
+        writeNullableFile(output, context.getJavaHome());
+        writeNullableFile(output, context.getDaemonRegistryDir());
+        output.writeBoolean(context.getPid() != null);
+        if (context.getPid() != null) {
+            output.writeLong(context.getPid());
+        }
+        output.writeBoolean(context.getIdleTimeout() != null);
+        if (context.getIdleTimeout() != null) {
+            output.writeInt(context.getIdleTimeout());
+        }
+        output.writeInt(context.getDaemonOpts().size());
+        for (String opt : context.getDaemonOpts()) {
+            output.writeUTF(opt);
+        }
+    }
+
+    private DaemonContext readContext(DataInputStream input) throws Exception {
+        byte tag = input.readByte();
+        if (tag != DEFAULT_CONTEXT) {
+            return (DaemonContext) readJavaSerialized(input, tag);
+        }
+        String uid = input.readUTF();
+        File javaHome = readNullableFile(input);
+        File daemonRegistryDir = readNullableFile(input);
+        Long pid = input.readBoolean() ? input.readLong() : null;
+        Integer idleTimeout = input.readBoolean() ? input.readInt() : null;
+        int count = input.readInt();
+        List<String> daemonOpts = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            daemonOpts.add(input.readUTF());
+        }
+        return new DefaultDaemonContext(uid, javaHome, daemonRegistryDir, pid, idleTimeout, daemonOpts);
+    }
+
+    private void writeJavaSerialized(DataOutputStream output, Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        javaSerializer.write(bytes, value);
+        output.writeByte(JAVA_SERIALIZED);
+        output.writeInt(bytes.size());
+        bytes.writeTo(output);
+    }
+
+    private Object readJavaSerialized(DataInputStream input, byte tag) throws Exception {
+        if (tag != JAVA_SERIALIZED) {
+            throw new StreamCorruptedException(String.format("Unexpected value tag %s in daemon registry.", tag));
+        }
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return javaSerializer.read(new ByteArrayInputStream(bytes));
+    }
+
+    private void writeNullableFile(DataOutputStream output, File file) throws IOException {
+        writeNullableString(output, file == null ? null : file.getPath());
+    }
+
+    private File readNullableFile(DataInputStream input) throws IOException {
+        String path = readNullableString(input);
+        return path == null ? null : new File(path);
+    }
+
+    private void writeNullableString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private String readNullableString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
@@ -16,7 +16,6 @@
 
 package org.gradle.launcher.daemon.registry;
 
-import org.gradle.cache.DefaultSerializer;
 import org.gradle.cache.PersistentStateCache;
 import org.gradle.cache.internal.FileLockManager;
 import org.gradle.cache.internal.OnDemandFileAccess;
@@ -48,7 +47,7 @@ public class PersistentDaemonRegistry implements DaemonRegistry {
                         registryFile,
                         "daemon addresses registry",
                         fileLockManager),
-                new DefaultSerializer<DaemonRegistryContent>());
+                new DaemonRegistryContentSerializer());
     }
 
     public List<DaemonInfo> getAll() {
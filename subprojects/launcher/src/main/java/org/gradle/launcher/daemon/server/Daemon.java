@@ -49,6 +49,7 @@ public class Daemon implements Runnable, Stoppable {
     private final DaemonContext daemonContext;
     private final DaemonCommandExecuter commandExecuter;
     private final String password;
+    private final int maxConcurrentBuilds;
 
     private DaemonStateCoordinator stateCoordinator;
 
@@ -66,11 +67,23 @@ public class Daemon implements Runnable, Stoppable {
      * @param daemonRegistry The registry that this daemon should advertise itself in
      */
     public Daemon(DaemonServerConnector connector, DaemonRegistry daemonRegistry, DaemonContext daemonContext, String password, DaemonCommandExecuter commandExecuter, ExecutorFactory executorFactory) {
+        this(connector, daemonRegistry, daemonContext, password, commandExecuter, executorFactory, 1);
+    }
+
+    /**
+     * Creates a new daemon instance.
+     *
+     * @param connector The provider of server connections for this daemon
+     * @param daemonRegistry The registry that this daemon should advertise itself in
+     * @param maxConcurrentBuilds The maximum number of builds this daemon will run at the same time
+     */
+    public Daemon(DaemonServerConnector connector, DaemonRegistry daemonRegistry, DaemonContext daemonContext, String password, DaemonCommandExecuter commandExecuter, ExecutorFactory executorFactory, int maxConcurrentBuilds) {
         this.connector = connector;
         this.daemonRegistry = daemonRegistry;
         this.daemonContext = daemonContext;
         this.password = password;
         this.commandExecuter = commandExecuter;
+        this.maxConcurrentBuilds = maxConcurrentBuilds;
         handlersExecutor = executorFactory.create("Daemon Connection Handler");
     }
 
@@ -78,6 +91,10 @@ public class Daemon implements Runnable, Stoppable {
         return daemonContext.getUid();
     }
 
+    public String getPassword() {
+        return password;
+    }
+
     public Address getAddress() {
         return connectorAddress;
     }
@@ -103,7 +120,7 @@ public class Daemon implements Runnable, Stoppable {
                 public void handle(final Connection<Object> connection) {
 
                     //we're spinning a thread to do work to avoid blocking the connection
-                    //This means that the Daemon potentially can do multiple things but we only allows a single build at a time
+                    //This means that the Daemon potentially can do multiple things, the state coordinator decides how many builds may run at a time
                     handlersExecutor.execute(new Runnable() {
                         private Command command;
                         public void run() {
@@ -168,7 +185,7 @@ public class Daemon implements Runnable, Stoppable {
                 }
             };
 
-            stateCoordinator = new DaemonStateCoordinator(onStart, onStartCommand, onFinishCommand, onStop, onStopRequested);
+            stateCoordinator = new DaemonStateCoordinator(onStart, onStartCommand, onFinishCommand, onStop, onStopRequested, maxConcurrentBuilds);
 
             // ready, set, go
             stateCoordinator.start();
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.launcher.daemon.configuration.DaemonParameters;
+
+import java.lang.management.*;
+import java.util.Properties;
+
+/**
+ * Monitors the health of the daemon's JVM between builds, so that a daemon which has degraded can be replaced by a fresh one rather than
+ * slowing down, or failing, every subsequent build.
+ *
+ * <p>The daemon is considered unhealthy when any of the following exceeds its threshold:</p>
+ * <ul>
+ * <li>The proportion of wall-clock time spent in garbage collection since the previous check.</li>
+ * <li>The proportion of the old generation still in use after its most recent collection. Memory which survives a full collection is
+ * retained by the daemon, and is typically leaked by build scripts or plugins.</li>
+ * <li>The number of classes currently loaded. Each build script is loaded in its own class loader, and classes which cannot be unloaded
+ * fill up the permanent generation.</li>
+ * </ul>
+ *
+ * <p>A threshold which is zero or less disables the corresponding check. The old generation and loaded class checks are disabled by default,
+ * as a concurrent collector can report the old generation as nearly full after a collection which did not try to reclaim all of it.</p>
+ *
+ * <p>A single build can be expensive without the daemon having degraded, so the daemon is only reported as unhealthy once a threshold has
+ * been exceeded by several consecutive checks.</p>
+ */
+public class DaemonHealthMonitor {
+    private static final Logger LOGGER = Logging.getLogger(DaemonHealthMonitor.class);
+    static final double DEFAULT_MAX_GC_TIME_RATIO = 0.5;
+    static final double DEFAULT_MAX_OLD_GEN_USAGE = 0;
+    static final int DEFAULT_MAX_LOADED_CLASSES = 0;
+    static final int DEFAULT_UNHEALTHY_CHECKS = 3;
+
+    private final double maxGcTimeRatio;
+    private final double maxOldGenUsage;
+    private final int maxLoadedClasses;
+    private final int unhealthyChecks;
+    private int consecutiveUnhealthyChecks;
+    private long lastCheckAt;
+    private long lastGcTime;
+
+    /**
+     * @param maxGcTimeRatio The maximum proportion of time to spend in garbage collection, between 0 and 1.
+     * @param maxOldGenUsage The maximum proportion of the old generation to be in use after a collection, between 0 and 1.
+     * @param maxLoadedClasses The maximum number of classes to be loaded.
+     * @param unhealthyChecks The number of consecutive checks which must find a threshold exceeded before the daemon is unhealthy.
+     */
+    public DaemonHealthMonitor(double maxGcTimeRatio, double maxOldGenUsage, int maxLoadedClasses, int unhealthyChecks) {
+        this.maxGcTimeRatio = maxGcTimeRatio;
+        this.maxOldGenUsage = maxOldGenUsage;
+        this.maxLoadedClasses = maxLoadedClasses;
+        this.unhealthyChecks = unhealthyChecks;
+    }
+
+    /**
+     * Creates a monitor which uses the thresholds specified by the given system properties, or the defaults.
+     */
+    public static DaemonHealthMonitor fromSystemProperties(Properties properties) {
+        return new DaemonHealthMonitor(
+                parse(properties, DaemonParameters.MAX_GC_TIME_RATIO_SYS_PROPERTY, DEFAULT_MAX_GC_TIME_RATIO),
+                parse(properties, DaemonParameters.MAX_OLD_GEN_USAGE_SYS_PROPERTY, DEFAULT_MAX_OLD_GEN_USAGE),
+                (int) parse(properties, DaemonParameters.MAX_LOADED_CLASSES_SYS_PROPERTY, DEFAULT_MAX_LOADED_CLASSES),
+                DEFAULT_UNHEALTHY_CHECKS);
+    }
+
+    private static double parse(Properties properties, String propertyName, double defaultValue) {
+        String value = properties.getProperty(propertyName);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new GradleException(String.format("Unable to parse %s property. The value should be a number but is: %s", propertyName, value));
+        }
+    }
+
+    /**
+     * Starts measuring. The time spent in garbage collection is measured from this point on.
+     */
+    public synchronized void start() {
+        lastCheckAt = currentTimeMillis();
+        lastGcTime = getCollectionTime();
+    }
+
+    /**
+     * Checks the health of the daemon.
+     *
+     * @return A description of why the daemon is unhealthy, or null if the daemon is healthy.
+     */
+    public synchronized String checkHealth() {
+        String reason = findThresholdExceeded();
+        if (reason == null) {
+            consecutiveUnhealthyChecks = 0;
+            return null;
+        }
+        consecutiveUnhealthyChecks++;
+        if (consecutiveUnhealthyChecks < unhealthyChecks) {
+            LOGGER.debug("Daemon may be unhealthy, as {} ({} of {} checks).", reason, consecutiveUnhealthyChecks, unhealthyChecks);
+            return null;
+        }
+        return reason;
+    }
+
+    private String findThresholdExceeded() {
+        long now = currentTimeMillis();
+        long gcTime = getCollectionTime();
+        long elapsed = now - lastCheckAt;
+        long gcElapsed = gcTime - lastGcTime;
+        lastCheckAt = now;
+        lastGcTime = gcTime;
+
+        if (maxGcTimeRatio > 0 && elapsed > 0) {
+            double gcTimeRatio = (double) gcElapsed / elapsed;
+            LOGGER.debug("Daemon spent {}ms of the last {}ms in garbage collection.", gcElapsed, elapsed);
+            if (gcTimeRatio > maxGcTimeRatio) {
+                return String.format("it spent %s%% of the last %ss in garbage collection", percent(gcTimeRatio), elapsed / 1000);
+            }
+        }
+        if (maxOldGenUsage > 0) {
+            double oldGenUsage = getOldGenUsageAfterCollection();
+            LOGGER.debug("Daemon is using {}% of the old generation after collection.", percent(oldGenUsage));
+            if (oldGenUsage > maxOldGenUsage) {
+                return String.format("it is using %s%% of the old generation after garbage collection", percent(oldGenUsage));
+            }
+        }
+        if (maxLoadedClasses > 0) {
+            int loadedClasses = getLoadedClassCount();
+            LOGGER.debug("Daemon has {} classes loaded.", loadedClasses);
+            if (loadedClasses > maxLoadedClasses) {
+                return String.format("it has %s classes loaded", loadedClasses);
+            }
+        }
+        return null;
+    }
+
+    private static long percent(double ratio) {
+        return Math.round(ratio * 100);
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the total time spent in garbage collection by all collectors, in milliseconds.
+     */
+    protected long getCollectionTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long time = collector.getCollectionTime();
+            if (time > 0) {
+                total += time;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the highest proportion of an old generation pool in use after its most recent collection, or 0 when not known.
+     */
+    protected double getOldGenUsageAfterCollection() {
+        double usage = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !isOldGen(pool.getName())) {
+                continue;
+            }
+            MemoryUsage collectionUsage = pool.getCollectionUsage();
+            if (collectionUsage == null || collectionUsage.getMax() <= 0) {
+                continue;
+            }
+            usage = Math.max(usage, (double) collectionUsage.getUsed() / collectionUsage.getMax());
+        }
+        return usage;
+    }
+
+    private static boolean isOldGen(String poolName) {
+        // "PS Old Gen", "CMS Old Gen", "G1 Old Gen", "Tenured Gen"
+        return poolName.contains("Old Gen") || poolName.contains("Tenured");
+    }
+
+    protected int getLoadedClassCount() {
+        return ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+    }
+}
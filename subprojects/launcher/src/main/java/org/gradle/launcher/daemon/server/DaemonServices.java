@@ -15,9 +15,11 @@
  */
 package org.gradle.launcher.daemon.server;
 
+import org.gradle.api.internal.project.GlobalServicesRegistry;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.initialization.DefaultGradleLauncherFactory;
+import org.gradle.initialization.GradleLauncherFactory;
 import org.gradle.internal.nativeplatform.ProcessEnvironment;
 import org.gradle.internal.nativeplatform.services.NativeServices;
 import org.gradle.internal.service.DefaultServiceRegistry;
@@ -79,6 +81,29 @@ public class DaemonServices extends DefaultServiceRegistry {
         return new File(get(DaemonDir.class).getVersionedDir(), fileName);
     }
 
+    protected GlobalServicesRegistry createGlobalServicesRegistry() {
+        return new GlobalServicesRegistry(loggingServices);
+    }
+
+    protected GradleLauncherFactory createGradleLauncherFactory() {
+        return new DefaultGradleLauncherFactory(get(GlobalServicesRegistry.class));
+    }
+
+    protected DaemonWarmUp createDaemonWarmUp() {
+        return new DaemonWarmUp(
+                get(GlobalServicesRegistry.class),
+                get(GradleLauncherFactory.class),
+                get(ExecutorFactory.class),
+                new File(get(DaemonDir.class).getVersionedDir(), "last-build.bin"),
+                configuration.isWarmUpReplayEnabled());
+    }
+
+    protected DaemonHealthMonitor createDaemonHealthMonitor() {
+        DaemonHealthMonitor healthMonitor = DaemonHealthMonitor.fromSystemProperties(System.getProperties());
+        healthMonitor.start();
+        return healthMonitor;
+    }
+
     protected Daemon createDaemon() {
         return new Daemon(
                 new DaemonTcpServerConnector(),
@@ -86,12 +111,15 @@ public class DaemonServices extends DefaultServiceRegistry {
                 get(DaemonContext.class),
                 "password",
                 new DefaultDaemonCommandExecuter(
-                        new DefaultGradleLauncherFactory(loggingServices),
+                        get(GradleLauncherFactory.class),
                         get(ExecutorFactory.class),
                         get(ProcessEnvironment.class),
                         loggingManager,
-                        getDaemonLogFile()),
-                get(ExecutorFactory.class));
+                        getDaemonLogFile(),
+                        get(DaemonWarmUp.class),
+                        get(DaemonHealthMonitor.class)),
+                get(ExecutorFactory.class),
+                configuration.getMaxConcurrentBuilds());
     }
 
 }
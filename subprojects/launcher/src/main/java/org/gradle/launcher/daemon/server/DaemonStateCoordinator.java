@@ -17,12 +17,18 @@
 package org.gradle.launcher.daemon.server;
 
 import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.internal.Stoppable;
 import org.gradle.internal.UncheckedException;
 import org.gradle.launcher.daemon.server.exec.DaemonCommandExecution;
 import org.gradle.messaging.concurrent.DefaultExecutorFactory;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -33,6 +39,10 @@ import java.util.concurrent.locks.ReentrantLock;
  * This class has no knowledge of the Daemon's internals and is designed to be used internally by the
  * daemon to coordinate itself and allow worker threads to control the daemon's busy/idle status.
  *
+ * The daemon can execute up to a given number of commands concurrently. It is considered busy while it is executing at least one command,
+ * and it is reported as busy (by way of the {@code onStartCommand} callback) only when it reaches capacity. It is reported as available again
+ * (by way of the {@code onFinishCommand} callback) whenever a command finishes.
+ *
  * This is not exposed to clients of the daemon.
  */
 public class DaemonStateCoordinator implements Stoppable {
@@ -43,8 +53,10 @@ public class DaemonStateCoordinator implements Stoppable {
     Condition condition = lock.newCondition();
 
     private boolean stopped;
+    private boolean expired;
     private long lastActivityAt = -1;
-    private DaemonCommandExecution currentCommandExecution;
+    private final int maxConcurrentCommands;
+    private final Set<DaemonCommandExecution> runningExecutions = new LinkedHashSet<DaemonCommandExecution>();
 
     private final Runnable onStart;
     private final Runnable onStartCommand;
@@ -53,6 +65,14 @@ public class DaemonStateCoordinator implements Stoppable {
     private final Runnable onStopRequested;
 
     public DaemonStateCoordinator(Runnable onStart, Runnable onStartCommand, Runnable onFinishCommand, Runnable onStop, Runnable onStopRequested) {
+        this(onStart, onStartCommand, onFinishCommand, onStop, onStopRequested, 1);
+    }
+
+    public DaemonStateCoordinator(Runnable onStart, Runnable onStartCommand, Runnable onFinishCommand, Runnable onStop, Runnable onStopRequested, int maxConcurrentCommands) {
+        if (maxConcurrentCommands < 1) {
+            throw new IllegalArgumentException(String.format("The maximum number of concurrent commands must be at least 1, was %s.", maxConcurrentCommands));
+        }
+        this.maxConcurrentCommands = maxConcurrentCommands;
         this.onStart = onStart;
         this.onStartCommand = onStartCommand;
         this.onFinishCommand = onFinishCommand;
@@ -133,7 +153,7 @@ public class DaemonStateCoordinator implements Stoppable {
 
     public void awaitIdleTimeout(int timeout) throws DaemonStoppedException {
         if (awaitStopOrIdleTimeout(timeout)) {
-            throw new DaemonStoppedException(currentCommandExecution);
+            throw new DaemonStoppedException(getCurrentCommandExecution());
         }
     }
 
@@ -180,6 +200,30 @@ public class DaemonStateCoordinator implements Stoppable {
         }
     }
 
+    /**
+     * Marks the daemon as expired, so that it stops once the commands currently running have finished. The daemon's presence is removed
+     * straight away (by way of the {@code onStopRequested} callback), so that clients start a new daemon rather than use this one.
+     *
+     * @return returns false if the daemon was already expired or requested to stop
+     */
+    public boolean requestStopWhenIdle() {
+        lock.lock();
+        try {
+            if (stopped || expired) {
+                return false;
+            }
+            expired = true;
+            onStopRequested.run(); //blocking
+            if (runningExecutions.isEmpty()) {
+                stopped = true;
+                asyncStop.run(); //not blocking
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Called when the execution of a command begins.
      * <p>
@@ -188,24 +232,57 @@ public class DaemonStateCoordinator implements Stoppable {
      * If the daemon is idle the return value will be {@code null} and the given execution will be considered in progress.
      */
     public DaemonCommandExecution onStartCommand(DaemonCommandExecution execution) {
+        return onStartCommand(execution, Specs.<DaemonCommandExecution>satisfyAll());
+    }
+
+    /**
+     * Called when the execution of a command begins.
+     * <p>
+     * If the daemon is at capacity, or is executing a command that the given execution cannot run alongside, this method will return
+     * that existing execution and the given execution is not considered to be in progress. Otherwise, the return value will be {@code null}
+     * and the given execution will be considered in progress.
+     * <p>
+     * A daemon which has been stopped or has expired does not start any further commands. In this case, this method returns the command
+     * which is still running, or the given execution when no command is running.
+     *
+     * @param canRunAlongside Selects those executions which the given execution can run concurrently with.
+     */
+    public DaemonCommandExecution onStartCommand(DaemonCommandExecution execution, Spec<? super DaemonCommandExecution> canRunAlongside) {
         lock.lock();
         try {
-            if (currentCommandExecution != null) { // daemon is busy
+            if (stopped || expired) {
+                DaemonCommandExecution existing = runningExecutions.isEmpty() ? execution : runningExecutions.iterator().next();
+                LOGGER.debug("onStartCommand({}) called after the daemon was stopped or has expired", execution);
+                return existing;
+            }
+            if (runningExecutions.size() >= maxConcurrentCommands) { // daemon is busy
                 /*
                     This is not particularly abnormal as daemon can become busy between a particular client connecting to it and then
                     sending a command. The UpdateDaemonStateAndHandleBusyDaemon command action will send back a DaemonBusy result
                     to the client which will then just try another daemon, making this a non-error condition.
                 */
-                LOGGER.debug("onStartCommand({}) called while currentCommandExecution = {}", execution, currentCommandExecution);
-                return currentCommandExecution;
-            } else {
+                DaemonCommandExecution existing = runningExecutions.iterator().next();
+                LOGGER.debug("onStartCommand({}) called while {} commands are running, including {}", new Object[]{execution, runningExecutions.size(), existing});
+                return existing;
+            }
+            for (DaemonCommandExecution existing : runningExecutions) {
+                if (!canRunAlongside.isSatisfiedBy(existing)) {
+                    LOGGER.debug("onStartCommand({}) called while incompatible command {} is running", execution, existing);
+                    return existing;
+                }
+            }
+            if (runningExecutions.isEmpty()) {
                 LOGGER.debug("onStartCommand({}) called after {} mins of idle", execution, getIdleMinutes());
-                currentCommandExecution = execution;
-                updateActivityTimestamp();
+            } else {
+                LOGGER.debug("onStartCommand({}) called while {} other commands are running", execution, runningExecutions.size());
+            }
+            runningExecutions.add(execution);
+            updateActivityTimestamp();
+            if (runningExecutions.size() == maxConcurrentCommands && isAdvertised()) {
                 onStartCommand.run();
-                condition.signalAll();
-                return null;
             }
+            condition.signalAll();
+            return null;
         } finally {
             lock.unlock();
         }
@@ -220,23 +297,52 @@ public class DaemonStateCoordinator implements Stoppable {
     public DaemonCommandExecution onFinishCommand() {
         lock.lock();
         try {
-            DaemonCommandExecution execution = currentCommandExecution;
+            DaemonCommandExecution execution = getCurrentCommandExecution();
             if (execution == null) {
                 LOGGER.warn("onFinishCommand() called while currentCommandExecution is null");
-            } else {
-                LOGGER.debug("onFinishCommand() called while execution = {}", execution);
-                currentCommandExecution = null;
-                updateActivityTimestamp();
-                onFinishCommand.run();
-                condition.signalAll();
+                return null;
             }
+            return onFinishCommand(execution);
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    /**
+     * Called when the execution of the given command is complete.
+     * <p>
+     * Returns the given execution if it was in progress and has now been considered complete, or {@code null} if it was not in progress.
+     */
+    public DaemonCommandExecution onFinishCommand(DaemonCommandExecution execution) {
+        lock.lock();
+        try {
+            if (!runningExecutions.remove(execution)) {
+                LOGGER.warn("onFinishCommand({}) called while that command is not running", execution);
+                return null;
+            }
+            LOGGER.debug("onFinishCommand() called while execution = {}", execution);
+            updateActivityTimestamp();
+            if (expired && runningExecutions.isEmpty()) {
+                LOGGER.debug("The last command of an expired daemon has finished, stopping the daemon");
+                stopped = true;
+                asyncStop.run();
+            } else if (isAdvertised()) {
+                onFinishCommand.run();
+            }
+            condition.signalAll();
             return execution;
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Whether the daemon's presence is still advertised to clients, so that its busy/idle status should be kept up to date.
+     */
+    private boolean isAdvertised() {
+        return !stopped && !expired;
+    }
+
     private void updateActivityTimestamp() {
         long now = System.currentTimeMillis();
         LOGGER.debug("updating lastActivityAt to {}", now);
@@ -244,17 +350,33 @@ public class DaemonStateCoordinator implements Stoppable {
     }
 
     /**
-     * The current command execution, or {@code null} if the daemon is idle.
+     * The current command execution, or {@code null} if the daemon is idle. When several commands are running, this is the one which started first.
      */
     public DaemonCommandExecution getCurrentCommandExecution() {
         lock.lock();
         try {
-            return currentCommandExecution;
+            return runningExecutions.isEmpty() ? null : runningExecutions.iterator().next();
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * The command executions currently in progress, in the order they started.
+     */
+    public List<DaemonCommandExecution> getCurrentCommandExecutions() {
+        lock.lock();
+        try {
+            return new ArrayList<DaemonCommandExecution>(runningExecutions);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxConcurrentCommands() {
+        return maxConcurrentCommands;
+    }
+
     /**
      * Has the daemon started accepting connections.
      */
@@ -288,7 +410,7 @@ public class DaemonStateCoordinator implements Stoppable {
     }
 
     public boolean isIdle() {
-        return isRunning() && currentCommandExecution == null;
+        return isRunning() && runningExecutions.isEmpty();
     }
 
     public boolean isBusy() {
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server;
+
+import org.gradle.BuildResult;
+import org.gradle.GradleLauncher;
+import org.gradle.StartParameter;
+import org.gradle.api.Project;
+import org.gradle.api.ProjectEvaluationListener;
+import org.gradle.api.ProjectState;
+import org.gradle.api.internal.ClassPathRegistry;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.initialization.ClassLoaderRegistry;
+import org.gradle.initialization.GradleLauncherFactory;
+import org.gradle.internal.Stoppable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.gradle.util.Clock;
+import org.gradle.util.GUtil;
+
+import java.io.*;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Warms up a newly started daemon while it is idle, so that its first build does not have to pay for loading Gradle's classes and for
+ * running cold code.
+ *
+ * <p>The warm-up loads the classes of Gradle's own jars into the core and plugin class loaders. When enabled, it then configures the most
+ * recent build run by a daemon of this Gradle version, without running any tasks. This runs the Groovy runtime, compiles or loads the build
+ * scripts and opens the caches that the build uses.</p>
+ *
+ * <p>The warm-up is cancelled when a build is requested, or by {@link #stop()}. Cancellation happens between two classes, or before the next
+ * project is configured. A build waits at most {@value #CANCEL_TIMEOUT_MS}ms for the warm-up to stop, and otherwise starts while the warm-up
+ * finishes in the background.</p>
+ */
+public class DaemonWarmUp implements Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(DaemonWarmUp.class);
+    static final int CANCEL_TIMEOUT_MS = 1000;
+
+    private final ServiceRegistry globalServices;
+    private final GradleLauncherFactory launcherFactory;
+    private final ExecutorFactory executorFactory;
+    private final File lastBuildFile;
+    private final boolean replayLastBuild;
+    private final Object lock = new Object();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean cancelled;
+    private StoppableExecutor executor;
+
+    /**
+     * @param lastBuildFile The file to record the most recent build in.
+     * @param replayLastBuild Whether to configure the most recent build as part of the warm-up.
+     */
+    public DaemonWarmUp(ServiceRegistry globalServices, GradleLauncherFactory launcherFactory, ExecutorFactory executorFactory, File lastBuildFile, boolean replayLastBuild) {
+        this.globalServices = globalServices;
+        this.launcherFactory = launcherFactory;
+        this.executorFactory = executorFactory;
+        this.lastBuildFile = lastBuildFile;
+        this.replayLastBuild = replayLastBuild;
+    }
+
+    /**
+     * Starts warming up in the background.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (executor != null || cancelled) {
+                return;
+            }
+            executor = executorFactory.create("Daemon warm-up");
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        warmUp();
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancels the warm-up, and blocks until it has stopped.
+     */
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (lock) {
+            cancelled = true;
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    /**
+     * Called when a build is requested. Cancels the warm-up and records the build, so that the next daemon can replay it. Does not block the
+     * build for longer than {@value #CANCEL_TIMEOUT_MS}ms.
+     */
+    public void buildRequested(StartParameter startParameter) {
+        cancel();
+        if (replayLastBuild) {
+            writeLastBuild(startParameter);
+        }
+    }
+
+    private void cancel() {
+        StoppableExecutor executor;
+        synchronized (lock) {
+            cancelled = true;
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        // The warm-up thread is not interrupted, as an interrupt would close any file channels it is using, such as those of the caches
+        executor.requestStop();
+        try {
+            if (!finished.await(CANCEL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                LOGGER.info("Daemon warm-up has not stopped after {}ms. Starting the build while it finishes in the background.", CANCEL_TIMEOUT_MS);
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+
+    private void warmUp() {
+        Clock clock = new Clock();
+        try {
+            ClassLoaderRegistry classLoaderRegistry = globalServices.get(ClassLoaderRegistry.class);
+            ClassPathRegistry classPathRegistry = globalServices.get(ClassPathRegistry.class);
+            int count = loadClasses(classPathRegistry.getClassPathFiles("GRADLE_CORE"), getClass().getClassLoader());
+            count += loadClasses(classPathRegistry.getClassPathFiles("GRADLE_CORE_IMPL"), classLoaderRegistry.getCoreImplClassLoader());
+            count += loadClasses(classPathRegistry.getClassPathFiles("GRADLE_PLUGINS"), classLoaderRegistry.getPluginsClassLoader());
+            LOGGER.info("Daemon warm-up loaded {} classes in {}.", count, clock.getTime());
+
+            if (replayLastBuild && !cancelled) {
+                replayLastBuild();
+            }
+        } catch (Throwable e) {
+            LOGGER.info("Daemon warm-up failed.", e);
+            return;
+        }
+        LOGGER.info("Daemon warm-up {} after {}.", cancelled ? "was cancelled" : "completed", clock.getTime());
+    }
+
+    private int loadClasses(Set<File> classPath, ClassLoader classLoader) throws IOException {
+        int count = 0;
+        for (File file : classPath) {
+            if (!file.isFile() || !file.getName().startsWith("gradle-")) {
+                continue;
+            }
+            ZipFile jar = new ZipFile(file);
+            try {
+                Enumeration<? extends ZipEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    if (cancelled) {
+                        return count;
+                    }
+                    String name = entries.nextElement().getName();
+                    if (!name.endsWith(".class")) {
+                        continue;
+                    }
+                    try {
+                        Class.forName(name.substring(0, name.length() - 6).replace('/', '.'), false, classLoader);
+                        count++;
+                    } catch (Throwable e) {
+                        // Not all classes can be loaded, for example those which depend on optional libraries
+                    }
+                }
+            } finally {
+                jar.close();
+            }
+        }
+        return count;
+    }
+
+    private void replayLastBuild() {
+        StartParameter startParameter = readLastBuild();
+        if (startParameter == null) {
+            return;
+        }
+        LOGGER.info("Daemon warm-up is configuring the build in {}.", startParameter.getCurrentDir());
+        startParameter.setLogLevel(LogLevel.QUIET);
+        GradleLauncher launcher = launcherFactory.newInstance(startParameter);
+        launcher.addListener(new CancelConfiguration());
+        BuildResult result = launcher.getBuildAnalysis();
+        if (result.getFailure() != null && !cancelled) {
+            LOGGER.info("Daemon warm-up could not configure the build.", result.getFailure());
+        }
+    }
+
+    private StartParameter readLastBuild() {
+        if (!lastBuildFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream instr = new BufferedInputStream(new FileInputStream(lastBuildFile));
+            try {
+                return (StartParameter) new DefaultSerializer<Object>(getClass().getClassLoader()).read(instr);
+            } finally {
+                instr.close();
+            }
+        } catch (Exception e) {
+            LOGGER.info(String.format("Could not read the most recent build from '%s'.", lastBuildFile), e);
+            return null;
+        }
+    }
+
+    private void writeLastBuild(StartParameter startParameter) {
+        // Write to a temporary file first, as other daemons may be reading the file
+        File tmpFile = new File(lastBuildFile.getParentFile(), lastBuildFile.getName() + ".tmp");
+        try {
+            OutputStream outstr = new FileOutputStream(tmpFile);
+            try {
+                outstr.write(GUtil.serialize(startParameter));
+            } finally {
+                outstr.close();
+            }
+            if (!tmpFile.renameTo(lastBuildFile) && (!lastBuildFile.delete() || !tmpFile.renameTo(lastBuildFile))) {
+                throw new IOException(String.format("Could not rename '%s' to '%s'.", tmpFile, lastBuildFile));
+            }
+        } catch (Exception e) {
+            LOGGER.info(String.format("Could not record the most recent build in '%s'.", lastBuildFile), e);
+        }
+    }
+
+    private class CancelConfiguration implements ProjectEvaluationListener {
+        public void beforeEvaluate(Project project) {
+            if (cancelled) {
+                throw new WarmUpCancelledException();
+            }
+        }
+
+        public void afterEvaluate(Project project, ProjectState state) {
+        }
+    }
+
+    private static class WarmUpCancelledException extends RuntimeException {
+        public WarmUpCancelledException() {
+            super("Daemon warm-up was cancelled.");
+        }
+    }
+}
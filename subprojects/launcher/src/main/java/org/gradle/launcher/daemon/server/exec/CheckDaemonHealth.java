@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.launcher.daemon.protocol.Build;
+import org.gradle.launcher.daemon.server.DaemonHealthMonitor;
+
+/**
+ * Checks the health of the daemon once a build has finished, and expires the daemon when it is unhealthy. An expired daemon is removed
+ * from the registry straight away, so that clients start a fresh daemon, and stops once its running builds have finished.
+ */
+public class CheckDaemonHealth extends BuildCommandOnly {
+    private static final Logger LOGGER = Logging.getLogger(CheckDaemonHealth.class);
+    private final DaemonHealthMonitor healthMonitor;
+
+    public CheckDaemonHealth(DaemonHealthMonitor healthMonitor) {
+        this.healthMonitor = healthMonitor;
+    }
+
+    protected void doBuild(DaemonCommandExecution execution, Build build) {
+        execution.proceed();
+
+        String reason = healthMonitor.checkHealth();
+        if (reason != null && execution.getDaemonStateCoordinator().requestStopWhenIdle()) {
+            LOGGER.lifecycle("This daemon will stop once this build has finished, as {}. A new daemon will be started for the next build.", reason);
+        }
+    }
+}
@@ -19,7 +19,9 @@ import org.gradle.initialization.GradleLauncherFactory;
 import org.gradle.internal.nativeplatform.ProcessEnvironment;
 import org.gradle.launcher.daemon.context.DaemonContext;
 import org.gradle.launcher.daemon.protocol.Command;
+import org.gradle.launcher.daemon.server.DaemonHealthMonitor;
 import org.gradle.launcher.daemon.server.DaemonStateCoordinator;
+import org.gradle.launcher.daemon.server.DaemonWarmUp;
 import org.gradle.logging.LoggingManagerInternal;
 import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.messaging.remote.internal.Connection;
@@ -40,14 +42,43 @@ public class DefaultDaemonCommandExecuter implements DaemonCommandExecuter {
     private final GradleLauncherFactory launcherFactory;
     private final ProcessEnvironment processEnvironment;
     private final File daemonLog;
+    private final StartBuildOrRespondWithBusy startBuildOrRespondWithBusy;
+    private final EstablishBuildEnvironment establishBuildEnvironment;
+    private final ForwardClientInput forwardClientInput;
+    private final LogToClient logToClient;
+    private final DaemonWarmUp warmUp;
+    private final DaemonHealthMonitor healthMonitor;
 
     public DefaultDaemonCommandExecuter(GradleLauncherFactory launcherFactory, ExecutorFactory executorFactory,
                                         ProcessEnvironment processEnvironment, LoggingManagerInternal loggingManager, File daemonLog) {
+        this(launcherFactory, executorFactory, processEnvironment, loggingManager, daemonLog, null);
+    }
+
+    public DefaultDaemonCommandExecuter(GradleLauncherFactory launcherFactory, ExecutorFactory executorFactory,
+                                        ProcessEnvironment processEnvironment, LoggingManagerInternal loggingManager, File daemonLog,
+                                        DaemonWarmUp warmUp) {
+        this(launcherFactory, executorFactory, processEnvironment, loggingManager, daemonLog, warmUp, null);
+    }
+
+    /**
+     * @param warmUp The warm-up to stop when a build is requested, or null when the daemon is not warmed up.
+     * @param healthMonitor The monitor to check the health of the daemon with after each build, or null when the health is not checked.
+     */
+    public DefaultDaemonCommandExecuter(GradleLauncherFactory launcherFactory, ExecutorFactory executorFactory,
+                                        ProcessEnvironment processEnvironment, LoggingManagerInternal loggingManager, File daemonLog,
+                                        DaemonWarmUp warmUp, DaemonHealthMonitor healthMonitor) {
+        this.warmUp = warmUp;
+        this.healthMonitor = healthMonitor;
         this.executorFactory = executorFactory;
         this.processEnvironment = processEnvironment;
         this.daemonLog = daemonLog;
         this.loggingManager = loggingManager;
         this.launcherFactory = launcherFactory;
+        // These actions manage state which is shared between builds, so are shared by all executions
+        this.startBuildOrRespondWithBusy = new StartBuildOrRespondWithBusy();
+        this.establishBuildEnvironment = new EstablishBuildEnvironment(processEnvironment);
+        this.forwardClientInput = new ForwardClientInput(executorFactory);
+        this.logToClient = new LogToClient(loggingManager, daemonLog);
     }
 
     public void executeCommand(Connection<Object> connection, Command command, DaemonContext daemonContext, DaemonStateCoordinator daemonStateCoordinator) {
@@ -61,19 +92,28 @@ public class DefaultDaemonCommandExecuter implements DaemonCommandExecuter {
     }
 
     protected List<DaemonCommandAction> createActions(DaemonContext daemonContext) {
-        return new LinkedList<DaemonCommandAction>(Arrays.asList(
+        ReturnResult returnResult = new ReturnResult();
+        List<DaemonCommandAction> actions = new LinkedList<DaemonCommandAction>(Arrays.asList(
             new StopConnectionAfterExecution(),
             new HandleClientDisconnectBeforeSendingCommand(),
             new CatchAndForwardDaemonFailure(),
             new HandleStop(),
-            new StartBuildOrRespondWithBusy(),
-            new EstablishBuildEnvironment(processEnvironment),
-            new LogToClient(loggingManager, daemonContext.getPid(), daemonLog), // from this point down, logging is sent back to the client
-            new ForwardClientInput(executorFactory),
-            new ReturnResult(),
+            startBuildOrRespondWithBusy,
+            establishBuildEnvironment,
+            logToClient, // from this point down, logging is sent back to the client
+            forwardClientInput,
+            returnResult,
             new ResetDeprecationLogger(),
             new WatchForDisconnection(),
             new ExecuteBuild(launcherFactory)
         ));
+        if (warmUp != null) {
+            actions.add(actions.indexOf(establishBuildEnvironment), new StopDaemonWarmUp(warmUp));
+        }
+        if (healthMonitor != null) {
+            // The check happens before the result is returned, so that the client is told when the daemon is going to stop
+            actions.add(actions.indexOf(returnResult) + 1, new CheckDaemonHealth(healthMonitor));
+        }
+        return actions;
     }
 }
\ No newline at end of file
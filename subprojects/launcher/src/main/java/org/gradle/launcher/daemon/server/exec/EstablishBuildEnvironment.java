@@ -27,19 +27,49 @@ import java.util.Properties;
 
 /**
  * Aims to make the local environment the same as the client's environment.
+ * <p>
+ * Builds which run concurrently share the same environment (see {@link StartBuildOrRespondWithBusy}), so the environment is established by
+ * the first build to start and restored when the last running build finishes.
  */
 public class EstablishBuildEnvironment extends BuildCommandOnly {
     private final ProcessEnvironment processEnvironment;
     private final static Logger LOGGER = Logging.getLogger(EstablishBuildEnvironment.class);
+    private final Object lock = new Object();
+    private int activeBuilds;
+    private Properties originalSystemProperties;
+    private Map<String, String> originalEnv;
+    private File originalDir;
 
     public EstablishBuildEnvironment(ProcessEnvironment processEnvironment) {
         this.processEnvironment = processEnvironment;
     }
 
     protected void doBuild(DaemonCommandExecution execution, Build build) {
-        Properties originalSystemProperties = new Properties();
+        synchronized (lock) {
+            if (activeBuilds == 0) {
+                establish(build);
+            } else {
+                LOGGER.debug("Using the environment established for the {} build(s) already running.", activeBuilds);
+            }
+            activeBuilds++;
+        }
+
+        try {
+            execution.proceed();
+        } finally {
+            synchronized (lock) {
+                activeBuilds--;
+                if (activeBuilds == 0) {
+                    restore();
+                }
+            }
+        }
+    }
+
+    private void establish(Build build) {
+        originalSystemProperties = new Properties();
         originalSystemProperties.putAll(System.getProperties());
-        File currentDir = GFileUtils.canonicalise(new File("."));
+        originalDir = GFileUtils.canonicalise(new File("."));
 
         Properties clientSystemProperties = new Properties();
         clientSystemProperties.putAll(build.getParameters().getSystemProperties());
@@ -51,19 +81,19 @@ public class EstablishBuildEnvironment extends BuildCommandOnly {
 
         System.setProperties(clientSystemProperties);
 
-        Map<String, String> originalEnv = System.getenv();
+        originalEnv = System.getenv();
         LOGGER.debug("Configuring env variables: {}", build.getParameters().getEnvVariables());
         processEnvironment.maybeSetEnvironment(build.getParameters().getEnvVariables());
 
         processEnvironment.maybeSetProcessDir(build.getParameters().getCurrentDir());
-
-        try {
-            execution.proceed();
-        } finally {
-            System.setProperties(originalSystemProperties);
-            processEnvironment.maybeSetEnvironment(originalEnv);
-            processEnvironment.maybeSetProcessDir(currentDir);
-        }
     }
 
+    private void restore() {
+        System.setProperties(originalSystemProperties);
+        processEnvironment.maybeSetEnvironment(originalEnv);
+        processEnvironment.maybeSetProcessDir(originalDir);
+        originalSystemProperties = null;
+        originalEnv = null;
+        originalDir = null;
+    }
 }
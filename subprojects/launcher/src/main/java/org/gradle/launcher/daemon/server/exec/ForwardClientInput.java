@@ -36,16 +36,29 @@ import java.util.concurrent.CountDownLatch;
 /**
  * Listens for ForwardInput commands during the execution and sends that to a piped input stream
  * that we install.
+ * <p>
+ * Standard input is process wide, so when builds run concurrently only the first of them receives its client's input. The input
+ * forwarded by the clients of the other builds is discarded.
  */
 public class ForwardClientInput implements DaemonCommandAction {
     private static final Logger LOGGER = Logging.getLogger(ForwardClientInput.class);
     private final ExecutorFactory executorFactory;
+    private final Object lock = new Object();
+    private DaemonCommandExecution stdinOwner;
 
     public ForwardClientInput(ExecutorFactory executorFactory) {
         this.executorFactory = executorFactory;
     }
 
     public void execute(final DaemonCommandExecution execution) {
+        final boolean ownsStdin;
+        synchronized (lock) {
+            ownsStdin = stdinOwner == null;
+            if (ownsStdin) {
+                stdinOwner = execution;
+            }
+        }
+
         final PipedOutputStream inputSource = new PipedOutputStream();
         final PipedInputStream replacementStdin;
         try {
@@ -63,7 +76,9 @@ public class ForwardClientInput implements DaemonCommandAction {
 
         Dispatch<Object> dispatcher = new Dispatch<Object>() {
             public void dispatch(Object command) {
-                if (command instanceof ForwardInput) {
+                if (command instanceof ForwardInput && !ownsStdin) {
+                    LOGGER.debug("Discarding forwarded input, as the daemon's stdin is in use by another build.");
+                } else if (command instanceof ForwardInput) {
                     try {
                         ForwardInput forwardedInput = (ForwardInput)command;
                         LOGGER.debug("Putting forwarded input '{}' on daemon's stdin.", new String(forwardedInput.getBytes()).replace("\n", "\\n"));
@@ -110,6 +125,11 @@ public class ForwardClientInput implements DaemonCommandAction {
             }
         });
 
+        if (!ownsStdin) {
+            execution.proceed();
+            return;
+        }
+
         try {
             new StdinSwapper().swap(replacementStdin, new Callable<Void>() {
                 public Void call() {
@@ -120,6 +140,10 @@ public class ForwardClientInput implements DaemonCommandAction {
             replacementStdin.close();
         } catch (Exception e) {
             throw UncheckedException.asUncheckedException(e);
+        } finally {
+            synchronized (lock) {
+                stdinOwner = null;
+            }
         }
     }
 }
\ No newline at end of file
@@ -25,18 +25,29 @@ import org.gradle.logging.internal.OutputEvent;
 import org.gradle.logging.internal.OutputEventListener;
 
 import java.io.File;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+/**
+ * Sends the log output of a build to its client.
+ * <p>
+ * This action is shared by all executions. Each build registers its own listener for output, and the thread which runs the build is recorded as
+ * belonging to that build. Threads started by a build thread inherit the build they belong to. Output generated by a thread which belongs to a
+ * running build is sent only to the client of that build. Output generated by any other thread cannot be attributed to a build. It is sent to
+ * the client when only one build is running, and is discarded when builds run concurrently, so that the output of one build never reaches the
+ * client of another build.
+ */
 class LogToClient extends BuildCommandOnly {
 
     private static final Logger LOGGER = Logging.getLogger(LogToClient.class);
 
     private final LoggingManagerInternal loggingManager;
-    private final Long daemonPid;
     private final File daemonLog;
+    private final InheritableThreadLocal<DaemonCommandExecution> owner = new InheritableThreadLocal<DaemonCommandExecution>();
+    private final Set<DaemonCommandExecution> runningBuilds = new CopyOnWriteArraySet<DaemonCommandExecution>();
 
-    public LogToClient(LoggingManagerInternal loggingManager, Long daemonPid, File daemonLog) {
+    public LogToClient(LoggingManagerInternal loggingManager, File daemonLog) {
         this.loggingManager = loggingManager;
-        this.daemonPid = daemonPid;
         this.daemonLog = daemonLog;
     }
         
@@ -44,6 +55,9 @@ class LogToClient extends BuildCommandOnly {
         final LogLevel buildLogLevel = build.getStartParameter().getLogLevel();
         OutputEventListener listener = new OutputEventListener() {
             public void onOutput(OutputEvent event) {
+                if (!isOwnedBy(execution)) {
+                    return;
+                }
                 try {
                     if (event.getLogLevel().compareTo(buildLogLevel) >= 0) {
                         execution.getConnection().dispatch(event);
@@ -57,13 +71,26 @@ class LogToClient extends BuildCommandOnly {
 
         LOGGER.info(DaemonMessages.ABOUT_TO_START_RELAYING_LOGS);
         loggingManager.addOutputEventListener(listener);
-        LOGGER.info(DaemonMessages.STARTED_RELAYING_LOGS + daemonPid + "). The daemon log file: " + daemonLog);
+        LOGGER.info(DaemonMessages.STARTED_RELAYING_LOGS + execution.getDaemonContext().getPid() + "). The daemon log file: " + daemonLog);
 
+        DaemonCommandExecution previousOwner = owner.get();
+        owner.set(execution);
+        runningBuilds.add(execution);
         try {
             execution.proceed();
         } finally {
+            runningBuilds.remove(execution);
+            owner.set(previousOwner);
             loggingManager.removeOutputEventListener(listener);
         }
-    } 
-}
+    }
 
+    private boolean isOwnedBy(DaemonCommandExecution execution) {
+        // A thread may have been started by a build which has since finished, for example a pooled thread, so it belongs to no build
+        DaemonCommandExecution origin = owner.get();
+        if (origin != null && runningBuilds.contains(origin)) {
+            return origin == execution;
+        }
+        return runningBuilds.size() == 1 && runningBuilds.contains(execution);
+    }
+}
\ No newline at end of file
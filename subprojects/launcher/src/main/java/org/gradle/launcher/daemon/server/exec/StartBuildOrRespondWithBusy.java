@@ -17,35 +17,81 @@ package org.gradle.launcher.daemon.server.exec;
 
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.initialization.layout.BuildLayoutConfiguration;
+import org.gradle.initialization.layout.BuildLayoutFactory;
 import org.gradle.launcher.daemon.protocol.Build;
 import org.gradle.launcher.daemon.protocol.BuildStarted;
 import org.gradle.launcher.daemon.protocol.DaemonBusy;
 import org.gradle.launcher.daemon.server.DaemonStateCoordinator;
 
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Updates the daemon idle/busy status, sending a DaemonBusy result back to the client if the daemon is busy.
+ * <p>
+ * When the daemon allows concurrent builds, a build is only started alongside builds of other root projects. Builds of the same root project
+ * share the project's caches and build output, so these are run one at a time. The system properties (including {@code user.dir}), environment
+ * variables, working directory and log level are process wide state, which is established by the first of the running builds. So a build is only
+ * started alongside builds which use exactly the same values.
+ * <p>
+ * An instance is shared by all executions, so that the root directory of each running build is calculated once, before the build is started.
  */
 public class StartBuildOrRespondWithBusy extends BuildCommandOnly {
     
     private static final Logger LOGGER = Logging.getLogger(StartBuildOrRespondWithBusy.class);
+    private final Map<DaemonCommandExecution, File> rootDirs = new ConcurrentHashMap<DaemonCommandExecution, File>();
 
     protected void doBuild(DaemonCommandExecution execution, Build build) {
         DaemonStateCoordinator stateCoordinator = execution.getDaemonStateCoordinator();
 
-        DaemonCommandExecution existingExecution = stateCoordinator.onStartCommand(execution);
-        if (existingExecution != null) {
-            LOGGER.info("The daemon will not handle the request: {} because is busy executing: {}. Dispatching 'Busy' response...", build, existingExecution);
-            execution.getConnection().dispatch(new DaemonBusy(existingExecution.getCommand()));
-        } else {
-            try {
-                execution.getConnection().dispatch(new BuildStarted(build));
-                execution.proceed();
-            } finally {
-                stateCoordinator.onFinishCommand();
+        File rootDir = getRootDir(build);
+        rootDirs.put(execution, rootDir);
+        try {
+            DaemonCommandExecution existingExecution = stateCoordinator.onStartCommand(execution, new CanRunAlongside(build, rootDir));
+            if (existingExecution != null) {
+                LOGGER.info("The daemon will not handle the request: {} because is busy executing: {}. Dispatching 'Busy' response...", build, existingExecution);
+                execution.getConnection().dispatch(new DaemonBusy(existingExecution.getCommand()));
+            } else {
+                try {
+                    execution.getConnection().dispatch(new BuildStarted(build));
+                    execution.proceed();
+                } finally {
+                    stateCoordinator.onFinishCommand(execution);
+                }
             }
+        } finally {
+            rootDirs.remove(execution);
         }
     }
-    
-    
 
-}
\ No newline at end of file
+    private static File getRootDir(Build build) {
+        return new BuildLayoutFactory().getLayoutFor(new BuildLayoutConfiguration(build.getStartParameter())).getRootDirectory();
+    }
+
+    private class CanRunAlongside implements Spec<DaemonCommandExecution> {
+        private final Build build;
+        private final File rootDir;
+
+        private CanRunAlongside(Build build, File rootDir) {
+            this.build = build;
+            this.rootDir = rootDir;
+        }
+
+        public boolean isSatisfiedBy(DaemonCommandExecution element) {
+            if (!(element.getCommand() instanceof Build)) {
+                return false;
+            }
+            Build other = (Build) element.getCommand();
+            File otherRootDir = rootDirs.get(element);
+            return otherRootDir != null
+                    && !rootDir.equals(otherRootDir)
+                    && build.getParameters().getCurrentDir().equals(other.getParameters().getCurrentDir())
+                    && build.getParameters().getSystemProperties().equals(other.getParameters().getSystemProperties())
+                    && build.getParameters().getEnvVariables().equals(other.getParameters().getEnvVariables())
+                    && build.getStartParameter().getLogLevel() == other.getStartParameter().getLogLevel();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.launcher.daemon.protocol.Build;
+import org.gradle.launcher.daemon.server.DaemonWarmUp;
+
+/**
+ * Cancels the daemon warm-up when a build is requested, and waits for it to stop before the build environment is established.
+ */
+public class StopDaemonWarmUp extends BuildCommandOnly {
+    private final DaemonWarmUp warmUp;
+
+    public StopDaemonWarmUp(DaemonWarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    protected void doBuild(DaemonCommandExecution execution, Build build) {
+        warmUp.buildRequested(build.getStartParameter());
+        execution.proceed();
+    }
+}
@@ -136,6 +136,9 @@ class CommandLineActionFactoryTest extends Specification {
         1 * loggingManager.start()
         outputs.stdOut.contains(GradleVersion.current().prettyPrint())
 
+        then:
+        1 * loggingManager.stop()
+
         where:
         option << ['-v', '--version']
     }
@@ -16,6 +16,7 @@
 package org.gradle.launcher.daemon.client
 
 import org.gradle.api.specs.Spec
+import org.gradle.launcher.daemon.bootstrap.DaemonStartupInfo
 import org.gradle.launcher.daemon.context.DaemonContext
 import org.gradle.launcher.daemon.context.DefaultDaemonContext
 import org.gradle.launcher.daemon.registry.EmbeddedDaemonRegistry
@@ -65,7 +66,7 @@ class DefaultDaemonConnectorTest extends Specification {
         def address = createAddress(daemonNum)
         registry.store(address, context, "password")
         registry.markBusy(address)
-        return daemonNum.toString()
+        return new DaemonStartupInfo(daemonNum.toString(), null, null)
     }
 
     def startIdleDaemon() {
@@ -167,5 +168,20 @@ class DefaultDaemonConnectorTest extends Specification {
         numAllDaemons == 1
     }
 
+    def "connect() connects to the address reported by the daemon it starts without using the registry"() {
+        def address = createAddress(12)
+        def connector = new DefaultDaemonConnector(
+                new EmbeddedDaemonRegistry(),
+                createOutgoingConnector(),
+                { new DaemonStartupInfo("12", address, "password") } as DaemonStarter
+        )
 
-}
\ No newline at end of file
+        when:
+        def connection = connector.connect({false} as Spec)
+
+        then:
+        connection.connection.num == 12
+        connection.password == "password"
+        connector.daemonRegistry.all.empty
+    }
+}
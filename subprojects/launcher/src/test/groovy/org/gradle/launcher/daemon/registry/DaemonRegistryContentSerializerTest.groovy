@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.registry
+
+import org.gradle.launcher.daemon.context.DefaultDaemonContext
+import org.gradle.messaging.remote.internal.inet.MultiChoiceAddress
+import org.gradle.messaging.remote.internal.inet.SocketInetAddress
+import spock.lang.Specification
+
+class DaemonRegistryContentSerializerTest extends Specification {
+    final DaemonRegistryContentSerializer serializer = new DaemonRegistryContentSerializer()
+
+    def "writes and reads daemon infos"() {
+        def address1 = new MultiChoiceAddress(UUID.randomUUID(), 1234, [InetAddress.getByName("127.0.0.1"), InetAddress.getByName("::1")])
+        def address2 = new SocketInetAddress(InetAddress.getByName("127.0.0.1"), 4567)
+        def context1 = new DefaultDaemonContext("uid1", new File("java-home"), new File("registry"), 123L, 1000, ["-Xmx1g", "-Dsome.prop=value"])
+        def context2 = new DefaultDaemonContext("uid2", null, null, null, null, [])
+        def content = new DaemonRegistryContent()
+        content.setStatus(address1, new DaemonInfo(address1, context1, "password").setIdle(true))
+        content.setStatus(address2, new DaemonInfo(address2, context2, null).setIdle(false))
+
+        when:
+        def result = serialize(content)
+
+        then:
+        result.infos.size() == 2
+
+        def info1 = result.getInfo(address1)
+        info1.address == address1
+        info1.address.port == 1234
+        info1.address.candidates == address1.candidates
+        info1.context.uid == "uid1"
+        info1.context.javaHome == new File("java-home")
+        info1.context.daemonRegistryDir == new File("registry")
+        info1.context.pid == 123L
+        info1.context.idleTimeout == 1000
+        info1.context.daemonOpts == ["-Xmx1g", "-Dsome.prop=value"]
+        info1.password == "password"
+        info1.idle
+
+        def info2 = result.getInfo(address2)
+        info2.address == address2
+        info2.context.uid == "uid2"
+        info2.context.javaHome == null
+        info2.context.pid == null
+        info2.context.idleTimeout == null
+        info2.password == null
+        !info2.idle
+    }
+
+    def "reads empty content"() {
+        expect:
+        serialize(new DaemonRegistryContent()).infos.empty
+    }
+
+    def "treats content in unknown format as empty registry"() {
+        expect:
+        serializer.read(new ByteArrayInputStream(new byte[0])) == null
+        serializer.read(new ByteArrayInputStream("not a registry".bytes)) == null
+    }
+
+    def serialize(DaemonRegistryContent content) {
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, content)
+        return serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+    }
+}
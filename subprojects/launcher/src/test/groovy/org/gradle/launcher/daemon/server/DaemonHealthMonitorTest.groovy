@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server
+
+import org.gradle.api.GradleException
+import org.gradle.launcher.daemon.configuration.DaemonParameters
+import spock.lang.Specification
+
+class DaemonHealthMonitorTest extends Specification {
+    long time = 10000
+    long gcTime = 500
+    double oldGenUsage = 0.2
+    int loadedClasses = 1000
+
+    def "daemon is healthy when all measurements are below their thresholds"() {
+        def monitor = monitor(0.5, 0.9, 5000, 1)
+        monitor.start()
+
+        when:
+        time += 1000
+        gcTime += 200
+
+        then:
+        monitor.checkHealth() == null
+    }
+
+    def "daemon is unhealthy when it spends too much time in garbage collection since the previous check"() {
+        def monitor = monitor(0.5, 0, 0, 1)
+        monitor.start()
+
+        when:
+        time += 2000
+        gcTime += 1200
+
+        then:
+        monitor.checkHealth() == "it spent 60% of the last 2s in garbage collection"
+
+        when:
+        time += 2000
+        gcTime += 100
+
+        then:
+        monitor.checkHealth() == null
+    }
+
+    def "daemon is unhealthy when too much of the old generation is in use after collection"() {
+        def monitor = monitor(0, 0.9, 0, 1)
+        monitor.start()
+
+        when:
+        oldGenUsage = 0.95
+
+        then:
+        monitor.checkHealth() == "it is using 95% of the old generation after garbage collection"
+    }
+
+    def "daemon is unhealthy when too many classes are loaded"() {
+        def monitor = monitor(0, 0, 5000, 1)
+        monitor.start()
+
+        when:
+        loadedClasses = 5001
+
+        then:
+        monitor.checkHealth() == "it has 5001 classes loaded"
+    }
+
+    def "checks are disabled when their threshold is not positive"() {
+        def monitor = monitor(0, 0, 0, 1)
+        monitor.start()
+
+        when:
+        time += 1000
+        gcTime += 1000
+        oldGenUsage = 1
+        loadedClasses = 100000
+
+        then:
+        monitor.checkHealth() == null
+    }
+
+    def "daemon is unhealthy only when a threshold is exceeded by consecutive checks"() {
+        def monitor = monitor(0.5, 0, 0, 3)
+        monitor.start()
+
+        when:
+        time += 1000
+        gcTime += 800
+
+        then:
+        monitor.checkHealth() == null
+
+        when:
+        time += 1000
+        gcTime += 800
+
+        then:
+        monitor.checkHealth() == null
+
+        when:
+        time += 1000
+        gcTime += 100
+
+        then:
+        monitor.checkHealth() == null
+
+        when:
+        def results = (1..3).collect {
+            time += 1000
+            gcTime += 800
+            monitor.checkHealth()
+        }
+
+        then:
+        results == [null, null, "it spent 80% of the last 1s in garbage collection"]
+    }
+
+    def "reads thresholds from system properties"() {
+        def properties = new Properties()
+        properties[DaemonParameters.MAX_GC_TIME_RATIO_SYS_PROPERTY] = "0.25"
+
+        expect:
+        DaemonHealthMonitor.fromSystemProperties(properties).maxGcTimeRatio == 0.25
+        DaemonHealthMonitor.fromSystemProperties(properties).maxOldGenUsage == DaemonHealthMonitor.DEFAULT_MAX_OLD_GEN_USAGE
+        DaemonHealthMonitor.fromSystemProperties(properties).maxLoadedClasses == DaemonHealthMonitor.DEFAULT_MAX_LOADED_CLASSES
+        DaemonHealthMonitor.fromSystemProperties(properties).unhealthyChecks == DaemonHealthMonitor.DEFAULT_UNHEALTHY_CHECKS
+    }
+
+    def "fails when threshold system property is not a number"() {
+        def properties = new Properties()
+        properties[DaemonParameters.MAX_LOADED_CLASSES_SYS_PROPERTY] = "lots"
+
+        when:
+        DaemonHealthMonitor.fromSystemProperties(properties)
+
+        then:
+        GradleException e = thrown()
+        e.message.contains(DaemonParameters.MAX_LOADED_CLASSES_SYS_PROPERTY)
+    }
+
+    def "can measure the health of the current jvm"() {
+        def monitor = new DaemonHealthMonitor(1, 1, Integer.MAX_VALUE, 1)
+        monitor.start()
+
+        expect:
+        monitor.checkHealth() == null
+    }
+
+    def monitor(double maxGcTimeRatio, double maxOldGenUsage, int maxLoadedClasses, int unhealthyChecks) {
+        return new DaemonHealthMonitor(maxGcTimeRatio, maxOldGenUsage, maxLoadedClasses, unhealthyChecks) {
+            @Override
+            protected long currentTimeMillis() {
+                return time
+            }
+
+            @Override
+            protected long getCollectionTime() {
+                return gcTime
+            }
+
+            @Override
+            protected double getOldGenUsageAfterCollection() {
+                return oldGenUsage
+            }
+
+            @Override
+            protected int getLoadedClassCount() {
+                return loadedClasses
+            }
+        }
+    }
+}
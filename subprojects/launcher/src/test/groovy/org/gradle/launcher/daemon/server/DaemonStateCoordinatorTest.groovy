@@ -16,6 +16,8 @@
 package org.gradle.launcher.daemon.server
 
 import java.util.concurrent.locks.Condition
+import org.gradle.api.specs.Spec
+import org.gradle.launcher.daemon.server.exec.DaemonCommandExecution
 import spock.lang.Specification
 
 /**
@@ -74,4 +76,182 @@ class DaemonStateCoordinatorTest extends Specification {
         1 * coordinator.condition.signalAll()
         coordinator.stopped
     }
+
+    def "runs one command at a time by default"() {
+        def execution1 = Mock(DaemonCommandExecution)
+        def execution2 = Mock(DaemonCommandExecution)
+
+        when:
+        def result1 = coordinator.onStartCommand(execution1)
+        def result2 = coordinator.onStartCommand(execution2)
+
+        then:
+        result1 == null
+        result2 == execution1
+        1 * coordinator.onStartCommand.run()
+        coordinator.currentCommandExecutions == [execution1]
+
+        when:
+        def finished = coordinator.onFinishCommand()
+
+        then:
+        finished == execution1
+        1 * coordinator.onFinishCommand.run()
+        coordinator.currentCommandExecution == null
+    }
+
+    def "runs commands concurrently up to the maximum"() {
+        def coordinator = new DaemonStateCoordinator(Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), 2)
+        def execution1 = Mock(DaemonCommandExecution)
+        def execution2 = Mock(DaemonCommandExecution)
+        def execution3 = Mock(DaemonCommandExecution)
+
+        when:
+        def result1 = coordinator.onStartCommand(execution1)
+
+        then:
+        result1 == null
+        0 * coordinator.onStartCommand.run()
+
+        when:
+        def result2 = coordinator.onStartCommand(execution2)
+        def result3 = coordinator.onStartCommand(execution3)
+
+        then:
+        result2 == null
+        result3 == execution1
+        1 * coordinator.onStartCommand.run()
+        coordinator.currentCommandExecutions == [execution1, execution2]
+        coordinator.currentCommandExecution == execution1
+
+        when:
+        def finished = coordinator.onFinishCommand(execution1)
+
+        then:
+        finished == execution1
+        1 * coordinator.onFinishCommand.run()
+        coordinator.currentCommandExecutions == [execution2]
+
+        when:
+        coordinator.onFinishCommand(execution2)
+
+        then:
+        1 * coordinator.onFinishCommand.run()
+        coordinator.currentCommandExecution == null
+    }
+
+    def "does not run command alongside an incompatible command"() {
+        def coordinator = new DaemonStateCoordinator(Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), 2)
+        def execution1 = Mock(DaemonCommandExecution)
+        def execution2 = Mock(DaemonCommandExecution)
+        def canRunAlongside = Mock(Spec)
+
+        given:
+        coordinator.onStartCommand(execution1)
+
+        when:
+        def result = coordinator.onStartCommand(execution2, canRunAlongside)
+
+        then:
+        result == execution1
+        1 * canRunAlongside.isSatisfiedBy(execution1) >> false
+        coordinator.currentCommandExecutions == [execution1]
+    }
+
+    def "does not start command once the daemon has expired"() {
+        def coordinator = new DaemonStateCoordinator(Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), 2)
+        coordinator.asyncStop = Mock(Runnable)
+        def execution1 = Mock(DaemonCommandExecution)
+        def execution2 = Mock(DaemonCommandExecution)
+
+        given:
+        coordinator.onStartCommand(execution1)
+        coordinator.requestStopWhenIdle()
+
+        when:
+        def result = coordinator.onStartCommand(execution2)
+
+        then:
+        result == execution1
+        coordinator.currentCommandExecutions == [execution1]
+    }
+
+    def "does not start command once the daemon has been stopped"() {
+        def coordinator = new DaemonStateCoordinator(Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), 2)
+        coordinator.asyncStop = Mock(Runnable)
+        def execution = Mock(DaemonCommandExecution)
+
+        given:
+        coordinator.requestStop()
+
+        when:
+        def result = coordinator.onStartCommand(execution)
+
+        then:
+        result == execution
+        coordinator.currentCommandExecutions == []
+    }
+
+    def "finishing a command which is not running does nothing"() {
+        def execution = Mock(DaemonCommandExecution)
+
+        when:
+        def result = coordinator.onFinishCommand(execution)
+
+        then:
+        result == null
+        0 * coordinator.onFinishCommand.run()
+    }
+
+    def "expired daemon stops once its running commands have finished"() {
+        coordinator.asyncStop = Mock(Runnable)
+        def execution = Mock(DaemonCommandExecution)
+
+        given:
+        coordinator.onStartCommand(execution)
+
+        when:
+        def expired = coordinator.requestStopWhenIdle()
+
+        then:
+        expired
+        1 * coordinator.onStopRequested.run()
+        0 * coordinator.asyncStop.run()
+        !coordinator.stopped
+
+        when:
+        coordinator.onFinishCommand(execution)
+
+        then:
+        1 * coordinator.asyncStop.run()
+        0 * coordinator.onFinishCommand.run()
+        coordinator.stopped
+
+        when:
+        def expiredAgain = coordinator.requestStopWhenIdle()
+
+        then:
+        !expiredAgain
+        0 * coordinator.onStopRequested.run()
+    }
+
+    def "idle daemon stops as soon as it expires"() {
+        coordinator.asyncStop = Mock(Runnable)
+
+        when:
+        coordinator.requestStopWhenIdle()
+
+        then:
+        1 * coordinator.onStopRequested.run()
+        1 * coordinator.asyncStop.run()
+        coordinator.stopped
+    }
+
+    def "maximum number of concurrent commands must be positive"() {
+        when:
+        new DaemonStateCoordinator(Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), Mock(Runnable), 0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
 }
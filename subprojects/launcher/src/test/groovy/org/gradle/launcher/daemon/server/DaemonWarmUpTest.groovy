@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server
+
+import org.gradle.BuildResult
+import org.gradle.GradleLauncher
+import org.gradle.StartParameter
+import org.gradle.api.internal.ClassPathRegistry
+import org.gradle.initialization.ClassLoaderRegistry
+import org.gradle.initialization.GradleLauncherFactory
+import org.gradle.internal.service.ServiceRegistry
+import org.gradle.messaging.concurrent.ExecutorFactory
+import org.gradle.messaging.concurrent.StoppableExecutor
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class DaemonWarmUpTest extends Specification {
+    @Rule TemporaryFolder tmp = new TemporaryFolder()
+    final ServiceRegistry globalServices = Mock()
+    final ClassPathRegistry classPathRegistry = Mock()
+    final GradleLauncherFactory launcherFactory = Mock()
+    final ExecutorFactory executorFactory = Mock()
+    final StoppableExecutor executor = Mock()
+
+    def setup() {
+        _ * globalServices.get(ClassLoaderRegistry) >> Mock(ClassLoaderRegistry)
+        _ * globalServices.get(ClassPathRegistry) >> classPathRegistry
+        _ * classPathRegistry.getClassPathFiles(_) >> ([] as Set)
+        _ * executorFactory.create(_) >> executor
+        _ * executor.execute(_) >> { Runnable action -> action.run() }
+    }
+
+    def warmUp(boolean replay) {
+        return new DaemonWarmUp(globalServices, launcherFactory, executorFactory, tmp.file("last-build.bin"), replay)
+    }
+
+    def "configures the most recent build when replay is enabled"() {
+        def startParameter = new StartParameter()
+        startParameter.currentDir = tmp.createDir("build")
+        GradleLauncher launcher = Mock()
+
+        given:
+        warmUp(true).buildRequested(startParameter)
+
+        when:
+        warmUp(true).start()
+
+        then:
+        1 * launcherFactory.newInstance({ it.currentDir == startParameter.currentDir }) >> launcher
+        1 * launcher.getBuildAnalysis() >> new BuildResult(null, null)
+    }
+
+    def "does not record or configure the most recent build when replay is disabled"() {
+        when:
+        warmUp(false).buildRequested(new StartParameter())
+        warmUp(false).start()
+
+        then:
+        !tmp.file("last-build.bin").exists()
+        0 * launcherFactory._
+    }
+
+    def "does not configure a build when none has been recorded"() {
+        when:
+        warmUp(true).start()
+
+        then:
+        0 * launcherFactory._
+    }
+
+    def "does not wait for a warm-up which does not stop when a build is requested"() {
+        def warmUp = warmUp(false)
+
+        when:
+        warmUp.start()
+        warmUp.buildRequested(new StartParameter())
+
+        then:
+        1 * executor.execute(_) // Never runs the warm-up, so it never stops
+        1 * executor.requestStop()
+        0 * executor.stop()
+    }
+
+    def "does not start once stopped"() {
+        def warmUp = warmUp(true)
+
+        when:
+        warmUp.stop()
+        warmUp.start()
+
+        then:
+        0 * executorFactory._
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.server.exec
+
+import org.gradle.api.logging.LogLevel
+import org.gradle.initialization.GradleLauncherAction
+import org.gradle.launcher.daemon.context.DaemonContext
+import org.gradle.launcher.daemon.protocol.Build
+import org.gradle.launcher.exec.BuildActionParameters
+import org.gradle.logging.LoggingManagerInternal
+import org.gradle.logging.internal.LogEvent
+import org.gradle.logging.internal.OutputEvent
+import org.gradle.logging.internal.OutputEventListener
+import org.gradle.messaging.remote.internal.DisconnectAwareConnection
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.TimeUnit
+
+class LogToClientTest extends Specification {
+    final List<OutputEventListener> listeners = new CopyOnWriteArrayList<OutputEventListener>()
+    final LoggingManagerInternal loggingManager = [
+            addOutputEventListener: { listeners << it },
+            removeOutputEventListener: { listeners.remove(it) }
+    ] as LoggingManagerInternal
+    final LogToClient action = new LogToClient(loggingManager, new File("daemon.log"))
+
+    def "sends output generated by a build thread only to the client of that build when builds run concurrently"() {
+        def running = new CyclicBarrier(3)
+        def sharedOutputSent = new CyclicBarrier(3)
+        def output1 = event("build 1")
+        def childOutput1 = event("child of build 1")
+        def output2 = event("build 2")
+        def sharedOutput = event("shared")
+        def received1 = new CopyOnWriteArrayList()
+        def received2 = new CopyOnWriteArrayList()
+        def execution1 = execution(received1) {
+            await(running)
+            await(sharedOutputSent)
+            output(output1)
+            Thread.start { output(childOutput1) }.join()
+        }
+        def execution2 = execution(received2) {
+            await(running)
+            await(sharedOutputSent)
+            output(output2)
+        }
+
+        when:
+        def threads = [execution1, execution2].collect { execution -> Thread.start { execution.proceed() } }
+        await(running)
+        output(sharedOutput)
+        await(sharedOutputSent)
+        threads*.join()
+
+        then:
+        received1 == [output1, childOutput1]
+        received2 == [output2]
+        listeners.empty
+    }
+
+    def "sends output generated by other threads to the client when only one build is running"() {
+        def received = new CopyOnWriteArrayList()
+        def running = new CyclicBarrier(2)
+        def sent = new CyclicBarrier(2)
+        def sharedOutput = event("shared")
+        def execution = execution(received) {
+            await(running)
+            await(sent)
+        }
+
+        when:
+        def thread = Thread.start { execution.proceed() }
+        await(running)
+        output(sharedOutput)
+        await(sent)
+        thread.join()
+
+        then:
+        received == [sharedOutput]
+    }
+
+    def "does not send output below the log level of the build"() {
+        def received = new CopyOnWriteArrayList()
+        def info = event("info", LogLevel.INFO)
+        def lifecycle = event("lifecycle")
+        def execution = execution(received) {
+            output(info)
+            output(lifecycle)
+        }
+
+        when:
+        execution.proceed()
+
+        then:
+        received == [lifecycle]
+    }
+
+    def execution(List received, Closure build) {
+        DisconnectAwareConnection<Object> connection = [dispatch: { received << it }] as DisconnectAwareConnection
+        DaemonContext daemonContext = [getPid: { 12L }] as DaemonContext
+        BuildActionParameters parameters = [getClientMetaData: { null }] as BuildActionParameters
+        GradleLauncherAction<?> launcherAction = Mock()
+        return new DaemonCommandExecution(connection, new Build(launcherAction, parameters), daemonContext, null, [action, { build() } as DaemonCommandAction])
+    }
+
+    def output(OutputEvent event) {
+        listeners.each { it.onOutput(event) }
+    }
+
+    def event(String message, LogLevel logLevel = LogLevel.LIFECYCLE) {
+        return new LogEvent(0, "category", logLevel, message, null)
+    }
+
+    def await(CyclicBarrier barrier) {
+        barrier.await(10, TimeUnit.SECONDS)
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.peformance
+
+import org.gradle.listener.ListenerBroadcast
+import org.gradle.messaging.dispatch.MethodInvocation
+import org.gradle.messaging.dispatch.ReflectionDispatch
+import org.gradle.peformance.fixture.MicroBenchmark
+import spock.lang.Specification
+
+import java.lang.reflect.Method
+
+class DispatchPerformanceTest extends Specification {
+    def "compares the cost of generated dispatch with the cost of reflective dispatch"() {
+        def listener = new CountingListener()
+        def invocation = new MethodInvocation(TestListener.getMethod("event", String, int), ["value", 12] as Object[])
+
+        when:
+        def reflective = new MicroBenchmark(displayName: "reflective dispatch", warmUpIterations: 100000, iterations: 1000000).run {
+            Method method = invocation.method
+            method.accessible = true
+            method.invoke(listener, invocation.arguments)
+        }
+        def dispatch = new ReflectionDispatch(listener)
+        def generated = new MicroBenchmark(displayName: "generated dispatch", warmUpIterations: 100000, iterations: 1000000).run {
+            dispatch.dispatch(invocation)
+        }
+        def broadcast = new ListenerBroadcast<TestListener>(TestListener)
+        broadcast.add(listener)
+        def source = broadcast.source
+        new MicroBenchmark(displayName: "listener broadcast", warmUpIterations: 100000, iterations: 1000000).run {
+            source.event("value", 12)
+        }
+
+        MicroBenchmark.report("generated dispatch", generated, "reflective dispatch", reflective)
+
+        then:
+        listener.count > 0
+    }
+
+    static interface TestListener {
+        void event(String value, int count)
+    }
+
+    static class CountingListener implements TestListener {
+        long count
+
+        void event(String value, int count) {
+            this.count += count
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.peformance
+
+import org.gradle.api.file.EmptyFileVisitor
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.peformance.fixture.MicroBenchmark
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class FileTreePerformanceTest extends Specification {
+    @Rule TemporaryFolder tmpDir = new TemporaryFolder()
+
+    def "compares visiting a tree of 100k files when each use of a file attribute reads the file system and when each visit does"() {
+        def root = createTree(tmpDir.createDir("tree"), 100, 1000)
+        def tree = new DirectoryFileTree(root)
+
+        when:
+        def statPerUse = new MicroBenchmark(displayName: "visit 100k files, stat per use", warmUpIterations: 2, iterations: 5).run {
+            tree.visit(new EmptyFileVisitor() {
+                void visitFile(FileVisitDetails fileDetails) {
+                    // As the snapshotter, the hasher and a copy would each do
+                    3.times {
+                        fileDetails.file.length()
+                        fileDetails.file.lastModified()
+                    }
+                }
+            })
+        }
+        def statPerVisit = new MicroBenchmark(displayName: "visit 100k files, stat per visit", warmUpIterations: 2, iterations: 5).run {
+            tree.visit(new EmptyFileVisitor() {
+                void visitFile(FileVisitDetails fileDetails) {
+                    3.times {
+                        fileDetails.size
+                        fileDetails.lastModified
+                    }
+                }
+            })
+        }
+
+        MicroBenchmark.report("stat per visit", statPerVisit, "stat per use", statPerUse)
+
+        then:
+        noExceptionThrown()
+    }
+
+    private static TestFile createTree(TestFile root, int dirs, int filesPerDir) {
+        dirs.times { dir ->
+            filesPerDir.times { file ->
+                root.file("dir$dir/file${file}.txt").text = "content $file"
+            }
+        }
+        return root
+    }
+}
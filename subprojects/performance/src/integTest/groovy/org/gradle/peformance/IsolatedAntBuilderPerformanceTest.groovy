@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.peformance
+
+import org.gradle.api.internal.ClassPathRegistry
+import org.gradle.api.internal.DefaultClassPathProvider
+import org.gradle.api.internal.DefaultClassPathRegistry
+import org.gradle.api.internal.classpath.DefaultModuleRegistry
+import org.gradle.api.internal.project.DefaultIsolatedAntBuilder
+import org.gradle.api.internal.project.IsolatedClassLoaderCache
+import org.gradle.peformance.fixture.MicroBenchmark
+import org.gradle.util.DefaultClassLoaderFactory
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class IsolatedAntBuilderPerformanceTest extends Specification {
+    @Rule TemporaryFolder tmpDir = new TemporaryFolder()
+    final ClassPathRegistry registry = new DefaultClassPathRegistry(new DefaultClassPathProvider(new DefaultModuleRegistry()))
+
+    def "compares running groovyc in each build with class loaders per build and with class loaders shared by the builds"() {
+        TestFile srcDir = tmpDir.createDir('src')
+        srcDir.file('Thing.groovy').text = 'class Thing { String name; int count() { name.size() } }'
+        TestFile destDir = tmpDir.createDir('classes')
+        def shared = new IsolatedClassLoaderCache()
+
+        when:
+        // Each iteration stands for a build, which has its own builder
+        def perBuild = new MicroBenchmark(displayName: "groovyc, class loaders per build", warmUpIterations: 2, iterations: 10).run {
+            def cache = new IsolatedClassLoaderCache()
+            runGroovyc(builder(cache), srcDir, destDir)
+            cache.close()
+        }
+        def sharedByBuilds = new MicroBenchmark(displayName: "groovyc, class loaders shared by builds", warmUpIterations: 2, iterations: 10).run {
+            runGroovyc(builder(shared), srcDir, destDir)
+        }
+
+        MicroBenchmark.report("groovyc, class loaders shared by builds", sharedByBuilds, "groovyc, class loaders per build", perBuild)
+
+        then:
+        destDir.file('Thing.class').file
+
+        cleanup:
+        shared.close()
+    }
+
+    def "compares running an Ant task in each build with class loaders per build and with class loaders shared by the builds"() {
+        TestFile dir = tmpDir.createDir('files')
+        10.times { dir.file("file${it}.txt").text = "content $it" }
+        def shared = new IsolatedClassLoaderCache()
+
+        when:
+        def perBuild = new MicroBenchmark(displayName: "ant fileset, class loaders per build", warmUpIterations: 5, iterations: 50).run {
+            def cache = new IsolatedClassLoaderCache()
+            runCopy(builder(cache), dir)
+            cache.close()
+        }
+        def sharedByBuilds = new MicroBenchmark(displayName: "ant fileset, class loaders shared by builds", warmUpIterations: 5, iterations: 50).run {
+            runCopy(builder(shared), dir)
+        }
+
+        MicroBenchmark.report("ant fileset, class loaders shared by builds", sharedByBuilds, "ant fileset, class loaders per build", perBuild)
+
+        then:
+        dir.file('copy/file0.txt').file
+
+        cleanup:
+        shared.close()
+    }
+
+    private DefaultIsolatedAntBuilder builder(IsolatedClassLoaderCache cache) {
+        return new DefaultIsolatedAntBuilder(registry, new DefaultClassLoaderFactory(), cache)
+    }
+
+    private static void runGroovyc(DefaultIsolatedAntBuilder builder, File srcDir, File destDir) {
+        // Start from scratch, as groovyc skips sources which are up to date
+        destDir.deleteDir()
+        destDir.mkdirs()
+        builder.execute {
+            taskdef(name: 'groovyc', classname: 'org.codehaus.groovy.ant.Groovyc')
+            groovyc(srcdir: srcDir, destdir: destDir, includeAntRuntime: false)
+        }
+    }
+
+    private static void runCopy(DefaultIsolatedAntBuilder builder, File dir) {
+        builder.execute {
+            copy(todir: new File(dir, 'copy'), overwrite: true) {
+                fileset(dir: dir, includes: '*.txt')
+            }
+        }
+    }
+}
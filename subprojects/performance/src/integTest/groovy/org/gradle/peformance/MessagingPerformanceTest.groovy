@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.peformance
+
+import org.gradle.api.Action
+import org.gradle.api.internal.tasks.testing.DefaultTestMethodDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.logging.Logging
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import org.gradle.messaging.remote.internal.BinaryMessageSerializer
+import org.gradle.messaging.remote.internal.DefaultMessageSerializer
+import org.gradle.messaging.remote.internal.Message
+import org.gradle.messaging.remote.internal.MessageSerializer
+import org.gradle.messaging.remote.internal.inet.InetAddressFactory
+import org.gradle.messaging.remote.internal.inet.TcpIncomingConnector
+import org.gradle.messaging.remote.internal.inet.TcpOutgoingConnector
+import org.gradle.messaging.remote.internal.protocol.RemoteMethodInvocation
+import org.gradle.messaging.remote.internal.protocol.Request
+import org.gradle.util.CompositeIdGenerator
+import org.gradle.util.UUIDGenerator
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+class MessagingPerformanceTest extends Specification {
+    private final static LOGGER = Logging.getLogger(MessagingPerformanceTest.class)
+    final int messages = 100000
+
+    def "compares the throughput of the binary message serializer with Java serialization"() {
+        def javaSerialization = new DefaultMessageSerializer<Message>(getClass().classLoader)
+        def binary = new BinaryMessageSerializer<Message>(getClass().classLoader)
+
+        when:
+        2.times {
+            measure(javaSerialization, this.&genericArguments)
+            measure(binary, this.&genericArguments)
+        }
+        def javaSerializationRate = medianRate(javaSerialization, this.&genericArguments)
+        def binaryRate = medianRate(binary, this.&genericArguments)
+        LOGGER.lifecycle(String.format("Java serialization: %.0f messages/second, binary: %.0f messages/second (median of 5 runs).", javaSerializationRate, binaryRate))
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "compares the throughput of the binary message serializer with Java serialization for test worker events"() {
+        def javaSerialization = new DefaultMessageSerializer<Message>(getClass().classLoader)
+        def binary = new BinaryMessageSerializer<Message>(getClass().classLoader)
+
+        when:
+        2.times {
+            measure(javaSerialization, this.&testEventArguments)
+            measure(binary, this.&testEventArguments)
+        }
+        def javaSerializationRate = medianRate(javaSerialization, this.&testEventArguments)
+        def binaryRate = medianRate(binary, this.&testEventArguments)
+        LOGGER.lifecycle(String.format("Test events - Java serialization: %.0f messages/second, binary: %.0f messages/second (median of 5 runs).", javaSerializationRate, binaryRate))
+
+        then:
+        noExceptionThrown()
+    }
+
+    Object[] genericArguments(int i) {
+        return [i % 100, "output line ${i % 20}".toString(), "test ${i % 500}".toString(), Boolean.TRUE] as Object[]
+    }
+
+    /**
+     * Returns the arguments of the started(), output() and completed() calls a test worker makes for each test.
+     */
+    Object[] testEventArguments(int i) {
+        def testId = new CompositeIdGenerator.CompositeId(12L, (long) i.intdiv(4))
+        switch (i % 4) {
+            case 0:
+                def parentId = new CompositeIdGenerator.CompositeId(12L, (long) i.intdiv(40))
+                def descriptor = new DefaultTestMethodDescriptor(testId, "org.gradle.SomeTest${i.intdiv(40)}".toString(), "test${i % 40}".toString())
+                return [descriptor, new TestStartEvent(System.currentTimeMillis(), parentId)] as Object[]
+            case 1:
+            case 2:
+                return [testId, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "output line ${i % 20}".toString())] as Object[]
+            default:
+                return [testId, new TestCompleteEvent(System.currentTimeMillis(), TestResult.ResultType.SUCCESS)] as Object[]
+        }
+    }
+
+    /**
+     * Measures the given serializer several times, and returns the median number of messages received per second.
+     */
+    double medianRate(MessageSerializer<Message> serializer, Closure arguments) {
+        List<Double> rates = (1..5).collect { measure(serializer, arguments) }.sort()
+        return rates[2]
+    }
+
+    /**
+     * Sends remote method invocations over a socket connection, and returns the number of messages received per second.
+     */
+    double measure(MessageSerializer<Message> serializer, Closure arguments) {
+        def executorFactory = new DefaultExecutorFactory()
+        def incomingConnector = new TcpIncomingConnector<Message>(executorFactory, serializer, new InetAddressFactory(), new UUIDGenerator())
+        def outgoingConnector = new TcpOutgoingConnector<Message>(serializer)
+        def finished = new CountDownLatch(1)
+        def received = new AtomicInteger()
+        try {
+            def address = incomingConnector.accept({ event ->
+                def connection = event.connection
+                while (connection.receive() != null) {
+                    received.incrementAndGet()
+                }
+                connection.stop()
+                finished.countDown()
+            } as Action, false)
+
+            def connection = outgoingConnector.connect(address)
+            def consumerId = UUID.randomUUID()
+            long start = System.nanoTime()
+            for (int i = 0; i < messages; i++) {
+                connection.dispatch(new Request(consumerId, new RemoteMethodInvocation(i % 5, arguments.call(i))))
+            }
+            connection.stop()
+            finished.await()
+            assert received.get() == messages
+            return messages / ((System.nanoTime() - start) / 1000000000D)
+        } finally {
+            incomingConnector.requestStop()
+            executorFactory.stop()
+        }
+    }
+}
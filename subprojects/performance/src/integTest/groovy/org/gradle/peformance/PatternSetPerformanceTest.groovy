@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.peformance
+
+import org.apache.tools.ant.DirectoryScanner
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.file.RelativePathSpec
+import org.gradle.api.internal.file.pattern.PatternMatcherFactory
+import org.gradle.api.specs.NotSpec
+import org.gradle.api.specs.OrSpec
+import org.gradle.api.specs.Spec
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.peformance.fixture.MicroBenchmark
+import spock.lang.Specification
+
+class PatternSetPerformanceTest extends Specification {
+    def "compares matching a source tree against a compiled pattern set with matching each pattern in turn"() {
+        def patternSet = new PatternSet()
+        patternSet.exclude('**/node_modules/**', '**/build/**', '**/*.orig')
+        def paths = sourceTreePaths()
+        def elements = paths.collect { path -> [getRelativePath: { path }] as FileTreeElement }
+        def perPatternSpec = perPatternSpec(patternSet.excludes + (DirectoryScanner.DEFAULTEXCLUDES as List))
+
+        when:
+        def perPattern = new MicroBenchmark(displayName: "match ${paths.size()} paths, spec per pattern", warmUpIterations: 5, iterations: 20).run {
+            elements.each { perPatternSpec.isSatisfiedBy(it) }
+        }
+        def compiled = new MicroBenchmark(displayName: "match ${paths.size()} paths, compiled pattern set", warmUpIterations: 5, iterations: 20).run {
+            Spec<FileTreeElement> spec = patternSet.asSpec
+            elements.each { spec.isSatisfiedBy(it) }
+        }
+
+        MicroBenchmark.report("compiled pattern set", compiled, "spec per pattern", perPattern)
+
+        then:
+        elements.every { perPatternSpec.isSatisfiedBy(it) == patternSet.asSpec.isSatisfiedBy(it) }
+    }
+
+    // The spec as it was built before pattern sets were compiled
+    private static Spec<FileTreeElement> perPatternSpec(Collection<String> excludes) {
+        List<Spec<FileTreeElement>> matchers = excludes.collect { new RelativePathSpec(PatternMatcherFactory.getPatternMatcher(false, true, it)) }
+        return new NotSpec<FileTreeElement>(new OrSpec<FileTreeElement>(matchers as Spec[]))
+    }
+
+    // A multi-module source tree, with some build output and version control metadata
+    private static List<RelativePath> sourceTreePaths() {
+        def paths = []
+        20.times { module ->
+            paths << new RelativePath(false, "module$module")
+            ['src/main/java', 'src/test/java', 'build/classes/main', '.svn'].each { dir ->
+                def segments = ["module$module"] + dir.split('/').toList()
+                10.times { pkg ->
+                    def pkgSegments = segments + ['org', 'gradle', "pkg$pkg"]
+                    paths << new RelativePath(false, pkgSegments as String[])
+                    20.times { file ->
+                        paths << new RelativePath(true, (pkgSegments + ["Class${file}.java"]) as String[])
+                    }
+                }
+            }
+        }
+        return paths
+    }
+}
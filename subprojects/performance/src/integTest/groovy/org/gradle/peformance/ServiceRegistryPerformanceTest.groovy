@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.peformance
+
+import org.gradle.internal.service.DefaultServiceRegistry
+import org.gradle.peformance.fixture.MicroBenchmark
+import spock.lang.Specification
+
+class ServiceRegistryPerformanceTest extends Specification {
+    def "compares the cost of looking up a service with the cost of creating a registry"() {
+        def parent = new DefaultServiceRegistry()
+        parent.add(Long, 12L)
+        def registry = new ManyServicesRegistry(parent)
+
+        when:
+        def create = new MicroBenchmark(displayName: "create registry").run { new ManyServicesRegistry(parent) }
+        def lookup = new MicroBenchmark(displayName: "lookup own service", iterations: 100000).run { registry.get(Service20) }
+        def parentLookup = new MicroBenchmark(displayName: "lookup parent service", iterations: 100000).run { registry.get(Long) }
+
+        MicroBenchmark.report("lookup own service", lookup, "create registry", create)
+        MicroBenchmark.report("lookup parent service", parentLookup, "create registry", create)
+
+        then:
+        registry.get(Service20).is(registry.get(Service20))
+        registry.get(Long) == 12L
+    }
+
+    static class ManyServicesRegistry extends DefaultServiceRegistry {
+        ManyServicesRegistry(parent) {
+            super(parent)
+        }
+
+        Service1 createService1() { new Service1() }
+        Service2 createService2() { new Service2() }
+        Service3 createService3() { new Service3() }
+        Service4 createService4() { new Service4() }
+        Service5 createService5() { new Service5() }
+        Service6 createService6() { new Service6() }
+        Service7 createService7() { new Service7() }
+        Service8 createService8() { new Service8() }
+        Service9 createService9() { new Service9() }
+        Service10 createService10() { new Service10() }
+        Service11 createService11() { new Service11() }
+        Service12 createService12() { new Service12() }
+        Service13 createService13() { new Service13() }
+        Service14 createService14() { new Service14() }
+        Service15 createService15() { new Service15() }
+        Service16 createService16() { new Service16() }
+        Service17 createService17() { new Service17() }
+        Service18 createService18() { new Service18() }
+        Service19 createService19() { new Service19() }
+        Service20 createService20() { new Service20() }
+    }
+
+    static class Service1 {}
+    static class Service2 {}
+    static class Service3 {}
+    static class Service4 {}
+    static class Service5 {}
+    static class Service6 {}
+    static class Service7 {}
+    static class Service8 {}
+    static class Service9 {}
+    static class Service10 {}
+    static class Service11 {}
+    static class Service12 {}
+    static class Service13 {}
+    static class Service14 {}
+    static class Service15 {}
+    static class Service16 {}
+    static class Service17 {}
+    static class Service18 {}
+    static class Service19 {}
+    static class Service20 {}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.peformance.fixture
+
+import org.gradle.api.logging.Logging
+
+/**
+ * Measures the average time taken by an operation which runs in the current JVM. The operation is run a number of times to warm up
+ * the JVM before it is measured. The measurement is then repeated, and the median is used, so that a single slow run, such as one
+ * interrupted by a full GC, does not skew the result.
+ *
+ * <p>The results are reported rather than asserted, as timings vary too much between runs and between machines for a single comparison
+ * to fail a build on.</p>
+ */
+public class MicroBenchmark {
+    private final static LOGGER = Logging.getLogger(MicroBenchmark.class)
+
+    String displayName
+    int warmUpIterations = 1000
+    int iterations = 10000
+    int runs = 5
+
+    /**
+     * Runs the given operation, and returns the median of the average time taken by each iteration, in nanoseconds.
+     */
+    double run(Closure operation) {
+        warmUpIterations.times { operation() }
+        List<Double> results = []
+        runs.times {
+            long start = System.nanoTime()
+            for (int i = 0; i < iterations; i++) {
+                operation()
+            }
+            results << (System.nanoTime() - start) / (double) iterations
+        }
+        results.sort()
+        double nanosPerIteration = results[results.size().intdiv(2)]
+        LOGGER.lifecycle(String.format("%s: %.1f ns per iteration (median of %d runs of %d iterations, min %.1f ns, max %.1f ns).",
+                displayName, nanosPerIteration, runs, iterations, results.first(), results.last()))
+        return nanosPerIteration
+    }
+
+    /**
+     * Reports how many times faster the candidate operation is than the baseline operation.
+     */
+    static void report(String candidate, double candidateNanos, String baseline, double baselineNanos) {
+        LOGGER.lifecycle(String.format("%s takes %.2f times as long as %s.", candidate, candidateNanos / baselineNanos, baseline))
+    }
+}
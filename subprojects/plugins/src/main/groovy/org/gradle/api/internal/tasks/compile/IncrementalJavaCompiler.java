@@ -16,19 +16,55 @@
 package org.gradle.api.internal.tasks.compile;
 
 import org.gradle.api.AntBuilder;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
+import org.gradle.api.internal.tasks.compile.incremental.ClassFileAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.SelectiveJavaCompiler;
+import org.gradle.api.tasks.WorkResult;
 import org.gradle.internal.Factory;
 import org.gradle.api.internal.TaskOutputsInternal;
 
+import java.io.File;
+
 public class IncrementalJavaCompiler extends IncrementalJavaCompilerSupport<JavaCompileSpec> implements Compiler<JavaCompileSpec> {
     private final Compiler<JavaCompileSpec> compiler;
     private final Factory<AntBuilder> antBuilderFactory;
     private final TaskOutputsInternal taskOutputs;
+    private final Factory<File> stateFileFactory;
+    private final Factory<? extends FileSnapshotter> snapshotterFactory;
 
     public IncrementalJavaCompiler(Compiler<JavaCompileSpec> compiler, Factory<AntBuilder> antBuilderFactory,
                                    TaskOutputsInternal taskOutputs) {
+        this(compiler, antBuilderFactory, taskOutputs, null, null);
+    }
+
+    /**
+     * @param stateFileFactory Provides the file to record the state of the previous compilation in, when
+     * {@link org.gradle.api.tasks.compile.CompileOptions#isIncremental()} is set.
+     * @param snapshotterFactory Provides the snapshotter to use to detect changed source files and classpath entries. This should be the build's
+     * snapshotter, so that the hashes of unchanged files are not recalculated.
+     */
+    public IncrementalJavaCompiler(Compiler<JavaCompileSpec> compiler, Factory<AntBuilder> antBuilderFactory,
+                                   TaskOutputsInternal taskOutputs, Factory<File> stateFileFactory,
+                                   Factory<? extends FileSnapshotter> snapshotterFactory) {
         this.compiler = compiler;
         this.antBuilderFactory = antBuilderFactory;
         this.taskOutputs = taskOutputs;
+        this.stateFileFactory = stateFileFactory;
+        this.snapshotterFactory = snapshotterFactory;
+    }
+
+    @Override
+    public WorkResult execute(JavaCompileSpec spec) {
+        if (!spec.getCompileOptions().isIncremental() || stateFileFactory == null || snapshotterFactory == null) {
+            return super.execute(spec);
+        }
+        Compiler<JavaCompileSpec> fullCompiler = new Compiler<JavaCompileSpec>() {
+            public WorkResult execute(JavaCompileSpec fullSpec) {
+                return IncrementalJavaCompiler.super.execute(fullSpec);
+            }
+        };
+        return new SelectiveJavaCompiler(fullCompiler, compiler, stateFileFactory.create(), snapshotterFactory.create(),
+                new ClassFileAnalyzer()).execute(spec);
     }
 
     @Override
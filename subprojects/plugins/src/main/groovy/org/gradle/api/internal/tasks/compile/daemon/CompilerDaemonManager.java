@@ -15,11 +15,11 @@
  */
 package org.gradle.api.internal.tasks.compile.daemon;
 
-import net.jcip.annotations.NotThreadSafe;
-
-import org.gradle.BuildAdapter;
-import org.gradle.BuildResult;
+import net.jcip.annotations.ThreadSafe;
 import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.tasks.compile.CompileSpec;
+import org.gradle.api.internal.tasks.compile.Compiler;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.process.internal.JavaExecHandleBuilder;
@@ -28,50 +28,274 @@ import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.util.Jvm;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.util.*;
 
 /**
- * Controls the lifecycle of the compiler daemon and provides access to it.
+ * Controls the lifecycle of the compiler daemons and provides access to them.
+ *
+ * <p>Keeps a pool of compiler daemons, which lives as long as the Gradle process does, so that a compiler daemon can be reused by later tasks
+ * and later builds. A daemon is handed out to one compile task at a time, so that independent tasks can compile concurrently, each in its own
+ * daemon. A task reuses an idle daemon which is compatible with the task's fork options and which was started with the build's log level,
+ * and otherwise starts a new daemon.</p>
+ *
+ * <p>An idle daemon is stopped once it has been idle for longer than the idle timeout. The pool is also bounded, by stopping the least
+ * recently used idle daemons while the pool holds more than the maximum number of daemons, or while the maximum heap sizes of its daemons add
+ * up to more than a proportion of the machine's physical memory. A daemon whose maximum heap size is not specified is assumed to use the
+ * JVM's default of a quarter of the physical memory. The memory bound is not applied to a pool of a single daemon, so that a daemon with a
+ * large heap can still be reused.</p>
+ *
+ * <p>Optionally, the idle daemons are also stopped when the free physical memory of the machine falls below a threshold. This check is off
+ * by default, as the free memory reported by the operating system does not include the memory used for caches, which is usually most of
+ * the memory not in use. The compiler daemons are killed when the Gradle process exits.</p>
  */
-@NotThreadSafe
+@ThreadSafe
 public class CompilerDaemonManager {
+    public static final String IDLE_TIMEOUT_SYS_PROPERTY = "org.gradle.compiler.daemon.idletimeout";
+    public static final String MIN_FREE_MEMORY_SYS_PROPERTY = "org.gradle.compiler.daemon.minfreememory";
+    public static final String MAX_DAEMONS_SYS_PROPERTY = "org.gradle.compiler.daemon.max";
+    public static final String MAX_HEAP_PERCENT_SYS_PROPERTY = "org.gradle.compiler.daemon.maxheappercent";
+    static final long DEFAULT_IDLE_TIMEOUT = 10 * 60 * 1000;
+    static final long DEFAULT_MIN_FREE_MEMORY_MB = 0;
+    static final int DEFAULT_MAX_HEAP_PERCENT = 50;
+    private static final long EXPIRY_CHECK_INTERVAL = 60 * 1000;
     private static final Logger LOGGER = Logging.getLogger(CompilerDaemonManager.class);
-    private static final CompilerDaemonManager INSTANCE = new CompilerDaemonManager();
-    
-    private volatile CompilerDaemonClient client;
-    private volatile WorkerProcess process;
-    
+    private static final CompilerDaemonManager INSTANCE = new CompilerDaemonManager(
+            Long.getLong(IDLE_TIMEOUT_SYS_PROPERTY, DEFAULT_IDLE_TIMEOUT),
+            Long.getLong(MIN_FREE_MEMORY_SYS_PROPERTY, DEFAULT_MIN_FREE_MEMORY_MB) * 1024 * 1024,
+            Integer.getInteger(MAX_DAEMONS_SYS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger(MAX_HEAP_PERCENT_SYS_PROPERTY, DEFAULT_MAX_HEAP_PERCENT));
+
+    private final long idleTimeout;
+    private final long minFreeMemory;
+    private final int maxDaemons;
+    private final int maxHeapPercent;
+    private final Object lock = new Object();
+    // Ordered from least to most recently used
+    private final LinkedList<PooledDaemon> idleDaemons = new LinkedList<PooledDaemon>();
+    private final Set<PooledDaemon> busyDaemons = new HashSet<PooledDaemon>();
+    private Timer expiryTimer;
+
     public static CompilerDaemonManager getInstance() {
         return INSTANCE;
     }
-    
+
+    /**
+     * @param idleTimeout The time in milliseconds after which an idle daemon is stopped. Zero or less disables the timeout.
+     * @param minFreeMemory The free physical memory in bytes below which the idle daemons are stopped. Zero or less disables the check.
+     * @param maxDaemons The maximum number of daemons to keep. Zero or less disables the bound.
+     * @param maxHeapPercent The maximum total heap size of the daemons to keep, as a percentage of the physical memory. Zero or less disables
+     * the bound.
+     */
+    CompilerDaemonManager(long idleTimeout, long minFreeMemory, int maxDaemons, int maxHeapPercent) {
+        this.idleTimeout = idleTimeout;
+        this.minFreeMemory = minFreeMemory;
+        this.maxDaemons = maxDaemons;
+        this.maxHeapPercent = maxHeapPercent;
+    }
+
+    /**
+     * Reserves a daemon which is compatible with the given fork options, starting a new daemon when no such daemon is idle. The daemon must be
+     * given back using {@link #release(CompilerDaemon)} once the caller is finished with it, or using {@link #discard(CompilerDaemon)} when
+     * it can no longer be used.
+     */
     public CompilerDaemon getDaemon(ProjectInternal project, DaemonForkOptions forkOptions) {
-        if (client != null && !client.isCompatibleWith(forkOptions)) {
-            stop();
+        File workingDir = project.getRootProject().getProjectDir();
+        LogLevel logLevel = project.getGradle().getStartParameter().getLogLevel();
+        List<PooledDaemon> expired;
+        PooledDaemon idleDaemon = null;
+        synchronized (lock) {
+            expired = removeExpiredDaemons();
+            // Prefer the most recently used daemon, as its JIT is likely to be the warmest
+            for (ListIterator<PooledDaemon> iterator = idleDaemons.listIterator(idleDaemons.size()); iterator.hasPrevious();) {
+                PooledDaemon daemon = iterator.previous();
+                if (daemon.workingDir.equals(workingDir) && daemon.logLevel == logLevel && daemon.isCompatibleWith(forkOptions)) {
+                    iterator.remove();
+                    busyDaemons.add(daemon);
+                    idleDaemon = daemon;
+                    break;
+                }
+            }
+        }
+        stopDaemons(expired);
+        if (idleDaemon != null) {
+            return idleDaemon;
         }
-        if (client == null) {
-            startDaemon(project, forkOptions);
-            stopDaemonOnceBuildFinished(project);
+
+        // Start the daemon without holding the lock, so that other tasks can get hold of a daemon meanwhile
+        PooledDaemon daemon = new PooledDaemon(startDaemon(project, forkOptions, workingDir, logLevel), workingDir, logLevel, forkOptions.getMaxHeapSizeMb());
+        synchronized (lock) {
+            busyDaemons.add(daemon);
+            scheduleExpiry();
+            expired = removeExpiredDaemons();
+        }
+        stopDaemons(expired);
+        return daemon;
+    }
+
+    /**
+     * Gives back a daemon reserved using {@link #getDaemon(ProjectInternal, DaemonForkOptions)}, so that it can be reused.
+     */
+    public void release(CompilerDaemon daemon) {
+        List<PooledDaemon> expired;
+        synchronized (lock) {
+            PooledDaemon pooledDaemon = (PooledDaemon) daemon;
+            if (!busyDaemons.remove(pooledDaemon)) {
+                throw new IllegalStateException("Cannot release a compiler daemon which is not in use.");
+            }
+            pooledDaemon.idleSince = currentTimeMillis();
+            idleDaemons.addLast(pooledDaemon);
+            expired = removeExpiredDaemons();
+        }
+        stopDaemons(expired);
+    }
+
+    /**
+     * Stops a daemon reserved using {@link #getDaemon(ProjectInternal, DaemonForkOptions)} and removes it from the pool, for example when
+     * the communication with the daemon has failed.
+     */
+    public void discard(CompilerDaemon daemon) {
+        synchronized (lock) {
+            if (!busyDaemons.remove(daemon)) {
+                throw new IllegalStateException("Cannot discard a compiler daemon which is not in use.");
+            }
         }
-        return client;
+        stopDaemons(Collections.singletonList((PooledDaemon) daemon));
     }
-    
+
+    /**
+     * Stops all idle daemons.
+     */
     public void stop() {
-        if (client == null) {
+        List<PooledDaemon> stopping;
+        synchronized (lock) {
+            stopping = new ArrayList<PooledDaemon>(idleDaemons);
+            idleDaemons.clear();
+        }
+        stopDaemons(stopping);
+    }
+
+    /**
+     * Removes the idle daemons which should be stopped from the pool. The daemons are stopped by the caller, without holding the lock.
+     */
+    private List<PooledDaemon> removeExpiredDaemons() {
+        if (idleDaemons.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long now = currentTimeMillis();
+        List<PooledDaemon> stopping = new ArrayList<PooledDaemon>();
+        for (Iterator<PooledDaemon> iterator = idleDaemons.iterator(); iterator.hasNext();) {
+            PooledDaemon daemon = iterator.next();
+            if (idleTimeout > 0 && now - daemon.idleSince >= idleTimeout) {
+                iterator.remove();
+                stopping.add(daemon);
+            }
+        }
+        if (!stopping.isEmpty()) {
+            LOGGER.info("Stopping {} compiler daemon(s) which have been idle for {}ms.", stopping.size(), idleTimeout);
+        }
+        int leastRecentlyUsed = stopping.size();
+        long totalMemory = maxHeapPercent > 0 ? getTotalPhysicalMemory() : -1;
+        while (!idleDaemons.isEmpty() && isPoolTooLarge(totalMemory)) {
+            stopping.add(idleDaemons.removeFirst());
+        }
+        if (stopping.size() > leastRecentlyUsed) {
+            LOGGER.info("Stopping {} least recently used compiler daemon(s), as the pool holds too many daemons or their heaps use too much physical memory.",
+                    stopping.size() - leastRecentlyUsed);
+        }
+        if (!idleDaemons.isEmpty() && minFreeMemory > 0) {
+            long freeMemory = getFreePhysicalMemory();
+            if (freeMemory >= 0 && freeMemory < minFreeMemory) {
+                LOGGER.info("Stopping {} idle compiler daemon(s), as only {}MB of physical memory is free.", idleDaemons.size(), freeMemory / 1024 / 1024);
+                stopping.addAll(idleDaemons);
+                idleDaemons.clear();
+            }
+        }
+        return stopping;
+    }
+
+    private boolean isPoolTooLarge(long totalMemory) {
+        int poolSize = idleDaemons.size() + busyDaemons.size();
+        if (maxDaemons > 0 && poolSize > maxDaemons) {
+            return true;
+        }
+        if (totalMemory <= 0 || poolSize <= 1) {
+            return false;
+        }
+        long totalHeapSize = 0;
+        for (PooledDaemon daemon : idleDaemons) {
+            totalHeapSize += daemon.getMaxHeapSize(totalMemory);
+        }
+        for (PooledDaemon daemon : busyDaemons) {
+            totalHeapSize += daemon.getMaxHeapSize(totalMemory);
+        }
+        return totalHeapSize > totalMemory / 100 * maxHeapPercent;
+    }
+
+    private void stopDaemons(List<PooledDaemon> daemons) {
+        for (PooledDaemon daemon : daemons) {
+            try {
+                daemon.stop();
+            } catch (Throwable t) {
+                LOGGER.warn("Could not stop compiler daemon.", t);
+            }
+        }
+    }
+
+    private void scheduleExpiry() {
+        if (expiryTimer != null) {
             return;
         }
+        // Expire idle daemons between builds as well
+        expiryTimer = new Timer("Compiler daemon expiry", true);
+        expiryTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                List<PooledDaemon> expired;
+                synchronized (lock) {
+                    expired = removeExpiredDaemons();
+                }
+                stopDaemons(expired);
+            }
+        }, EXPIRY_CHECK_INTERVAL, EXPIRY_CHECK_INTERVAL);
+    }
 
-        LOGGER.info("Stopping Gradle compiler daemon.");
-        client.stop();
-        client = null;
-        process.waitForStop();
-        process = null;
-        LOGGER.info("Gradle compiler daemon stopped.");
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the free physical memory of the machine in bytes, or -1 when not known.
+     */
+    protected long getFreePhysicalMemory() {
+        return getOperatingSystemProperty("getFreePhysicalMemorySize");
+    }
+
+    /**
+     * Returns the total physical memory of the machine in bytes, or -1 when not known.
+     */
+    protected long getTotalPhysicalMemory() {
+        return getOperatingSystemProperty("getTotalPhysicalMemorySize");
+    }
+
+    private static long getOperatingSystemProperty(String getterName) {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        try {
+            // Only available on some JVMs, through com.sun.management.OperatingSystemMXBean
+            Method method = bean.getClass().getMethod(getterName);
+            method.setAccessible(true);
+            return ((Number) method.invoke(bean)).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
     }
-    
-    private void startDaemon(ProjectInternal project, DaemonForkOptions forkOptions) {
+
+    protected CompilerDaemon startDaemon(ProjectInternal project, DaemonForkOptions forkOptions, File workingDir, LogLevel logLevel) {
         LOGGER.info("Starting Gradle compiler daemon.");
         WorkerProcessBuilder builder = project.getServices().getFactory(WorkerProcessBuilder.class).create();
-        builder.setLogLevel(project.getGradle().getStartParameter().getLogLevel()); // NOTE: might make sense to respect per-compile-task log level
+        builder.setLogLevel(logLevel); // NOTE: might make sense to respect per-compile-task log level
         File toolsJar = Jvm.current().getToolsJar();
         if (toolsJar != null) {
             builder.getApplicationClasspath().add(toolsJar); // for SunJavaCompiler
@@ -80,21 +304,63 @@ public class CompilerDaemonManager {
         javaCommand.setMinHeapSize(forkOptions.getMinHeapSize());
         javaCommand.setMaxHeapSize(forkOptions.getMaxHeapSize());
         javaCommand.setJvmArgs(forkOptions.getJvmArgs());
-        javaCommand.setWorkingDir(project.getRootProject().getProjectDir());
-        process = builder.worker(new CompilerDaemonServer()).build();
+        javaCommand.setWorkingDir(workingDir);
+        final WorkerProcess process = builder.worker(new CompilerDaemonServer()).build();
         process.start();
         CompilerDaemonServerProtocol server = process.getConnection().addOutgoing(CompilerDaemonServerProtocol.class);
-        client = new CompilerDaemonClient(forkOptions, server);
+        final CompilerDaemonClient client = new CompilerDaemonClient(forkOptions, server);
         process.getConnection().addIncoming(CompilerDaemonClientProtocol.class, client);
         LOGGER.info("Gradle compiler daemon started.");
+        return new CompilerDaemon() {
+            public <T extends CompileSpec> CompileResult execute(Compiler<T> compiler, T spec) {
+                return client.execute(compiler, spec);
+            }
+
+            public boolean isCompatibleWith(DaemonForkOptions required) {
+                return client.isCompatibleWith(required);
+            }
+
+            public void stop() {
+                LOGGER.info("Stopping Gradle compiler daemon.");
+                client.stop();
+                process.waitForStop();
+                LOGGER.info("Gradle compiler daemon stopped.");
+            }
+        };
     }
-    
-    private void stopDaemonOnceBuildFinished(ProjectInternal project) {
-        project.getGradle().addBuildListener(new BuildAdapter() {
-            @Override
-            public void buildFinished(BuildResult result) {
-                stop();
+
+    private static class PooledDaemon implements CompilerDaemon {
+        private final CompilerDaemon daemon;
+        private final File workingDir;
+        private final LogLevel logLevel;
+        private final int maxHeapSizeMb;
+        private long idleSince;
+
+        private PooledDaemon(CompilerDaemon daemon, File workingDir, LogLevel logLevel, int maxHeapSizeMb) {
+            this.daemon = daemon;
+            this.workingDir = workingDir;
+            this.logLevel = logLevel;
+            this.maxHeapSizeMb = maxHeapSizeMb;
+        }
+
+        private long getMaxHeapSize(long totalMemory) {
+            if (maxHeapSizeMb < 0) {
+                // The default maximum heap size of the JVM
+                return totalMemory / 4;
             }
-        });
+            return (long) maxHeapSizeMb * 1024 * 1024;
+        }
+
+        public <T extends CompileSpec> CompileResult execute(Compiler<T> compiler, T spec) {
+            return daemon.execute(compiler, spec);
+        }
+
+        public boolean isCompatibleWith(DaemonForkOptions required) {
+            return daemon.isCompatibleWith(required);
+        }
+
+        public void stop() {
+            daemon.stop();
+        }
     }
 }
@@ -51,6 +51,13 @@ public class DaemonForkOptions {
         return jvmArgs;
     }
 
+    /**
+     * Returns the maximum heap size in megabytes, or -1 when not specified.
+     */
+    public int getMaxHeapSizeMb() {
+        return getHeapSizeMb(maxHeapSize);
+    }
+
     public boolean isCompatibleWith(DaemonForkOptions other) {
         return getHeapSizeMb(minHeapSize) >= getHeapSizeMb(other.getMinHeapSize())
                 && getHeapSizeMb(maxHeapSize) >= getHeapSizeMb(other.getMaxHeapSize())
@@ -25,17 +25,33 @@ import org.gradle.internal.UncheckedException;
 public class DaemonJavaCompiler implements Compiler<JavaCompileSpec> {
     private final ProjectInternal project;
     private final Compiler<JavaCompileSpec> delegate;
+    private final CompilerDaemonManager daemonManager;
 
     public DaemonJavaCompiler(ProjectInternal project, Compiler<JavaCompileSpec> delegate) {
+        this(project, delegate, CompilerDaemonManager.getInstance());
+    }
+
+    DaemonJavaCompiler(ProjectInternal project, Compiler<JavaCompileSpec> delegate, CompilerDaemonManager daemonManager) {
         this.project = project;
         this.delegate = delegate;
+        this.daemonManager = daemonManager;
     }
 
     public WorkResult execute(JavaCompileSpec spec) {
         CompileOptions compileOptions = spec.getCompileOptions();
         DaemonForkOptions forkOptions = new DaemonForkOptions(compileOptions.getForkOptions());
-        CompilerDaemon daemon = CompilerDaemonManager.getInstance().getDaemon(project, forkOptions);
-        CompileResult result = daemon.execute(delegate, spec);
+        CompilerDaemon daemon = daemonManager.getDaemon(project, forkOptions);
+        CompileResult result = null;
+        try {
+            result = daemon.execute(delegate, spec);
+        } finally {
+            if (result != null) {
+                daemonManager.release(daemon);
+            } else {
+                // The daemon may be left in an unknown state, so don't hand it to another task
+                daemonManager.discard(daemon);
+            }
+        }
         if (result.isSuccess()) {
             return result;
         }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.GradleException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.EmptyVisitor;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.RemappingClassAdapter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+/**
+ * Extracts the details of a class file which are needed to decide which classes to recompile: the classes it refers to, the source file it was
+ * compiled from, and the compile time constants it declares. Uses the internal (slash separated) form of class names.
+ */
+public class ClassFileAnalyzer {
+    public ClassFileDetails analyze(File classFile) {
+        InputStream classStream = null;
+        try {
+            classStream = new BufferedInputStream(new FileInputStream(classFile));
+            ClassReader classReader = new ClassReader(classStream);
+            ClassFileDetails details = new ClassFileDetails(classReader.getClassName());
+            classReader.accept(new RemappingClassAdapter(new DetailsCollector(details), new DependencyCollector(details)), ClassReader.SKIP_FRAMES);
+            details.getDependencies().remove(details.getClassName());
+            return details;
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not read class file '%s'.", classFile), e);
+        } finally {
+            IOUtils.closeQuietly(classStream);
+        }
+    }
+
+    private static class DependencyCollector extends Remapper {
+        private final ClassFileDetails details;
+
+        private DependencyCollector(ClassFileDetails details) {
+            this.details = details;
+        }
+
+        @Override
+        public String map(String typeName) {
+            details.getDependencies().add(typeName);
+            return typeName;
+        }
+    }
+
+    private static class DetailsCollector extends EmptyVisitor {
+        private final ClassFileDetails details;
+
+        private DetailsCollector(ClassFileDetails details) {
+            this.details = details;
+        }
+
+        @Override
+        public void visitSource(String source, String debug) {
+            details.setSourceFileName(source);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            // Only the compiler can inline a constant, and it does not inline private constants into other classes
+            if (value != null && (access & Opcodes.ACC_PRIVATE) == 0) {
+                details.getConstants().put(name, value);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The details of a class file, as extracted by {@link ClassFileAnalyzer}.
+ */
+public class ClassFileDetails implements Serializable {
+    private final String className;
+    private final Set<String> dependencies = new HashSet<String>();
+    private final Map<String, Object> constants = new HashMap<String, Object>();
+    private String sourceFileName;
+
+    public ClassFileDetails(String className) {
+        this.className = className;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Returns the classes which this class refers to, not including itself.
+     */
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Returns the compile time constants which this class declares and which may be inlined into other classes, keyed by field name.
+     */
+    public Map<String, Object> getConstants() {
+        return constants;
+    }
+
+    /**
+     * Returns the name of the source file, without its directory, which this class was compiled from. Returns null when the class file does not
+     * contain this information.
+     */
+    public String getSourceFileName() {
+        return sourceFileName;
+    }
+
+    public void setSourceFileName(String sourceFileName) {
+        this.sourceFileName = sourceFileName;
+    }
+
+    /**
+     * Returns the path of the source file, relative to its source directory, which this class was most likely compiled from.
+     */
+    public String getSourcePath() {
+        int packageEnd = className.lastIndexOf('/');
+        String fileName = sourceFileName;
+        if (fileName == null) {
+            String outerClassName = className.substring(packageEnd + 1);
+            int nestedStart = outerClassName.indexOf('$');
+            fileName = (nestedStart > 0 ? outerClassName.substring(0, nestedStart) : outerClassName) + ".java";
+        }
+        return packageEnd < 0 ? fileName : className.substring(0, packageEnd + 1) + fileName;
+    }
+}
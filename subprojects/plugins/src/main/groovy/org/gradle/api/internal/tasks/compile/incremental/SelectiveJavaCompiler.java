@@ -0,0 +1,407 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.changedetection.FileCollectionSnapshot;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
+import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.api.internal.tasks.compile.Compiler;
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
+import org.gradle.api.internal.tasks.compile.SimpleWorkResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.util.ChangeListener;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Recompiles only those source files which have changed since the previous compilation, along with the source files of the classes which
+ * depend, directly or transitively, on the classes compiled from a changed or removed source file. The dependencies between classes are
+ * extracted from the class files after each compilation, and recorded for use by the next compilation.
+ *
+ * <p>Falls back to recompiling all source files when there is no record of the previous compilation, when the classpath or compile options have
+ * changed, when no source file has changed, or when the class files of the previous compilation are missing. As the compiler inlines compile
+ * time constants, a reference to a constant does not show up as a dependency. So, this compiler also falls back when a source file which declares
+ * constants is removed, or when the constants of a recompiled class have changed.</p>
+ */
+public class SelectiveJavaCompiler implements Compiler<JavaCompileSpec> {
+    private static final Logger LOGGER = Logging.getLogger(SelectiveJavaCompiler.class);
+    private final Compiler<JavaCompileSpec> fullCompiler;
+    private final Compiler<JavaCompileSpec> compiler;
+    private final File stateFile;
+    private final FileSnapshotter snapshotter;
+    private final ClassFileAnalyzer analyzer;
+    private final DefaultSerializer<State> serializer = new DefaultSerializer<State>(getClass().getClassLoader());
+
+    /**
+     * @param fullCompiler The compiler to use to recompile all source files. It should remove the class files of the previous compilation.
+     * @param compiler The compiler to use to recompile some of the source files.
+     * @param stateFile The file to record the dependencies between classes in.
+     */
+    public SelectiveJavaCompiler(Compiler<JavaCompileSpec> fullCompiler, Compiler<JavaCompileSpec> compiler, File stateFile,
+                                 FileSnapshotter snapshotter, ClassFileAnalyzer analyzer) {
+        this.fullCompiler = fullCompiler;
+        this.compiler = compiler;
+        this.stateFile = stateFile;
+        this.snapshotter = snapshotter;
+        this.analyzer = analyzer;
+    }
+
+    public WorkResult execute(JavaCompileSpec spec) {
+        Map<String, File> sourcesByPath = getSourcesByPath(spec.getSource());
+        if (sourcesByPath == null) {
+            stateFile.delete();
+            return fullCompiler.execute(spec);
+        }
+
+        State previous = readState();
+        State current = new State(snapshotter.snapshot(spec.getSource()), snapshotter.snapshot(new SimpleFileCollection(toList(spec.getClasspath()))),
+                getOptions(spec));
+        Set<File> sources = new HashSet<File>(sourcesByPath.values());
+        Set<File> recompile = previous == null ? null : getSourcesToRecompile(spec, previous, current, sources);
+
+        WorkResult result = null;
+        if (recompile != null) {
+            result = compileSelected(spec, previous, current, recompile, sources, sourcesByPath);
+        }
+        if (result == null) {
+            current.clearClasses();
+            result = fullCompiler.execute(spec);
+            if (!analyze(spec.getDestinationDir(), current, sourcesByPath)) {
+                stateFile.delete();
+                return result;
+            }
+        }
+        writeState(current);
+        return result;
+    }
+
+    private Set<File> getSourcesToRecompile(JavaCompileSpec spec, State previous, State current, Set<File> sources) {
+        if (!previous.options.equals(current.options)) {
+            LOGGER.info("Recompiling all source files, as the compile options have changed.");
+            return null;
+        }
+        if (hasChanges(current.classpath, previous.classpath)) {
+            LOGGER.info("Recompiling all source files, as the classpath has changed.");
+            return null;
+        }
+
+        final Set<File> changedSources = new HashSet<File>();
+        final Set<File> removedSources = new HashSet<File>();
+        current.sources.changesSince(previous.sources, new ChangeListener<File>() {
+            public void added(File element) {
+                changedSources.add(element);
+            }
+
+            public void removed(File element) {
+                removedSources.add(element);
+            }
+
+            public void changed(File element) {
+                changedSources.add(element);
+            }
+        });
+        if (changedSources.isEmpty() && removedSources.isEmpty()) {
+            LOGGER.info("Recompiling all source files, as no source file has changed.");
+            return null;
+        }
+
+        Set<String> staleClasses = new HashSet<String>();
+        for (File source : removedSources) {
+            for (String className : previous.getClasses(source)) {
+                if (!previous.classes.get(className).getConstants().isEmpty()) {
+                    LOGGER.info("Recompiling all source files, as removed source file {} declares constants.", source);
+                    return null;
+                }
+                staleClasses.add(className);
+            }
+        }
+        for (File source : changedSources) {
+            staleClasses.addAll(previous.getClasses(source));
+        }
+
+        Set<File> recompile = new HashSet<File>(changedSources);
+        for (String className : getDependents(staleClasses, previous.classes)) {
+            File source = previous.classSources.get(className);
+            if (source == null) {
+                LOGGER.info("Recompiling all source files, as the source file of class {} is not known.", className);
+                return null;
+            }
+            if (sources.contains(source)) {
+                recompile.add(source);
+            }
+        }
+
+        for (Map.Entry<File, Set<String>> entry : previous.sourceClasses.entrySet()) {
+            if (recompile.contains(entry.getKey()) || removedSources.contains(entry.getKey())) {
+                continue;
+            }
+            for (String className : entry.getValue()) {
+                if (!getClassFile(spec.getDestinationDir(), className).isFile()) {
+                    LOGGER.info("Recompiling all source files, as the class file for class {} is missing.", className);
+                    return null;
+                }
+            }
+        }
+        return recompile;
+    }
+
+    /**
+     * Recompiles the given source files. Returns null when all source files need to be recompiled.
+     */
+    private WorkResult compileSelected(JavaCompileSpec spec, State previous, State current, Set<File> recompile, Set<File> sources,
+                                       Map<String, File> sourcesByPath) {
+        File destinationDir = spec.getDestinationDir();
+        for (Map.Entry<File, Set<String>> entry : previous.sourceClasses.entrySet()) {
+            File source = entry.getKey();
+            if (recompile.contains(source) || !sources.contains(source)) {
+                for (String className : entry.getValue()) {
+                    getClassFile(destinationDir, className).delete();
+                }
+            } else {
+                for (String className : entry.getValue()) {
+                    current.addClass(source, previous.classes.get(className));
+                }
+            }
+        }
+
+        LOGGER.info("Recompiling {} of {} source files.", recompile.size(), sources.size());
+        WorkResult result = new SimpleWorkResult(true);
+        if (!recompile.isEmpty()) {
+            FileCollection source = spec.getSource();
+            Iterable<File> classpath = spec.getClasspath();
+            List<File> classpathWithClasses = new ArrayList<File>();
+            classpathWithClasses.add(destinationDir);
+            classpathWithClasses.addAll(toList(classpath));
+            spec.setSource(new SimpleFileCollection(recompile));
+            spec.setClasspath(classpathWithClasses);
+            try {
+                result = compiler.execute(spec);
+            } finally {
+                spec.setSource(source);
+                spec.setClasspath(classpath);
+            }
+        }
+
+        if (!analyze(destinationDir, current, sourcesByPath)) {
+            return null;
+        }
+        for (File source : recompile) {
+            for (String className : previous.getClasses(source)) {
+                Map<String, Object> constants = previous.classes.get(className).getConstants();
+                ClassFileDetails recompiled = current.classes.get(className);
+                if (!constants.isEmpty() && (recompiled == null || !constants.equals(recompiled.getConstants()))) {
+                    LOGGER.info("Recompiling all source files, as the constants of class {} have changed.", className);
+                    return null;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the details of each class file in the given directory which are not already known to the given state. Returns false when the source
+     * file of some class file is not known.
+     */
+    private boolean analyze(File destinationDir, State state, Map<String, File> sourcesByPath) {
+        LinkedList<File> queue = new LinkedList<File>();
+        queue.add(destinationDir);
+        String prefix = destinationDir.getAbsolutePath() + File.separator;
+        while (!queue.isEmpty()) {
+            File[] files = queue.removeFirst().listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    queue.add(file);
+                    continue;
+                }
+                String path = file.getAbsolutePath();
+                if (!path.endsWith(".class")) {
+                    continue;
+                }
+                String className = path.substring(prefix.length(), path.length() - ".class".length()).replace(File.separatorChar, '/');
+                if (state.classes.containsKey(className)) {
+                    continue;
+                }
+                ClassFileDetails details = analyzer.analyze(file);
+                File source = sourcesByPath.get(details.getSourcePath());
+                if (source == null) {
+                    LOGGER.info("Cannot recompile source files selectively next time, as the source file of class {} is not known.", className);
+                    return false;
+                }
+                state.addClass(source, details);
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, File> getSourcesByPath(FileCollection source) {
+        if (!(source instanceof FileTree)) {
+            return null;
+        }
+        final Map<String, File> sourcesByPath = new HashMap<String, File>();
+        ((FileTree) source).visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                sourcesByPath.put(fileDetails.getRelativePath().getPathString(), fileDetails.getFile());
+            }
+        });
+        return sourcesByPath;
+    }
+
+    private static Set<String> getDependents(Set<String> classes, Map<String, ClassFileDetails> classDetails) {
+        Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        for (ClassFileDetails details : classDetails.values()) {
+            for (String dependency : details.getDependencies()) {
+                List<String> classDependents = dependents.get(dependency);
+                if (classDependents == null) {
+                    classDependents = new ArrayList<String>();
+                    dependents.put(dependency, classDependents);
+                }
+                classDependents.add(details.getClassName());
+            }
+        }
+
+        Set<String> result = new HashSet<String>(classes);
+        LinkedList<String> queue = new LinkedList<String>(classes);
+        while (!queue.isEmpty()) {
+            List<String> classDependents = dependents.get(queue.removeFirst());
+            if (classDependents == null) {
+                continue;
+            }
+            for (String dependent : classDependents) {
+                if (result.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasChanges(FileCollectionSnapshot current, FileCollectionSnapshot previous) {
+        final boolean[] changed = new boolean[1];
+        current.changesSince(previous, new ChangeListener<File>() {
+            public void added(File element) {
+                changed[0] = true;
+            }
+
+            public void removed(File element) {
+                changed[0] = true;
+            }
+
+            public void changed(File element) {
+                changed[0] = true;
+            }
+        });
+        return changed[0];
+    }
+
+    private static String getOptions(JavaCompileSpec spec) {
+        return String.format("source: %s, target: %s, options: %s, args: %s", spec.getSourceCompatibility(), spec.getTargetCompatibility(),
+                spec.getCompileOptions().optionMap(), spec.getCompileOptions().getCompilerArgs());
+    }
+
+    private static File getClassFile(File destinationDir, String className) {
+        return new File(destinationDir, className.replace('/', File.separatorChar) + ".class");
+    }
+
+    private static List<File> toList(Iterable<File> files) {
+        List<File> list = new ArrayList<File>();
+        for (File file : files) {
+            list.add(file);
+        }
+        return list;
+    }
+
+    private State readState() {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream instr = new BufferedInputStream(new FileInputStream(stateFile));
+            try {
+                return serializer.read(instr);
+            } finally {
+                instr.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Could not read incremental compilation state from '%s'. Recompiling all source files.", stateFile), e);
+            return null;
+        }
+    }
+
+    private void writeState(State state) {
+        try {
+            stateFile.getParentFile().mkdirs();
+            OutputStream outstr = new BufferedOutputStream(new FileOutputStream(stateFile));
+            try {
+                serializer.write(outstr, state);
+            } finally {
+                outstr.close();
+            }
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write incremental compilation state to '%s'.", stateFile), e);
+        }
+    }
+
+    private static class State implements Serializable {
+        private final FileCollectionSnapshot sources;
+        private final FileCollectionSnapshot classpath;
+        private final String options;
+        private final Map<String, ClassFileDetails> classes = new HashMap<String, ClassFileDetails>();
+        private final Map<String, File> classSources = new HashMap<String, File>();
+        private final Map<File, Set<String>> sourceClasses = new HashMap<File, Set<String>>();
+
+        private State(FileCollectionSnapshot sources, FileCollectionSnapshot classpath, String options) {
+            this.sources = sources;
+            this.classpath = classpath;
+            this.options = options;
+        }
+
+        Set<String> getClasses(File source) {
+            Set<String> classNames = sourceClasses.get(source);
+            return classNames == null ? Collections.<String>emptySet() : classNames;
+        }
+
+        void addClass(File source, ClassFileDetails details) {
+            classes.put(details.getClassName(), details);
+            classSources.put(details.getClassName(), source);
+            Set<String> classNames = sourceClasses.get(source);
+            if (classNames == null) {
+                classNames = new HashSet<String>();
+                sourceClasses.put(source, classNames);
+            }
+            classNames.add(details.getClassName());
+        }
+
+        void clearClasses() {
+            classes.clear();
+            classSources.clear();
+            sourceClasses.clear();
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.testing.detection;
 
 import org.gradle.api.file.FileTree;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
 import org.gradle.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
@@ -25,12 +26,17 @@ import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
+import org.gradle.api.internal.tasks.testing.selection.AffectedTestClassSelector;
+import org.gradle.api.internal.tasks.testing.selection.ClassDependencyAnalyzer;
+import org.gradle.api.internal.tasks.testing.selection.SelectingTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.util.TrueTimeProvider;
 
+import java.io.File;
+
 /**
  * The default test class scanner factory.
  *
@@ -63,6 +69,14 @@ public class DefaultTestExecuter implements TestExecuter {
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
                 reforkingProcessorFactory, actorFactor);
 
+        AffectedTestClassSelector selector = null;
+        if (testTask.isAffectedTestsOnly()) {
+            selector = new AffectedTestClassSelector(new File(testTask.getTemporaryDir(), "affectedTests.bin"),
+                    testTask.getServices().get(FileSnapshotter.class), new ClassDependencyAnalyzer());
+            selector.start(testTask.getProject().files(testTask.getTestClassesDir(), testTask.getClasspath()));
+            processor = new SelectingTestClassProcessor(processor, selector);
+        }
+
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
         Runnable detector;
@@ -72,6 +86,14 @@ public class DefaultTestExecuter implements TestExecuter {
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
         }
-        new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider()).run();
+        boolean completed = false;
+        try {
+            new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider()).run();
+            completed = true;
+        } finally {
+            if (selector != null) {
+                selector.stop(completed);
+            }
+        }
     }
 }
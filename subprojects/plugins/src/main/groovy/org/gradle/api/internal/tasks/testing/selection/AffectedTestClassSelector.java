@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.changedetection.FileCollectionSnapshot;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.util.ChangeListener;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Decides which test classes need to be executed, based on the class files which have changed since the last time the
+ * tests were executed.
+ *
+ * <p>A test class is selected when it is new, when it failed in the previous execution, or when it depends, directly
+ * or transitively, on a class which has been added, changed or removed. A change to anything other than a class file in
+ * a classes directory, such as a jar or a resource, causes all test classes to be selected.</p>
+ */
+public class AffectedTestClassSelector {
+    private static final Logger LOGGER = Logging.getLogger(AffectedTestClassSelector.class);
+    private final File stateFile;
+    private final FileSnapshotter snapshotter;
+    private final ClassDependencyAnalyzer dependencyAnalyzer;
+    private final DefaultSerializer<State> serializer = new DefaultSerializer<State>(getClass().getClassLoader());
+    private State previous;
+    private State current;
+    private boolean selectAll;
+    private Set<String> affectedClasses;
+    private int skipped;
+
+    public AffectedTestClassSelector(File stateFile, FileSnapshotter snapshotter, ClassDependencyAnalyzer dependencyAnalyzer) {
+        this.stateFile = stateFile;
+        this.snapshotter = snapshotter;
+        this.dependencyAnalyzer = dependencyAnalyzer;
+    }
+
+    /**
+     * Snapshots the given classpath and calculates the set of classes affected by changes since the previous execution.
+     */
+    public void start(FileCollection classpath) {
+        List<File> classesDirs = new ArrayList<File>();
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                classesDirs.add(file);
+            }
+        }
+
+        previous = readState();
+        current = new State(snapshotter.snapshot(classpath));
+        selectAll = previous == null;
+
+        final Set<String> changedClasses = new HashSet<String>();
+        if (!selectAll) {
+            final ClassNameMapper mapper = new ClassNameMapper(classesDirs);
+            current.classes.changesSince(previous.classes, new ChangeListener<File>() {
+                public void added(File element) {
+                    changed(element);
+                }
+
+                public void removed(File element) {
+                    changed(element);
+                }
+
+                public void changed(File element) {
+                    String className = mapper.getClassName(element);
+                    if (className == null) {
+                        selectAll = true;
+                    } else {
+                        changedClasses.add(className);
+                    }
+                }
+            });
+        }
+
+        ClassNameMapper mapper = new ClassNameMapper(classesDirs);
+        for (File file : current.classes.getFiles()) {
+            String className = mapper.getClassName(file);
+            if (className == null) {
+                continue;
+            }
+            Set<String> dependencies = selectAll || changedClasses.contains(className) ? null : previous.dependencies.get(className);
+            if (dependencies == null) {
+                dependencies = dependencyAnalyzer.getDependencies(file);
+            }
+            current.dependencies.put(className, dependencies);
+        }
+
+        affectedClasses = selectAll ? Collections.<String>emptySet() : getDependents(changedClasses, current.dependencies);
+    }
+
+    private static Set<String> getDependents(Set<String> classes, Map<String, Set<String>> dependencies) {
+        Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            for (String dependency : entry.getValue()) {
+                List<String> classDependents = dependents.get(dependency);
+                if (classDependents == null) {
+                    classDependents = new ArrayList<String>();
+                    dependents.put(dependency, classDependents);
+                }
+                classDependents.add(entry.getKey());
+            }
+        }
+
+        Set<String> result = new HashSet<String>(classes);
+        LinkedList<String> queue = new LinkedList<String>(classes);
+        while (!queue.isEmpty()) {
+            List<String> classDependents = dependents.get(queue.removeFirst());
+            if (classDependents == null) {
+                continue;
+            }
+            for (String dependent : classDependents) {
+                if (result.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the given test class should be executed.
+     *
+     * @param testClassName The fully qualified name of the test class.
+     */
+    public boolean isSelected(String testClassName) {
+        current.testClasses.add(testClassName);
+        boolean selected = selectAll
+                || !previous.testClasses.contains(testClassName)
+                || previous.failedTestClasses.contains(testClassName)
+                || affectedClasses.contains(testClassName.replace('.', '/'));
+        if (!selected) {
+            skipped++;
+        }
+        return selected;
+    }
+
+    public void testClassFailed(String testClassName) {
+        current.failedTestClasses.add(testClassName);
+    }
+
+    /**
+     * Records the current state, to use for the next execution. When the execution did not complete, the state is not recorded, as some of
+     * the selected test classes may not have been executed. The next execution then selects test classes based on the changes since the
+     * previous complete execution.
+     *
+     * @param completed Whether all selected test classes were executed.
+     */
+    public void stop(boolean completed) {
+        if (skipped > 0) {
+            LOGGER.info("Skipped {} test classes which are not affected by changes since the previous execution.", skipped);
+        }
+        if (!completed) {
+            return;
+        }
+        try {
+            OutputStream outstr = new BufferedOutputStream(new FileOutputStream(stateFile));
+            try {
+                serializer.write(outstr, current);
+            } finally {
+                outstr.close();
+            }
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write test selection state to '%s'.", stateFile), e);
+        }
+    }
+
+    private State readState() {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream instr = new BufferedInputStream(new FileInputStream(stateFile));
+            try {
+                return serializer.read(instr);
+            } finally {
+                instr.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Could not read test selection state from '%s'. Selecting all test classes.", stateFile), e);
+            return null;
+        }
+    }
+
+    private static class ClassNameMapper {
+        private final List<String> prefixes = new ArrayList<String>();
+
+        private ClassNameMapper(List<File> classesDirs) {
+            for (File classesDir : classesDirs) {
+                prefixes.add(classesDir.getAbsolutePath() + File.separator);
+            }
+        }
+
+        String getClassName(File file) {
+            String path = file.getAbsolutePath();
+            if (!path.endsWith(".class")) {
+                return null;
+            }
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) {
+                    return path.substring(prefix.length(), path.length() - ".class".length()).replace(File.separatorChar, '/');
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class State implements Serializable {
+        private final FileCollectionSnapshot classes;
+        private final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+        private final Set<String> testClasses = new HashSet<String>();
+        private final Set<String> failedTestClasses = new HashSet<String>();
+
+        private State(FileCollectionSnapshot classes) {
+            this.classes = classes;
+        }
+    }
+}
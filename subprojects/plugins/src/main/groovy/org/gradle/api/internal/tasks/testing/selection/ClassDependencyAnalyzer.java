@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.GradleException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.commons.EmptyVisitor;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.RemappingClassAdapter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Extracts the names of the classes that a class file refers to. Uses the internal (slash separated) form of class
+ * names.
+ *
+ * <p>Note that compile time constants are inlined by the compiler, so a reference to a constant does not show up as a
+ * dependency.</p>
+ */
+public class ClassDependencyAnalyzer {
+    public Set<String> getDependencies(File classFile) {
+        InputStream classStream = null;
+        try {
+            classStream = new BufferedInputStream(new FileInputStream(classFile));
+            ClassReader classReader = new ClassReader(classStream);
+            CollectingRemapper remapper = new CollectingRemapper();
+            classReader.accept(new RemappingClassAdapter(new EmptyVisitor(), remapper), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            remapper.dependencies.remove(classReader.getClassName());
+            return remapper.dependencies;
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not read class file '%s'.", classFile), e);
+        } finally {
+            IOUtils.closeQuietly(classStream);
+        }
+    }
+
+    private static class CollectingRemapper extends Remapper {
+        private final Set<String> dependencies = new HashSet<String>();
+
+        @Override
+        public String map(String typeName) {
+            dependencies.add(typeName);
+            return typeName;
+        }
+    }
+}
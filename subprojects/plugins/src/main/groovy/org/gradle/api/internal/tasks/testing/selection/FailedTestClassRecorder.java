@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Notifies an {@link AffectedTestClassSelector} of the test classes which contain a failed test.
+ */
+class FailedTestClassRecorder implements TestResultProcessor {
+    private final TestResultProcessor processor;
+    private final AffectedTestClassSelector selector;
+    private final Map<Object, String> classNames = new HashMap<Object, String>();
+
+    FailedTestClassRecorder(TestResultProcessor processor, AffectedTestClassSelector selector) {
+        this.processor = processor;
+        this.selector = selector;
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        if (test.getClassName() != null) {
+            classNames.put(test.getId(), test.getClassName());
+        }
+        processor.started(test, event);
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        String className = classNames.remove(testId);
+        if (className != null && event.getResultType() == TestResult.ResultType.FAILURE) {
+            selector.testClassFailed(className);
+        }
+        processor.completed(testId, event);
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        processor.output(testId, event);
+    }
+
+    public void failure(Object testId, Throwable result) {
+        String className = classNames.get(testId);
+        if (className != null) {
+            selector.testClassFailed(className);
+        }
+        processor.failure(testId, result);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+/**
+ * Forwards only those test classes which are selected by an {@link AffectedTestClassSelector}, and records the test
+ * classes which fail.
+ */
+public class SelectingTestClassProcessor implements TestClassProcessor {
+    private final TestClassProcessor processor;
+    private final AffectedTestClassSelector selector;
+
+    public SelectingTestClassProcessor(TestClassProcessor processor, AffectedTestClassSelector selector) {
+        this.processor = processor;
+        this.selector = selector;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        processor.startProcessing(new FailedTestClassRecorder(resultProcessor, selector));
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (selector.isSelected(testClass.getTestClassName())) {
+            processor.processTestClass(testClass);
+        }
+    }
+
+    public void stop() {
+        processor.stop();
+    }
+}
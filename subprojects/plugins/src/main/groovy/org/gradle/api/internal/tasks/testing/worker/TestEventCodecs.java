@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor;
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor;
+import org.gradle.api.internal.tasks.testing.DefaultTestMethodDescriptor;
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.DefaultTestSuiteDescriptor;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.api.tasks.testing.TestResult;
+import org.gradle.messaging.remote.internal.BinaryMessageSerializer;
+import org.gradle.messaging.remote.internal.Codec;
+import org.gradle.messaging.remote.internal.CodecProvider;
+import org.gradle.messaging.remote.internal.Decoder;
+import org.gradle.messaging.remote.internal.Encoder;
+
+/**
+ * Provides codecs for the test descriptors and events which a test worker sends to the build process, so that these are not written using Java
+ * serialization.
+ */
+public class TestEventCodecs implements CodecProvider {
+    private static final TestOutputEvent.Destination[] DESTINATIONS = TestOutputEvent.Destination.values();
+    private static final TestResult.ResultType[] RESULT_TYPES = TestResult.ResultType.values();
+
+    public void registerCodecs(BinaryMessageSerializer<?> serializer) {
+        serializer.register(DefaultTestDescriptor.class, new DefaultTestDescriptorCodec());
+        serializer.register(DefaultTestMethodDescriptor.class, new DefaultTestMethodDescriptorCodec());
+        serializer.register(DefaultTestClassDescriptor.class, new DefaultTestClassDescriptorCodec());
+        serializer.register(DefaultTestSuiteDescriptor.class, new DefaultTestSuiteDescriptorCodec());
+        serializer.register(TestStartEvent.class, new TestStartEventCodec());
+        serializer.register(TestCompleteEvent.class, new TestCompleteEventCodec());
+        serializer.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventCodec());
+    }
+
+    private static class DefaultTestDescriptorCodec implements Codec<DefaultTestDescriptor> {
+        public void write(Encoder encoder, DefaultTestDescriptor value) throws Exception {
+            encoder.writeObject(value.getId());
+            encoder.writeString(value.getClassName());
+            encoder.writeString(value.getName());
+        }
+
+        public DefaultTestDescriptor read(Decoder decoder) throws Exception {
+            Object id = decoder.readObject();
+            String className = decoder.readString();
+            String name = decoder.readString();
+            return new DefaultTestDescriptor(id, className, name);
+        }
+    }
+
+    private static class DefaultTestMethodDescriptorCodec implements Codec<DefaultTestMethodDescriptor> {
+        public void write(Encoder encoder, DefaultTestMethodDescriptor value) throws Exception {
+            encoder.writeObject(value.getId());
+            encoder.writeString(value.getClassName());
+            encoder.writeString(value.getName());
+        }
+
+        public DefaultTestMethodDescriptor read(Decoder decoder) throws Exception {
+            Object id = decoder.readObject();
+            String className = decoder.readString();
+            String methodName = decoder.readString();
+            return new DefaultTestMethodDescriptor(id, className, methodName);
+        }
+    }
+
+    private static class DefaultTestClassDescriptorCodec implements Codec<DefaultTestClassDescriptor> {
+        public void write(Encoder encoder, DefaultTestClassDescriptor value) throws Exception {
+            encoder.writeObject(value.getId());
+            encoder.writeString(value.getClassName());
+        }
+
+        public DefaultTestClassDescriptor read(Decoder decoder) throws Exception {
+            Object id = decoder.readObject();
+            String className = decoder.readString();
+            return new DefaultTestClassDescriptor(id, className);
+        }
+    }
+
+    private static class DefaultTestSuiteDescriptorCodec implements Codec<DefaultTestSuiteDescriptor> {
+        public void write(Encoder encoder, DefaultTestSuiteDescriptor value) throws Exception {
+            encoder.writeObject(value.getId());
+            encoder.writeString(value.getName());
+        }
+
+        public DefaultTestSuiteDescriptor read(Decoder decoder) throws Exception {
+            Object id = decoder.readObject();
+            String name = decoder.readString();
+            return new DefaultTestSuiteDescriptor(id, name);
+        }
+    }
+
+    private static class TestStartEventCodec implements Codec<TestStartEvent> {
+        public void write(Encoder encoder, TestStartEvent value) throws Exception {
+            encoder.writeLong(value.getStartTime());
+            encoder.writeObject(value.getParentId());
+        }
+
+        public TestStartEvent read(Decoder decoder) throws Exception {
+            long startTime = decoder.readLong();
+            Object parentId = decoder.readObject();
+            return new TestStartEvent(startTime, parentId);
+        }
+    }
+
+    private static class TestCompleteEventCodec implements Codec<TestCompleteEvent> {
+        public void write(Encoder encoder, TestCompleteEvent value) throws Exception {
+            encoder.writeLong(value.getEndTime());
+            encoder.writeSmallInt(value.getResultType() == null ? 0 : value.getResultType().ordinal() + 1);
+        }
+
+        public TestCompleteEvent read(Decoder decoder) throws Exception {
+            long endTime = decoder.readLong();
+            int resultType = decoder.readSmallInt();
+            return new TestCompleteEvent(endTime, resultType == 0 ? null : RESULT_TYPES[resultType - 1]);
+        }
+    }
+
+    private static class DefaultTestOutputEventCodec implements Codec<DefaultTestOutputEvent> {
+        public void write(Encoder encoder, DefaultTestOutputEvent value) throws Exception {
+            encoder.writeSmallInt(value.getDestination().ordinal());
+            encoder.writeString(value.getMessage());
+        }
+
+        public DefaultTestOutputEvent read(Decoder decoder) throws Exception {
+            TestOutputEvent.Destination destination = DESTINATIONS[decoder.readSmallInt()];
+            String message = decoder.readString();
+            return new DefaultTestOutputEvent(destination, message);
+        }
+    }
+}
@@ -17,10 +17,15 @@
 package org.gradle.api.tasks.compile;
 
 import org.gradle.api.AntBuilder;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.changedetection.AbiClasspathAware;
+import org.gradle.api.internal.changedetection.AbiHasher;
+import org.gradle.api.internal.changedetection.FileSnapshotter;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.compile.*;
 import org.gradle.api.internal.tasks.compile.Compiler;
 import org.gradle.internal.Factory;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
@@ -33,7 +38,7 @@ import java.io.File;
  *
  * @author Hans Dockter
  */
-public class Compile extends AbstractCompile {
+public class Compile extends AbstractCompile implements AbiClasspathAware {
     private Compiler<JavaCompileSpec> javaCompiler;
     private File dependencyCacheDir;
     private final JavaCompileSpec spec = new DefaultJavaCompileSpec();
@@ -43,7 +48,17 @@ public class Compile extends AbstractCompile {
         JavaCompilerFactory inProcessCompilerFactory = new InProcessJavaCompilerFactory();
         JavaCompilerFactory defaultCompilerFactory = new DefaultJavaCompilerFactory((ProjectInternal) getProject(), antBuilderFactory, inProcessCompilerFactory);
         Compiler<JavaCompileSpec> delegatingCompiler = new DelegatingJavaCompiler(defaultCompilerFactory);
-        javaCompiler = new IncrementalJavaCompiler(delegatingCompiler, antBuilderFactory, getOutputs());
+        Factory<File> stateFileFactory = new Factory<File>() {
+            public File create() {
+                return new File(getTemporaryDir(), "incrementalCompile.bin");
+            }
+        };
+        Factory<FileSnapshotter> snapshotterFactory = new Factory<FileSnapshotter>() {
+            public FileSnapshotter create() {
+                return getServices().get(FileSnapshotter.class);
+            }
+        };
+        javaCompiler = new IncrementalJavaCompiler(delegatingCompiler, antBuilderFactory, getOutputs(), stateFileFactory, snapshotterFactory);
     }
 
     @TaskAction
@@ -84,4 +99,20 @@ public class Compile extends AbstractCompile {
     public void setJavaCompiler(Compiler<JavaCompileSpec> javaCompiler) {
         this.javaCompiler = javaCompiler;
     }
+
+    /**
+     * Returns the part of the classpath which affects the result of compilation only through its ABI. Excludes the classpath directories which
+     * contain an annotation processor, as the processor's implementation affects the result of compilation. The jars which contain an annotation
+     * processor are detected by the {@link AbiHasher} itself.
+     */
+    public FileCollection getAbiClasspath() {
+        if (getOptions().getCompilerArgs().contains("-processor")) {
+            return null;
+        }
+        return getClasspath().filter(new Spec<File>() {
+            public boolean isSatisfiedBy(File file) {
+                return !new File(file, AbiHasher.ANNOTATION_PROCESSOR_SERVICE).isFile();
+            }
+        });
+    }
 }
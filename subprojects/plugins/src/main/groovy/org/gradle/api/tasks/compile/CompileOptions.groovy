@@ -130,6 +130,13 @@ class CompileOptions extends AbstractOptions {
      */
     boolean useAnt = true
 
+    /**
+     * Whether to recompile only the source files which have changed since the previous compilation, along with the source files of the classes
+     * which depend on them. Falls back to recompiling all source files when this is not safe, for example when the classpath or a compile time
+     * constant has changed. Defaults to <tt>false</tt>.
+     */
+    boolean incremental = false
+
     /**
      * Convenience method to set fork options with named parameter syntax.
      */
@@ -160,7 +167,7 @@ class CompileOptions extends AbstractOptions {
     }
 
     List excludedFieldsFromOptionMap() {
-        ['debugOptions', 'forkOptions', 'compilerArgs', 'dependOptions', 'useDepend', 'useAnt']
+        ['debugOptions', 'forkOptions', 'compilerArgs', 'dependOptions', 'useDepend', 'useAnt', 'incremental']
     }
 
     Map fieldName2AntMap() {
@@ -101,6 +101,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
     private TestFramework testFramework;
     private boolean testReport = true;
     private boolean scanForTestClasses = true;
+    private boolean affectedTestsOnly;
     private long forkEvery;
     private int maxParallelForks = 1;
     private ListenerBroadcast<TestListener> testListenerBroadcaster;
@@ -847,6 +848,28 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         this.scanForTestClasses = scanForTestClasses;
     }
 
+    /**
+     * Specifies whether only the test classes affected by changes should be executed. When {@code true}, the class
+     * dependencies of each test class are recorded, and the next time this task executes only those test classes which
+     * are new, which failed in the previous execution, or which depend on a class that has changed since the previous
+     * execution are executed. A change to a jar or resource on the test classpath causes all tests to be executed. The
+     * default value is {@code false}.
+     *
+     * <p>The class dependencies are read from the compiled classes, so a dependency which the compiler has removed is not
+     * seen. In particular, the value of a compile-time constant, such as a {@code static final} field of a primitive or
+     * {@code String} type, is inlined into each class which uses it. A test class which uses a changed constant is not
+     * executed unless it is affected by some other change, so this option should not be used when tests depend on such
+     * constants.</p>
+     */
+    @Input
+    public boolean isAffectedTestsOnly() {
+        return affectedTestsOnly;
+    }
+
+    public void setAffectedTestsOnly(boolean affectedTestsOnly) {
+        this.affectedTestsOnly = affectedTestsOnly;
+    }
+
     /**
      * Returns the maximum number of test classes to execute in a forked test process. The forked test process will be
      * restarted when this limit is reached. The default value is 0 (no maximum).
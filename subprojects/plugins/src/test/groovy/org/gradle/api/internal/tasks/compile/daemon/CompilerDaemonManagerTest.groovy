@@ -0,0 +1,251 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.daemon
+
+import org.gradle.StartParameter
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.tasks.compile.CompileSpec
+import org.gradle.api.internal.tasks.compile.Compiler
+import org.gradle.api.logging.LogLevel
+import spock.lang.Specification
+
+class CompilerDaemonManagerTest extends Specification {
+    final ProjectInternal project = Mock()
+    final ProjectInternal rootProject = Mock()
+    final GradleInternal gradle = Mock()
+    final StartParameter startParameter = new StartParameter()
+    final DaemonForkOptions forkOptions = new DaemonForkOptions("128m", "256m", [])
+    final List<TestDaemon> started = []
+    long time = 0
+    long freeMemory = -1
+    long totalMemory = -1
+    CompilerDaemonManager manager = manager(0, 0)
+
+    def setup() {
+        _ * project.rootProject >> rootProject
+        _ * rootProject.projectDir >> new File("root")
+        _ * project.gradle >> gradle
+        _ * gradle.startParameter >> startParameter
+    }
+
+    def "reuses idle daemon which is compatible with fork options"() {
+        when:
+        def daemon = manager.getDaemon(project, forkOptions)
+        manager.release(daemon)
+        def reused = manager.getDaemon(project, new DaemonForkOptions(null, "128m", []))
+
+        then:
+        reused.is(daemon)
+        started.size() == 1
+    }
+
+    def "starts another daemon when the idle daemons are not compatible with fork options"() {
+        when:
+        manager.release(manager.getDaemon(project, forkOptions))
+        manager.getDaemon(project, new DaemonForkOptions("128m", "1g", []))
+
+        then:
+        started.size() == 2
+        !started[0].stopped
+    }
+
+    def "starts another daemon when the compatible daemon is in use"() {
+        when:
+        def daemon1 = manager.getDaemon(project, forkOptions)
+        def daemon2 = manager.getDaemon(project, forkOptions)
+
+        then:
+        !daemon1.is(daemon2)
+        started.size() == 2
+    }
+
+    def "starts another daemon when the idle daemons use a different log level"() {
+        when:
+        manager.release(manager.getDaemon(project, forkOptions))
+        startParameter.logLevel = LogLevel.DEBUG
+        manager.getDaemon(project, forkOptions)
+
+        then:
+        started.size() == 2
+        !started[0].stopped
+    }
+
+    def "stops daemon which has been idle for longer than the idle timeout"() {
+        when:
+        manager.release(manager.getDaemon(project, forkOptions))
+        time = 1000
+        manager.getDaemon(project, forkOptions)
+
+        then:
+        started[0].stopped
+        started.size() == 2
+    }
+
+    def "stops idle daemons when free physical memory is low"() {
+        def daemon = manager.getDaemon(project, forkOptions)
+        freeMemory = 50
+
+        when:
+        manager.release(daemon)
+
+        then:
+        started[0].stopped
+    }
+
+    def "does not stop daemon which is in use"() {
+        when:
+        manager.getDaemon(project, forkOptions)
+        time = 5000
+        freeMemory = 50
+        manager.stop()
+
+        then:
+        !started[0].stopped
+    }
+
+    def "stops discarded daemon and does not reuse it"() {
+        when:
+        def daemon = manager.getDaemon(project, forkOptions)
+        manager.discard(daemon)
+        def other = manager.getDaemon(project, forkOptions)
+
+        then:
+        started[0].stopped
+        !other.is(daemon)
+        started.size() == 2
+    }
+
+    def "cannot release daemon which is not in use"() {
+        def daemon = manager.getDaemon(project, forkOptions)
+        manager.release(daemon)
+
+        when:
+        manager.release(daemon)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "stops least recently used idle daemon when the pool holds too many daemons"() {
+        manager = manager(2, 0)
+
+        when:
+        def daemon1 = manager.getDaemon(project, forkOptions)
+        def daemon2 = manager.getDaemon(project, new DaemonForkOptions("128m", "1g", []))
+        manager.release(daemon1)
+        manager.release(daemon2)
+        manager.getDaemon(project, new DaemonForkOptions("128m", "2g", []))
+
+        then:
+        started.size() == 3
+        started[0].stopped
+        !started[1].stopped
+        !started[2].stopped
+    }
+
+    def "does not stop daemons in use when the pool holds too many daemons"() {
+        manager = manager(1, 0)
+
+        when:
+        manager.getDaemon(project, forkOptions)
+        manager.getDaemon(project, forkOptions)
+
+        then:
+        started.size() == 2
+        !started[0].stopped
+        !started[1].stopped
+    }
+
+    def "stops least recently used idle daemon when the heaps of the pool use too much physical memory"() {
+        manager = manager(0, 50)
+        totalMemory = 1024L * 1024 * 1024
+
+        when:
+        def daemon1 = manager.getDaemon(project, forkOptions)
+        def daemon2 = manager.getDaemon(project, forkOptions)
+        manager.release(daemon2)
+        manager.release(daemon1)
+        manager.getDaemon(project, new DaemonForkOptions(null, null, []))
+
+        then:
+        started.size() == 3
+        !started[0].stopped
+        started[1].stopped
+        !started[2].stopped
+    }
+
+    def "keeps a single daemon whose heap uses too much physical memory"() {
+        manager = manager(0, 50)
+        totalMemory = 256L * 1024 * 1024
+
+        when:
+        def daemon = manager.getDaemon(project, forkOptions)
+        manager.release(daemon)
+
+        then:
+        !started[0].stopped
+        manager.getDaemon(project, forkOptions).is(daemon)
+    }
+
+    def manager(int maxDaemons, int maxHeapPercent) {
+        return new CompilerDaemonManager(1000, 100, maxDaemons, maxHeapPercent) {
+            @Override
+            protected long currentTimeMillis() {
+                return time
+            }
+
+            @Override
+            protected long getFreePhysicalMemory() {
+                return freeMemory
+            }
+
+            @Override
+            protected long getTotalPhysicalMemory() {
+                return totalMemory
+            }
+
+            @Override
+            protected CompilerDaemon startDaemon(ProjectInternal project, DaemonForkOptions forkOptions, File workingDir, LogLevel logLevel) {
+                TestDaemon daemon = new TestDaemon(forkOptions)
+                started << daemon
+                return daemon
+            }
+        }
+    }
+
+    static class TestDaemon implements CompilerDaemon {
+        final DaemonForkOptions forkOptions
+        boolean stopped
+
+        TestDaemon(DaemonForkOptions forkOptions) {
+            this.forkOptions = forkOptions
+        }
+
+        CompileResult execute(Compiler compiler, CompileSpec spec) {
+            throw new UnsupportedOperationException()
+        }
+
+        boolean isCompatibleWith(DaemonForkOptions required) {
+            return forkOptions.isCompatibleWith(required)
+        }
+
+        void stop() {
+            stopped = true
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.daemon
+
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.tasks.compile.Compiler
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec
+import org.gradle.api.tasks.compile.CompileOptions
+import spock.lang.Specification
+
+class DaemonJavaCompilerTest extends Specification {
+    final ProjectInternal project = Mock()
+    final Compiler<JavaCompileSpec> delegate = Mock()
+    final CompilerDaemonManager daemonManager = Mock()
+    final CompilerDaemon daemon = Mock()
+    final JavaCompileSpec spec = Mock()
+    final DaemonJavaCompiler compiler = new DaemonJavaCompiler(project, delegate, daemonManager)
+
+    def setup() {
+        _ * spec.compileOptions >> new CompileOptions()
+        _ * daemonManager.getDaemon(project, !null) >> daemon
+    }
+
+    def "releases daemon when compilation has completed"() {
+        def result = new CompileResult(true, null)
+
+        when:
+        def workResult = compiler.execute(spec)
+
+        then:
+        workResult.is(result)
+        1 * daemon.execute(delegate, spec) >> result
+        1 * daemonManager.release(daemon)
+        0 * daemonManager.discard(_)
+    }
+
+    def "releases daemon when compilation has failed"() {
+        def failure = new RuntimeException("broken")
+
+        when:
+        compiler.execute(spec)
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure)
+        1 * daemon.execute(delegate, spec) >> new CompileResult(false, failure)
+        1 * daemonManager.release(daemon)
+        0 * daemonManager.discard(_)
+    }
+
+    def "discards daemon when communication with daemon fails"() {
+        def failure = new RuntimeException("broken")
+
+        when:
+        compiler.execute(spec)
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure)
+        1 * daemon.execute(delegate, spec) >> { throw failure }
+        1 * daemonManager.discard(daemon)
+        0 * daemonManager.release(_)
+    }
+}
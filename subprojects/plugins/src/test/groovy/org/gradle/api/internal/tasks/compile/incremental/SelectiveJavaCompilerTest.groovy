@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental
+
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter
+import org.gradle.api.internal.changedetection.DefaultHasher
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.internal.tasks.compile.Compiler
+import org.gradle.api.internal.tasks.compile.DefaultJavaCompileSpec
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec
+import org.gradle.api.internal.tasks.compile.SimpleWorkResult
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class SelectiveJavaCompilerTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final Compiler<JavaCompileSpec> fullCompiler = Mock()
+    final Compiler<JavaCompileSpec> compiler = Mock()
+    final ClassFileAnalyzer analyzer = Mock()
+    final TestFile srcDir = tmpDir.createDir('src')
+    final TestFile classesDir = tmpDir.createDir('classes')
+    final TestFile jar = tmpDir.createFile('lib.jar')
+    final TestFile stateFile = tmpDir.file('state.bin')
+    final SelectiveJavaCompiler selectiveCompiler = new SelectiveJavaCompiler(fullCompiler, compiler, stateFile, new DefaultFileSnapshotter(new DefaultHasher()), analyzer)
+    final Map<String, List<String>> dependencies = [:]
+    final Map<String, Map<String, Object>> constants = [:]
+    final List<String> compiled = []
+
+    def setup() {
+        ['A', 'B', 'C', 'D'].each { srcDir.file("org/${it}.java").text = it }
+        dependencies['org/A'] = ['org/C']
+        dependencies['org/D'] = ['org/A']
+        _ * analyzer.analyze(_) >> { File classFile ->
+            String className = classFile.absolutePath.substring(classesDir.absolutePath.length() + 1).replace(File.separator, '/') - '.class'
+            def details = new ClassFileDetails(className)
+            details.dependencies.addAll(dependencies[className] ?: [])
+            details.constants.putAll(constants[className] ?: [:])
+            return details
+        }
+        _ * fullCompiler.execute(_) >> { JavaCompileSpec spec -> compile(spec) }
+        _ * compiler.execute(_) >> { JavaCompileSpec spec -> compile(spec) }
+    }
+
+    def "recompiles all source files when there is no previous state"() {
+        when:
+        execute()
+
+        then:
+        compiled == ['A', 'B', 'C', 'D']
+        stateFile.file
+    }
+
+    def "recompiles all source files when no source file has changed"() {
+        execute()
+        compiled.clear()
+
+        when:
+        execute()
+
+        then:
+        1 * fullCompiler.execute(_) >> { JavaCompileSpec spec -> compile(spec) }
+        compiled == ['A', 'B', 'C', 'D']
+    }
+
+    def "recompiles changed source file and the source files which transitively depend on it"() {
+        execute()
+        compiled.clear()
+        srcDir.file('org/C.java').text = 'changed'
+
+        when:
+        execute()
+
+        then:
+        0 * fullCompiler._
+        compiled == ['A', 'C', 'D']
+    }
+
+    def "recompiles new source file only"() {
+        execute()
+        compiled.clear()
+        srcDir.file('org/E.java').text = 'E'
+
+        when:
+        execute()
+
+        then:
+        compiled == ['E']
+    }
+
+    def "removes class files of removed source file and recompiles the source files which depend on it"() {
+        execute()
+        compiled.clear()
+        srcDir.file('org/C.java').delete()
+
+        when:
+        execute()
+
+        then:
+        compiled == ['A', 'D']
+        !classesDir.file('org/C.class').exists()
+        classesDir.file('org/B.class').exists()
+    }
+
+    def "recompiles all source files when the constants of a changed class have changed"() {
+        constants['org/B'] = [VALUE: 1]
+        execute()
+        compiled.clear()
+        srcDir.file('org/B.java').text = 'changed'
+        constants['org/B'] = [VALUE: 2]
+
+        when:
+        execute()
+
+        then:
+        compiled == ['B', 'A', 'B', 'C', 'D']
+    }
+
+    def "recompiles changed source file only when its constants have not changed"() {
+        constants['org/B'] = [VALUE: 1]
+        execute()
+        compiled.clear()
+        srcDir.file('org/B.java').text = 'changed'
+
+        when:
+        execute()
+
+        then:
+        compiled == ['B']
+    }
+
+    def "recompiles all source files when the classpath has changed"() {
+        execute()
+        compiled.clear()
+        srcDir.file('org/C.java').text = 'changed'
+        jar.text = 'changed'
+
+        when:
+        execute()
+
+        then:
+        compiled == ['A', 'B', 'C', 'D']
+    }
+
+    def "recompiles all source files when a class file is missing"() {
+        execute()
+        compiled.clear()
+        srcDir.file('org/C.java').text = 'changed'
+        classesDir.file('org/B.class').delete()
+
+        when:
+        execute()
+
+        then:
+        compiled == ['A', 'B', 'C', 'D']
+    }
+
+    def execute() {
+        def spec = new DefaultJavaCompileSpec()
+        spec.source = new FileTreeAdapter(new DirectoryFileTree(srcDir))
+        spec.classpath = [jar]
+        spec.destinationDir = classesDir
+        selectiveCompiler.execute(spec)
+    }
+
+    def compile(JavaCompileSpec spec) {
+        spec.source.files.collect { it.name - '.java' }.sort().each {
+            compiled << it
+            classesDir.file("org/${it}.class").text = it
+        }
+        return new SimpleWorkResult(true)
+    }
+}
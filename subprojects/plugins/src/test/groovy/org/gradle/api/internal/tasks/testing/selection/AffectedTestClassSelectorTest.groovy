@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection
+
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter
+import org.gradle.api.internal.changedetection.DefaultHasher
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class AffectedTestClassSelectorTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final ClassDependencyAnalyzer analyzer = Mock()
+    final TestFile classesDir = tmpDir.createDir('classes')
+    final TestFile jar = tmpDir.createFile('lib.jar')
+    final TestFile stateFile = tmpDir.file('state.bin')
+
+    def setup() {
+        analyzer.getDependencies(classesDir.file('org/ATest.class')) >> (['org/A'] as Set)
+        analyzer.getDependencies(classesDir.file('org/BTest.class')) >> (['org/B'] as Set)
+        analyzer.getDependencies(classesDir.file('org/A.class')) >> (['org/C'] as Set)
+        analyzer.getDependencies(_) >> ([] as Set)
+        ['ATest', 'BTest', 'A', 'B', 'C'].each { classesDir.file("org/${it}.class").text = it }
+    }
+
+    def "selects all test classes when there is no previous state"() {
+        def selector = start()
+
+        expect:
+        selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+    }
+
+    def "selects no test classes when nothing has changed"() {
+        run('org.ATest', 'org.BTest')
+        def selector = start()
+
+        expect:
+        !selector.isSelected('org.ATest')
+        !selector.isSelected('org.BTest')
+    }
+
+    def "selects test classes which transitively depend on a changed class"() {
+        run('org.ATest', 'org.BTest')
+        classesDir.file('org/C.class').text = 'changed'
+        def selector = start()
+
+        expect:
+        selector.isSelected('org.ATest')
+        !selector.isSelected('org.BTest')
+    }
+
+    def "selects test classes which depend on a removed class"() {
+        run('org.ATest', 'org.BTest')
+        classesDir.file('org/B.class').delete()
+        def selector = start()
+
+        expect:
+        !selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+    }
+
+    def "selects changed and new test classes"() {
+        run('org.ATest')
+        classesDir.file('org/ATest.class').text = 'changed'
+        def selector = start()
+
+        expect:
+        selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+    }
+
+    def "selects test classes which failed in the previous execution"() {
+        def selector = start()
+        selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+        selector.testClassFailed('org.BTest')
+        selector.stop(true)
+
+        selector = start()
+
+        expect:
+        !selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+    }
+
+    def "does not record the state of an execution which did not complete"() {
+        run('org.ATest')
+        classesDir.file('org/ATest.class').text = 'changed'
+        def selector = start()
+        selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+        selector.stop(false)
+
+        selector = start()
+
+        expect:
+        selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+    }
+
+    def "selects all test classes when a jar changes"() {
+        run('org.ATest', 'org.BTest')
+        jar.text = 'changed'
+        def selector = start()
+
+        expect:
+        selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+    }
+
+    def "selects all test classes when a resource changes"() {
+        run('org.ATest', 'org.BTest')
+        classesDir.file('org/resource.properties').text = 'changed'
+        def selector = start()
+
+        expect:
+        selector.isSelected('org.ATest')
+        selector.isSelected('org.BTest')
+    }
+
+    def run(String... testClasses) {
+        def selector = start()
+        testClasses.each { selector.isSelected(it) }
+        selector.stop(true)
+    }
+
+    def start() {
+        def selector = new AffectedTestClassSelector(stateFile, new DefaultFileSnapshotter(new DefaultHasher()), analyzer)
+        selector.start(new SimpleFileCollection(classesDir, jar))
+        return selector
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestMethodDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.DefaultTestSuiteDescriptor
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.messaging.remote.internal.BinaryMessageSerializer
+import org.gradle.util.CompositeIdGenerator
+import spock.lang.Specification
+
+class TestEventCodecsTest extends Specification {
+    final BinaryMessageSerializer<Object> serializer = new BinaryMessageSerializer<Object>(getClass().classLoader)
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+
+    def "serializer uses the test event codecs"() {
+        expect:
+        serializer.getCodec(type) != null
+
+        where:
+        type << [DefaultTestDescriptor, DefaultTestMethodDescriptor, DefaultTestClassDescriptor, DefaultTestSuiteDescriptor, TestStartEvent,
+                TestCompleteEvent, DefaultTestOutputEvent]
+    }
+
+    def "can write and read test descriptors"() {
+        def id = new CompositeIdGenerator.CompositeId(1L, 2L)
+
+        when:
+        def method = transport(new DefaultTestMethodDescriptor(id, "SomeTest", "someMethod"))
+        def test = transport(new DefaultTestDescriptor(id, "SomeTest", "someTest"))
+        def testClass = transport(new DefaultTestClassDescriptor(id, "SomeTest"))
+        def suite = transport(new DefaultTestSuiteDescriptor(id, "suite"))
+
+        then:
+        method instanceof DefaultTestMethodDescriptor
+        method.id == id
+        method.className == "SomeTest"
+        method.name == "someMethod"
+
+        test.class == DefaultTestDescriptor
+        test.id == id
+        test.className == "SomeTest"
+        test.name == "someTest"
+
+        testClass instanceof DefaultTestClassDescriptor
+        testClass.id == id
+        testClass.className == "SomeTest"
+
+        suite.class == DefaultTestSuiteDescriptor
+        suite.id == id
+        suite.name == "suite"
+    }
+
+    def "can write and read test events"() {
+        def parentId = new CompositeIdGenerator.CompositeId(1L, 2L)
+
+        when:
+        def start = transport(new TestStartEvent(1234L, parentId))
+        def startWithoutParent = transport(new TestStartEvent(1234L))
+        def complete = transport(new TestCompleteEvent(4321L, TestResult.ResultType.FAILURE))
+        def completeWithoutResult = transport(new TestCompleteEvent(4321L))
+        def output = transport(new DefaultTestOutputEvent(TestOutputEvent.Destination.StdErr, "some output"))
+
+        then:
+        start.startTime == 1234L
+        start.parentId == parentId
+        startWithoutParent.parentId == null
+        complete.endTime == 4321L
+        complete.resultType == TestResult.ResultType.FAILURE
+        completeWithoutResult.resultType == null
+        output.destination == TestOutputEvent.Destination.StdErr
+        output.message == "some output"
+    }
+
+    def transport(Object value) {
+        bytes.reset()
+        serializer.write(value, new DataOutputStream(bytes))
+        return serializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), null, null)
+    }
+}
@@ -48,6 +48,7 @@ class CompileOptionsTest {
         assertFalse(compileOptions.verbose)
         assertFalse(compileOptions.fork)
         assertTrue(compileOptions.useAnt)
+        assertFalse(compileOptions.incremental)
 
         assertThat(compileOptions.compilerArgs, isEmpty())
         assertNull(compileOptions.encoding)
@@ -65,6 +66,11 @@ class CompileOptionsTest {
         assertEquals(optionMap.subMap(TEST_FORK_OPTION_MAP.keySet()), TEST_FORK_OPTION_MAP)
     }
 
+    @Test public void testIncrementalIsNotPassedOnToAnt() {
+        compileOptions.incremental = true
+        assert !compileOptions.optionMap().containsKey('incremental')
+    }
+
     @Test public void testForkOptionsAreNotPassedOnToAntIfGradleForkingIsUsed() {
         compileOptions.useAnt = false
         Map optionMap = compileOptions.optionMap()